@@ -0,0 +1,116 @@
+package com.app.cdcservice.benchmark;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import com.app.cdcservice.service.ChangeBatch;
+import com.app.cdcservice.service.ChangeBatchWriter;
+import com.app.cdcservice.service.ChangeEventDecoder;
+import com.app.cdcservice.service.ParallelApplyEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end decode and apply throughput through the {@link ParallelApplyEngine} into an in-memory sink,
+ * in changes per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApplyThroughputBenchmark {
+
+    static final int EVENTS = 10_000;
+    static final int KEYS = 1_000;
+
+    @Param({"100", "500"})
+    public int batchSize;
+
+    @Param({"16", "256"})
+    public int rowWidth;
+
+    // Apply lanes, i.e. concurrent writer threads
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    private byte[][] values;
+    private ChangeEventDecoder decoder;
+    private ParallelApplyEngine engine;
+
+    @Setup
+    public void setUp() {
+        values = new byte[EVENTS][];
+        for (int i = 0; i < EVENTS; i++) {
+            values[i] = BenchmarkData.envelope(i % KEYS, rowWidth, true).getBytes(StandardCharsets.UTF_8);
+        }
+
+        ApplyProperties applyProperties = new ApplyProperties();
+        applyProperties.setLanes(threads);
+        applyProperties.setQueueDepth(4096);
+        decoder = new ChangeEventDecoder(new ObjectMapper(), applyProperties, new EventFormatProperties());
+        SinkProperties sinkProperties = new SinkProperties();
+        sinkProperties.setBatchSize(batchSize);
+        sinkProperties.setLingerMs(1);
+        engine = new ParallelApplyEngine("benchmark", new InMemorySink(), applyProperties, sinkProperties,
+                new SimpleMeterRegistry());
+        engine.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        engine.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long decodeAndApply() throws Exception {
+        for (byte[] value : values) {
+            engine.submit(decoder.decode(value));
+        }
+        if (!engine.drain(60_000)) {
+            throw new IllegalStateException("Apply pipeline did not drain");
+        }
+        return engine.committedSequence();
+    }
+
+    /**
+     * Stand-in for the target table.
+     */
+    static final class InMemorySink implements ChangeBatchWriter {
+
+        private final Map<Long, Employee> rows = new ConcurrentHashMap<>();
+
+        @Override
+        public void write(ChangeBatch batch) {
+            for (ChangeRecord record : batch.records()) {
+                if (record.isDelete()) {
+                    rows.remove(record.getId());
+                } else {
+                    rows.put(record.getId(), record.toEmployee());
+                }
+            }
+        }
+    }
+}
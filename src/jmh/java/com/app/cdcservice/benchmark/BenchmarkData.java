@@ -0,0 +1,57 @@
+package com.app.cdcservice.benchmark;
+
+/**
+ * Builds synthetic Debezium change envelopes for the employee table.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param id       row id
+     * @param rowWidth approximate number of characters across the text columns
+     * @param schema   whether to wrap the payload in a schema envelope, as the JSON converter does by default
+     * @return the change event value as JSON
+     */
+    static String envelope(long id, int rowWidth, boolean schema) {
+        String text = filler(Math.max(1, rowWidth / 3), id);
+        String payload = "{\"before\":null,\"after\":{\"id\":" + id + ",\"name\":\"" + text + "\",\"position\":\"" + text
+                + "\",\"salary\":" + (1000 + id % 5000) + ".25,\"department\":\"" + text + "\"},"
+                + "\"source\":{\"version\":\"1.9.0.Final\",\"connector\":\"postgresql\",\"name\":\"dbserver1\","
+                + "\"ts_ms\":1650000000000,\"snapshot\":\"false\",\"db\":\"source_db\",\"schema\":\"public\","
+                + "\"table\":\"employee\",\"txId\":" + (500 + id) + ",\"lsn\":" + (24000000 + id * 64) + "},"
+                + "\"op\":\"u\",\"ts_ms\":1650000000100}";
+        if (!schema) {
+            return payload;
+        }
+        return "{\"schema\":{\"type\":\"struct\",\"fields\":[{\"type\":\"struct\",\"fields\":["
+                + "{\"type\":\"int64\",\"optional\":false,\"field\":\"id\"},"
+                + "{\"type\":\"string\",\"optional\":true,\"field\":\"name\"},"
+                + "{\"type\":\"string\",\"optional\":true,\"field\":\"position\"},"
+                + "{\"type\":\"double\",\"optional\":true,\"field\":\"salary\"},"
+                + "{\"type\":\"string\",\"optional\":true,\"field\":\"department\"}],"
+                + "\"optional\":true,\"name\":\"dbserver1.public.employee.Value\",\"field\":\"after\"}],"
+                + "\"optional\":false,\"name\":\"dbserver1.public.employee.Envelope\"},\"payload\":" + payload + "}";
+    }
+
+    /**
+     * @param id         row id
+     * @param department department column value
+     * @return a schemaless insert event as JSON
+     */
+    static String insert(long id, String department) {
+        return "{\"before\":null,\"after\":{\"id\":" + id + ",\"name\":\"" + filler(12, id)
+                + "\",\"position\":\"Engineer\",\"salary\":" + (40000 + id % 50000) + ".5,\"department\":\""
+                + department + "\"},\"source\":{\"ts_ms\":1650000000000,\"txId\":" + (500 + id) + ",\"lsn\":"
+                + (24000000 + id * 64) + "},\"op\":\"c\",\"ts_ms\":1650000000100}";
+    }
+
+    static String filler(int length, long seed) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + (seed + i) % 26));
+        }
+        return sb.toString();
+    }
+}
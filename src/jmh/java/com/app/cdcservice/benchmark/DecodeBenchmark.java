@@ -0,0 +1,59 @@
+package com.app.cdcservice.benchmark;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.service.ChangeEventDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Debezium envelope JSON to {@link ChangeRecord} decoding from the raw message bytes. Records are released
+ * after each decode, as the apply stage does, so the pool is in steady state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"16", "256", "2048"})
+    public int rowWidth;
+
+    @Param({"true", "false"})
+    public boolean schema;
+
+    private ChangeEventDecoder decoder;
+    private byte[] value;
+
+    @Setup
+    public void setUp() {
+        decoder = new ChangeEventDecoder(new ObjectMapper(), new ApplyProperties(),
+                new EventFormatProperties());
+        value = BenchmarkData.envelope(42, rowWidth, schema).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long decode() throws IOException {
+        ChangeRecord record = decoder.decode(value);
+        long lsn = record.getLsn();
+        record.release();
+        return lsn;
+    }
+}
@@ -0,0 +1,177 @@
+package com.app.cdcservice.benchmark;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.service.BinaryChangeEventConverter;
+import com.app.cdcservice.service.ChangeEventDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.storage.Converter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change topic encodings compared: Debezium JSON with and without the schema block, as the JSON converter
+ * writes it, and the binary format written by {@link BinaryChangeEventConverter}. Events are produced by the
+ * actual converters from the same Debezium envelope structs.
+ * <p>
+ * The score is decode throughput in events per second. Bytes per event, uncompressed and in a Kafka batch
+ * of {@code BATCH} events compressed with LZ4 and zstd, are reported as secondary results
+ * ({@code bytesPerEvent}, {@code lz4BytesPerEvent}, {@code zstdBytesPerEvent}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventFormatBenchmark {
+
+    static final int BATCH = 500;
+
+    static final Schema ROW = SchemaBuilder.struct().name("dbserver1.public.employee.Value").optional()
+            .field("id", Schema.INT64_SCHEMA)
+            .field("name", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("position", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("salary", Schema.OPTIONAL_FLOAT64_SCHEMA)
+            .field("department", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    static final Schema SOURCE = SchemaBuilder.struct().name("io.debezium.connector.postgresql.Source")
+            .field("version", Schema.STRING_SCHEMA)
+            .field("connector", Schema.STRING_SCHEMA)
+            .field("name", Schema.STRING_SCHEMA)
+            .field("ts_ms", Schema.INT64_SCHEMA)
+            .field("snapshot", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("db", Schema.STRING_SCHEMA)
+            .field("schema", Schema.STRING_SCHEMA)
+            .field("table", Schema.STRING_SCHEMA)
+            .field("txId", Schema.OPTIONAL_INT64_SCHEMA)
+            .field("lsn", Schema.OPTIONAL_INT64_SCHEMA)
+            .build();
+
+    static final Schema ENVELOPE = SchemaBuilder.struct().name("dbserver1.public.employee.Envelope")
+            .field("before", ROW)
+            .field("after", ROW)
+            .field("source", SOURCE)
+            .field("op", Schema.STRING_SCHEMA)
+            .field("ts_ms", Schema.OPTIONAL_INT64_SCHEMA)
+            .build();
+
+    // json-schema: JSON converter with schemas.enable=true, the Connect default
+    @Param({"json-schema", "json", "binary"})
+    public String format;
+
+    @Param({"16", "256"})
+    public int rowWidth;
+
+    private ChangeEventDecoder decoder;
+    private byte[][] values;
+    private int next;
+    private double bytesPerEvent;
+    private double lz4BytesPerEvent;
+    private double zstdBytesPerEvent;
+
+    @Setup
+    public void setUp() throws IOException {
+        String registryFile = Files.createTempDirectory("schemas").resolve("schema-registry.json").toString();
+        EventFormatProperties eventFormatProperties = new EventFormatProperties();
+        eventFormatProperties.setSchemaRegistryFile(registryFile);
+        decoder = new ChangeEventDecoder(new ObjectMapper(), new ApplyProperties(), eventFormatProperties);
+
+        Converter converter;
+        if ("binary".equals(format)) {
+            converter = new BinaryChangeEventConverter();
+            converter.configure(Collections.singletonMap(BinaryChangeEventConverter.SCHEMA_REGISTRY_FILE_CONFIG,
+                    registryFile), false);
+        } else {
+            converter = new JsonConverter();
+            converter.configure(Collections.singletonMap("schemas.enable", String.valueOf("json-schema".equals(format))),
+                    false);
+        }
+        values = new byte[BATCH][];
+        SimpleRecord[] records = new SimpleRecord[BATCH];
+        long bytes = 0;
+        for (int i = 0; i < BATCH; i++) {
+            values[i] = converter.fromConnectData("dbserver1.public.employee", ENVELOPE, envelope(i));
+            records[i] = new SimpleRecord(values[i]);
+            bytes += values[i].length;
+        }
+        bytesPerEvent = bytes / (double) BATCH;
+        lz4BytesPerEvent = MemoryRecords.withRecords(CompressionType.LZ4, records).sizeInBytes() / (double) BATCH;
+        zstdBytesPerEvent = MemoryRecords.withRecords(CompressionType.ZSTD, records).sizeInBytes() / (double) BATCH;
+    }
+
+    @Benchmark
+    public long decode(EventSize size) throws IOException {
+        // JMH zeroes the counters after every setup, so they are set here; the same for every format
+        size.bytesPerEvent = bytesPerEvent;
+        size.lz4BytesPerEvent = lz4BytesPerEvent;
+        size.zstdBytesPerEvent = zstdBytesPerEvent;
+        ChangeRecord record = decoder.decode(values[next]);
+        next = (next + 1) % BATCH;
+        long lsn = record.getLsn();
+        record.release();
+        return lsn;
+    }
+
+    /**
+     * Encoded size of the events, in bytes per event.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EventSize {
+
+        public double bytesPerEvent;
+        public double lz4BytesPerEvent;
+        public double zstdBytesPerEvent;
+    }
+
+    private Struct envelope(long id) {
+        String text = BenchmarkData.filler(Math.max(1, rowWidth / 3), id);
+        Struct after = new Struct(ROW)
+                .put("id", id)
+                .put("name", text)
+                .put("position", text)
+                .put("salary", 1000 + id % 5000 + 0.25)
+                .put("department", text);
+        Struct source = new Struct(SOURCE)
+                .put("version", "1.9.0.Final")
+                .put("connector", "postgresql")
+                .put("name", "dbserver1")
+                .put("ts_ms", 1650000000000L)
+                .put("snapshot", "false")
+                .put("db", "source_db")
+                .put("schema", "public")
+                .put("table", "employee")
+                .put("txId", 500 + id)
+                .put("lsn", 24000000 + id * 64);
+        return new Struct(ENVELOPE)
+                .put("after", after)
+                .put("source", source)
+                .put("op", "u")
+                .put("ts_ms", 1650000000100L);
+    }
+}
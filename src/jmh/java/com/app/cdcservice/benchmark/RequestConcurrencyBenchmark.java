@@ -0,0 +1,180 @@
+package com.app.cdcservice.benchmark;
+
+import com.app.cdcservice.config.ThreadProperties;
+import com.app.cdcservice.service.WorkerThreads;
+import org.HdrHistogram.Histogram;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the embedded Tomcat with platform request threads against virtual request threads, as
+ * {@code cdc.threads.virtual} configures it. Each invocation sends {@code concurrency} simultaneous requests
+ * to a handler that blocks for {@code blockMs}, standing in for a JDBC or Kafka Connect call; the score is
+ * the time until the whole burst is answered. With 200 platform threads a burst larger than the pool
+ * queues, so requests per second are capped at about {@code 200 * 1000 / blockMs}.
+ * <p>
+ * The p50, p99 and maximum latency of the individual requests in each iteration are reported as secondary
+ * results ({@code latencyP50Ms}, {@code latencyP99Ms}, {@code latencyMaxMs}), so they reach the JSON results
+ * too. The virtual mode needs Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RequestConcurrencyBenchmark {
+
+    // Tomcat's default server.tomcat.threads.max
+    static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"100", "1000"})
+    public int concurrency;
+
+    @Param({"20"})
+    public int blockMs;
+
+    private Tomcat tomcat;
+    private HttpClient client;
+    private HttpRequest request;
+    private Histogram latencies;
+
+    @Setup
+    public void setUp() throws Exception {
+        ThreadProperties properties = new ThreadProperties();
+        properties.setVirtual("virtual".equals(mode));
+        WorkerThreads workerThreads = new WorkerThreads(properties);
+        if (properties.isVirtual() && !workerThreads.isVirtual()) {
+            throw new IllegalStateException("The virtual mode needs Java 21 or later");
+        }
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("tomcat").toString());
+        Connector connector = tomcat.getConnector();
+        connector.setPort(0);
+        connector.setProperty("maxThreads", String.valueOf(PLATFORM_THREADS));
+        connector.setProperty("maxConnections", "10000");
+        connector.setProperty("acceptCount", "10000");
+        if (workerThreads.isVirtual()) {
+            connector.getProtocolHandler().setExecutor(workerThreads.executor("http-", 0));
+        }
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "blocking", new BlockingServlet(blockMs));
+        context.addServletMappingDecoded("/blocking", "blocking");
+        tomcat.start();
+
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + connector.getLocalPort() + "/blocking"))
+                .timeout(Duration.ofSeconds(60))
+                .build();
+        latencies = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetLatencies() {
+        latencies.reset();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Benchmark
+    public int burst(Latency latency) {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            long start = System.nanoTime();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenAccept(response -> {
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException("Unexpected status " + response.statusCode());
+                        }
+                        record(System.nanoTime() - start);
+                    });
+        }
+        CompletableFuture.allOf(responses).join();
+        synchronized (latencies) {
+            latency.latencyP50Ms = latencies.getValueAtPercentile(50) / 1000.0;
+            latency.latencyP99Ms = latencies.getValueAtPercentile(99) / 1000.0;
+            latency.latencyMaxMs = latencies.getMaxValue() / 1000.0;
+        }
+        return responses.length;
+    }
+
+    private void record(long nanos) {
+        synchronized (latencies) {
+            latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), latencies.getHighestTrackableValue()));
+        }
+    }
+
+    /**
+     * Request latency percentiles of the iteration so far, in milliseconds.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Latency {
+
+        public double latencyP50Ms;
+        public double latencyP99Ms;
+        public double latencyMaxMs;
+    }
+
+    /**
+     * Blocks the request thread as a database or Kafka Connect call would.
+     */
+    static final class BlockingServlet extends HttpServlet {
+
+        private final long blockMs;
+
+        BlockingServlet(long blockMs) {
+            this.blockMs = blockMs;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            try {
+                Thread.sleep(blockMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.setContentType("text/plain");
+            response.getWriter().write("ok");
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.app.cdcservice.benchmark;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.config.TransformProperties;
+import com.app.cdcservice.service.ChangeBatch;
+import com.app.cdcservice.service.ChangeBatchWriter;
+import com.app.cdcservice.service.ChangeEventDecoder;
+import com.app.cdcservice.service.ChangeTransformer;
+import com.app.cdcservice.service.FlowController;
+import com.app.cdcservice.service.ParallelApplyEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decode and apply throughput with the {@link ChangeTransformer} against the passthrough path, in changes per
+ * second. One in four events matches the filter, and every written row costs {@code writeCost} CPU tokens in
+ * the sink as a stand-in for the target round trip, so the gain from rows the filter keeps out of the target
+ * can be weighed against the cost of evaluating the expressions. The share of events written as rows is
+ * reported as the secondary result {@code rowsPerEvent}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformBenchmark {
+
+    static final int EVENTS = 10_000;
+    static final String[] DEPARTMENTS = {"Engineering", "Sales", "Finance", "Support"};
+
+    // passthrough: no transformer; filter: department filter; masked: filter plus masked and bucketed columns
+    @Param({"passthrough", "filter", "masked"})
+    public String transform;
+
+    @Param({"0", "2000"})
+    public long writeCost;
+
+    private byte[][] values;
+    private ChangeEventDecoder decoder;
+    private ParallelApplyEngine engine;
+    private CostlySink sink;
+
+    @Setup
+    public void setUp() {
+        values = new byte[EVENTS][];
+        for (int i = 0; i < EVENTS; i++) {
+            values[i] = BenchmarkData.insert(i, DEPARTMENTS[i % DEPARTMENTS.length]).getBytes(StandardCharsets.UTF_8);
+        }
+
+        ApplyProperties applyProperties = new ApplyProperties();
+        applyProperties.setLanes(4);
+        decoder = new ChangeEventDecoder(new ObjectMapper(), applyProperties, new EventFormatProperties());
+        SinkProperties sinkProperties = new SinkProperties();
+        sinkProperties.setBatchSize(500);
+        sinkProperties.setLingerMs(1);
+        TransformProperties transformProperties = new TransformProperties();
+        if (!"passthrough".equals(transform)) {
+            transformProperties.setFilter("department == 'Engineering'");
+        }
+        if ("masked".equals(transform)) {
+            transformProperties.setSet(Map.of("name", "#mask(name)", "salary", "#bucket(salary, 10000.0)"));
+            transformProperties.setDrop(List.of("position"));
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        sink = new CostlySink(writeCost);
+        engine = new ParallelApplyEngine("benchmark", sink, applyProperties, sinkProperties, meterRegistry,
+                runnable -> {
+                    Thread thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                FlowController.fixed("benchmark", sinkProperties.getBatchSize(), applyProperties.getLanes(), meterRegistry),
+                new ChangeTransformer(transformProperties, meterRegistry));
+        engine.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        engine.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long decodeTransformAndApply(WrittenRows written) throws Exception {
+        for (byte[] value : values) {
+            engine.submit(decoder.decode(value));
+        }
+        if (!engine.drain(60_000)) {
+            throw new IllegalStateException("Apply pipeline did not drain");
+        }
+        written.rowsPerEvent = (double) sink.rows.get() / sink.events.addAndGet(EVENTS);
+        return engine.committedSequence();
+    }
+
+    /**
+     * Rows the sink wrote per submitted event.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WrittenRows {
+
+        public double rowsPerEvent;
+    }
+
+    /**
+     * Sink spending a fixed amount of CPU per written row.
+     */
+    static final class CostlySink implements ChangeBatchWriter {
+
+        private final long tokensPerRow;
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong events = new AtomicLong();
+
+        CostlySink(long tokensPerRow) {
+            this.tokensPerRow = tokensPerRow;
+        }
+
+        @Override
+        public void write(ChangeBatch batch) {
+            Blackhole.consumeCPU(tokensPerRow * batch.size());
+            rows.addAndGet(batch.size());
+        }
+    }
+}
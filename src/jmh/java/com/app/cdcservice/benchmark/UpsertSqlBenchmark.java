@@ -0,0 +1,58 @@
+package com.app.cdcservice.benchmark;
+
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import com.app.cdcservice.service.ChangeBatch;
+import com.app.cdcservice.service.EmployeeSinkWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a micro-batch and the column arrays its upsert statement binds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpsertSqlBenchmark {
+
+    @Param({"1", "100", "500", "1000"})
+    public int batchSize;
+
+    private ChangeRecord[] records;
+
+    @Setup
+    public void setUp() {
+        // Every key changes twice so the batch collapses half of its events
+        records = new ChangeRecord[batchSize * 2];
+        for (int i = 0; i < records.length; i++) {
+            long id = i % batchSize;
+            Employee employee = new Employee(id, "name", "position", 1000.0 + i, "department");
+            records[i] = ChangeRecord.of(ChangeRecord.Op.UPDATE, employee);
+            records[i].setSequence(i);
+        }
+    }
+
+    @Benchmark
+    public void collapseAndBuildColumns(Blackhole blackhole) {
+        ChangeBatch batch = new ChangeBatch();
+        for (ChangeRecord record : records) {
+            batch.add(record);
+        }
+        blackhole.consume(EmployeeSinkWriter.upsertColumns(batch.upserts()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the key-partitioned parallel apply pipeline used when the service writes changes itself.
+ */
+@ConfigurationProperties(prefix = "cdc.apply")
+@Getter
+@Setter
+public class ApplyProperties {
+
+    /**
+     * What a producer does when the lane a change hashes to is full.
+     */
+    public enum Backpressure {
+        // Wait for space, up to blockTimeoutMs
+        BLOCK,
+        // Fail the producer immediately
+        FAIL
+    }
+
+    private int lanes = 4;
+    private int queueDepth = 4096;
+    private Backpressure backpressure = Backpressure.BLOCK;
+    private long blockTimeoutMs = 30000;
+    private long drainTimeoutMs = 30000;
+    // Decoded change records kept for reuse; should cover the records in flight across all lanes
+    private int recordPoolSize = 16384;
+
+    // Change topic consumed when cdc.streaming.mode=kafka
+    private String topic = "dbserver1.public.employee";
+    private long pollTimeoutMs = 500;
+    // Kafka mode: store applied offsets in the target in the same transaction as each batch, resume from them
+    // and skip changes the target already has
+    private boolean exactlyOnce = false;
+
+    private Compaction compaction = new Compaction();
+
+    /**
+     * Merging of repeated changes to the same key on each lane before they are batched, see
+     * {@link com.app.cdcservice.service.CompactionWindow}.
+     */
+    @Getter
+    @Setter
+    public static class Compaction {
+
+        private boolean enabled = false;
+        // A window is written once it is this old or holds this many keys
+        private long windowMs = 1000;
+        private int maxKeys = 10000;
+        // Close windows only between source transactions
+        private boolean preserveTransactions = false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the service-managed initial backfill of the target table.
+ */
+@ConfigurationProperties(prefix = "cdc.backfill")
+@Getter
+@Setter
+public class BackfillProperties {
+
+    /**
+     * How a chunk is written to the target.
+     */
+    public enum Method {
+        // Stream the range with COPY TO STDOUT / COPY FROM STDIN through a staging table
+        COPY,
+        // Read rows over JDBC and write them with the apply path's array upsert
+        UPSERT
+    }
+
+    // Chunks copied concurrently, each on its own source connection
+    private int parallelism = 4;
+    // Width of a chunk in primary key values
+    private long chunkSize = 10000;
+    private Method method = Method.COPY;
+    private int fetchSize = 2000;
+
+    // Logical replication slot and publication the connector streams from after the backfill; the embedded
+    // engine uses the slot.name from cdc.embedded.debezium instead of slotName
+    private String slotName = "debezium";
+    private String publicationName = "dbz_publication";
+}
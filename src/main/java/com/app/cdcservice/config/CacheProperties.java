@@ -0,0 +1,25 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the in-process cache of target employee rows.
+ */
+@ConfigurationProperties(prefix = "cdc.cache")
+@Getter
+@Setter
+public class CacheProperties {
+
+    // Only takes effect in kafka and embedded modes, where the service applies every change itself
+    private boolean enabled = true;
+    private long maxEntries = 100000;
+    // Bounds the cache by estimated row size instead of maxEntries when greater than 0
+    private long maxWeightBytes = 0;
+    // Also cache rows the apply stage writes, not only rows that have been read before
+    private boolean populateOnApply = false;
+
+    private boolean departmentIndex = true;
+    private long maxDepartments = 1000;
+}
@@ -0,0 +1,39 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the push stream of applied changes at {@code /api/streaming/changes}.
+ */
+@ConfigurationProperties(prefix = "cdc.stream")
+@Getter
+@Setter
+public class ChangeStreamProperties {
+
+    /**
+     * What happens to a subscriber that falls further behind than the buffer holds.
+     */
+    public enum SlowSubscriberPolicy {
+        // Skip to the oldest buffered change and tell the subscriber how many it missed
+        DROP,
+        // End the stream; the subscriber reconnects with Last-Event-ID and is told about the gap
+        DISCONNECT
+    }
+
+    // Only takes effect in kafka and embedded modes, where the service applies every change itself
+    private boolean enabled = true;
+    // Changes kept for all subscribers to read and resume from
+    private int bufferSize = 65536;
+    private int maxSubscribers = 10000;
+    private SlowSubscriberPolicy slowSubscriberPolicy = SlowSubscriberPolicy.DROP;
+    // Threads sending to subscribers when virtual threads are not used
+    private int senderThreads = 8;
+    // Changes sent to one subscriber before another gets a turn
+    private int sendBurst = 256;
+    // Comment sent to idle subscribers so dead connections are noticed
+    private long heartbeatMs = 15000;
+    // Ends a stream after this long, 0 for never
+    private long timeoutMs = 0;
+}
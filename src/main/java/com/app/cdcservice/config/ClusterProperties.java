@@ -0,0 +1,24 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for running several instances of the service against the same pipelines.
+ */
+@ConfigurationProperties(prefix = "cdc.cluster")
+@Getter
+@Setter
+public class ClusterProperties {
+
+    private boolean enabled = false;
+    // Instances sharing a name share the desired streaming state and elect one leader
+    private String name = "default";
+    // Reported as the leader; defaults to pid@host
+    private String instanceId = "";
+    // Key of the PostgreSQL advisory lock on the target database that the leader holds
+    private long lockKey = 4_381_029_117L;
+    // How often leadership and the desired streaming state are checked
+    private long checkIntervalMs = 5000;
+}
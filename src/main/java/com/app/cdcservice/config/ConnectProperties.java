@@ -0,0 +1,31 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Kafka Connect REST client settings.
+ */
+@ConfigurationProperties(prefix = "cdc.kafka.connect")
+@Getter
+@Setter
+public class ConnectProperties {
+
+    private String url = "http://kafka-connect:8083";
+
+    // Pooled HTTP connections to the Connect REST API
+    private int maxConnections = 20;
+    private int connectTimeoutMs = 5000;
+    private int readTimeoutMs = 5000;
+    // Maximum wait for a free pooled connection
+    private int connectionRequestTimeoutMs = 1000;
+
+    // Connector status is refreshed in the background at this interval once it has been requested
+    private long statusRefreshMs = 2000;
+    // A cached status older than this is refreshed before it is served
+    private long statusTtlMs = 10000;
+
+    // Pipelines whose connectors are created, updated or deleted concurrently
+    private int reconcileParallelism = 4;
+}
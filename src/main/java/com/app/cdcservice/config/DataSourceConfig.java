@@ -1,6 +1,13 @@
 package com.app.cdcservice.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.jdbc.DataSourceBuilder;
@@ -15,7 +22,9 @@ import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.web.client.RestTemplate;
 
 import javax.sql.DataSource;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableJpaRepositories(
@@ -25,6 +34,8 @@ import java.util.Map;
 )
 public class DataSourceConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceConfig.class);
+
     @Primary
     @Bean(name = "sourceDataSource")
     @ConfigurationProperties(prefix = "spring.datasource.source")
@@ -53,25 +64,69 @@ public class DataSourceConfig {
         return new JpaTransactionManager(entityManagerFactory.getObject());
     }
 
-    @Bean(name = "targetDataSource")
+    /**
+     * Connection settings of the target database: URL, credentials and driver.
+     */
+    @Bean(name = "targetDataSourceProperties")
     @ConfigurationProperties(prefix = "spring.datasource.target")
-    public DataSource targetDataSource() {
-        return DataSourceBuilder.create().build();
+    public DataSourceProperties targetDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    /**
+     * Target pool connected with {@code spring.datasource.target} and tuned for the apply workload from
+     * {@link TargetDatabaseProperties}.
+     */
+    @Bean(name = "targetDataSource")
+    public HikariDataSource targetDataSource(@Qualifier("targetDataSourceProperties") DataSourceProperties connection,
+                                             TargetDatabaseProperties properties, ApplyProperties applyProperties) {
+        properties.validate(connection.getUrl());
+        if (properties.getMaximumPoolSize() < applyProperties.getLanes()) {
+            logger.warn("cdc.target.maximum-pool-size {} is below cdc.apply.lanes {}; lanes will wait for connections.",
+                    properties.getMaximumPoolSize(), applyProperties.getLanes());
+        }
+        HikariDataSource dataSource = connection.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("target");
+        dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+        dataSource.setMinimumIdle(properties.getMinimumIdle());
+        dataSource.setConnectionTimeout(properties.getConnectionTimeoutMs());
+        dataSource.setIdleTimeout(properties.getIdleTimeoutMs());
+        dataSource.setMaxLifetime(properties.getMaxLifetimeMs());
+        dataSource.addDataSourceProperty("prepareThreshold", properties.getPrepareThreshold());
+        dataSource.addDataSourceProperty("preparedStatementCacheQueries", properties.getPreparedStatementCacheQueries());
+        dataSource.addDataSourceProperty("preparedStatementCacheSizeMiB", properties.getPreparedStatementCacheSizeMib());
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", properties.isReWriteBatchedInserts());
+        return dataSource;
     }
 
     @Bean(name = "targetEntityManagerFactory")
     public LocalContainerEntityManagerFactoryBean targetEntityManagerFactory(
             @Qualifier("targetDataSource") DataSource dataSource,
-            JpaProperties jpaProperties) {
+            JpaProperties jpaProperties, TargetDatabaseProperties targetProperties) {
 
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
         em.setDataSource(dataSource);
         em.setPackagesToScan("com.app.cdcservice.model"); // package for target entities
         em.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
-        em.setJpaPropertyMap(jpaProperties.getProperties());
+        em.setJpaPropertyMap(targetJpaProperties(jpaProperties, targetProperties));
         return em;
     }
 
+    /**
+     * Shared JPA properties with statement logging turned off and write batching turned on, since the
+     * target sits on the apply path.
+     */
+    static Map<String, Object> targetJpaProperties(JpaProperties jpaProperties, TargetDatabaseProperties properties) {
+        Map<String, Object> map = new HashMap<>(jpaProperties.getProperties());
+        map.put("hibernate.show_sql", String.valueOf(properties.isShowSql()));
+        map.put("hibernate.format_sql", String.valueOf(properties.isShowSql()));
+        map.put("hibernate.jdbc.batch_size", String.valueOf(properties.getJdbcBatchSize()));
+        map.put("hibernate.jdbc.batch_versioned_data", "true");
+        map.put("hibernate.order_inserts", String.valueOf(properties.isOrderInserts()));
+        map.put("hibernate.order_updates", String.valueOf(properties.isOrderUpdates()));
+        return map;
+    }
+
     @Bean(name = "targetTransactionManager")
     public JpaTransactionManager targetTransactionManager(
             @Qualifier("targetEntityManagerFactory") LocalContainerEntityManagerFactoryBean entityManagerFactory) {
@@ -79,10 +134,22 @@ public class DataSourceConfig {
     }
 
     @Bean
-    public RestTemplate restTemplate() {
-        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory();
-        factory.setConnectTimeout(5000);  // Timeout in milliseconds
-        factory.setReadTimeout(5000);     // Timeout in milliseconds
+    public RestTemplate restTemplate(ConnectProperties connectProperties) {
+        // Every request goes to Kafka Connect, so the single route may use the whole pool
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(connectProperties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(connectProperties.getMaxConnections());
+        connectionManager.setValidateAfterInactivity(2000);
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setConnectTimeout(connectProperties.getConnectTimeoutMs());
+        factory.setReadTimeout(connectProperties.getReadTimeoutMs());
+        factory.setConnectionRequestTimeout(connectProperties.getConnectionRequestTimeoutMs());
 
         return new RestTemplate(factory);
     }
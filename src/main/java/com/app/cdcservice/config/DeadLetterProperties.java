@@ -0,0 +1,26 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for changes that cannot be applied to the target, see
+ * {@link com.app.cdcservice.service.DeadLetterStore}.
+ */
+@ConfigurationProperties(prefix = "cdc.dead-letter")
+@Getter
+@Setter
+public class DeadLetterProperties {
+
+    // Set aside rows that fail with a data error instead of failing the apply lane
+    private boolean enabled = true;
+    // Delay before the first retry; doubled after every failed attempt up to retryMaxDelayMs
+    private long retryInitialDelayMs = 1000;
+    private long retryMaxDelayMs = 300000;
+    // Dead letters are only retried on request once this many retries have failed
+    private int maxAttempts = 8;
+    // How often the retry scheduler looks for due dead letters, and how many rows it retries per run
+    private long retryIntervalMs = 1000;
+    private int retryBatchSize = 100;
+}
@@ -0,0 +1,41 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for the in-process Debezium engine used when {@code cdc.streaming.mode=embedded}.
+ * Entries under {@code cdc.embedded.debezium.*} are passed to the engine unchanged.
+ */
+@ConfigurationProperties(prefix = "cdc.embedded")
+@Getter
+@Setter
+public class EmbeddedEngineProperties {
+
+    /**
+     * Where the engine keeps its source offsets.
+     */
+    public enum OffsetStore {
+        // Kafka Connect's FileOffsetBackingStore, rewritten in full on every flush
+        FILE,
+        // Memory-mapped append-only log, see MappedOffsetBackingStore
+        MMAP
+    }
+
+    private String name = "embedded-debezium-source";
+    private OffsetStore offsetStore = OffsetStore.MMAP;
+    // FILE store; with MMAP its offsets are imported once if the log does not exist yet
+    private String offsetFile = "data/embedded-offsets.dat";
+    private String offsetLog = "data/embedded-offsets.log";
+    // ALWAYS, INTERVAL or NEVER
+    private String offsetFsync = "INTERVAL";
+    private long offsetFsyncIntervalMs = 1000;
+    private long offsetCompactionThresholdBytes = 4 * 1024 * 1024;
+    // 0 flushes offsets after every batch the engine hands over
+    private long offsetFlushIntervalMs = 1000;
+    private Map<String, String> debezium = new HashMap<>();
+}
@@ -0,0 +1,32 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Encoding of the change topic in kafka mode.
+ */
+@ConfigurationProperties(prefix = "cdc.kafka")
+@Getter
+@Setter
+public class EventFormatProperties {
+
+    /**
+     * Value encoding the source connectors write.
+     */
+    public enum ValueFormat {
+        // Debezium JSON through the JSON converter
+        JSON,
+        // Schema-id-prefixed binary events through BinaryChangeEventConverter
+        BINARY
+    }
+
+    private ValueFormat valueFormat = ValueFormat.JSON;
+    // Producer batch compression of the source connectors: none, gzip, snappy, lz4 or zstd
+    private String compression = "none";
+
+    // Schema registry file as the service and as the Connect worker see it
+    private String schemaRegistryFile = "data/schema-registry.json";
+    private String connectSchemaRegistryFile = "/data/schema-registry.json";
+}
@@ -0,0 +1,32 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Adaptive flow control between change capture and the target writer (kafka and embedded modes).
+ */
+@ConfigurationProperties(prefix = "cdc.flow")
+@Getter
+@Setter
+public class FlowControlProperties {
+
+    // When off, batches are always cdc.sink.batch-size, every lane writes at once and consumption never pauses
+    private boolean enabled = true;
+
+    // Average batch write time above which batch size and in-flight batches are cut
+    private long targetWriteLatencyMs = 250;
+    // Share of the target connection pool in use at which it counts as saturated; waiting threads always do
+    private double poolSaturation = 0.9;
+    private long adjustIntervalMs = 1000;
+    // Batch size grows by this many keys and in-flight batches by one per healthy interval
+    private int batchSizeStep = 50;
+    private int minBatchSize = 10;
+    // Both limits are multiplied by this on congestion
+    private double decreaseFactor = 0.5;
+
+    // Share of the apply lane capacity holding unwritten changes at which consumption pauses, and resumes
+    private double pauseThreshold = 0.8;
+    private double resumeThreshold = 0.4;
+}
@@ -0,0 +1,28 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the bulk ingest path behind {@code POST /api/streaming/insert}.
+ */
+@ConfigurationProperties(prefix = "cdc.ingest")
+@Getter
+@Setter
+public class IngestProperties {
+
+    /**
+     * How parsed rows are written to the source database.
+     */
+    public enum Method {
+        // JDBC batch inserts
+        BATCH,
+        // PostgreSQL COPY FROM STDIN
+        COPY
+    }
+
+    private Method method = Method.BATCH;
+    // Rows per JDBC batch, or per buffered COPY chunk
+    private int batchSize = 1000;
+}
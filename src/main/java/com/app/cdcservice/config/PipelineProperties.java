@@ -0,0 +1,22 @@
+package com.app.cdcservice.config;
+
+import com.app.cdcservice.model.Pipeline;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pipelines defined in configuration, keyed by pipeline name ({@code cdc.pipelines.<name>.*}).
+ */
+@ConfigurationProperties(prefix = "cdc")
+@Getter
+@Setter
+public class PipelineProperties {
+
+    private Map<String, Pipeline> pipelines = new LinkedHashMap<>();
+    // Pipelines created or changed through the REST API; once it exists it replaces the configured pipelines
+    private String pipelineFile = "data/pipelines.json";
+}
@@ -0,0 +1,19 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Micro-batching settings for the service's own target database writer.
+ */
+@ConfigurationProperties(prefix = "cdc.sink")
+@Getter
+@Setter
+public class SinkProperties {
+
+    // Maximum number of distinct keys written per batch
+    private int batchSize = 500;
+    // Maximum time a change waits in an incomplete batch before it is flushed
+    private long lingerMs = 50;
+}
@@ -0,0 +1,13 @@
+package com.app.cdcservice.config;
+
+/**
+ * How changes get from the source database to the target.
+ */
+public enum StreamingMode {
+    // Kafka Connect runs the source and the JDBC sink connectors of every pipeline
+    CONNECT,
+    // Kafka Connect runs only the source connectors; this service applies the change topic
+    KAFKA,
+    // Debezium runs in-process and this service applies its changes
+    EMBEDDED
+}
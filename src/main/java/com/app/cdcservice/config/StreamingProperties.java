@@ -0,0 +1,16 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Streaming mode shared by every component; an unknown {@code cdc.streaming.mode} fails startup.
+ */
+@ConfigurationProperties(prefix = "cdc.streaming")
+@Getter
+@Setter
+public class StreamingProperties {
+
+    private StreamingMode mode = StreamingMode.CONNECT;
+}
@@ -0,0 +1,64 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Write-oriented tuning of the target database connection pool, PostgreSQL driver and target persistence
+ * unit. Connection settings (URL, credentials) stay under {@code spring.datasource.target}.
+ */
+@ConfigurationProperties(prefix = "cdc.target")
+@Getter
+@Setter
+public class TargetDatabaseProperties {
+
+    // Hikari pool; keeping minimumIdle at maximumPoolSize avoids opening connections during write bursts
+    private int maximumPoolSize = 10;
+    private int minimumIdle = 10;
+    private long connectionTimeoutMs = 30000;
+    private long idleTimeoutMs = 600000;
+    private long maxLifetimeMs = 1800000;
+
+    // Executions of a statement before the driver switches to a named server-side prepared statement
+    private int prepareThreshold = 1;
+    // Per-connection cache of prepared statements, by count and by size
+    private int preparedStatementCacheQueries = 256;
+    private int preparedStatementCacheSizeMib = 5;
+    // Lets the driver turn batched single-row inserts into multi-row inserts
+    private boolean reWriteBatchedInserts = true;
+
+    // Hibernate statement batching on the target persistence unit
+    private int jdbcBatchSize = 50;
+    private boolean orderInserts = true;
+    private boolean orderUpdates = true;
+    private boolean showSql = false;
+
+    /**
+     * @param url JDBC URL of the target, from {@code spring.datasource.target.url}
+     * @throws IllegalArgumentException if the URL is missing or a setting is out of range
+     */
+    public void validate(String url) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("spring.datasource.target.url is required");
+        }
+        require(maximumPoolSize >= 1, "maximum-pool-size must be at least 1");
+        require(minimumIdle >= 0 && minimumIdle <= maximumPoolSize,
+                "minimum-idle must be between 0 and maximum-pool-size");
+        // Lower bounds enforced by Hikari, which would otherwise silently replace the value
+        require(connectionTimeoutMs >= 250, "connection-timeout-ms must be at least 250");
+        require(idleTimeoutMs == 0 || idleTimeoutMs >= 10000, "idle-timeout-ms must be 0 or at least 10000");
+        require(maxLifetimeMs == 0 || maxLifetimeMs >= 30000, "max-lifetime-ms must be 0 or at least 30000");
+        // -1 forces binary transfer from the first execution
+        require(prepareThreshold >= -1, "prepare-threshold must be at least -1");
+        require(preparedStatementCacheQueries >= 0, "prepared-statement-cache-queries must not be negative");
+        require(preparedStatementCacheSizeMib >= 0, "prepared-statement-cache-size-mib must not be negative");
+        require(jdbcBatchSize >= 1, "jdbc-batch-size must be at least 1");
+    }
+
+    private static void require(boolean valid, String message) {
+        if (!valid) {
+            throw new IllegalArgumentException("cdc.target." + message);
+        }
+    }
+}
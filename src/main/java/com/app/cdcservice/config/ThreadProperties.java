@@ -0,0 +1,17 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Thread model of the request handlers, Kafka Connect admin calls and apply lanes.
+ */
+@ConfigurationProperties(prefix = "cdc.threads")
+@Getter
+@Setter
+public class ThreadProperties {
+
+    // Run on virtual threads; needs Java 21 or later and falls back to platform threads otherwise
+    private boolean virtual = false;
+}
@@ -0,0 +1,27 @@
+package com.app.cdcservice.config;
+
+import com.app.cdcservice.service.WorkerThreads;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hands Tomcat request processing to a virtual thread per request when {@code cdc.threads.virtual} is
+ * set, so a request blocked on JDBC or Kafka Connect no longer holds one of the {@code server.tomcat.threads.max}
+ * platform threads. The acceptor and poller threads stay platform threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "cdc.threads.virtual", havingValue = "true")
+public class TomcatThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadExecutor(WorkerThreads workerThreads) {
+        return protocolHandler -> {
+            if (workerThreads.isVirtual()) {
+                protocolHandler.setExecutor(workerThreads.executor("http-", 0));
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row filter and column transformations applied to changes before they are written to the target, see
+ * {@link com.app.cdcservice.service.ChangeTransformer}.
+ */
+@ConfigurationProperties(prefix = "cdc.transform")
+@Getter
+@Setter
+public class TransformProperties {
+
+    // Condition a row must meet to be replicated, e.g. department == 'Engineering'; empty keeps every row
+    private String filter = "";
+    // Columns computed from the source row: column name -> expression
+    private Map<String, String> set = new LinkedHashMap<>();
+    // Columns written as NULL
+    private List<String> drop = new ArrayList<>();
+}
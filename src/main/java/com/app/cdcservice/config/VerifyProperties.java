@@ -0,0 +1,27 @@
+package com.app.cdcservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the source-vs-target consistency check.
+ */
+@ConfigurationProperties(prefix = "cdc.verify")
+@Getter
+@Setter
+public class VerifyProperties {
+
+    // Ranges hashed concurrently; each uses one source and one target connection at a time
+    private int parallelism = 2;
+    // Width of the initial ranges in primary key values
+    private long rangeSize = 100000;
+    // Mismatching ranges at most this wide are compared row by row instead of being split further
+    private long leafSize = 64;
+    // Rows read per second across both databases, 0 for no limit
+    private long rowsPerSecond = 50000;
+    // Mismatching rows are compared again after this delay, so changes still being replicated are not reported
+    private long recheckDelayMs = 2000;
+    // Mismatching row ids kept in the job status
+    private int maxReportedRows = 100;
+}
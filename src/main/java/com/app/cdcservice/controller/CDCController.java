@@ -1,10 +1,18 @@
 package com.app.cdcservice.controller;
 
+import com.app.cdcservice.model.Pipeline;
 import com.app.cdcservice.service.CDCService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/streaming")
@@ -51,25 +59,223 @@ public class CDCController {
     }
 
     /**
-     * Inserts data into the source PostgreSQL database.
+     * Starts or resumes the parallel backfill of the target table.
+     *
+     * @param restart discard the checkpoints of a previous backfill
+     * @return ResponseEntity with the success or failure message
+     */
+    @PostMapping("/backfill")
+    public ResponseEntity<String> startBackfill(@RequestParam(defaultValue = "false") boolean restart) {
+        logger.info("Received request to start backfill.");
+        return cdcService.startBackfill(restart);
+    }
+
+    /**
+     * Retrieves the progress of the backfill.
+     *
+     * @return ResponseEntity with the backfill status
+     */
+    @GetMapping("/backfill")
+    public ResponseEntity<String> getBackfillStatus() {
+        logger.info("Received request to get backfill status.");
+        return cdcService.getBackfillStatus();
+    }
+
+    /**
+     * Starts a check of the target table against the source.
+     *
+     * @param repair write rows that differ from the source to the target
+     * @return ResponseEntity with the success or failure message
+     */
+    @PostMapping("/verify")
+    public ResponseEntity<String> startVerification(@RequestParam(defaultValue = "false") boolean repair) {
+        logger.info("Received request to start consistency check.");
+        return cdcService.startVerification(repair);
+    }
+
+    /**
+     * Retrieves the progress and findings of the consistency check.
+     *
+     * @return ResponseEntity with the check status
+     */
+    @GetMapping("/verify")
+    public ResponseEntity<String> getVerificationStatus() {
+        logger.info("Received request to get consistency check status.");
+        return cdcService.getVerificationStatus();
+    }
+
+    /**
+     * Lists the changes that could not be applied to the target.
+     *
+     * @param limit maximum number of dead letters to list
+     * @return ResponseEntity with the dead letters or failure message
+     */
+    @GetMapping("/dead-letters")
+    public ResponseEntity<String> listDeadLetters(@RequestParam(defaultValue = "100") int limit) {
+        logger.info("Received request to list dead letters.");
+        return cdcService.listDeadLetters(limit);
+    }
+
+    /**
+     * Applies every dead letter right away.
+     *
+     * @return ResponseEntity with the applied and failed counts or failure message
+     */
+    @PostMapping("/dead-letters/replay")
+    public ResponseEntity<String> replayDeadLetters() {
+        logger.info("Received request to replay dead letters.");
+        return cdcService.replayDeadLetters(null);
+    }
+
+    /**
+     * Applies a dead letter right away.
+     *
+     * @param id dead letter id
+     * @return ResponseEntity with the applied and failed counts, 404 or failure message
+     */
+    @PostMapping("/dead-letters/{id}/replay")
+    public ResponseEntity<String> replayDeadLetter(@PathVariable long id) {
+        logger.info("Received request to replay dead letter {}.", id);
+        return cdcService.replayDeadLetters(id);
+    }
+
+    /**
+     * Deletes every dead letter without applying it.
      *
-     * @param data JSON data to insert
      * @return ResponseEntity with the success or failure message
      */
+    @DeleteMapping("/dead-letters")
+    public ResponseEntity<String> purgeDeadLetters() {
+        logger.info("Received request to purge dead letters.");
+        return cdcService.purgeDeadLetters(null);
+    }
+
+    /**
+     * Deletes a dead letter without applying it.
+     *
+     * @param id dead letter id
+     * @return ResponseEntity with the success message, 404 or failure message
+     */
+    @DeleteMapping("/dead-letters/{id}")
+    public ResponseEntity<String> purgeDeadLetter(@PathVariable long id) {
+        logger.info("Received request to purge dead letter {}.", id);
+        return cdcService.purgeDeadLetters(id);
+    }
+
+    /**
+     * Lists the pipelines.
+     *
+     * @return ResponseEntity with the pipelines or failure message
+     */
+    @GetMapping("/pipelines")
+    public ResponseEntity<String> listPipelines() {
+        logger.info("Received request to list pipelines.");
+        return cdcService.listPipelines();
+    }
+
+    /**
+     * Retrieves a pipeline.
+     *
+     * @param name pipeline name
+     * @return ResponseEntity with the pipeline, 404 if it does not exist, or failure message
+     */
+    @GetMapping("/pipelines/{name}")
+    public ResponseEntity<String> getPipeline(@PathVariable String name) {
+        logger.info("Received request to get pipeline {}.", name);
+        return cdcService.getPipeline(name);
+    }
+
+    /**
+     * Creates or replaces a pipeline.
+     *
+     * @param name     pipeline name
+     * @param pipeline tables, topic partitions, sink tasks and batch size of the pipeline
+     * @return ResponseEntity with the stored pipeline or failure message
+     */
+    @PutMapping("/pipelines/{name}")
+    public ResponseEntity<String> savePipeline(@PathVariable String name, @RequestBody Pipeline pipeline) {
+        logger.info("Received request to save pipeline {}.", name);
+        return cdcService.savePipeline(name, pipeline);
+    }
+
+    /**
+     * Deletes a pipeline and its connectors.
+     *
+     * @param name pipeline name
+     * @return ResponseEntity with the success message, 404 if it does not exist, or failure message
+     */
+    @DeleteMapping("/pipelines/{name}")
+    public ResponseEntity<String> deletePipeline(@PathVariable String name) {
+        logger.info("Received request to delete pipeline {}.", name);
+        return cdcService.deletePipeline(name);
+    }
+
+    /**
+     * Bulk-inserts data into the source PostgreSQL database.
+     *
+     * @param data   JSON array or NDJSON stream of employees
+     * @param method "batch" or "copy"; defaults to cdc.ingest.method
+     * @return ResponseEntity with rows written and elapsed time, or failure message
+     */
     @PostMapping("/insert")
-    public ResponseEntity<String> insertData(@RequestBody String data) {
+    public ResponseEntity<String> insertData(InputStream data, @RequestParam(required = false) String method) {
         logger.info("Received request to insert data.");
-        return cdcService.insertData(data);
+        return cdcService.insertData(data, method);
     }
 
     /**
-     * Retrieves data from the target PostgreSQL database.
+     * Streams data from the target PostgreSQL database using keyset pagination.
      *
-     * @return ResponseEntity with the retrieved data or failure message
+     * @param cursor return rows with an id greater than this value
+     * @param limit  maximum number of rows to return
+     * @param fields columns to include; id is always included
+     * @param format "ndjson" (default) or "json"
+     * @return ResponseEntity with the streamed data or failure message
      */
     @GetMapping("/retrieve")
-    public ResponseEntity<String> retrieveData() {
+    public ResponseEntity<StreamingResponseBody> retrieveData(@RequestParam(required = false) Long cursor,
+                                                              @RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) List<String> fields,
+                                                              @RequestParam(defaultValue = "ndjson") String format) {
         logger.info("Received request to retrieve data.");
-        return cdcService.retrieveData();
+        return cdcService.retrieveData(cursor, limit, fields, format);
+    }
+
+    /**
+     * Retrieves a single employee from the target database.
+     *
+     * @param id employee id
+     * @return ResponseEntity with the employee, 404 if it does not exist, or failure message
+     */
+    @GetMapping("/retrieve/{id}")
+    public ResponseEntity<String> retrieveById(@PathVariable long id) {
+        logger.info("Received request to retrieve employee {}.", id);
+        return cdcService.retrieveById(id);
+    }
+
+    /**
+     * Retrieves the employees of a department from the target database.
+     *
+     * @param department department name
+     * @return ResponseEntity with the employees or failure message
+     */
+    @GetMapping("/retrieve/department/{department}")
+    public ResponseEntity<String> retrieveByDepartment(@PathVariable String department) {
+        logger.info("Received request to retrieve department {}.", department);
+        return cdcService.retrieveByDepartment(department);
+    }
+
+    /**
+     * Streams changes written to the target as Server-Sent Events.
+     *
+     * @param lastEventId offset of the last change received, sent by reconnecting clients
+     * @param params      filters: table, op and column values such as department; from to resume after an offset
+     * @return ResponseEntity with the event stream
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+                                                    @RequestParam Map<String, String> params) {
+        logger.info("Received request to stream changes.");
+        return cdcService.streamChanges(params, lastEventId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package com.app.cdcservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row layout of a binary change event: the columns of a table in the order they are written. Schemas are
+ * registered once in a schema registry and events carry only the schema id.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode(exclude = "id")
+public class ChangeEventSchema {
+
+    /**
+     * Column types of the binary format.
+     */
+    public enum Type {
+        BOOLEAN, INT32, INT64, FLOAT64, STRING, BYTES
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    public static class Field {
+        private String name;
+        private Type type;
+    }
+
+    private int id;
+    // Connect schema name of the row, e.g. dbserver1.public.employee.Value
+    private String name;
+    private List<Field> fields = new ArrayList<>();
+
+    public ChangeEventSchema(String name, List<Field> fields) {
+        this.name = name;
+        this.fields = fields;
+    }
+}
@@ -0,0 +1,175 @@
+package com.app.cdcservice.model;
+
+import lombok.*;
+
+/**
+ * A single decoded row change captured from the source database. Column values are held directly on the
+ * record, with salary as a primitive, so decoding an event does not allocate an {@link Employee}.
+ * <p>
+ * Records taken from a {@link ChangeRecordPool} are reused: once a record has been written to the target
+ * it is {@linkplain #release() released} and must not be referenced any more. Copy the row with
+ * {@link #toEmployee()} if it has to outlive the apply stage.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class ChangeRecord {
+
+    /**
+     * Debezium operation codes.
+     */
+    public enum Op {
+        CREATE('c'), UPDATE('u'), DELETE('d'), READ('r');
+
+        private final char code;
+
+        Op(char code) {
+            this.code = code;
+        }
+
+        public char code() {
+            return code;
+        }
+
+        public static Op fromCode(char code) {
+            switch (code) {
+                case 'c':
+                    return CREATE;
+                case 'u':
+                    return UPDATE;
+                case 'd':
+                    return DELETE;
+                case 'r':
+                    return READ;
+                default:
+                    throw new IllegalArgumentException("Unknown Debezium operation: " + code);
+            }
+        }
+    }
+
+    private Op op;
+    // Row state after the change; for deletes only the key is populated
+    private long id;
+    private String name;
+    private String position;
+    private double salary;
+    private boolean salaryNull = true;
+    private String department;
+    private long lsn;
+    private long sourceTsMs;
+    // Source transaction id, 0 if unknown
+    private long txId;
+    // Change topic partition and offset the record was read from, -1 unless exactly-once apply needs them
+    private int sourcePartition = -1;
+    private long sourceOffset = -1;
+    // Position assigned by the apply pipeline, used to track which changes are safe to commit
+    private long sequence;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ChangeRecordPool pool;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean pooled;
+
+    ChangeRecord(ChangeRecordPool pool) {
+        this.pool = pool;
+    }
+
+    public static ChangeRecord of(Op op, Employee employee) {
+        ChangeRecord record = new ChangeRecord();
+        record.setOp(op);
+        record.setEmployee(employee);
+        return record;
+    }
+
+    public boolean isDelete() {
+        return op == Op.DELETE;
+    }
+
+    public void setSalary(double salary) {
+        this.salary = salary;
+        this.salaryNull = false;
+    }
+
+    public void clearSalary() {
+        this.salary = 0;
+        this.salaryNull = true;
+    }
+
+    /**
+     * @return salary, or null if the column is null
+     */
+    public Double getSalaryOrNull() {
+        return salaryNull ? null : salary;
+    }
+
+    /**
+     * Copies the column values of an employee into this record.
+     */
+    public void setEmployee(Employee employee) {
+        id = employee.getId() == null ? 0 : employee.getId();
+        name = employee.getName();
+        position = employee.getPosition();
+        if (employee.getSalary() == null) {
+            clearSalary();
+        } else {
+            setSalary(employee.getSalary());
+        }
+        department = employee.getDepartment();
+    }
+
+    /**
+     * @return a detached copy of the row
+     */
+    public Employee toEmployee() {
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setName(name);
+        employee.setPosition(position);
+        employee.setSalary(getSalaryOrNull());
+        employee.setDepartment(department);
+        return employee;
+    }
+
+    /**
+     * Clears the column values so the record can be decoded into again.
+     */
+    public void clearColumns() {
+        id = 0;
+        name = null;
+        position = null;
+        clearSalary();
+        department = null;
+    }
+
+    /**
+     * Clears every field.
+     */
+    public void reset() {
+        op = null;
+        clearColumns();
+        lsn = 0;
+        sourceTsMs = 0;
+        txId = 0;
+        sourcePartition = -1;
+        sourceOffset = -1;
+        sequence = 0;
+    }
+
+    /**
+     * Returns the record to the pool it came from. Does nothing for records created directly or already
+     * released.
+     */
+    public void release() {
+        if (pool != null && !pooled) {
+            reset();
+            pooled = true;
+            pool.offer(this);
+        }
+    }
+
+    void markAcquired() {
+        pooled = false;
+    }
+}
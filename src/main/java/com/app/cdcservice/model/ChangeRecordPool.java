@@ -0,0 +1,41 @@
+package com.app.cdcservice.model;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Bounded pool of reusable {@link ChangeRecord}s. Records are acquired by the decoding thread and
+ * released by the apply lanes once they have been written, so the pool is safe for concurrent use.
+ * When the pool is empty a new record is created; when it is full released records are left to the
+ * garbage collector.
+ */
+public class ChangeRecordPool {
+
+    private final ArrayBlockingQueue<ChangeRecord> free;
+
+    public ChangeRecordPool(int capacity) {
+        this.free = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * @return a cleared record owned by the caller until it is released
+     */
+    public ChangeRecord acquire() {
+        ChangeRecord record = free.poll();
+        if (record == null) {
+            record = new ChangeRecord(this);
+        }
+        record.markAcquired();
+        return record;
+    }
+
+    /**
+     * @return number of records currently available for reuse
+     */
+    public int available() {
+        return free.size();
+    }
+
+    void offer(ChangeRecord record) {
+        free.offer(record);
+    }
+}
@@ -12,8 +12,14 @@ import lombok.*;
 @Setter
 public class Employee {
 
+        // Sequence and block size of JPA-issued ids, shared with PooledSequenceIdGenerator
+        public static final String ID_SEQUENCE = "employee_seq";
+        public static final int ID_ALLOCATION_SIZE = 50;
+
         @Id
-        @GeneratedValue(strategy = GenerationType.AUTO)
+        // One round trip per 50 ids
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+        @SequenceGenerator(name = "employee_seq", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
         private Long id;
         private String name;
         private String position;
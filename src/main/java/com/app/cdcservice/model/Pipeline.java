@@ -0,0 +1,38 @@
+package com.app.cdcservice.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of source tables captured by one Debezium source connector and written to the target by one
+ * JDBC sink connector. Each pipeline streams from its own replication slot and publication, so a hot
+ * table can be given its own pipeline with more topic partitions and sink tasks than the rest.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class Pipeline {
+
+    private String name;
+    // Fully qualified source tables, e.g. public.employee
+    private List<String> tables = new ArrayList<>();
+
+    // Topic prefix; change topics are <serverName>.<schema>.<table>. Defaults to the pipeline name.
+    private String serverName;
+    // Default to the pipeline name with dashes replaced by underscores, and dbz_<slotName>
+    private String slotName;
+    private String publicationName;
+    // Default to <name>-source and <name>-sink
+    private String sourceConnector;
+    private String sinkConnector;
+
+    // Partitions of the change topics Connect creates for this pipeline; bounds sink parallelism
+    private int topicPartitions = 1;
+    private int topicReplicationFactor = 1;
+    private int sinkTasksMax = 1;
+    private int sinkBatchSize = 3000;
+}
@@ -0,0 +1,27 @@
+package com.app.cdcservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A change as pushed to subscribers of the change stream, after it has been written to the target.
+ * Instances are shared by every subscriber and must not be modified, including the row.
+ */
+@AllArgsConstructor
+@Getter
+public class StreamedChange {
+
+    // Position in the change stream, sent as the event id and used to resume
+    private final long offset;
+    private final String table;
+    private final ChangeRecord.Op op;
+    // Row after the change; for deletes only the id is set
+    private final Employee row;
+    private final long lsn;
+    private final long sourceTsMs;
+
+    public static StreamedChange of(long offset, String table, ChangeRecord record) {
+        return new StreamedChange(offset, table, record.getOp(), record.toEmployee(), record.getLsn(),
+                record.getSourceTsMs());
+    }
+}
@@ -0,0 +1,78 @@
+package com.app.cdcservice.repository;
+
+import com.app.cdcservice.model.Employee;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads employee rows from the target database with keyset pagination, handing each row to a callback
+ * instead of materializing entities.
+ */
+@Repository
+public class TargetEmployeeRepository {
+
+    public static final List<String> COLUMNS = Collections.unmodifiableList(
+            Arrays.asList("id", "name", "position", "salary", "department"));
+
+    private static final String SELECT = "SELECT " + String.join(", ", COLUMNS) + " FROM employee";
+    private static final RowMapper<Employee> EMPLOYEE = (rs, rowNum) -> new Employee(rs.getLong("id"),
+            rs.getString("name"), rs.getString("position"), rs.getObject("salary", Double.class),
+            rs.getString("department"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public TargetEmployeeRepository(@Qualifier("targetDataSource") DataSource targetDataSource,
+                                    @Qualifier("targetTransactionManager") PlatformTransactionManager transactionManager,
+                                    @Value("${cdc.retrieve.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(targetDataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // The PostgreSQL driver only honours the fetch size outside auto-commit
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Streams one page of rows with {@code id > cursor} in id order.
+     *
+     * @param cursor  exclusive lower bound on id
+     * @param limit   maximum number of rows to read
+     * @param columns columns to select, a subset of {@link #COLUMNS} that includes {@code id}
+     * @param handler callback invoked once per row
+     * @return number of rows read
+     */
+    public int forEachAfter(long cursor, int limit, List<String> columns, RowCallbackHandler handler) {
+        String sql = "SELECT " + String.join(", ", columns) + " FROM employee WHERE id > ? ORDER BY id LIMIT ?";
+        int[] rows = new int[1];
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(sql, rs -> {
+            handler.processRow(rs);
+            rows[0]++;
+        }, cursor, limit));
+        return rows[0];
+    }
+
+    public Optional<Employee> findById(long id) {
+        return jdbcTemplate.query(SELECT + " WHERE id = ?", EMPLOYEE, id).stream().findFirst();
+    }
+
+    public List<Long> findIdsByDepartment(String department) {
+        return jdbcTemplate.queryForList("SELECT id FROM employee WHERE department = ? ORDER BY id", Long.class,
+                department);
+    }
+
+    public List<Employee> findByDepartment(String department) {
+        return jdbcTemplate.query(SELECT + " WHERE department = ? ORDER BY id", EMPLOYEE, department);
+    }
+}
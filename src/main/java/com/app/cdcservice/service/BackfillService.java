@@ -0,0 +1,422 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.BackfillProperties;
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyOut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies the source employee table into the target in parallel primary key chunks, as a faster
+ * alternative to Debezium's single-threaded initial snapshot.
+ * <p>
+ * Before reading any row the backfill creates the logical replication slot the connector will stream
+ * from and records its LSN, so every change committed after that point is retained in the slot. Chunks are
+ * then copied concurrently over the source pool; each chunk is written to the target together with its
+ * checkpoint row in one target transaction, so a restarted backfill skips completed chunks. Once all
+ * chunks are copied, streaming starts from the slot with {@code snapshot.mode=never} and replays every
+ * change since the recorded LSN. Chunk writes and replayed changes are both idempotent upserts, by this
+ * service or, in connect mode, by the JDBC sink connector in upsert mode, so rows a chunk read after the LSN
+ * converge to the source state without loss or duplication. Copied rows go through the same
+ * {@link ChangeTransformer} as streamed changes; since COPY moves rows without reading them, chunks are
+ * upserted instead while a transformation is configured.
+ */
+@Service
+public class BackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackfillService.class);
+
+    static final String JOB = "public.employee";
+    static final String COLUMNS = "id, name, position, salary, department";
+    static final String CREATE_JOB_TABLE = "CREATE TABLE IF NOT EXISTS cdc_backfill_job (job TEXT PRIMARY KEY, "
+            + "slot_name TEXT NOT NULL, start_lsn TEXT NOT NULL, min_id BIGINT NOT NULL, max_id BIGINT NOT NULL, "
+            + "chunk_size BIGINT NOT NULL, state TEXT NOT NULL, started_at TIMESTAMPTZ NOT NULL DEFAULT now(), "
+            + "completed_at TIMESTAMPTZ)";
+    static final String CREATE_CHUNK_TABLE = "CREATE TABLE IF NOT EXISTS cdc_backfill_chunk (job TEXT NOT NULL, "
+            + "range_start BIGINT NOT NULL, range_end BIGINT NOT NULL, rows_copied BIGINT NOT NULL, "
+            + "completed_at TIMESTAMPTZ NOT NULL DEFAULT now(), PRIMARY KEY (job, range_start))";
+
+    private final DataSource sourceDataSource;
+    private final DataSource targetDataSource;
+    private final JdbcTemplate sourceJdbcTemplate;
+    private final JdbcTemplate targetJdbcTemplate;
+    private final TransactionTemplate targetTransactionTemplate;
+    private final BackfillProperties backfillProperties;
+    private final SinkProperties sinkProperties;
+    private final ObjectMapper objectMapper;
+    private final TargetEmployeeCache employeeCache;
+    private final ChangeTransformer transformer;
+
+    private Thread coordinator;
+    private volatile Progress progress;
+
+    public BackfillService(@Qualifier("sourceDataSource") DataSource sourceDataSource,
+                           @Qualifier("targetDataSource") DataSource targetDataSource,
+                           @Qualifier("targetTransactionManager") PlatformTransactionManager targetTransactionManager,
+                           BackfillProperties backfillProperties, SinkProperties sinkProperties,
+                           ObjectMapper objectMapper, TargetEmployeeCache employeeCache,
+                           ChangeTransformer transformer) {
+        this.sourceDataSource = sourceDataSource;
+        this.targetDataSource = targetDataSource;
+        this.sourceJdbcTemplate = new JdbcTemplate(sourceDataSource);
+        this.targetJdbcTemplate = new JdbcTemplate(targetDataSource);
+        this.targetTransactionTemplate = new TransactionTemplate(targetTransactionManager);
+        this.backfillProperties = backfillProperties;
+        this.sinkProperties = sinkProperties;
+        this.objectMapper = objectMapper;
+        this.employeeCache = employeeCache;
+        this.transformer = transformer;
+    }
+
+    /**
+     * Starts or resumes the backfill on a background thread.
+     *
+     * @param slotName replication slot streaming will resume from
+     * @param restart  discard the checkpoints of a previous backfill and copy everything again
+     * @throws IllegalStateException if a backfill is running, or has already completed and restart is false
+     */
+    public synchronized void start(String slotName, boolean restart) {
+        if (isRunning()) {
+            throw new IllegalStateException("Backfill is already running");
+        }
+        if (backfillProperties.getParallelism() < 1 || backfillProperties.getChunkSize() < 1) {
+            throw new IllegalArgumentException("cdc.backfill.parallelism and chunk-size must be at least 1");
+        }
+        if (method() != backfillProperties.getMethod()) {
+            logger.info("Backfilling with {} instead of {}, so copied rows are transformed.", method(),
+                    backfillProperties.getMethod());
+        }
+        ensureCheckpointTables();
+        if (restart) {
+            targetJdbcTemplate.update("DELETE FROM cdc_backfill_chunk WHERE job = ?", JOB);
+            targetJdbcTemplate.update("DELETE FROM cdc_backfill_job WHERE job = ?", JOB);
+        } else if (completedSlot().isPresent()) {
+            throw new IllegalStateException("Backfill has already completed; pass restart=true to run it again");
+        }
+
+        progress = new Progress(slotName);
+        coordinator = new Thread(() -> run(progress), "backfill-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    public synchronized boolean isRunning() {
+        return coordinator != null && coordinator.isAlive();
+    }
+
+    /**
+     * @return slot of a completed backfill that streaming should resume from without a snapshot
+     */
+    public Optional<String> completedSlot() {
+        Boolean exists = targetJdbcTemplate.queryForObject(
+                "SELECT to_regclass('cdc_backfill_job') IS NOT NULL", Boolean.class);
+        if (!Boolean.TRUE.equals(exists)) {
+            return Optional.empty();
+        }
+        return targetJdbcTemplate.query("SELECT slot_name FROM cdc_backfill_job WHERE job = ? AND state = 'DONE'",
+                (rs, rowNum) -> rs.getString(1), JOB).stream().findFirst();
+    }
+
+    /**
+     * @return progress of the current or last backfill as JSON
+     */
+    public String status() {
+        ObjectNode status = objectMapper.createObjectNode();
+        Progress current = progress;
+        if (current == null) {
+            return status.put("state", "IDLE").toString();
+        }
+        status.put("state", current.state);
+        status.put("slot", current.slotName);
+        status.put("startLsn", current.startLsn);
+        status.put("chunks", current.chunks);
+        status.put("chunksCompleted", current.chunksCompleted.get());
+        status.put("rowsCopied", current.rowsCopied.get());
+        if (current.failure != null) {
+            status.put("failure", current.failure);
+        }
+        return status.toString();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread running = coordinator;
+        if (running != null) {
+            running.interrupt();
+            running.join(10_000);
+        }
+    }
+
+    /**
+     * Splits [minId, maxId] into half-open ranges of at most chunkSize ids.
+     */
+    static List<long[]> planChunks(long minId, long maxId, long chunkSize) {
+        List<long[]> chunks = new ArrayList<>();
+        for (long start = minId; start <= maxId; ) {
+            long end = maxId - start < chunkSize ? maxId + 1 : start + chunkSize;
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private void run(Progress progress) {
+        ExecutorService workers = Executors.newFixedThreadPool(backfillProperties.getParallelism(), new WorkerFactory());
+        try {
+            Map<String, Object> job = loadOrCreateJob(progress.slotName);
+            long minId = ((Number) job.get("min_id")).longValue();
+            long maxId = ((Number) job.get("max_id")).longValue();
+            progress.slotName = (String) job.get("slot_name");
+            progress.startLsn = (String) job.get("start_lsn");
+
+            List<long[]> chunks = planChunks(minId, maxId, ((Number) job.get("chunk_size")).longValue());
+            Set<Long> completed = new HashSet<>(targetJdbcTemplate.queryForList(
+                    "SELECT range_start FROM cdc_backfill_chunk WHERE job = ?", Long.class, JOB));
+            progress.chunks = chunks.size();
+            progress.chunksCompleted.set(completed.size());
+            progress.state = "RUNNING";
+            logger.info("Backfilling ids {}..{} in {} chunks ({} already done) from LSN {}.",
+                    minId, maxId, chunks.size(), completed.size(), progress.startLsn);
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (long[] chunk : chunks) {
+                if (!completed.contains(chunk[0])) {
+                    futures.add(workers.submit(() -> {
+                        progress.rowsCopied.addAndGet(copyChunk(chunk[0], chunk[1]));
+                        progress.chunksCompleted.incrementAndGet();
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            targetJdbcTemplate.update("UPDATE cdc_backfill_job SET state = 'DONE', completed_at = now() WHERE job = ?", JOB);
+            progress.state = "DONE";
+            logger.info("Backfill completed: {} rows; streaming can resume from slot {}.",
+                    progress.rowsCopied.get(), progress.slotName);
+        } catch (InterruptedException e) {
+            progress.state = "STOPPED";
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            logger.error("Backfill failed; it resumes from its checkpoints when started again", cause);
+            progress.state = "FAILED";
+            progress.failure = cause.getMessage();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void ensureCheckpointTables() {
+        targetJdbcTemplate.execute(CREATE_JOB_TABLE);
+        targetJdbcTemplate.execute(CREATE_CHUNK_TABLE);
+    }
+
+    private Map<String, Object> loadOrCreateJob(String slotName) {
+        List<Map<String, Object>> existing = targetJdbcTemplate.queryForList(
+                "SELECT slot_name, start_lsn, min_id, max_id, chunk_size FROM cdc_backfill_job WHERE job = ?", JOB);
+        if (!existing.isEmpty()) {
+            return existing.get(0);
+        }
+        // The slot must exist before any row is read so that no later change can be missed
+        String startLsn = createSlot(slotName);
+        Map<String, Object> bounds = sourceJdbcTemplate.queryForMap(
+                "SELECT COALESCE(MIN(id), 1) AS min_id, COALESCE(MAX(id), 0) AS max_id FROM employee");
+        targetJdbcTemplate.update("INSERT INTO cdc_backfill_job (job, slot_name, start_lsn, min_id, max_id, chunk_size, state) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, 'RUNNING')",
+                JOB, slotName, startLsn, bounds.get("min_id"), bounds.get("max_id"), backfillProperties.getChunkSize());
+        bounds.put("slot_name", slotName);
+        bounds.put("start_lsn", startLsn);
+        bounds.put("chunk_size", backfillProperties.getChunkSize());
+        return bounds;
+    }
+
+    private String createSlot(String slotName) {
+        Boolean publicationExists = sourceJdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_publication WHERE pubname = ?)", Boolean.class,
+                backfillProperties.getPublicationName());
+        if (!Boolean.TRUE.equals(publicationExists)) {
+            // pgoutput needs the publication to exist at the positions it decodes
+            sourceJdbcTemplate.execute("CREATE PUBLICATION " + quoteIdentifier(backfillProperties.getPublicationName())
+                    + " FOR TABLE public.employee");
+        }
+        List<String> existing = sourceJdbcTemplate.queryForList(
+                "SELECT confirmed_flush_lsn::text FROM pg_replication_slots WHERE slot_name = ?", String.class, slotName);
+        if (!existing.isEmpty()) {
+            logger.info("Reusing replication slot {} at {}.", slotName, existing.get(0));
+            return existing.get(0);
+        }
+        return sourceJdbcTemplate.queryForObject(
+                "SELECT lsn::text FROM pg_create_logical_replication_slot(?, 'pgoutput')", String.class, slotName);
+    }
+
+    private long copyChunk(long start, long end) {
+        Long rows = targetTransactionTemplate.execute(status -> {
+            try {
+                long copied = method() == BackfillProperties.Method.COPY ? copyRange(start, end) : upsertRange(start, end);
+                targetJdbcTemplate.update("INSERT INTO cdc_backfill_chunk (job, range_start, range_end, rows_copied) "
+                        + "VALUES (?, ?, ?, ?)", JOB, start, end, copied);
+                return copied;
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to copy ids " + start + ".." + (end - 1) + ": " + e.getMessage(), e);
+            }
+        });
+        // Chunks write the target directly, so rows cached before the chunk committed may be stale
+        employeeCache.invalidateAll();
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * @return the configured method, or UPSERT while a transformation is configured, since COPY would bypass it
+     */
+    BackfillProperties.Method method() {
+        return transformer.isEnabled() ? BackfillProperties.Method.UPSERT : backfillProperties.getMethod();
+    }
+
+    private long copyRange(long start, long end) throws SQLException {
+        Connection target = DataSourceUtils.getConnection(targetDataSource);
+        try (Statement statement = target.createStatement()) {
+            // Staged first, so rows that already exist in the target are updated rather than failing the COPY
+            statement.execute("CREATE TEMP TABLE backfill_chunk (LIKE employee INCLUDING DEFAULTS) ON COMMIT DROP");
+            CopyIn copyIn = target.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY backfill_chunk (" + COLUMNS + ") FROM STDIN");
+            long rows;
+            try (Connection source = sourceDataSource.getConnection()) {
+                CopyOut copyOut = source.unwrap(PGConnection.class).getCopyAPI().copyOut(
+                        "COPY (SELECT " + COLUMNS + " FROM employee WHERE id >= " + start + " AND id < " + end
+                                + ") TO STDOUT");
+                byte[] buffer;
+                while ((buffer = copyOut.readFromCopy()) != null) {
+                    copyIn.writeToCopy(buffer, 0, buffer.length);
+                }
+                rows = copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+            statement.executeUpdate("INSERT INTO employee (" + COLUMNS + ") SELECT " + COLUMNS + " FROM backfill_chunk"
+                    + EmployeeSinkWriter.UPSERT_CONFLICT_CLAUSE);
+            return rows;
+        } finally {
+            DataSourceUtils.releaseConnection(target, targetDataSource);
+        }
+    }
+
+    private long upsertRange(long start, long end) throws SQLException {
+        int batchSize = sinkProperties.getBatchSize();
+        List<ChangeRecord> batch = new ArrayList<>(batchSize);
+        long rows = 0;
+        try (Connection source = sourceDataSource.getConnection()) {
+            // The PostgreSQL driver only streams with a fetch size outside auto-commit
+            source.setAutoCommit(false);
+            try (PreparedStatement ps = source.prepareStatement(
+                    "SELECT " + COLUMNS + " FROM employee WHERE id >= ? AND id < ?")) {
+                ps.setFetchSize(backfillProperties.getFetchSize());
+                ps.setLong(1, start);
+                ps.setLong(2, end);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ChangeRecord record = toRecord(rs);
+                        if (!transformer.apply(record)) {
+                            continue;
+                        }
+                        batch.add(record);
+                        if (batch.size() == batchSize) {
+                            rows += writeUpserts(batch);
+                            batch.clear();
+                        }
+                    }
+                }
+            } finally {
+                source.rollback();
+            }
+        }
+        if (!batch.isEmpty()) {
+            rows += writeUpserts(batch);
+        }
+        return rows;
+    }
+
+    private int writeUpserts(List<ChangeRecord> batch) {
+        targetJdbcTemplate.update(EmployeeSinkWriter.UPSERT_SQL, ps -> EmployeeSinkWriter.bindUpserts(ps, batch));
+        return batch.size();
+    }
+
+    static ChangeRecord toRecord(ResultSet rs) throws SQLException {
+        ChangeRecord record = new ChangeRecord();
+        record.setOp(ChangeRecord.Op.READ);
+        record.setId(rs.getLong(1));
+        record.setName(rs.getString(2));
+        record.setPosition(rs.getString(3));
+        double salary = rs.getDouble(4);
+        if (!rs.wasNull()) {
+            record.setSalary(salary);
+        }
+        record.setDepartment(rs.getString(5));
+        return record;
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private static final class Progress {
+        volatile String slotName;
+        volatile String startLsn;
+        volatile String state = "STARTING";
+        volatile String failure;
+        volatile int chunks;
+        final AtomicInteger chunksCompleted = new AtomicInteger();
+        final AtomicLong rowsCopied = new AtomicLong();
+
+        Progress(String slotName) {
+            this.slotName = slotName;
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "backfill-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
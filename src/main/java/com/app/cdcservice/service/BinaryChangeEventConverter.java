@@ -0,0 +1,136 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeEventSchema;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.storage.Converter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kafka Connect value converter that writes Debezium change envelopes in the
+ * {@link BinaryChangeEventFormat}, registering each row schema in a {@link FileSchemaRegistry} the first
+ * time it is seen. Set as the {@code value.converter} of the source connectors in kafka mode with
+ * {@code cdc.kafka.value-format=BINARY}; it needs the {@code connect-plugin} jar on the worker's plugin
+ * path and {@code schema.registry.file} pointing at a file the service can read.
+ * <p>
+ * Only envelopes with an operation are written; schema change and other envelopes without one become
+ * null values, which the service skips like the JSON decoder does. The topic is read only by the service,
+ * so converting back to Connect data is not supported.
+ */
+public class BinaryChangeEventConverter implements Converter {
+
+    public static final String SCHEMA_REGISTRY_FILE_CONFIG = "schema.registry.file";
+
+    private final Map<Schema, ChangeEventSchema> registered = new ConcurrentHashMap<>();
+    private FileSchemaRegistry registry;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        if (isKey) {
+            throw new DataException(getClass().getSimpleName() + " only converts values");
+        }
+        Object file = configs.get(SCHEMA_REGISTRY_FILE_CONFIG);
+        if (file == null) {
+            throw new DataException(SCHEMA_REGISTRY_FILE_CONFIG + " is required");
+        }
+        registry = new FileSchemaRegistry(Paths.get(file.toString()), new ObjectMapper());
+    }
+
+    @Override
+    public byte[] fromConnectData(String topic, Schema schema, Object value) {
+        if (!(value instanceof Struct)) {
+            return null;
+        }
+        Struct envelope = (Struct) value;
+        if (envelope.schema().field("op") == null || envelope.getString("op") == null) {
+            return null;
+        }
+        char op = envelope.getString("op").charAt(0);
+        Struct row = envelope.getStruct(op == 'd' ? "before" : "after");
+        if (row == null) {
+            return null;
+        }
+
+        long lsn = 0;
+        long txId = 0;
+        Long sourceTsMs = envelope.schema().field("ts_ms") == null ? null : envelope.getInt64("ts_ms");
+        Struct source = envelope.schema().field("source") == null ? null : envelope.getStruct("source");
+        if (source != null) {
+            if (source.schema().field("lsn") != null && source.getInt64("lsn") != null) {
+                lsn = source.getInt64("lsn");
+            }
+            if (source.schema().field("ts_ms") != null && source.getInt64("ts_ms") != null) {
+                sourceTsMs = source.getInt64("ts_ms");
+            }
+            if (source.schema().field("txId") != null && source.getInt64("txId") != null) {
+                txId = source.getInt64("txId");
+            }
+        }
+
+        ChangeEventSchema rowSchema = registered.computeIfAbsent(row.schema(), this::register);
+        List<Field> fields = row.schema().fields();
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object column = row.get(fields.get(i));
+            values[i] = column instanceof BigDecimal ? ((BigDecimal) column).doubleValue() : column;
+        }
+        return BinaryChangeEventFormat.encode(rowSchema, op, lsn, sourceTsMs == null ? 0 : sourceTsMs, txId,
+                values);
+    }
+
+    @Override
+    public SchemaAndValue toConnectData(String topic, byte[] value) {
+        throw new DataException(getClass().getSimpleName() + " does not convert binary change events back to Connect data");
+    }
+
+    private ChangeEventSchema register(Schema rowSchema) {
+        List<ChangeEventSchema.Field> fields = new ArrayList<>();
+        for (Field field : rowSchema.fields()) {
+            fields.add(new ChangeEventSchema.Field(field.name(), type(field.schema())));
+        }
+        ChangeEventSchema schema = new ChangeEventSchema(rowSchema.name(), fields);
+        try {
+            schema.setId(registry.register(schema));
+        } catch (IOException e) {
+            throw new DataException("Failed to register schema " + rowSchema.name(), e);
+        }
+        return schema;
+    }
+
+    private static ChangeEventSchema.Type type(Schema schema) {
+        if (Decimal.LOGICAL_NAME.equals(schema.name())) {
+            return ChangeEventSchema.Type.FLOAT64;
+        }
+        switch (schema.type()) {
+            case BOOLEAN:
+                return ChangeEventSchema.Type.BOOLEAN;
+            case INT8:
+            case INT16:
+            case INT32:
+                return ChangeEventSchema.Type.INT32;
+            case INT64:
+                return ChangeEventSchema.Type.INT64;
+            case FLOAT32:
+            case FLOAT64:
+                return ChangeEventSchema.Type.FLOAT64;
+            case STRING:
+                return ChangeEventSchema.Type.STRING;
+            case BYTES:
+                return ChangeEventSchema.Type.BYTES;
+            default:
+                throw new DataException("Unsupported column type " + schema.type() + " in " + schema.name());
+        }
+    }
+}
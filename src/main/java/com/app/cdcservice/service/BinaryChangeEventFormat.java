@@ -0,0 +1,198 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeEventSchema;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a row change, used instead of Debezium JSON on the change topic when
+ * {@code cdc.kafka.value-format=BINARY}. Column names and types are not repeated in every event; the event
+ * starts with the id of its row schema in a {@link FileSchemaRegistry}:
+ * <pre>
+ *   event := magic:byte schemaId:int32 op:byte lsn:varlong sourceTsMs:varlong txId:varlong nulls:byte[(n + 7) / 8] column*
+ *   column := value of each non-null column in schema order
+ *     INT32, INT64  zig-zag varint
+ *     FLOAT64       8 bytes, big endian
+ *     BOOLEAN       1 byte
+ *     STRING, BYTES length:varint bytes     strings in UTF-8
+ * </pre>
+ * The magic byte is 0, which a JSON document never starts with, so both encodings can share a topic while
+ * producers are switched over. Bit {@code i} of {@code nulls} is set when column {@code i} is null. The row
+ * is the after image, or the before image (usually just the key) for deletes.
+ */
+public final class BinaryChangeEventFormat {
+
+    public static final byte MAGIC = 0;
+    // Magic byte and schema id
+    static final int PREFIX_SIZE = 5;
+
+    private BinaryChangeEventFormat() {
+    }
+
+    /**
+     * @return whether the value is a binary change event rather than JSON
+     */
+    public static boolean isBinary(byte[] value, int offset, int length) {
+        return length >= PREFIX_SIZE && value[offset] == MAGIC;
+    }
+
+    /**
+     * Encodes a row change.
+     *
+     * @param schema registered row schema
+     * @param op     Debezium operation code
+     * @param txId   source transaction id, 0 if unknown
+     * @param values column values in schema order, null for null columns
+     */
+    public static byte[] encode(ChangeEventSchema schema, char op, long lsn, long sourceTsMs, long txId,
+                                Object[] values) {
+        List<ChangeEventSchema.Field> fields = schema.getFields();
+        Writer out = new Writer(32 + 16 * fields.size());
+        out.put(MAGIC);
+        out.putInt(schema.getId());
+        out.put((byte) op);
+        out.putVarLong(lsn);
+        out.putVarLong(sourceTsMs);
+        out.putVarLong(txId);
+        int nullsAt = out.position;
+        out.skip((fields.size() + 7) / 8);
+        for (int i = 0; i < fields.size(); i++) {
+            Object value = values[i];
+            if (value == null) {
+                out.buffer[nullsAt + i / 8] |= (byte) (1 << (i % 8));
+                continue;
+            }
+            switch (fields.get(i).getType()) {
+                case BOOLEAN:
+                    out.put((byte) ((Boolean) value ? 1 : 0));
+                    break;
+                case INT32:
+                case INT64:
+                    out.putVarLong(((Number) value).longValue());
+                    break;
+                case FLOAT64:
+                    out.putDouble(((Number) value).doubleValue());
+                    break;
+                case STRING:
+                    out.putBytes(value.toString().getBytes(StandardCharsets.UTF_8));
+                    break;
+                case BYTES:
+                    out.putBytes(value instanceof ByteBuffer ? bytes((ByteBuffer) value) : (byte[]) value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported column type " + fields.get(i).getType());
+            }
+        }
+        return Arrays.copyOf(out.buffer, out.position);
+    }
+
+    static boolean isNull(ByteBuffer in, int nullsAt, int column) {
+        return (in.get(nullsAt + column / 8) & (1 << (column % 8))) != 0;
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long raw = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            raw |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (raw >>> 1) ^ -(raw & 1);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Skips a non-null column the reader has no use for.
+     */
+    static void skip(ByteBuffer in, ChangeEventSchema.Type type) {
+        switch (type) {
+            case BOOLEAN:
+                in.get();
+                break;
+            case INT32:
+            case INT64:
+                readVarLong(in);
+                break;
+            case FLOAT64:
+                in.position(in.position() + 8);
+                break;
+            default:
+                int length = (int) readVarLong(in);
+                in.position(in.position() + length);
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static final class Writer {
+        byte[] buffer;
+        int position;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void put(byte b) {
+            ensure(1);
+            buffer[position++] = b;
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putDouble(double value) {
+            long bits = Double.doubleToLongBits(value);
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (bits >>> shift);
+            }
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigZag & 0x7F) | 0x80);
+                zigZag >>>= 7;
+            }
+            buffer[position++] = (byte) zigZag;
+        }
+
+        void putBytes(byte[] bytes) {
+            putVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void skip(int length) {
+            ensure(length);
+            position += length;
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.IngestProperties;
+import com.app.cdcservice.model.Employee;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads employees into the source database from a JSON array or NDJSON stream. The body is parsed
+ * incrementally and written in chunks, either as JDBC batch inserts or through PostgreSQL
+ * {@code COPY FROM STDIN}, so memory use is bounded by the chunk size rather than the request size.
+ * Rows without an id get one from the {@link PooledSequenceIdGenerator}.
+ * <p>
+ * Writes join the caller's source transaction when there is one.
+ */
+@Service
+public class BulkIngestService {
+
+    static final String INSERT_SQL = "INSERT INTO employee (id, name, position, salary, department) VALUES (?, ?, ?, ?, ?)";
+    static final String COPY_SQL = "COPY employee (id, name, position, salary, department) FROM STDIN WITH (FORMAT csv)";
+
+    private final DataSource sourceDataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final PooledSequenceIdGenerator idGenerator;
+    private final IngestProperties ingestProperties;
+    private final JsonFactory jsonFactory;
+
+    public BulkIngestService(@Qualifier("sourceDataSource") DataSource sourceDataSource,
+                             PooledSequenceIdGenerator idGenerator, IngestProperties ingestProperties,
+                             ObjectMapper objectMapper) {
+        this.sourceDataSource = sourceDataSource;
+        this.jdbcTemplate = new JdbcTemplate(sourceDataSource);
+        this.idGenerator = idGenerator;
+        this.ingestProperties = ingestProperties;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Outcome of one ingest request.
+     */
+    @AllArgsConstructor
+    @Getter
+    public static final class Result {
+        private final long rows;
+        private final long elapsedMs;
+        private final IngestProperties.Method method;
+    }
+
+    /**
+     * Parses and writes every employee in the stream.
+     *
+     * @param body   JSON array of employees, or one employee object per line
+     * @param method write method, or null for the configured default
+     * @return rows written and elapsed time
+     * @throws IOException if the body is not valid JSON
+     */
+    public Result ingest(InputStream body, IngestProperties.Method method) throws IOException, SQLException {
+        IngestProperties.Method effective = method == null ? ingestProperties.getMethod() : method;
+        long start = System.nanoTime();
+        long rows;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            EmployeeReader reader = new EmployeeReader(parser);
+            rows = effective == IngestProperties.Method.COPY ? copy(reader) : batchInsert(reader);
+        }
+        return new Result(rows, (System.nanoTime() - start) / 1_000_000, effective);
+    }
+
+    private long batchInsert(EmployeeReader reader) throws IOException {
+        int batchSize = ingestProperties.getBatchSize();
+        List<Employee> chunk = new ArrayList<>(batchSize);
+        long rows = 0;
+        Employee employee;
+        while ((employee = reader.next()) != null) {
+            chunk.add(employee);
+            if (chunk.size() == batchSize) {
+                rows += insertChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            rows += insertChunk(chunk);
+        }
+        return rows;
+    }
+
+    private int insertChunk(List<Employee> chunk) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, chunk, chunk.size(), BulkIngestService::bindInsert);
+        return chunk.size();
+    }
+
+    private static void bindInsert(PreparedStatement ps, Employee employee) throws SQLException {
+        ps.setLong(1, employee.getId());
+        ps.setString(2, employee.getName());
+        ps.setString(3, employee.getPosition());
+        if (employee.getSalary() == null) {
+            ps.setNull(4, Types.DOUBLE);
+        } else {
+            ps.setDouble(4, employee.getSalary());
+        }
+        ps.setString(5, employee.getDepartment());
+    }
+
+    private long copy(EmployeeReader reader) throws IOException, SQLException {
+        Connection connection = DataSourceUtils.getConnection(sourceDataSource);
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                StringBuilder csv = new StringBuilder();
+                int buffered = 0;
+                Employee employee;
+                while ((employee = reader.next()) != null) {
+                    appendCsv(csv, employee);
+                    if (++buffered == ingestProperties.getBatchSize()) {
+                        writeCopyChunk(copyIn, csv);
+                        buffered = 0;
+                    }
+                }
+                writeCopyChunk(copyIn, csv);
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, sourceDataSource);
+        }
+    }
+
+    private static void writeCopyChunk(CopyIn copyIn, StringBuilder csv) throws SQLException {
+        if (csv.length() > 0) {
+            byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            csv.setLength(0);
+        }
+    }
+
+    static void appendCsv(StringBuilder csv, Employee employee) {
+        csv.append(employee.getId()).append(',');
+        appendCsvText(csv, employee.getName());
+        csv.append(',');
+        appendCsvText(csv, employee.getPosition());
+        csv.append(',');
+        if (employee.getSalary() != null) {
+            csv.append(employee.getSalary().doubleValue());
+        }
+        csv.append(',');
+        appendCsvText(csv, employee.getDepartment());
+        csv.append('\n');
+    }
+
+    private static void appendCsvText(StringBuilder csv, String value) {
+        // An unquoted empty field is NULL in CSV COPY, so empty strings are always quoted
+        if (value == null) {
+            return;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+
+    /**
+     * Pulls employees one at a time from either a top-level JSON array or a sequence of root-level objects.
+     */
+    final class EmployeeReader {
+
+        private final JsonParser parser;
+        private boolean started;
+        private boolean inArray;
+
+        EmployeeReader(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        Employee next() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (!started) {
+                started = true;
+                if (token == JsonToken.START_ARRAY) {
+                    inArray = true;
+                    token = parser.nextToken();
+                }
+            }
+            if (token == null || (inArray && token == JsonToken.END_ARRAY)) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected an employee object but found " + token);
+            }
+            return readEmployee();
+        }
+
+        private Employee readEmployee() throws IOException {
+            Employee employee = new Employee();
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                boolean isNull = value == JsonToken.VALUE_NULL;
+                switch (field) {
+                    case "id":
+                        employee.setId(isNull ? null : parser.getLongValue());
+                        break;
+                    case "name":
+                        employee.setName(isNull ? null : parser.getText());
+                        break;
+                    case "position":
+                        employee.setPosition(isNull ? null : parser.getText());
+                        break;
+                    case "salary":
+                        employee.setSalary(isNull ? null : parser.getDoubleValue());
+                        break;
+                    case "department":
+                        employee.setDepartment(isNull ? null : parser.getText());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (employee.getId() == null) {
+                employee.setId(idGenerator.nextId());
+            }
+            return employee;
+        }
+    }
+}
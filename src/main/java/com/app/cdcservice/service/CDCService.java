@@ -1,44 +1,139 @@
 package com.app.cdcservice.service;
 
+import com.app.cdcservice.config.BackfillProperties;
+import com.app.cdcservice.config.IngestProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.model.Employee;
+import com.app.cdcservice.model.Pipeline;
+import com.app.cdcservice.repository.TargetEmployeeRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class CDCService {
 
     private static final Logger logger = LoggerFactory.getLogger(CDCService.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
-    @Value("${cdc.kafka.connect.url}")
-    String kafkaConnectUrl;
+    // Rows read from the target per keyset page when streaming /retrieve
+    @Value("${cdc.retrieve.page-size:1000}")
+    int retrievePageSize = 1000;
 
+    private final StreamingProperties streamingProperties;
+    private final EmbeddedEngineService embeddedEngineService;
+    private final KafkaChangeConsumer kafkaChangeConsumer;
+    private final TargetEmployeeRepository targetEmployeeRepository;
+    private final ObjectMapper objectMapper;
+    private final BulkIngestService bulkIngestService;
+    private final PipelineManager pipelineManager;
+    private final BackfillService backfillService;
+    private final BackfillProperties backfillProperties;
+    private final TargetEmployeeCache targetEmployeeCache;
+    private final ChangeStreamHub changeStreamHub;
+    private final ConsistencyChecker consistencyChecker;
+    private final ClusterCoordinator clusterCoordinator;
+    private final DeadLetterService deadLetterService;
 
-    private final RestTemplate restTemplate;
+    // Streaming state this instance last reconciled the connectors to as cluster leader; null when it is
+    // not the leader or has not reconciled them yet
+    private Boolean connectorsStreaming;
 
-    public CDCService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public CDCService(EmbeddedEngineService embeddedEngineService,
+                      KafkaChangeConsumer kafkaChangeConsumer, TargetEmployeeRepository targetEmployeeRepository,
+                      ObjectMapper objectMapper, BulkIngestService bulkIngestService,
+                      PipelineManager pipelineManager, BackfillService backfillService,
+                      BackfillProperties backfillProperties, TargetEmployeeCache targetEmployeeCache,
+                      ChangeStreamHub changeStreamHub, ConsistencyChecker consistencyChecker,
+                      ClusterCoordinator clusterCoordinator, DeadLetterService deadLetterService,
+                      StreamingProperties streamingProperties) {
+        this.streamingProperties = streamingProperties;
+        this.embeddedEngineService = embeddedEngineService;
+        this.kafkaChangeConsumer = kafkaChangeConsumer;
+        this.targetEmployeeRepository = targetEmployeeRepository;
+        this.objectMapper = objectMapper;
+        this.bulkIngestService = bulkIngestService;
+        this.pipelineManager = pipelineManager;
+        this.backfillService = backfillService;
+        this.backfillProperties = backfillProperties;
+        this.targetEmployeeCache = targetEmployeeCache;
+        this.changeStreamHub = changeStreamHub;
+        this.consistencyChecker = consistencyChecker;
+        this.clusterCoordinator = clusterCoordinator;
+        this.deadLetterService = deadLetterService;
+        if (clusterCoordinator.isEnabled()) {
+            clusterCoordinator.addListener(() -> {
+                try {
+                    reconcileCluster();
+                } catch (Exception e) {
+                    logger.error("Error reconciling with the cluster state", e);
+                }
+            });
+        }
     }
 
     /**
-     * Starts the CDC streaming by configuring both Debezium source connector and JDBC sink connector.
+     * Starts the CDC streaming by reconciling the connectors of every pipeline with Kafka Connect, or by
+     * starting the in-process Debezium engine in embedded mode. After a completed backfill the source
+     * streams from the backfill's replication slot without taking a snapshot. In cluster mode streaming
+     * starts on every instance, and only the leader reconciles the connectors.
      *
      * @return ResponseEntity with message about the success or failure of the operation
      */
     public ResponseEntity<String> startStreaming() {
         logger.info("Starting CDC streaming...");
         try {
-            // Configuration for Debezium source connector
-            String sourceConfig = getDebeziumSourceConfig();
-            // Configuration for JDBC sink connector
-            String sinkConfig = getJdbcSinkConfig();
+            if (backfillService.isRunning()) {
+                throw new IllegalStateException("Backfill is still running");
+            }
+            if (clusterCoordinator.isEnabled()) {
+                clusterCoordinator.requestStreaming(true);
+                reconcileCluster();
+                logger.info("CDC streaming started on cluster instance {}.", clusterCoordinator.instanceId());
+                return ResponseEntity.ok("CDC streaming started on the cluster.");
+            }
+            Optional<String> backfillSlot = backfillService.completedSlot();
+            if (isEmbeddedMode()) {
+                embeddedEngineService.start(backfillSlot.isPresent());
+                logger.info("CDC streaming started successfully.");
+                return ResponseEntity.ok("CDC streaming started successfully.");
+            }
 
-            // POST requests to Kafka Connect REST API to create connectors
-            restTemplate.postForEntity(kafkaConnectUrl + "/connectors", sourceConfig, String.class);
-            restTemplate.postForEntity(kafkaConnectUrl + "/connectors", sinkConfig, String.class);
+            pipelineManager.start(backfillSlot.orElse(null));
+            if (isKafkaMode()) {
+                // The service consumes the change topic itself instead of the JDBC sink connectors
+                kafkaChangeConsumer.start();
+            }
 
             logger.info("CDC streaming started successfully.");
             return ResponseEntity.ok("CDC streaming started successfully.");
@@ -49,16 +144,31 @@ public class CDCService {
     }
 
     /**
-     * Stops the CDC streaming by deleting both Debezium source connector and JDBC sink connector.
+     * Stops the CDC streaming by deleting the connectors of every pipeline, or by stopping the in-process
+     * Debezium engine in embedded mode. In cluster mode streaming stops on every instance, and only the
+     * leader deletes the connectors.
      *
      * @return ResponseEntity with message about the success or failure of the operation
      */
     public ResponseEntity<String> stopStreaming() {
         logger.info("Stopping CDC streaming...");
         try {
-            // Delete both connectors from Kafka Connect REST API
-            restTemplate.delete(kafkaConnectUrl + "/connectors/debezium-source");
-            restTemplate.delete(kafkaConnectUrl + "/connectors/jdbc-sink");
+            if (clusterCoordinator.isEnabled()) {
+                clusterCoordinator.requestStreaming(false);
+                reconcileCluster();
+                logger.info("CDC streaming stopped on cluster instance {}.", clusterCoordinator.instanceId());
+                return ResponseEntity.ok("CDC streaming stopped on the cluster.");
+            }
+            if (isEmbeddedMode()) {
+                embeddedEngineService.stop();
+                logger.info("CDC streaming stopped successfully.");
+                return ResponseEntity.ok("CDC streaming stopped successfully.");
+            }
+
+            pipelineManager.stop();
+            if (isKafkaMode()) {
+                kafkaChangeConsumer.stop();
+            }
 
             logger.info("CDC streaming stopped successfully.");
             return ResponseEntity.ok("CDC streaming stopped successfully.");
@@ -69,17 +179,34 @@ public class CDCService {
     }
 
     /**
-     * Retrieves the status of the Debezium source connector.
+     * Retrieves the status of every pipeline and its connectors and tasks, served from the cached Kafka
+     * Connect status. In kafka mode the change consumer status is added; in embedded mode the embedded
+     * engine status is returned instead.
      *
      * @return ResponseEntity with the status or failure message
      */
     public ResponseEntity<String> getStreamingStatus() {
         logger.info("Retrieving CDC streaming status...");
         try {
-            // Fetch the status of Debezium source connector from Kafka Connect
-            String status = restTemplate.getForObject(kafkaConnectUrl + "/connectors/debezium-source/status", String.class);
+            if (isEmbeddedMode()) {
+                return ResponseEntity.ok(embeddedEngineService.status());
+            }
+
+            ObjectNode status = objectMapper.createObjectNode();
+            JsonNode pipelines = objectMapper.readTree(pipelineManager.status());
+            if (pipelines.isObject()) {
+                status.setAll((ObjectNode) pipelines);
+            } else {
+                status.set("pipelines", pipelines);
+            }
+            if (isKafkaMode()) {
+                status.set("consumer", objectMapper.readTree(kafkaChangeConsumer.status()));
+            }
+            if (clusterCoordinator.isEnabled()) {
+                status.set("cluster", objectMapper.readTree(clusterCoordinator.status()));
+            }
             logger.info("CDC streaming status retrieved successfully.");
-            return ResponseEntity.ok(status);
+            return ResponseEntity.ok(status.toString());
         } catch (Exception e) {
             logger.error("Error retrieving CDC streaming status", e);
             return ResponseEntity.status(500).body("Failed to retrieve CDC streaming status: " + e.getMessage());
@@ -87,88 +214,475 @@ public class CDCService {
     }
 
     /**
-     * Inserts data into the source PostgreSQL database. The actual data handling
-     * should be in the repository layer.
+     * Starts or resumes the parallel backfill of the target table. Streaming must be started once it has
+     * completed; it then resumes from the slot the backfill created.
+     *
+     * @param restart discard the checkpoints of a previous backfill
+     * @return ResponseEntity with message about the success or failure of the operation
+     */
+    public ResponseEntity<String> startBackfill(boolean restart) {
+        logger.info("Starting backfill...");
+        try {
+            String slotName = isEmbeddedMode() ? embeddedEngineService.slotName() : backfillProperties.getSlotName();
+            backfillService.start(slotName, restart);
+            logger.info("Backfill started.");
+            return ResponseEntity.ok("Backfill started.");
+        } catch (Exception e) {
+            logger.error("Error starting backfill", e);
+            return ResponseEntity.status(500).body("Failed to start backfill: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the progress of the current or last backfill.
+     *
+     * @return ResponseEntity with the backfill status
+     */
+    public ResponseEntity<String> getBackfillStatus() {
+        return ResponseEntity.ok(backfillService.status());
+    }
+
+    /**
+     * Starts a check of the target table against the source.
+     *
+     * @param repair write rows that differ from the source to the target
+     * @return ResponseEntity with message about the success or failure of the operation
+     */
+    public ResponseEntity<String> startVerification(boolean repair) {
+        logger.info("Starting consistency check...");
+        try {
+            consistencyChecker.start(repair);
+            logger.info("Consistency check started.");
+            return ResponseEntity.ok("Consistency check started.");
+        } catch (Exception e) {
+            logger.error("Error starting consistency check", e);
+            return ResponseEntity.status(500).body("Failed to start consistency check: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the progress and findings of the current or last consistency check.
+     *
+     * @return ResponseEntity with the check status
+     */
+    public ResponseEntity<String> getVerificationStatus() {
+        return ResponseEntity.ok(consistencyChecker.status());
+    }
+
+    /**
+     * Lists the changes that could not be applied to the target.
+     *
+     * @param limit maximum number of dead letters to list, oldest first
+     * @return ResponseEntity with the dead letters or failure message
+     */
+    public ResponseEntity<String> listDeadLetters(int limit) {
+        try {
+            return ResponseEntity.ok(deadLetterService.list(limit));
+        } catch (Exception e) {
+            logger.error("Error listing dead letters", e);
+            return ResponseEntity.status(500).body("Failed to list dead letters: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies one dead letter, or all of them, right away.
+     *
+     * @param id dead letter to apply, or null for all of them
+     * @return ResponseEntity with the applied and failed counts, 404 if the dead letter does not exist,
+     * or failure message
+     */
+    public ResponseEntity<String> replayDeadLetters(Long id) {
+        logger.info("Replaying dead letters {}...", id == null ? "" : id);
+        try {
+            String result = deadLetterService.replay(id);
+            if (result == null) {
+                return ResponseEntity.status(404).body("Dead letter not found: " + id);
+            }
+            logger.info("Dead letters replayed: {}", result);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error replaying dead letters", e);
+            return ResponseEntity.status(500).body("Failed to replay dead letters: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes one dead letter, or all of them, without applying it.
+     *
+     * @param id dead letter to delete, or null for all of them
+     * @return ResponseEntity with the success message, 404 if the dead letter does not exist, or failure message
+     */
+    public ResponseEntity<String> purgeDeadLetters(Long id) {
+        logger.info("Purging dead letters {}...", id == null ? "" : id);
+        try {
+            int purged = deadLetterService.purge(id);
+            if (id != null && purged == 0) {
+                return ResponseEntity.status(404).body("Dead letter not found: " + id);
+            }
+            logger.info("{} dead letters purged.", purged);
+            return ResponseEntity.ok(purged + " dead letters purged.");
+        } catch (Exception e) {
+            logger.error("Error purging dead letters", e);
+            return ResponseEntity.status(500).body("Failed to purge dead letters: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lists the pipelines.
+     *
+     * @return ResponseEntity with a JSON array of pipelines or failure message
+     */
+    public ResponseEntity<String> listPipelines() {
+        try {
+            return ResponseEntity.ok(objectMapper.writeValueAsString(pipelineManager.list()));
+        } catch (Exception e) {
+            logger.error("Error listing pipelines", e);
+            return ResponseEntity.status(500).body("Failed to list pipelines: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves a pipeline.
+     *
+     * @param name pipeline name
+     * @return ResponseEntity with the pipeline, 404 if it does not exist, or failure message
+     */
+    public ResponseEntity<String> getPipeline(String name) {
+        try {
+            Optional<Pipeline> pipeline = pipelineManager.get(name);
+            if (!pipeline.isPresent()) {
+                return ResponseEntity.status(404).body("Pipeline not found: " + name);
+            }
+            return ResponseEntity.ok(objectMapper.writeValueAsString(pipeline.get()));
+        } catch (Exception e) {
+            logger.error("Error retrieving pipeline {}", name, e);
+            return ResponseEntity.status(500).body("Failed to retrieve pipeline: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates or replaces a pipeline. While streaming, its connectors are updated right away.
+     *
+     * @param name     pipeline name
+     * @param pipeline pipeline definition; names it leaves out are derived from the pipeline name
+     * @return ResponseEntity with the stored pipeline or failure message
+     */
+    public ResponseEntity<String> savePipeline(String name, Pipeline pipeline) {
+        logger.info("Saving pipeline {}...", name);
+        if (!ownsConnectors()) {
+            return notLeader();
+        }
+        try {
+            pipeline.setName(name);
+            Pipeline saved = pipelineManager.put(pipeline);
+            logger.info("Pipeline {} saved.", name);
+            return ResponseEntity.ok(objectMapper.writeValueAsString(saved));
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid pipeline {}", name, e);
+            return ResponseEntity.badRequest().body("Failed to save pipeline: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error saving pipeline {}", name, e);
+            return ResponseEntity.status(500).body("Failed to save pipeline: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes a pipeline and its connectors.
+     *
+     * @param name pipeline name
+     * @return ResponseEntity with the success message, 404 if it does not exist, or failure message
+     */
+    public ResponseEntity<String> deletePipeline(String name) {
+        logger.info("Deleting pipeline {}...", name);
+        if (!ownsConnectors()) {
+            return notLeader();
+        }
+        try {
+            if (!pipelineManager.remove(name)) {
+                return ResponseEntity.status(404).body("Pipeline not found: " + name);
+            }
+            logger.info("Pipeline {} deleted.", name);
+            return ResponseEntity.ok("Pipeline " + name + " deleted.");
+        } catch (Exception e) {
+            logger.error("Error deleting pipeline {}", name, e);
+            return ResponseEntity.status(500).body("Failed to delete pipeline: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Bulk-loads employees into the source PostgreSQL database. The body is parsed incrementally and
+     * written with JDBC batch inserts or COPY; the whole request is one transaction.
      *
-     * @param data JSON data to insert
-     * @return ResponseEntity with a success or failure message
+     * @param data   JSON array of employees, or NDJSON with one employee per line
+     * @param method "batch" or "copy", or null for the configured default
+     * @return ResponseEntity with the rows written and elapsed time, or failure message
      */
     @Transactional
-    public ResponseEntity<String> insertData(String data) {
+    public ResponseEntity<String> insertData(InputStream data, String method) {
         logger.info("Inserting data into the source DB...");
-        // Call to the repository layer to persist data
         try {
-            // Example insertion logic
-            // repository.save(convertJsonToEntity(data));
+            IngestProperties.Method ingestMethod = method == null ? null
+                    : IngestProperties.Method.valueOf(method.toUpperCase(Locale.ROOT));
+            BulkIngestService.Result result = bulkIngestService.ingest(data, ingestMethod);
 
-            logger.info("Data inserted successfully.");
-            return ResponseEntity.ok("Data inserted successfully.");
+            logger.info("Data inserted successfully ({} rows in {} ms).", result.getRows(), result.getElapsedMs());
+            return ResponseEntity.ok("{\"rowsWritten\":" + result.getRows()
+                    + ",\"elapsedMs\":" + result.getElapsedMs()
+                    + ",\"method\":\"" + result.getMethod().name().toLowerCase(Locale.ROOT) + "\"}");
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            logger.error("Invalid insert request", e);
+            rollbackIfTransactional();
+            return ResponseEntity.badRequest().body("Failed to insert data: " + e.getMessage());
         } catch (Exception e) {
             logger.error("Error inserting data", e);
+            rollbackIfTransactional();
             return ResponseEntity.status(500).body("Failed to insert data: " + e.getMessage());
         }
     }
 
     /**
-     * Retrieves data from the target PostgreSQL database.
+     * Streams employee rows from the target PostgreSQL database in id order. Rows are read page by page
+     * with keyset pagination and written to the response as they arrive, so memory use does not depend
+     * on the table size. The next cursor is the id of the last row returned.
      *
-     * @return ResponseEntity with the retrieved data or failure message
+     * @param cursor exclusive lower bound on id, or null to start from the beginning
+     * @param limit  maximum number of rows to return, or null for all remaining rows
+     * @param fields columns to include, or null for all columns; id is always included
+     * @param format "ndjson" for one JSON object per line or "json" for a JSON array
+     * @return ResponseEntity with the streamed rows or failure message
      */
-    public ResponseEntity<String> retrieveData() {
+    public ResponseEntity<StreamingResponseBody> retrieveData(Long cursor, Integer limit, List<String> fields,
+                                                              String format) {
         logger.info("Retrieving data from the target DB...");
-        // Call to the repository layer to fetch data
         try {
-            // Example retrieval logic
-            // List<Employee> employees = repository.findAll();
-            // String result = objectMapper.writeValueAsString(employees);
+            List<String> columns = projectedColumns(fields);
+            if (limit != null && limit < 0) {
+                throw new IllegalArgumentException("limit must not be negative");
+            }
+            boolean ndjson = !"json".equalsIgnoreCase(format);
+            if (ndjson && !"ndjson".equalsIgnoreCase(format)) {
+                throw new IllegalArgumentException("Unsupported format: " + format);
+            }
+            long start = cursor == null ? Long.MIN_VALUE : cursor;
+            long maxRows = limit == null ? Long.MAX_VALUE : limit;
 
-            logger.info("Data retrieved successfully.");
-            return ResponseEntity.ok("Data retrieved successfully.");
+            StreamingResponseBody body = out -> streamRows(out, start, maxRows, columns, ndjson);
+            return ResponseEntity.ok()
+                    .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid retrieve request", e);
+            return ResponseEntity.badRequest().body(message("Failed to retrieve data: " + e.getMessage()));
         } catch (Exception e) {
             logger.error("Error retrieving data", e);
+            return ResponseEntity.status(500).body(message("Failed to retrieve data: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Retrieves a single employee from the target, served from the read cache when possible.
+     *
+     * @param id employee id
+     * @return ResponseEntity with the employee as JSON, 404 if it does not exist, or failure message
+     */
+    public ResponseEntity<String> retrieveById(long id) {
+        try {
+            Optional<Employee> employee = targetEmployeeCache.get(id);
+            if (!employee.isPresent()) {
+                return ResponseEntity.status(404).body("Employee not found: " + id);
+            }
+            return ResponseEntity.ok(objectMapper.writeValueAsString(employee.get()));
+        } catch (Exception e) {
+            logger.error("Error retrieving employee {}", id, e);
             return ResponseEntity.status(500).body("Failed to retrieve data: " + e.getMessage());
         }
     }
 
     /**
-     * Returns the configuration for Debezium source connector as JSON.
+     * Retrieves the employees of a department from the target in id order, served from the read cache's
+     * department index when possible.
      *
-     * @return Debezium source connector configuration JSON
+     * @param department department name
+     * @return ResponseEntity with a JSON array of employees or failure message
      */
-    private String getDebeziumSourceConfig() {
-        return "{"
-                + "\"name\":\"debezium-source\","
-                + "\"config\":{"
-                + "\"connector.class\":\"io.debezium.connector.postgresql.PostgresConnector\","
-                + "\"database.hostname\":\"postgres-source\","
-                + "\"database.port\":\"5432\","
-                + "\"database.user\":\"user\","
-                + "\"database.password\":\"password\","
-                + "\"database.dbname\":\"source_db\","
-                + "\"database.server.name\":\"dbserver1\","
-                + "\"table.include.list\":\"public.employee\","
-                + "\"plugin.name\":\"pgoutput\","
-                + "\"database.history.kafka.bootstrap.servers\":\"kafka:9092\","
-                + "\"database.history.kafka.topic\":\"schema-changes.inventory\""
-                + "}}";
+    public ResponseEntity<String> retrieveByDepartment(String department) {
+        try {
+            return ResponseEntity.ok(objectMapper.writeValueAsString(targetEmployeeCache.getByDepartment(department)));
+        } catch (Exception e) {
+            logger.error("Error retrieving department {}", department, e);
+            return ResponseEntity.status(500).body("Failed to retrieve data: " + e.getMessage());
+        }
     }
 
     /**
-     * Returns the configuration for JDBC sink connector as JSON.
+     * Opens a Server-Sent Events stream of the changes written to the target, see {@link ChangeStreamHub}.
      *
-     * @return JDBC sink connector configuration JSON
+     * @param params      filter parameters understood by {@link ChangeStreamFilter}, plus {@code from} to
+     *                    resume after an offset
+     * @param lastEventId offset sent by a reconnecting client, used when {@code from} is absent
+     * @return ResponseEntity with the stream; on failure the stream carries a single {@code error} event
      */
-    private String getJdbcSinkConfig() {
-        return "{"
-                + "\"name\":\"jdbc-sink\","
-                + "\"config\":{"
-                + "\"connector.class\":\"io.confluent.connect.jdbc.JdbcSinkConnector\","
-                + "\"connection.url\":\"jdbc:postgresql://postgres-target:5432/target_db\","
-                + "\"connection.user\":\"user\","
-                + "\"connection.password\":\"password\","
-                + "\"auto.create\":\"true\","
-                + "\"auto.evolve\":\"true\","
-                + "\"topics\":\"dbserver1.public.employee\""
-                + "}}";
+    public ResponseEntity<SseEmitter> streamChanges(Map<String, String> params, Long lastEventId) {
+        try {
+            Map<String, String> filter = new HashMap<>(params);
+            String from = filter.remove("from");
+            Long after = from != null ? Long.valueOf(from) : lastEventId;
+            return ResponseEntity.ok(changeStreamHub.subscribe(ChangeStreamFilter.parse(filter), after));
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid change stream request", e);
+            return ResponseEntity.badRequest().body(errorStream("Failed to stream changes: " + e.getMessage()));
+        } catch (IllegalStateException e) {
+            logger.warn("Change stream unavailable: {}", e.getMessage());
+            return ResponseEntity.status(503).body(errorStream("Failed to stream changes: " + e.getMessage()));
+        }
+    }
+
+    private void streamRows(OutputStream out, long cursor, long maxRows, List<String> columns, boolean ndjson)
+            throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (ndjson) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+        } else {
+            generator.writeStartArray();
+        }
+
+        long[] lastId = {cursor};
+        long remaining = maxRows;
+        long total = 0;
+        while (remaining > 0) {
+            int pageLimit = (int) Math.min(retrievePageSize, remaining);
+            int rows = targetEmployeeRepository.forEachAfter(lastId[0], pageLimit, columns, rs -> {
+                lastId[0] = rs.getLong("id");
+                try {
+                    writeRow(generator, rs, columns);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+            total += rows;
+            remaining -= rows;
+            if (rows < pageLimit) {
+                break;
+            }
+        }
+
+        if (ndjson) {
+            generator.writeRaw('\n');
+        } else {
+            generator.writeEndArray();
+        }
+        generator.close();
+        logger.info("Data retrieved successfully ({} rows).", total);
+    }
+
+    private static void writeRow(JsonGenerator generator, ResultSet rs, List<String> columns)
+            throws IOException, SQLException {
+        generator.writeStartObject();
+        for (String column : columns) {
+            switch (column) {
+                case "id":
+                    generator.writeNumberField(column, rs.getLong(column));
+                    break;
+                case "salary":
+                    double salary = rs.getDouble(column);
+                    if (rs.wasNull()) {
+                        generator.writeNullField(column);
+                    } else {
+                        generator.writeNumberField(column, salary);
+                    }
+                    break;
+                default:
+                    generator.writeStringField(column, rs.getString(column));
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static List<String> projectedColumns(List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return TargetEmployeeRepository.COLUMNS;
+        }
+        // Keep the table's column order; id is needed for the keyset cursor
+        for (String field : fields) {
+            if (!TargetEmployeeRepository.COLUMNS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : TargetEmployeeRepository.COLUMNS) {
+            if (column.equals("id") || fields.contains(column)) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    private static SseEmitter errorStream(String message) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(message));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    private static StreamingResponseBody message(String message) {
+        return out -> out.write(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void rollbackIfTransactional() {
+        // The error is turned into a response, so the transaction would otherwise commit a partial load
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+    }
+
+    /**
+     * Brings this instance in line with the cluster. The leader creates or deletes the connectors when it
+     * has just been elected or the desired streaming state has changed; in kafka mode every instance runs
+     * its change consumer while the cluster is streaming, and restarts it if it has failed.
+     */
+    synchronized void reconcileCluster() throws Exception {
+        Boolean streaming = clusterCoordinator.streamingRequested();
+        if (!clusterCoordinator.isLeader()) {
+            connectorsStreaming = null;
+        } else if (streaming != null && !streaming.equals(connectorsStreaming)) {
+            if (streaming) {
+                pipelineManager.start(backfillService.completedSlot().orElse(null));
+            } else {
+                pipelineManager.stop();
+            }
+            connectorsStreaming = streaming;
+            logger.info("Reconciled connectors as cluster leader (streaming={}).", streaming);
+        }
+        if (isKafkaMode()) {
+            boolean consume = Boolean.TRUE.equals(streaming);
+            if (consume && !kafkaChangeConsumer.isRunning()) {
+                kafkaChangeConsumer.start();
+            } else if (!consume && kafkaChangeConsumer.isRunning()) {
+                kafkaChangeConsumer.stop();
+            }
+        }
+    }
+
+    private boolean ownsConnectors() {
+        return !clusterCoordinator.isEnabled() || clusterCoordinator.isLeader();
+    }
+
+    private ResponseEntity<String> notLeader() {
+        return ResponseEntity.status(409).body("Pipelines are managed by the cluster leader "
+                + clusterCoordinator.leaderId() + ".");
+    }
+
+    private boolean isEmbeddedMode() {
+        return streamingProperties.getMode() == StreamingMode.EMBEDDED;
+    }
+
+    private boolean isKafkaMode() {
+        return streamingProperties.getMode() == StreamingMode.KAFKA;
     }
 }
@@ -0,0 +1,110 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A micro-batch of employee changes. Multiple changes for the same primary key collapse to the last one,
+ * so every key is written at most once per batch. Collapsed records are released to their pool right
+ * away; the rest are released by {@link #recycle()} once the batch has been written.
+ * <p>
+ * For exactly-once apply the batch also tracks the highest source offset per change topic partition among
+ * all changes added, collapsed ones included, and the apply lane it belongs to.
+ */
+public class ChangeBatch {
+
+    private final Map<Long, ChangeRecord> latestByKey = new LinkedHashMap<>();
+    private int eventCount;
+    private final Map<Integer, Long> sourceOffsets = new HashMap<>();
+    private int lane;
+
+    public void add(ChangeRecord record) {
+        if (record.getSourcePartition() >= 0) {
+            sourceOffsets.merge(record.getSourcePartition(), record.getSourceOffset(), Math::max);
+        }
+        ChangeRecord replaced = latestByKey.put(record.getId(), record);
+        if (replaced != null && replaced != record) {
+            replaced.release();
+        }
+        eventCount++;
+    }
+
+    /**
+     * @return number of distinct keys in the batch
+     */
+    public int size() {
+        return latestByKey.size();
+    }
+
+    /**
+     * @return number of change events added, including the ones that were collapsed
+     */
+    public int eventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return highest source offset added per change topic partition; empty unless exactly-once apply is on
+     */
+    public Map<Integer, Long> sourceOffsets() {
+        return sourceOffsets;
+    }
+
+    public int getLane() {
+        return lane;
+    }
+
+    public void setLane(int lane) {
+        this.lane = lane;
+    }
+
+    public boolean isEmpty() {
+        return latestByKey.isEmpty();
+    }
+
+    public Collection<ChangeRecord> records() {
+        return latestByKey.values();
+    }
+
+    public List<ChangeRecord> upserts() {
+        List<ChangeRecord> upserts = new ArrayList<>(latestByKey.size());
+        for (ChangeRecord record : latestByKey.values()) {
+            if (!record.isDelete()) {
+                upserts.add(record);
+            }
+        }
+        return upserts;
+    }
+
+    public List<Long> deletes() {
+        List<Long> deletes = new ArrayList<>();
+        for (ChangeRecord record : latestByKey.values()) {
+            if (record.isDelete()) {
+                deletes.add(record.getId());
+            }
+        }
+        return deletes;
+    }
+
+    /**
+     * Releases every record back to its pool and clears the batch.
+     */
+    public void recycle() {
+        for (ChangeRecord record : latestByKey.values()) {
+            record.release();
+        }
+        clear();
+    }
+
+    public void clear() {
+        latestByKey.clear();
+        eventCount = 0;
+        sourceOffsets.clear();
+    }
+}
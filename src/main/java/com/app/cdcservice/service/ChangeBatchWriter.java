@@ -0,0 +1,14 @@
+package com.app.cdcservice.service;
+
+/**
+ * Final stage of the apply pipeline: persists one collapsed batch of changes.
+ */
+public interface ChangeBatchWriter {
+
+    /**
+     * Writes the batch atomically; throws if nothing was written.
+     *
+     * @param batch collapsed changes to write
+     */
+    void write(ChangeBatch batch);
+}
@@ -0,0 +1,333 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.model.ChangeEventSchema;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.ChangeRecordPool;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes Debezium JSON change envelopes for the employee table into {@link ChangeRecord}s.
+ * Both the schema-wrapped ({@code {"schema":..., "payload":...}}) and the schemaless form are accepted,
+ * as are events in the {@link BinaryChangeEventFormat}, whose row schemas are read from
+ * {@code cdc.kafka.schema-registry-file}.
+ * <p>
+ * Envelopes are read with a streaming {@link JsonParser} straight from the message bytes into a record
+ * taken from the {@link ChangeRecordPool}, without building a tree or an {@link com.app.cdcservice.model.Employee}.
+ * The apply stage releases records back to the pool once they have been written.
+ */
+@Component
+public class ChangeEventDecoder {
+
+    // Record columns a binary schema field is read into
+    private static final int SKIP = -1;
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int POSITION = 2;
+    private static final int SALARY = 3;
+    private static final int DEPARTMENT = 4;
+
+    private final JsonFactory jsonFactory;
+    private final ChangeRecordPool pool;
+    private final FileSchemaRegistry schemaRegistry;
+    private final Map<Integer, int[]> binaryColumns = new ConcurrentHashMap<>();
+
+    public ChangeEventDecoder(ObjectMapper objectMapper, ApplyProperties applyProperties,
+                              EventFormatProperties eventFormatProperties) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.pool = new ChangeRecordPool(applyProperties.getRecordPoolSize());
+        this.schemaRegistry = new FileSchemaRegistry(Paths.get(eventFormatProperties.getSchemaRegistryFile()), objectMapper);
+    }
+
+    /**
+     * Decodes a change event value.
+     *
+     * @param value Debezium JSON envelope as UTF-8 bytes or binary event, may be null for tombstones
+     * @return a pooled record, or null if the event carries no row change
+     * @throws IOException if the value is not valid JSON or has an unknown schema id
+     */
+    public ChangeRecord decode(byte[] value) throws IOException {
+        return value == null ? null : decode(value, 0, value.length);
+    }
+
+    /**
+     * Decodes a change event value held in a slice of a byte array.
+     */
+    public ChangeRecord decode(byte[] value, int offset, int length) throws IOException {
+        if (value == null || length == 0) {
+            return null;
+        }
+        if (BinaryChangeEventFormat.isBinary(value, offset, length)) {
+            return decodeBinary(ByteBuffer.wrap(value, offset, length));
+        }
+        try (JsonParser parser = jsonFactory.createParser(value, offset, length)) {
+            return decode(parser);
+        }
+    }
+
+    /**
+     * Decodes the remaining bytes of a buffer without changing its position.
+     */
+    public ChangeRecord decode(ByteBuffer value) throws IOException {
+        if (value == null || !value.hasRemaining()) {
+            return null;
+        }
+        if (value.hasArray()) {
+            return decode(value.array(), value.arrayOffset() + value.position(), value.remaining());
+        }
+        if (value.get(value.position()) == BinaryChangeEventFormat.MAGIC) {
+            byte[] copy = new byte[value.remaining()];
+            value.duplicate().get(copy);
+            return decode(copy);
+        }
+        try (JsonParser parser = jsonFactory.createParser(new ByteBufferBackedInputStream(value.duplicate()))) {
+            return decode(parser);
+        }
+    }
+
+    /**
+     * Decodes a change event value delivered as text, as the embedded engine does.
+     */
+    public ChangeRecord decode(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try (JsonParser parser = jsonFactory.createParser(value)) {
+            return decode(parser);
+        }
+    }
+
+    private ChangeRecord decode(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        ChangeRecord record = pool.acquire();
+        boolean decoded = false;
+        try {
+            decoded = readEnvelope(parser, record, true);
+            return decoded ? record : null;
+        } finally {
+            if (!decoded) {
+                record.release();
+            }
+        }
+    }
+
+    private ChangeRecord decodeBinary(ByteBuffer in) throws IOException {
+        in.get();
+        int schemaId = in.getInt();
+        List<ChangeEventSchema.Field> fields = schemaRegistry.get(schemaId).getFields();
+        int[] columns = binaryColumns.get(schemaId);
+        if (columns == null) {
+            columns = columns(fields);
+            binaryColumns.put(schemaId, columns);
+        }
+        char op = (char) in.get();
+        if (op != 'c' && op != 'u' && op != 'd' && op != 'r') {
+            return null;
+        }
+
+        ChangeRecord record = pool.acquire();
+        boolean decoded = false;
+        try {
+            record.setOp(ChangeRecord.Op.fromCode(op));
+            record.setLsn(BinaryChangeEventFormat.readVarLong(in));
+            record.setSourceTsMs(BinaryChangeEventFormat.readVarLong(in));
+            record.setTxId(BinaryChangeEventFormat.readVarLong(in));
+            int nullsAt = in.position();
+            in.position(nullsAt + (columns.length + 7) / 8);
+            record.clearColumns();
+            for (int i = 0; i < columns.length; i++) {
+                if (BinaryChangeEventFormat.isNull(in, nullsAt, i)) {
+                    continue;
+                }
+                switch (columns[i]) {
+                    case ID:
+                        record.setId(BinaryChangeEventFormat.readVarLong(in));
+                        break;
+                    case NAME:
+                        record.setName(BinaryChangeEventFormat.readString(in));
+                        break;
+                    case POSITION:
+                        record.setPosition(BinaryChangeEventFormat.readString(in));
+                        break;
+                    case SALARY:
+                        record.setSalary(in.getDouble());
+                        break;
+                    case DEPARTMENT:
+                        record.setDepartment(BinaryChangeEventFormat.readString(in));
+                        break;
+                    default:
+                        BinaryChangeEventFormat.skip(in, fields.get(i).getType());
+                }
+            }
+            decoded = true;
+            return record;
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed binary change event with schema id " + schemaId, e);
+        } finally {
+            if (!decoded) {
+                record.release();
+            }
+        }
+    }
+
+    /**
+     * Maps the fields of a binary schema to record columns. Employee columns of another type than the
+     * decoder reads are skipped.
+     */
+    private static int[] columns(List<ChangeEventSchema.Field> fields) {
+        int[] columns = new int[fields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            ChangeEventSchema.Type type = fields.get(i).getType();
+            switch (fields.get(i).getName()) {
+                case "id":
+                    columns[i] = type == ChangeEventSchema.Type.INT64 || type == ChangeEventSchema.Type.INT32 ? ID : SKIP;
+                    break;
+                case "name":
+                    columns[i] = type == ChangeEventSchema.Type.STRING ? NAME : SKIP;
+                    break;
+                case "position":
+                    columns[i] = type == ChangeEventSchema.Type.STRING ? POSITION : SKIP;
+                    break;
+                case "salary":
+                    columns[i] = type == ChangeEventSchema.Type.FLOAT64 ? SALARY : SKIP;
+                    break;
+                case "department":
+                    columns[i] = type == ChangeEventSchema.Type.STRING ? DEPARTMENT : SKIP;
+                    break;
+                default:
+                    columns[i] = SKIP;
+            }
+        }
+        return columns;
+    }
+
+    private boolean readEnvelope(JsonParser parser, ChangeRecord record, boolean topLevel) throws IOException {
+        char op = 0;
+        boolean afterRead = false;
+        boolean sourceTsRead = false;
+        long envelopeTsMs = 0;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "payload":
+                    if (topLevel && token == JsonToken.START_OBJECT) {
+                        return readEnvelope(parser, record, false);
+                    }
+                    parser.skipChildren();
+                    break;
+                case "before":
+                    // With REPLICA IDENTITY FULL updates carry both images; the after image wins
+                    if (token == JsonToken.START_OBJECT && !afterRead) {
+                        readRow(parser, record);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "after":
+                    if (token == JsonToken.START_OBJECT) {
+                        readRow(parser, record);
+                        afterRead = true;
+                    }
+                    break;
+                case "source":
+                    if (token == JsonToken.START_OBJECT) {
+                        sourceTsRead = readSource(parser, record);
+                    }
+                    break;
+                case "op":
+                    if (token == JsonToken.VALUE_STRING && parser.getTextLength() == 1) {
+                        op = parser.getTextCharacters()[parser.getTextOffset()];
+                    }
+                    break;
+                case "ts_ms":
+                    if (token.isNumeric()) {
+                        envelopeTsMs = parser.getLongValue();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        switch (op) {
+            case 'c':
+            case 'u':
+            case 'd':
+            case 'r':
+                record.setOp(ChangeRecord.Op.fromCode(op));
+                if (!sourceTsRead) {
+                    record.setSourceTsMs(envelopeTsMs);
+                }
+                return true;
+            default:
+                // Heartbeats and schema change events have no operation; truncates cannot be applied per key
+                return false;
+        }
+    }
+
+    private static void readRow(JsonParser parser, ChangeRecord record) throws IOException {
+        record.clearColumns();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    record.setId(parser.getValueAsLong());
+                    break;
+                case "name":
+                    record.setName(parser.getText());
+                    break;
+                case "position":
+                    record.setPosition(parser.getText());
+                    break;
+                case "salary":
+                    // Numbers normally; a string with decimal.handling.mode=string
+                    record.setSalary(token.isNumeric() ? parser.getDoubleValue() : Double.parseDouble(parser.getText()));
+                    break;
+                case "department":
+                    record.setDepartment(parser.getText());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static boolean readSource(JsonParser parser, ChangeRecord record) throws IOException {
+        boolean tsRead = false;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if ("lsn".equals(field) && token.isNumeric()) {
+                record.setLsn(parser.getLongValue());
+            } else if ("ts_ms".equals(field) && token.isNumeric()) {
+                record.setSourceTsMs(parser.getLongValue());
+                tsRead = true;
+            } else if ("txId".equals(field) && token.isNumeric()) {
+                record.setTxId(parser.getLongValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return tsRead;
+    }
+}
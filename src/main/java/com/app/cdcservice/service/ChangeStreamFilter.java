@@ -0,0 +1,115 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import com.app.cdcservice.model.StreamedChange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Selects the changes a subscriber of the change stream receives, built from request parameters:
+ * {@code table} and {@code op} restrict the table (qualified or not) and operation ({@code c}, {@code u},
+ * {@code d}, {@code r}), and a column name restricts the row to the given value. Every parameter takes a
+ * comma-separated list of alternatives, and all parameters must match. Deletes carry only the id, so they
+ * never match a predicate on another column.
+ */
+public class ChangeStreamFilter implements Predicate<StreamedChange> {
+
+    private final Set<String> tables;
+    private final Set<ChangeRecord.Op> ops;
+    private final List<Predicate<Employee>> columns;
+
+    private ChangeStreamFilter(Set<String> tables, Set<ChangeRecord.Op> ops, List<Predicate<Employee>> columns) {
+        this.tables = tables;
+        this.ops = ops;
+        this.columns = columns;
+    }
+
+    /**
+     * @param params filter parameters
+     * @return filter matching the parameters, or every change if there are none
+     * @throws IllegalArgumentException on an unknown parameter or a malformed value
+     */
+    public static ChangeStreamFilter parse(Map<String, String> params) {
+        Set<String> tables = null;
+        Set<ChangeRecord.Op> ops = null;
+        List<Predicate<Employee>> columns = new ArrayList<>();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            List<String> values = Arrays.asList(param.getValue().split(","));
+            switch (param.getKey()) {
+                case "table":
+                    tables = new HashSet<>(values);
+                    break;
+                case "op":
+                    ops = EnumSet.noneOf(ChangeRecord.Op.class);
+                    for (String value : values) {
+                        ops.add(op(value));
+                    }
+                    break;
+                case "id":
+                    columns.add(column(Employee::getId, values, Long::valueOf));
+                    break;
+                case "name":
+                    columns.add(column(Employee::getName, values, Function.identity()));
+                    break;
+                case "position":
+                    columns.add(column(Employee::getPosition, values, Function.identity()));
+                    break;
+                case "department":
+                    columns.add(column(Employee::getDepartment, values, Function.identity()));
+                    break;
+                case "salary":
+                    columns.add(column(Employee::getSalary, values, Double::valueOf));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown filter: " + param.getKey());
+            }
+        }
+        return new ChangeStreamFilter(tables, ops, columns);
+    }
+
+    @Override
+    public boolean test(StreamedChange change) {
+        if (ops != null && !ops.contains(change.getOp())) {
+            return false;
+        }
+        if (tables != null && !tables.contains(change.getTable())
+                && !tables.contains(change.getTable().substring(change.getTable().indexOf('.') + 1))) {
+            return false;
+        }
+        for (Predicate<Employee> column : columns) {
+            if (!column.test(change.getRow())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ChangeRecord.Op op(String value) {
+        if (value.length() == 1) {
+            return ChangeRecord.Op.fromCode(value.charAt(0));
+        }
+        return ChangeRecord.Op.valueOf(value.toUpperCase(Locale.ROOT));
+    }
+
+    private static <T> Predicate<Employee> column(Function<Employee, T> getter, List<String> values,
+                                                  Function<String, T> parser) {
+        Set<T> accepted = new HashSet<>();
+        for (String value : values) {
+            accepted.add(parser.apply(value));
+        }
+        return employee -> {
+            T value = getter.apply(employee);
+            return value != null && accepted.contains(value);
+        };
+    }
+}
@@ -0,0 +1,358 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ChangeStreamProperties;
+import com.app.cdcservice.config.ClusterProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.StreamedChange;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pushes every change written to the target to Server-Sent Events subscribers of
+ * {@code /api/streaming/changes}, so downstream services do not have to poll the target.
+ * <p>
+ * The apply stage reports each batch through {@link #published} after the target transaction commits. Its
+ * changes are appended once to a ring buffer of {@code cdc.stream.buffer-size} changes shared by all
+ * subscribers; each change is serialized to JSON at most once, the first time it is sent. A subscriber is
+ * only a filter and the offset of the last change it was sent, and is served by a sender task that runs
+ * whenever it has changes pending, sending at most {@code cdc.stream.send-burst} of them before another
+ * subscriber gets a turn.
+ * <p>
+ * Every change has an increasing offset, sent as the SSE event id. A subscriber reconnecting with
+ * {@code Last-Event-ID} (or {@code from}) resumes after that offset while it is still buffered. A
+ * subscriber that falls behind by more than the buffer is handled by {@code cdc.stream.slow-subscriber-policy}:
+ * {@code DROP} sends a {@code gap} event with the number of changes missed and continues from the oldest
+ * buffered change, {@code DISCONNECT} sends the {@code gap} event and ends the stream. Offsets restart
+ * with the service; a resume offset ahead of the stream gets a {@code reset} event and live changes.
+ * <p>
+ * In a kafka-mode cluster ({@code cdc.cluster.enabled}) the stream is disabled: each instance applies only
+ * the partitions assigned to it, so a subscriber would silently receive part of the changes, and offsets
+ * would differ between instances.
+ */
+@Component
+public class ChangeStreamHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamHub.class);
+
+    private final ChangeStreamProperties properties;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int capacity;
+    private final AtomicReferenceArray<Slot> ring;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeats;
+    private final Counter sentEvents;
+    private final Counter missedEvents;
+
+    // Offset of the last published change; the first change gets offset 1
+    private volatile long head;
+
+    public ChangeStreamHub(ChangeStreamProperties properties, ObjectMapper objectMapper, WorkerThreads workerThreads,
+                           MeterRegistry meterRegistry, StreamingProperties streamingProperties,
+                           ClusterProperties clusterProperties) {
+        if (properties.getBufferSize() < 1 || properties.getSendBurst() < 1) {
+            throw new IllegalArgumentException("cdc.stream.buffer-size and cdc.stream.send-burst must be at least 1");
+        }
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        boolean clustered = clusterProperties.isEnabled() && streamingProperties.getMode() == StreamingMode.KAFKA;
+        this.enabled = properties.isEnabled() && streamingProperties.getMode() != StreamingMode.CONNECT && !clustered;
+        this.capacity = properties.getBufferSize();
+        this.ring = new AtomicReferenceArray<>(enabled ? capacity : 0);
+        if (enabled) {
+            this.senders = workerThreads.executor("change-stream-", properties.getSenderThreads());
+            this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "change-stream-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            heartbeats.scheduleWithFixedDelay(this::heartbeat, properties.getHeartbeatMs(),
+                    properties.getHeartbeatMs(), TimeUnit.MILLISECONDS);
+        } else if (clustered && properties.isEnabled()) {
+            logger.info("Change stream is disabled: clustered instances each apply only part of the changes.");
+            this.senders = null;
+            this.heartbeats = null;
+        } else {
+            logger.info("Change stream is disabled (streaming mode {}).", streamingProperties.getMode());
+            this.senders = null;
+            this.heartbeats = null;
+        }
+
+        Gauge.builder("cdc.stream.subscribers", subscribers, Set::size)
+                .description("Connected change stream subscribers")
+                .register(meterRegistry);
+        this.sentEvents = Counter.builder("cdc.stream.events.sent")
+                .description("Changes sent to change stream subscribers")
+                .register(meterRegistry);
+        this.missedEvents = Counter.builder("cdc.stream.events.missed")
+                .description("Changes slow subscribers missed because they had left the buffer")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends the changes of a batch that has been written to the target and wakes up the subscribers.
+     * Called by the apply lanes.
+     *
+     * @param table table the batch was written to
+     * @param batch written changes
+     */
+    public void published(String table, ChangeBatch batch) {
+        if (!enabled || batch.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            long offset = head;
+            for (ChangeRecord record : batch.records()) {
+                offset++;
+                ring.set(index(offset), new Slot(StreamedChange.of(offset, table, record)));
+            }
+            head = offset;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.schedule();
+        }
+    }
+
+    /**
+     * Opens a stream of the changes matching the filter.
+     *
+     * @param filter changes to send
+     * @param after  offset to resume after, or null to receive only changes published from now on
+     * @return emitter to return from the request handler
+     * @throws IllegalStateException if the stream is disabled or has too many subscribers
+     */
+    public SseEmitter subscribe(ChangeStreamFilter filter, Long after) {
+        if (!enabled) {
+            throw new IllegalStateException("The change stream is only available in kafka and embedded modes");
+        }
+        if (subscribers.size() >= properties.getMaxSubscribers()) {
+            throw new IllegalStateException("Too many change stream subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(properties.getTimeoutMs() > 0 ? properties.getTimeoutMs() : -1L);
+        long current = head;
+        Subscriber subscriber = new Subscriber(emitter, filter, after == null ? current : after, after != null);
+        if (after != null && after > current) {
+            subscriber.cursor = current;
+            subscriber.send(SseEmitter.event().name("reset").data("{\"offset\":" + current + "}", MediaType.APPLICATION_JSON));
+        }
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.schedule();
+        return emitter;
+    }
+
+    /**
+     * @return offset of the last published change
+     */
+    public long head() {
+        return head;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        heartbeats.shutdownNow();
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            subscriber.close();
+        }
+        senders.shutdown();
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            subscriber.schedule();
+        }
+    }
+
+    private int index(long offset) {
+        return (int) Math.floorMod(offset, (long) capacity);
+    }
+
+    /**
+     * Counts the changes a subscriber has lost, given the offset found in the slot of the next change it
+     * wants. A publisher fills slots before it moves the head, so a slot can hold a change beyond the head.
+     *
+     * @param next       offset the subscriber wants
+     * @param slotOffset offset of the change in its slot, or 0 if the slot is empty
+     * @param head       head read before the slot
+     * @param capacity   slots in the ring
+     * @return changes lost from {@code next} on, or 0 if the change has not been overwritten and is worth
+     * waiting for
+     */
+    static long missed(long next, long slotOffset, long head, int capacity) {
+        if (slotOffset <= next) {
+            return 0;
+        }
+        long oldest = Math.max(1, Math.max(head, slotOffset) - capacity + 1);
+        return oldest - next;
+    }
+
+    private String json(Slot slot) {
+        String json = slot.json;
+        if (json == null) {
+            try {
+                // Racing senders may both serialize; either result is the same
+                json = objectMapper.writeValueAsString(slot.change);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+            slot.json = json;
+        }
+        return json;
+    }
+
+    private static final class Slot {
+        final StreamedChange change;
+        volatile String json;
+
+        Slot(StreamedChange change) {
+            this.change = change;
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+
+        final SseEmitter emitter;
+        final ChangeStreamFilter filter;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // Offset of the last change looked at; only touched by the sender task, which runs one at a time
+        long cursor;
+        // Set until the first change after the resume offset has been read
+        boolean resuming;
+        volatile boolean heartbeatDue;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, ChangeStreamFilter filter, long cursor, boolean resuming) {
+            this.emitter = emitter;
+            this.filter = filter;
+            this.cursor = cursor;
+            this.resuming = resuming;
+        }
+
+        void schedule() {
+            if (closed || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senders.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            // Head at which the next change was not visible yet; no point looking again until it moves
+            long waitedAt = -1;
+            try {
+                int sent = 0;
+                while (!closed && cursor < head && sent < properties.getSendBurst()) {
+                    long published = head;
+                    long next = cursor + 1;
+                    Slot slot = ring.get(index(next));
+                    long offset = slot == null ? 0 : slot.change.getOffset();
+                    if (offset != next) {
+                        long missed = missed(next, offset, published, capacity);
+                        if (missed == 0) {
+                            waitedAt = published;
+                            break;
+                        }
+                        fellBehind(next, missed);
+                        continue;
+                    }
+                    cursor = next;
+                    resuming = false;
+                    if (filter.test(slot.change)) {
+                        send(SseEmitter.event()
+                                .id(String.valueOf(next))
+                                .name("change")
+                                .data(json(slot), MediaType.APPLICATION_JSON));
+                        sentEvents.increment();
+                        sent++;
+                    }
+                }
+                if (heartbeatDue && sent == 0 && !closed) {
+                    send(SseEmitter.event().comment("heartbeat"));
+                }
+                heartbeatDue = false;
+            } catch (RuntimeException e) {
+                logger.warn("Change stream subscriber failed", e);
+                close();
+            } finally {
+                scheduled.set(false);
+            }
+            // Changes published after the last check would otherwise wait for the next batch
+            if (!closed && cursor < head && head != waitedAt) {
+                schedule();
+            }
+        }
+
+        private void fellBehind(long next, long missed) {
+            long oldest = next + missed;
+            missedEvents.increment(missed);
+            send(SseEmitter.event()
+                    .name("gap")
+                    .data("{\"missed\":" + missed + ",\"resumeAfter\":" + (oldest - 1) + "}", MediaType.APPLICATION_JSON));
+            cursor = oldest - 1;
+            // A subscriber resuming from a change that is gone carries on, or it would reconnect forever
+            if (properties.getSlowSubscriberPolicy() == ChangeStreamProperties.SlowSubscriberPolicy.DISCONNECT
+                    && !resuming) {
+                logger.info("Disconnecting change stream subscriber that missed {} changes.", missed);
+                close();
+            }
+        }
+
+        void send(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                // The client has gone away
+                closed = true;
+                subscribers.remove(this);
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.TransformProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filters and reshapes employee changes before they are written to the target ({@code cdc.transform.*}).
+ * <ul>
+ *     <li>{@code filter}: a condition on the source row; rows that do not meet it are not replicated</li>
+ *     <li>{@code set.<column>}: an expression whose value is written to the column instead of the source
+ *     value, e.g. to mask or derive it</li>
+ *     <li>{@code drop}: columns written as NULL</li>
+ * </ul>
+ * Expressions are Spring expressions over the source row ({@code id}, {@code name}, {@code position},
+ * {@code salary}, {@code department}) and may call {@code #mask(text)} and {@code #bucket(number, step)}.
+ * They are parsed once at startup, evaluated in a read-only context without type references, and compiled
+ * to bytecode once they have run often enough. Only expressions whose operand types match compile, so
+ * compare {@code salary} with decimal literals ({@code salary > 50000.0}).
+ * <p>
+ * Inserts and snapshot reads of filtered rows are dropped. An update of a filtered row becomes a delete, so a
+ * row that stops matching the filter also leaves the target. Deletes carry only the key and always pass.
+ * Every set expression sees the source values, not the result of another one. Thread-safe.
+ */
+@Component
+public class ChangeTransformer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeTransformer.class);
+
+    /**
+     * Columns a transformation can write. The key is never transformed, since it routes and identifies the row.
+     */
+    enum Column {
+        NAME(String.class) {
+            @Override
+            void write(ChangeRecord record, Object value) {
+                record.setName((String) value);
+            }
+        },
+        POSITION(String.class) {
+            @Override
+            void write(ChangeRecord record, Object value) {
+                record.setPosition((String) value);
+            }
+        },
+        SALARY(Double.class) {
+            @Override
+            void write(ChangeRecord record, Object value) {
+                if (value == null) {
+                    record.clearSalary();
+                } else {
+                    record.setSalary((Double) value);
+                }
+            }
+        },
+        DEPARTMENT(String.class) {
+            @Override
+            void write(ChangeRecord record, Object value) {
+                record.setDepartment((String) value);
+            }
+        };
+
+        final Class<?> type;
+
+        Column(Class<?> type) {
+            this.type = type;
+        }
+
+        abstract void write(ChangeRecord record, Object value);
+
+        static Column named(String name) {
+            if ("id".equalsIgnoreCase(name.trim())) {
+                throw new IllegalArgumentException("cdc.transform cannot change the id column");
+            }
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown column in cdc.transform: " + name
+                        + "; expected name, position, salary or department");
+            }
+        }
+    }
+
+    private final SimpleEvaluationContext context;
+    // Null when every row is replicated
+    private final Expression filter;
+    private final Column[] setColumns;
+    private final Expression[] setExpressions;
+    private final Column[] dropped;
+    private final boolean enabled;
+    private final Counter filteredEvents;
+
+    public ChangeTransformer(TransformProperties properties, MeterRegistry meterRegistry) {
+        ExpressionParser parser = new SpelExpressionParser(
+                new SpelParserConfiguration(SpelCompilerMode.MIXED, getClass().getClassLoader()));
+        this.context = SimpleEvaluationContext.forReadOnlyDataBinding().withInstanceMethods().build();
+        try {
+            context.setVariable("mask", ChangeTransformer.class.getMethod("mask", String.class));
+            context.setVariable("bucket", ChangeTransformer.class.getMethod("bucket", Double.class, double.class));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+
+        String condition = properties.getFilter();
+        this.filter = condition == null || condition.isBlank() ? null : parser.parseExpression(condition);
+
+        Set<Column> assigned = EnumSet.noneOf(Column.class);
+        List<Column> columns = new ArrayList<>();
+        List<Expression> expressions = new ArrayList<>();
+        for (Map.Entry<String, String> entry : properties.getSet().entrySet()) {
+            Column column = Column.named(entry.getKey());
+            assigned.add(column);
+            columns.add(column);
+            expressions.add(parser.parseExpression(entry.getValue()));
+        }
+        this.setColumns = columns.toArray(new Column[0]);
+        this.setExpressions = expressions.toArray(new Expression[0]);
+
+        Set<Column> drop = EnumSet.noneOf(Column.class);
+        for (String name : properties.getDrop()) {
+            Column column = Column.named(name);
+            if (assigned.contains(column)) {
+                throw new IllegalArgumentException("cdc.transform cannot both set and drop " + name);
+            }
+            drop.add(column);
+        }
+        this.dropped = drop.toArray(new Column[0]);
+
+        this.enabled = filter != null || setColumns.length > 0 || dropped.length > 0;
+        this.filteredEvents = Counter.builder("cdc.transform.events.filtered")
+                .description("Change events not replicated, or replicated as deletes, because of cdc.transform.filter")
+                .register(meterRegistry);
+        if (enabled) {
+            logger.info("Transforming changes: filter [{}], set {}, drop {}.", condition == null ? "" : condition,
+                    properties.getSet().keySet(), Arrays.toString(dropped));
+        }
+    }
+
+    /**
+     * @return whether any filter or column transformation is configured
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Applies the filter and column transformations to a change in place.
+     *
+     * @param record change to transform
+     * @return false if the change is filtered out and must not be written; the caller still owns the record
+     */
+    public boolean apply(ChangeRecord record) {
+        if (!enabled || record.isDelete()) {
+            return true;
+        }
+        Row row = new Row(record);
+        if (filter != null && !Boolean.TRUE.equals(filter.getValue(context, row, Boolean.class))) {
+            filteredEvents.increment();
+            if (record.getOp() != ChangeRecord.Op.UPDATE) {
+                return false;
+            }
+            // The row may be in the target from before it stopped matching
+            long id = record.getId();
+            record.clearColumns();
+            record.setId(id);
+            record.setOp(ChangeRecord.Op.DELETE);
+            return true;
+        }
+        if (setColumns.length == 1) {
+            setColumns[0].write(record, setExpressions[0].getValue(context, row, setColumns[0].type));
+        } else if (setColumns.length > 1) {
+            Object[] values = new Object[setColumns.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = setExpressions[i].getValue(context, row, setColumns[i].type);
+            }
+            for (int i = 0; i < values.length; i++) {
+                setColumns[i].write(record, values[i]);
+            }
+        }
+        for (Column column : dropped) {
+            column.write(record, null);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces all but the last four characters, or the last half of shorter values, with {@code *}.
+     */
+    public static String mask(String value) {
+        if (value == null) {
+            return null;
+        }
+        int visible = Math.min(4, value.length() / 2);
+        return "*".repeat(value.length() - visible) + value.substring(value.length() - visible);
+    }
+
+    /**
+     * Rounds a number down to a multiple of the step, e.g. to report salary bands instead of salaries.
+     */
+    public static Double bucket(Double value, double step) {
+        if (value == null) {
+            return null;
+        }
+        return Math.floor(value / step) * step;
+    }
+
+    /**
+     * Source row seen by the expressions, with a null salary exposed as null rather than 0.
+     */
+    public static final class Row {
+
+        private final ChangeRecord record;
+
+        Row(ChangeRecord record) {
+            this.record = record;
+        }
+
+        public long getId() {
+            return record.getId();
+        }
+
+        public String getName() {
+            return record.getName();
+        }
+
+        public String getPosition() {
+            return record.getPosition();
+        }
+
+        public Double getSalary() {
+            return record.getSalaryOrNull();
+        }
+
+        public String getDepartment() {
+            return record.getDepartment();
+        }
+    }
+}
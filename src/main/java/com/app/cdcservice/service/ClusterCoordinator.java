@@ -0,0 +1,250 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ClusterProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates the instances of a cluster ({@code cdc.cluster.enabled}) through the target database.
+ * <p>
+ * The leader is the instance holding the PostgreSQL advisory lock {@code cdc.cluster.lock-key}. Every
+ * instance tries to take it every {@code cdc.cluster.check-interval-ms}; the leader keeps the connection
+ * that holds it and checks that connection on the same schedule. When the connection or the instance
+ * dies, PostgreSQL releases the lock and another instance takes over. Only the leader makes connector
+ * lifecycle calls to Kafka Connect.
+ * <p>
+ * Whether the cluster should be streaming is kept in {@code cdc_cluster_state}, so starting or stopping
+ * streaming on any instance applies to all of them. Listeners are called after every check to bring the
+ * instance in line with its role and the desired state. In kafka mode every instance then runs a change
+ * consumer in the same consumer group, and the change topic partitions are split between them.
+ */
+@Service
+public class ClusterCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCoordinator.class);
+
+    static final String CREATE_STATE_TABLE = "CREATE TABLE IF NOT EXISTS cdc_cluster_state (cluster TEXT PRIMARY KEY, "
+            + "streaming BOOLEAN, leader TEXT, updated_at TIMESTAMPTZ NOT NULL DEFAULT now())";
+    static final String UPSERT_STREAMING_SQL = "INSERT INTO cdc_cluster_state (cluster, streaming) VALUES (?, ?) "
+            + "ON CONFLICT (cluster) DO UPDATE SET streaming = EXCLUDED.streaming, updated_at = now()";
+    static final String UPSERT_LEADER_SQL = "INSERT INTO cdc_cluster_state (cluster, leader) VALUES (?, ?) "
+            + "ON CONFLICT (cluster) DO UPDATE SET leader = EXCLUDED.leader, updated_at = now()";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterProperties properties;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String instanceId;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    // Owned by the scheduler thread
+    private Connection lockConnection;
+    private volatile boolean tableReady;
+
+    private volatile boolean leader;
+    private volatile String leaderId;
+    // Null until some instance has started or stopped streaming
+    private volatile Boolean streamingRequested;
+
+    public ClusterCoordinator(@Qualifier("targetDataSource") DataSource targetDataSource, ClusterProperties properties,
+                              ObjectMapper objectMapper, StreamingProperties streamingProperties) {
+        this.dataSource = targetDataSource;
+        this.jdbcTemplate = new JdbcTemplate(targetDataSource);
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.instanceId = properties.getInstanceId() == null || properties.getInstanceId().isEmpty()
+                ? ManagementFactory.getRuntimeMXBean().getName() : properties.getInstanceId();
+        boolean embedded = streamingProperties.getMode() == StreamingMode.EMBEDDED;
+        if (properties.isEnabled() && embedded) {
+            logger.warn("cdc.cluster only coordinates connect and kafka modes; the embedded engine runs unclustered.");
+        }
+        this.enabled = properties.isEnabled() && !embedded;
+        if (enabled) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cluster-coordinator");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::check, 0, properties.getCheckIntervalMs(), TimeUnit.MILLISECONDS);
+            logger.info("Cluster {} enabled; this instance is {}.", properties.getName(), instanceId);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    public String instanceId() {
+        return instanceId;
+    }
+
+    /**
+     * @return last known leader, or null if none has been elected
+     */
+    public String leaderId() {
+        return leaderId;
+    }
+
+    /**
+     * @return whether the cluster should be streaming, or null if that has never been set
+     */
+    public Boolean streamingRequested() {
+        return streamingRequested;
+    }
+
+    /**
+     * Sets whether every instance of the cluster should be streaming.
+     */
+    public void requestStreaming(boolean streaming) {
+        ensureTable();
+        jdbcTemplate.update(UPSERT_STREAMING_SQL, properties.getName(), streaming);
+        streamingRequested = streaming;
+    }
+
+    /**
+     * Registers a task run on the coordinator thread after every check.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return cluster membership of this instance as JSON
+     */
+    public String status() {
+        ObjectNode status = objectMapper.createObjectNode();
+        status.put("name", properties.getName());
+        status.put("instance", instanceId);
+        status.put("leader", leader);
+        status.put("leaderId", leaderId);
+        if (streamingRequested != null) {
+            status.put("streaming", streamingRequested);
+        }
+        return status.toString();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+            scheduler.shutdownNow();
+        }
+        releaseLock();
+    }
+
+    void check() {
+        try {
+            ensureTable();
+            updateLeadership();
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT streaming, leader FROM cdc_cluster_state WHERE cluster = ?", properties.getName());
+            if (!rows.isEmpty()) {
+                streamingRequested = (Boolean) rows.get(0).get("streaming");
+                leaderId = (String) rows.get(0).get("leader");
+            }
+        } catch (Exception e) {
+            logger.warn("Cluster check failed", e);
+        }
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.warn("Cluster listener failed", e);
+            }
+        }
+    }
+
+    private void ensureTable() {
+        if (!tableReady) {
+            jdbcTemplate.execute(CREATE_STATE_TABLE);
+            tableReady = true;
+        }
+    }
+
+    private void updateLeadership() throws SQLException {
+        if (lockConnection != null) {
+            if (lockConnection.isValid(5)) {
+                return;
+            }
+            logger.warn("Lost the connection holding the cluster lock; giving up leadership.");
+            releaseLock();
+        }
+        Connection connection = dataSource.getConnection();
+        boolean acquired = false;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            ps.setLong(1, properties.getLockKey());
+            try (ResultSet rs = ps.executeQuery()) {
+                acquired = rs.next() && rs.getBoolean(1);
+            }
+        } finally {
+            if (!acquired) {
+                connection.close();
+            }
+        }
+        if (!acquired) {
+            return;
+        }
+        lockConnection = connection;
+        leader = true;
+        leaderId = instanceId;
+        jdbcTemplate.update(UPSERT_LEADER_SQL, properties.getName(), instanceId);
+        logger.info("Instance {} is now the leader of cluster {}.", instanceId, properties.getName());
+    }
+
+    private void releaseLock() {
+        leader = false;
+        Connection connection = lockConnection;
+        lockConnection = null;
+        if (connection == null) {
+            return;
+        }
+        try {
+            // The lock belongs to the session, so the session must end rather than go back to the pool
+            if (dataSource instanceof HikariDataSource) {
+                ((HikariDataSource) dataSource).evictConnection(connection);
+            } else {
+                try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                    ps.setLong(1, properties.getLockKey());
+                    ps.execute();
+                } finally {
+                    connection.close();
+                }
+            }
+        } catch (SQLException e) {
+            logger.debug("Failed to close the cluster lock connection", e);
+        }
+    }
+}
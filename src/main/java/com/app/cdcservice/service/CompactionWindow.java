@@ -0,0 +1,149 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import io.micrometer.core.instrument.Counter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps only the final state of each key over a window of changes on an apply lane, so rows updated many
+ * times in quick succession are written once instead of once per version. A window closes once it is
+ * {@code cdc.apply.compaction.window-ms} old or holds {@code cdc.apply.compaction.max-keys} keys, and its
+ * surviving changes are then handed to the lane's {@link MicroBatcher}.
+ * <p>
+ * Within a window an insert followed by updates becomes a single insert of the final row, and an insert
+ * followed by a delete becomes just the delete. Changes are delivered at least once, so a replayed insert
+ * may already be in the target and only the delete removes it again. Superseded changes are counted in
+ * {@code cdc.apply.compaction.eliminated}.
+ * <p>
+ * With {@code cdc.apply.compaction.preserve-transactions} a window that is due is kept open until a change
+ * of another source transaction arrives, so a window never ends in the middle of a transaction. A lane
+ * that goes idle waits at most one more window for the rest of the transaction.
+ * <p>
+ * Survivors are passed on in the order of their last change, so a batch written in the middle of a window
+ * never covers a sequence above a change that is still buffered. Like the batcher, a window is owned by a
+ * single lane and is not thread-safe.
+ */
+public class CompactionWindow {
+
+    private final MicroBatcher batcher;
+    private final ApplyProperties.Compaction properties;
+    private final long windowNanos;
+    private final Counter eliminated;
+
+    private final Map<Long, ChangeRecord> latestByKey = new LinkedHashMap<>();
+    private long windowStartNanos;
+    private long windowEvents;
+    private long windowEliminated;
+    private long lastSequence;
+    private long lastTxId;
+
+    public CompactionWindow(MicroBatcher batcher, ApplyProperties.Compaction properties, Counter eliminated) {
+        this.batcher = batcher;
+        this.properties = properties;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(properties.getWindowMs());
+        this.eliminated = eliminated;
+    }
+
+    /**
+     * Merges a change into the window, closing the window when it is due.
+     */
+    public void add(ChangeRecord record) {
+        if (properties.isPreserveTransactions() && windowEvents > 0 && isDue()
+                && (record.getTxId() == 0 || record.getTxId() != lastTxId)) {
+            close();
+        }
+        if (windowEvents == 0) {
+            windowStartNanos = System.nanoTime();
+        }
+        merge(record);
+        windowEvents++;
+        lastSequence = record.getSequence();
+        lastTxId = record.getTxId();
+        if (!properties.isPreserveTransactions() && isDue()) {
+            close();
+        }
+    }
+
+    /**
+     * Closes the window if it has been open for the window time, or twice that while waiting for the end
+     * of a transaction.
+     *
+     * @return true if the window was closed
+     */
+    public boolean flushIfExpired() {
+        if (windowEvents == 0 || nanosUntilExpiry() > 0) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    /**
+     * Closes the window regardless of its age and writes everything buffered.
+     */
+    public void flush() {
+        if (windowEvents > 0) {
+            close();
+        }
+        batcher.flush();
+    }
+
+    /**
+     * @return nanoseconds until the window expires, or -1 if it is empty
+     */
+    public long nanosUntilExpiry() {
+        if (windowEvents == 0) {
+            return -1;
+        }
+        long limit = properties.isPreserveTransactions() ? 2 * windowNanos : windowNanos;
+        return Math.max(0, limit - (System.nanoTime() - windowStartNanos));
+    }
+
+    /**
+     * @return distinct keys in the window
+     */
+    public int size() {
+        return latestByKey.size();
+    }
+
+    private void merge(ChangeRecord record) {
+        ChangeRecord previous = latestByKey.remove(record.getId());
+        if (previous == null) {
+            latestByKey.put(record.getId(), record);
+            return;
+        }
+        previous.release();
+        windowEliminated++;
+        if (previous.getOp() == ChangeRecord.Op.CREATE) {
+            // The row did not exist before the window, unless the insert is a replay; a delete is kept
+            if (!record.isDelete()) {
+                record.setOp(ChangeRecord.Op.CREATE);
+            }
+        } else if (record.getOp() == ChangeRecord.Op.CREATE) {
+            // Deleted and inserted again: the row existed before the window
+            record.setOp(ChangeRecord.Op.UPDATE);
+        }
+        // Re-inserted so keys stay ordered by their last change
+        latestByKey.put(record.getId(), record);
+    }
+
+    private boolean isDue() {
+        return latestByKey.size() >= properties.getMaxKeys() || System.nanoTime() - windowStartNanos >= windowNanos;
+    }
+
+    private void close() {
+        for (ChangeRecord record : latestByKey.values()) {
+            batcher.add(record);
+        }
+        latestByKey.clear();
+        batcher.flush();
+        batcher.skip(lastSequence, windowEliminated);
+        eliminated.increment(windowEliminated);
+        windowEvents = 0;
+        windowEliminated = 0;
+    }
+}
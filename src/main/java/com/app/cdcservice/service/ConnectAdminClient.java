@@ -0,0 +1,185 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ConnectProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves Kafka Connect connector and task status from memory. All connector statuses are fetched with a
+ * single {@code GET /connectors?expand=status} call on a background thread, which starts refreshing at
+ * {@code cdc.kafka.connect.status-refresh-ms} the first time status is requested. Reads only wait for
+ * Connect when the cached status is older than {@code cdc.kafka.connect.status-ttl-ms}, and concurrent
+ * refreshes share one upstream request.
+ */
+@Component
+public class ConnectAdminClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectAdminClient.class);
+
+    private final RestTemplate restTemplate;
+    private final ConnectProperties connectProperties;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicReference<CompletableFuture<StatusSnapshot>> inFlight = new AtomicReference<>();
+    private volatile StatusSnapshot snapshot;
+    private volatile boolean backgroundRefresh;
+
+    public ConnectAdminClient(RestTemplate restTemplate, ConnectProperties connectProperties, ObjectMapper objectMapper,
+                              WorkerThreads workerThreads) {
+        this.restTemplate = restTemplate;
+        this.connectProperties = connectProperties;
+        this.objectMapper = objectMapper;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(workerThreads.factory("connect-admin-"));
+    }
+
+    /**
+     * Returns connector and task status for the given connectors as a JSON object keyed by connector name.
+     * Connectors unknown to Connect are reported with state {@code NOT_FOUND}.
+     *
+     * @param connectors connector names
+     * @return status JSON
+     * @throws IllegalStateException if the cached status is stale and Connect cannot be reached
+     */
+    public String status(List<String> connectors) throws InterruptedException {
+        startBackgroundRefresh();
+        StatusSnapshot current = snapshot;
+        if (current == null || current.ageMs() > connectProperties.getStatusTtlMs()) {
+            current = awaitRefresh();
+        }
+
+        ObjectNode result = objectMapper.createObjectNode();
+        ObjectNode statuses = result.putObject("connectors");
+        for (String connector : connectors) {
+            JsonNode status = current.statuses.get(connector);
+            statuses.set(connector, status != null ? status : notFound(connector));
+        }
+        result.put("ageMs", current.ageMs());
+        return result.toString();
+    }
+
+    /**
+     * Fetches the status of all connectors, joining a request that is already in flight.
+     *
+     * @return the refreshed snapshot
+     */
+    CompletableFuture<StatusSnapshot> refresh() {
+        while (true) {
+            CompletableFuture<StatusSnapshot> existing = inFlight.get();
+            if (existing != null) {
+                return existing;
+            }
+            CompletableFuture<StatusSnapshot> created = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, created)) {
+                scheduler.execute(() -> fetchInto(created));
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Drops the cached status, e.g. after connectors were created or deleted.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void fetchInto(CompletableFuture<StatusSnapshot> future) {
+        try {
+            String body = restTemplate.getForObject(connectProperties.getUrl() + "/connectors?expand=status", String.class);
+            StatusSnapshot fetched = parse(body);
+            snapshot = fetched;
+            inFlight.set(null);
+            future.complete(fetched);
+        } catch (Exception e) {
+            inFlight.set(null);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private StatusSnapshot parse(String body) throws IOException {
+        Map<String, JsonNode> statuses = new HashMap<>();
+        JsonNode root = body == null ? objectMapper.createObjectNode() : objectMapper.readTree(body);
+        Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            statuses.put(field.getKey(), field.getValue().path("status"));
+        }
+        return new StatusSnapshot(Collections.unmodifiableMap(statuses), System.currentTimeMillis());
+    }
+
+    private StatusSnapshot awaitRefresh() throws InterruptedException {
+        long timeoutMs = (long) connectProperties.getConnectionRequestTimeoutMs()
+                + connectProperties.getConnectTimeoutMs() + connectProperties.getReadTimeoutMs();
+        try {
+            return refresh().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to fetch connector status: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out fetching connector status", e);
+        }
+    }
+
+    private synchronized void startBackgroundRefresh() {
+        if (backgroundRefresh) {
+            return;
+        }
+        backgroundRefresh = true;
+        long period = connectProperties.getStatusRefreshMs();
+        scheduler.scheduleWithFixedDelay(() -> refresh().whenComplete((fetched, e) -> {
+            if (e != null) {
+                logger.debug("Background connector status refresh failed", e);
+            }
+        }), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private ObjectNode notFound(String connector) {
+        ObjectNode status = objectMapper.createObjectNode();
+        status.put("name", connector);
+        status.putObject("connector").put("state", "NOT_FOUND");
+        status.putArray("tasks");
+        return status;
+    }
+
+    /**
+     * Connector statuses as returned by Connect, keyed by connector name.
+     */
+    static final class StatusSnapshot {
+        final Map<String, JsonNode> statuses;
+        final long fetchedAtMs;
+
+        StatusSnapshot(Map<String, JsonNode> statuses, long fetchedAtMs) {
+            this.statuses = statuses;
+            this.fetchedAtMs = fetchedAtMs;
+        }
+
+        long ageMs() {
+            return System.currentTimeMillis() - fetchedAtMs;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.config.VerifyProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies that the target employee table matches the source without reading either table row by row.
+ * <p>
+ * The key space is split into ranges of {@code cdc.verify.range-size} ids, and for every range both
+ * databases compute a row count and an order-independent digest (the sum of the first 64 bits of each
+ * row's md5) in a single aggregate query. Ranges are hashed concurrently on
+ * {@code cdc.verify.parallelism} workers. A range whose count or digest differs is split in half and both
+ * halves are hashed again, down to ranges of {@code cdc.verify.leaf-size} ids, whose rows are then compared
+ * by id and row hash.
+ * <p>
+ * The source keeps changing while the check runs, so rows that differ are compared again after
+ * {@code cdc.verify.recheck-delay-ms} and only reported if they still differ; rows that are only behind by
+ * the replication lag drop out. With repair the reported rows are read from the source and written through
+ * the {@link EmployeeSinkWriter}, as upserts or as deletes for rows the source no longer has, so the read
+ * cache and change stream see the repairs like any other change. The write transaction first locks the
+ * target rows and skips those whose hash has changed since the recheck, so a change streamed in the
+ * meantime is not overwritten with the older source read. Rows missing from the target cannot be locked, so
+ * a streamed insert committing between that check and the write is overwritten and reported by the next
+ * check.
+ * <p>
+ * Reads on both databases are limited to {@code cdc.verify.rows-per-second} rows, so the check can run next
+ * to production traffic. The digest covers the text form of each row, so both tables need the same column
+ * types.
+ */
+@Service
+public class ConsistencyChecker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsistencyChecker.class);
+
+    static final String ROW_TEXT = "ROW(" + BackfillService.COLUMNS + ")::text";
+    static final String DIGEST_SQL = "SELECT count(*) AS row_count, "
+            + "COALESCE(sum(('x' || left(md5(" + ROW_TEXT + "), 16))::bit(64)::bigint::numeric), 0) AS digest "
+            + "FROM employee WHERE id >= ? AND id < ?";
+    static final String ROW_HASH_SQL = "SELECT id, md5(" + ROW_TEXT + ") FROM employee WHERE id >= ? AND id < ?";
+    static final String ROW_HASH_BY_ID_SQL = "SELECT id, md5(" + ROW_TEXT + ") FROM employee WHERE id = ANY(?)";
+    static final String LOCK_ROW_HASH_BY_ID_SQL = ROW_HASH_BY_ID_SQL + " ORDER BY id FOR UPDATE";
+    // Recorded hash of a row the target does not have
+    static final String ABSENT = "";
+    static final String SELECT_BY_ID_SQL = "SELECT " + BackfillService.COLUMNS + " FROM employee WHERE id = ANY(?)";
+    // Ids per recheck and repair query
+    static final int ID_BATCH = 1000;
+
+    private final JdbcTemplate sourceJdbcTemplate;
+    private final JdbcTemplate targetJdbcTemplate;
+    private final VerifyProperties verifyProperties;
+    private final SinkProperties sinkProperties;
+    private final EmployeeSinkWriter sinkWriter;
+    private final WorkerThreads workerThreads;
+    private final ObjectMapper objectMapper;
+    private final ChangeTransformer transformer;
+
+    private Thread coordinator;
+    private volatile Progress progress;
+
+    public ConsistencyChecker(@Qualifier("sourceDataSource") DataSource sourceDataSource,
+                              @Qualifier("targetDataSource") DataSource targetDataSource,
+                              VerifyProperties verifyProperties, SinkProperties sinkProperties,
+                              EmployeeSinkWriter sinkWriter, WorkerThreads workerThreads, ObjectMapper objectMapper,
+                              ChangeTransformer transformer) {
+        this.sourceJdbcTemplate = new JdbcTemplate(sourceDataSource);
+        this.targetJdbcTemplate = new JdbcTemplate(targetDataSource);
+        this.verifyProperties = verifyProperties;
+        this.sinkProperties = sinkProperties;
+        this.sinkWriter = sinkWriter;
+        this.workerThreads = workerThreads;
+        this.objectMapper = objectMapper;
+        this.transformer = transformer;
+    }
+
+    /**
+     * Starts a check on a background thread.
+     *
+     * @param repair write the rows that differ from the source to the target
+     * @throws IllegalStateException if a check is already running, or changes are transformed on the way to
+     *                               the target so its rows are not meant to match the source
+     */
+    public synchronized void start(boolean repair) {
+        if (isRunning()) {
+            throw new IllegalStateException("Consistency check is already running");
+        }
+        if (transformer.isEnabled()) {
+            throw new IllegalStateException("The target is not a copy of the source while cdc.transform is set");
+        }
+        if (verifyProperties.getParallelism() < 1 || verifyProperties.getRangeSize() < 1
+                || verifyProperties.getLeafSize() < 1) {
+            throw new IllegalArgumentException("cdc.verify.parallelism, range-size and leaf-size must be at least 1");
+        }
+        progress = new Progress(repair);
+        coordinator = new Thread(() -> run(progress), "verify-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    public synchronized boolean isRunning() {
+        return coordinator != null && coordinator.isAlive();
+    }
+
+    /**
+     * @return progress and findings of the current or last check as JSON
+     */
+    public String status() {
+        ObjectNode status = objectMapper.createObjectNode();
+        Progress current = progress;
+        if (current == null) {
+            return status.put("state", "IDLE").toString();
+        }
+        status.put("state", current.state);
+        status.put("repair", current.repair);
+        status.put("ranges", current.ranges);
+        status.put("rangesChecked", current.rangesChecked.get());
+        status.put("rangesMismatched", current.rangesMismatched.get());
+        status.put("rowsRead", current.rowsRead.get());
+        status.put("rowsSuspected", current.suspects.size());
+        status.put("rowsMismatched", current.mismatched.size());
+        status.put("rowsRepaired", current.rowsRepaired.get());
+        ArrayNode ids = status.putArray("mismatchedIds");
+        current.mismatched.keySet().stream().limit(verifyProperties.getMaxReportedRows()).forEach(ids::add);
+        if (current.failure != null) {
+            status.put("failure", current.failure);
+        }
+        return status.toString();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread running = coordinator;
+        if (running != null) {
+            running.interrupt();
+            running.join(10_000);
+        }
+    }
+
+    /**
+     * @return ids whose row hash differs between the two sides, including rows present on one side only
+     */
+    static SortedSet<Long> diff(Map<Long, String> source, Map<Long, String> target) {
+        SortedSet<Long> ids = new TreeSet<>();
+        for (Map.Entry<Long, String> row : source.entrySet()) {
+            if (!row.getValue().equals(target.get(row.getKey()))) {
+                ids.add(row.getKey());
+            }
+        }
+        for (Long id : target.keySet()) {
+            if (!source.containsKey(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private void run(Progress progress) {
+        ExecutorService workers = Executors.newFixedThreadPool(verifyProperties.getParallelism(),
+                workerThreads.factory("verify-"));
+        RowRateLimiter limiter = new RowRateLimiter(verifyProperties.getRowsPerSecond());
+        try {
+            long minId = Long.MAX_VALUE;
+            long maxId = Long.MIN_VALUE;
+            for (JdbcTemplate jdbcTemplate : new JdbcTemplate[]{sourceJdbcTemplate, targetJdbcTemplate}) {
+                Map<String, Object> bounds = jdbcTemplate.queryForMap(
+                        "SELECT COALESCE(MIN(id), 1) AS min_id, COALESCE(MAX(id), 0) AS max_id FROM employee");
+                minId = Math.min(minId, ((Number) bounds.get("min_id")).longValue());
+                maxId = Math.max(maxId, ((Number) bounds.get("max_id")).longValue());
+            }
+            List<long[]> ranges = BackfillService.planChunks(minId, maxId, verifyProperties.getRangeSize());
+            progress.ranges = ranges.size();
+            progress.state = "HASHING";
+            logger.info("Verifying ids {}..{} in {} ranges.", minId, maxId, ranges.size());
+
+            // Mismatching ranges submit their halves before finishing, so nothing is pending only once every
+            // range down to the leaves has been checked
+            PendingRanges pending = new PendingRanges();
+            for (long[] range : ranges) {
+                submit(workers, pending, limiter, progress, range[0], range[1]);
+            }
+            pending.awaitAll();
+            if (progress.failure != null) {
+                throw new IllegalStateException(progress.failure);
+            }
+
+            if (!progress.suspects.isEmpty()) {
+                progress.state = "RECHECKING";
+                Thread.sleep(verifyProperties.getRecheckDelayMs());
+                recheck(progress, limiter);
+            }
+            if (progress.repair && !progress.mismatched.isEmpty()) {
+                progress.state = "REPAIRING";
+                repair(progress, limiter);
+            }
+            progress.state = "DONE";
+            logger.info("Consistency check completed: {} rows differ, {} repaired.",
+                    progress.mismatched.size(), progress.rowsRepaired.get());
+        } catch (InterruptedException e) {
+            progress.state = "STOPPED";
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Consistency check failed", e);
+            progress.state = "FAILED";
+            progress.failure = e.getMessage();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void submit(ExecutorService workers, PendingRanges pending, RowRateLimiter limiter, Progress progress,
+                        long start, long end) {
+        pending.add();
+        workers.execute(() -> {
+            try {
+                if (progress.failure == null) {
+                    checkRange(workers, pending, limiter, progress, start, end);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                progress.failure = "interrupted";
+            } catch (RuntimeException e) {
+                logger.warn("Failed to verify ids {}..{}", start, end - 1, e);
+                progress.failure = "Failed to verify ids " + start + ".." + (end - 1) + ": " + e.getMessage();
+            } finally {
+                pending.done();
+            }
+        });
+    }
+
+    private void checkRange(ExecutorService workers, PendingRanges pending, RowRateLimiter limiter,
+                            Progress progress, long start, long end) throws InterruptedException {
+        Map<String, Object> source = sourceJdbcTemplate.queryForMap(DIGEST_SQL, start, end);
+        Map<String, Object> target = targetJdbcTemplate.queryForMap(DIGEST_SQL, start, end);
+        long sourceRows = ((Number) source.get("row_count")).longValue();
+        long targetRows = ((Number) target.get("row_count")).longValue();
+        progress.rangesChecked.incrementAndGet();
+        progress.rowsRead.addAndGet(sourceRows + targetRows);
+        limiter.acquire(sourceRows + targetRows);
+        if (sourceRows == targetRows && digest(source).compareTo(digest(target)) == 0) {
+            return;
+        }
+        progress.rangesMismatched.incrementAndGet();
+        if (end - start > verifyProperties.getLeafSize()) {
+            long middle = start + (end - start) / 2;
+            submit(workers, pending, limiter, progress, start, middle);
+            submit(workers, pending, limiter, progress, middle, end);
+            return;
+        }
+        Map<Long, String> sourceHashes = rowHashes(sourceJdbcTemplate, ROW_HASH_SQL, start, end);
+        Map<Long, String> targetHashes = rowHashes(targetJdbcTemplate, ROW_HASH_SQL, start, end);
+        progress.rowsRead.addAndGet(sourceHashes.size() + targetHashes.size());
+        limiter.acquire(sourceHashes.size() + targetHashes.size());
+        progress.suspects.addAll(diff(sourceHashes, targetHashes));
+    }
+
+    private void recheck(Progress progress, RowRateLimiter limiter) throws InterruptedException {
+        for (List<Long> ids : partition(progress.suspects)) {
+            Long[] idArray = ids.toArray(new Long[0]);
+            Map<Long, String> source = rowHashes(sourceJdbcTemplate, ROW_HASH_BY_ID_SQL, (Object) idArray);
+            Map<Long, String> target = rowHashes(targetJdbcTemplate, ROW_HASH_BY_ID_SQL, (Object) idArray);
+            progress.rowsRead.addAndGet(source.size() + target.size());
+            limiter.acquire(source.size() + target.size());
+            for (Long id : diff(source, target)) {
+                progress.mismatched.put(id, target.getOrDefault(id, ABSENT));
+            }
+        }
+    }
+
+    private void repair(Progress progress, RowRateLimiter limiter) throws InterruptedException {
+        int batchSize = Math.min(ID_BATCH, sinkProperties.getBatchSize());
+        List<Long> mismatched = new ArrayList<>(progress.mismatched.keySet());
+        for (int from = 0; from < mismatched.size(); from += batchSize) {
+            List<Long> ids = mismatched.subList(from, Math.min(from + batchSize, mismatched.size()));
+            List<ChangeRecord> rows = sourceJdbcTemplate.query(SELECT_BY_ID_SQL,
+                    (rs, rowNum) -> BackfillService.toRecord(rs), (Object) ids.toArray(new Long[0]));
+            limiter.acquire(rows.size());
+            Set<Long> deleted = new HashSet<>(ids);
+            ChangeBatch batch = new ChangeBatch();
+            for (ChangeRecord row : rows) {
+                row.setOp(ChangeRecord.Op.UPDATE);
+                deleted.remove(row.getId());
+                batch.add(row);
+            }
+            for (Long id : deleted) {
+                ChangeRecord delete = new ChangeRecord();
+                delete.setOp(ChangeRecord.Op.DELETE);
+                delete.setId(id);
+                batch.add(delete);
+            }
+            progress.rowsRepaired.addAndGet(sinkWriter.writeChecked(batch,
+                    checked -> unchanged(checked, progress.mismatched)));
+        }
+    }
+
+    /**
+     * Locks the target rows of the batch and keeps the changes to rows whose hash is still the one the recheck
+     * saw. Runs in the repair's write transaction.
+     */
+    private ChangeBatch unchanged(ChangeBatch batch, Map<Long, String> expected) {
+        Long[] ids = batch.records().stream().map(ChangeRecord::getId).toArray(Long[]::new);
+        return unchanged(batch, expected, rowHashes(targetJdbcTemplate, LOCK_ROW_HASH_BY_ID_SQL, (Object) ids));
+    }
+
+    /**
+     * @return the changes of the batch to rows whose current target hash is the expected one
+     */
+    static ChangeBatch unchanged(ChangeBatch batch, Map<Long, String> expected, Map<Long, String> current) {
+        ChangeBatch kept = new ChangeBatch();
+        for (ChangeRecord record : batch.records()) {
+            if (current.getOrDefault(record.getId(), ABSENT).equals(expected.get(record.getId()))) {
+                kept.add(record);
+            }
+        }
+        return kept;
+    }
+
+    private static Map<Long, String> rowHashes(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        Map<Long, String> hashes = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> hashes.put(rs.getLong(1), rs.getString(2)), args);
+        return hashes;
+    }
+
+    private static BigDecimal digest(Map<String, Object> row) {
+        Object digest = row.get("digest");
+        return digest instanceof BigDecimal ? (BigDecimal) digest : new BigDecimal(String.valueOf(digest));
+    }
+
+    private static List<List<Long>> partition(Set<Long> ids) {
+        List<List<Long>> batches = new ArrayList<>();
+        List<Long> batch = new ArrayList<>(ID_BATCH);
+        for (Long id : ids) {
+            batch.add(id);
+            if (batch.size() == ID_BATCH) {
+                batches.add(batch);
+                batch = new ArrayList<>(ID_BATCH);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Counts ranges submitted but not yet checked. Unlike a {@link java.util.concurrent.Phaser}, which allows
+     * at most 65535 parties, it has no limit on how many ranges a diverged target queues at once.
+     */
+    static final class PendingRanges {
+
+        // Starts at one for the submitter, so it cannot reach zero while ranges are still being submitted
+        private final AtomicLong pending = new AtomicLong(1);
+        private final CountDownLatch drained = new CountDownLatch(1);
+
+        void add() {
+            pending.incrementAndGet();
+        }
+
+        void done() {
+            if (pending.decrementAndGet() == 0) {
+                drained.countDown();
+            }
+        }
+
+        /**
+         * Waits until every range added so far, and every range those add, is done.
+         */
+        void awaitAll() throws InterruptedException {
+            done();
+            drained.await();
+        }
+    }
+
+    /**
+     * Spaces out reads so that on average at most a given number of rows is read per second. The cost of a
+     * query is only known once it has run, so the worker that ran it waits for its share of the budget
+     * before reading on.
+     */
+    static final class RowRateLimiter {
+
+        private final long rowsPerSecond;
+        private long nextFreeNanos = Long.MIN_VALUE;
+
+        RowRateLimiter(long rowsPerSecond) {
+            this.rowsPerSecond = rowsPerSecond;
+        }
+
+        void acquire(long rows) throws InterruptedException {
+            long waitNanos = reserve(rows, System.nanoTime());
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+
+        /**
+         * @return nanoseconds to wait before reading on
+         */
+        synchronized long reserve(long rows, long nowNanos) {
+            if (rowsPerSecond <= 0 || rows <= 0) {
+                return 0;
+            }
+            long start = nextFreeNanos == Long.MIN_VALUE ? nowNanos : Math.max(nowNanos, nextFreeNanos);
+            nextFreeNanos = start + TimeUnit.SECONDS.toNanos(rows) / rowsPerSecond;
+            return nextFreeNanos - nowNanos;
+        }
+    }
+
+    private static final class Progress {
+        final boolean repair;
+        volatile String state = "STARTING";
+        volatile String failure;
+        volatile int ranges;
+        final AtomicInteger rangesChecked = new AtomicInteger();
+        final AtomicInteger rangesMismatched = new AtomicInteger();
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong rowsRepaired = new AtomicLong();
+        final Set<Long> suspects = new ConcurrentSkipListSet<>();
+        // Id -> target row hash when the row was rechecked
+        final Map<Long, String> mismatched = new ConcurrentSkipListMap<>();
+
+        Progress(boolean repair) {
+            this.repair = repair;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.DeadLetterProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries, replays and purges the changes held in the {@link DeadLetterStore}.
+ * <p>
+ * In kafka and embedded modes, retries run on their own scheduler thread every
+ * {@code cdc.dead-letter.retry-interval-ms}, so the apply lanes never wait for them. A retry writes the latest
+ * state of a parked row, which supersedes every earlier dead letter of the row; on success the row's dead
+ * letters are deleted and it is unparked, on a data error the row is due again after an exponential backoff.
+ * Once {@code cdc.dead-letter.max-attempts} retries have failed, the row is only retried when replayed on
+ * request. Replays and purges run on the same thread as the retries, so they never race with them.
+ * <p>
+ * With {@code cdc.cluster.enabled}, only the leader runs the scheduled retries, so two instances never retry
+ * the same row at once. Replays on request run on the instance that receives them; like a retry they write
+ * the newest dead letter of a row, and the owner of the row keeps adding changes behind it until it is gone.
+ */
+@Service
+public class DeadLetterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterService.class);
+
+    private final DeadLetterStore store;
+    private final EmployeeSinkWriter sinkWriter;
+    private final ClusterCoordinator clusterCoordinator;
+    private final ChangeEventDecoder decoder;
+    private final ChangeTransformer transformer;
+    private final DeadLetterProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler;
+    private final Counter retriesApplied;
+    private final Counter retriesFailed;
+
+    public DeadLetterService(DeadLetterStore store, EmployeeSinkWriter sinkWriter, ClusterCoordinator clusterCoordinator,
+                             ChangeEventDecoder decoder, ChangeTransformer transformer, DeadLetterProperties properties,
+                             ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.sinkWriter = sinkWriter;
+        this.clusterCoordinator = clusterCoordinator;
+        this.decoder = decoder;
+        this.transformer = transformer;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.retriesApplied = Counter.builder("cdc.deadletter.retries")
+                .description("Retries and replays of dead letters")
+                .tag("outcome", "applied")
+                .register(meterRegistry);
+        this.retriesFailed = Counter.builder("cdc.deadletter.retries")
+                .description("Retries and replays of dead letters")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dead-letter-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (store.isEnabled()) {
+            scheduler.scheduleWithFixedDelay(this::retryDue, properties.getRetryIntervalMs(),
+                    properties.getRetryIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the number of dead letters, parked rows and the oldest dead letters as JSON
+     */
+    public String list(int limit) {
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("count", store.count());
+        result.put("parkedRows", store.parkedRows());
+        ArrayNode letters = result.putArray("deadLetters");
+        for (Map<String, Object> letter : store.list(limit)) {
+            letters.add(toJson(letter));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Applies one dead letter now, or every dead letter if {@code id} is null, regardless of its schedule.
+     * A dead letter of a row applies the row's latest state. An undecodable event is decoded again,
+     * transformed and written like a new change, or dropped if the transformer filters it out.
+     *
+     * @return counts of applied and failed dead letters as JSON, or null if {@code id} does not exist
+     */
+    public String replay(Long id) throws Exception {
+        return onRetryThread(() -> {
+            int applied = 0;
+            int failed = 0;
+            if (id == null) {
+                store.resetAttempts();
+                for (Long rowId : store.rows()) {
+                    if (retry(rowId)) {
+                        applied++;
+                    } else {
+                        failed++;
+                    }
+                }
+                for (Map<String, Object> letter : store.list(Integer.MAX_VALUE)) {
+                    if (letter.get("row_id") == null) {
+                        if (replayUndecodable(letter)) {
+                            applied++;
+                        } else {
+                            failed++;
+                        }
+                    }
+                }
+            } else {
+                Map<String, Object> letter = store.get(id);
+                if (letter == null) {
+                    return null;
+                }
+                Number rowId = (Number) letter.get("row_id");
+                boolean ok = rowId == null ? replayUndecodable(letter) : retry(rowId.longValue());
+                applied = ok ? 1 : 0;
+                failed = ok ? 0 : 1;
+            }
+            ObjectNode result = objectMapper.createObjectNode();
+            result.put("applied", applied);
+            result.put("failed", failed);
+            return result.toString();
+        });
+    }
+
+    /**
+     * Deletes one dead letter, or every dead letter if {@code id} is null, without applying it.
+     *
+     * @return number of dead letters deleted
+     */
+    public int purge(Long id) throws Exception {
+        return onRetryThread(() -> {
+            if (id == null) {
+                return store.deleteAll();
+            }
+            return store.delete(id) ? 1 : 0;
+        });
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    void retryDue() {
+        if (clusterCoordinator.isEnabled() && !clusterCoordinator.isLeader()) {
+            return;
+        }
+        // Any exception escaping a scheduled run would cancel every later run
+        List<Long> rowIds;
+        try {
+            rowIds = store.dueRows(properties.getRetryBatchSize());
+        } catch (RuntimeException e) {
+            // The target is unavailable; the rows stay due for the next run
+            logger.warn("Failed to look up dead letters due for a retry", e);
+            return;
+        }
+        for (Long rowId : rowIds) {
+            try {
+                retry(rowId);
+            } catch (RuntimeException e) {
+                // Not a data error: the row stays due and is retried on the next run
+                logger.warn("Failed to retry dead letters of row {}", rowId, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the latest state of a row from its newest dead letter.
+     *
+     * @return whether the row was written
+     */
+    boolean retry(long rowId) {
+        // Read before the dead letter, so a change parked in the meantime keeps the row parked
+        Long version = store.version(rowId);
+        Map<String, Object> letter = store.latest(rowId);
+        if (letter == null) {
+            return true;
+        }
+        long letterId = ((Number) letter.get("id")).longValue();
+        ChangeBatch batch = new ChangeBatch();
+        try {
+            batch.add(toRecord(letter));
+            sinkWriter.writeThrough(batch);
+        } catch (DataIntegrityViolationException | IOException e) {
+            String error = e instanceof DataIntegrityViolationException
+                    ? ((DataIntegrityViolationException) e).getMostSpecificCause().getMessage() : e.getMessage();
+            int attempts = ((Number) letter.get("attempts")).intValue() + 1;
+            store.retryFailed(rowId, letterId, attempts, error);
+            retriesFailed.increment();
+            logger.debug("Retry {} of row {} failed: {}", attempts, rowId, error);
+            return false;
+        }
+        store.resolve(rowId, letterId, version);
+        retriesApplied.increment();
+        logger.info("Applied dead letters of row {}.", rowId);
+        return true;
+    }
+
+    private boolean replayUndecodable(Map<String, Object> letter) {
+        long id = ((Number) letter.get("id")).longValue();
+        ChangeRecord record;
+        try {
+            record = decoder.decode((byte[]) letter.get("payload"));
+        } catch (IOException | IllegalArgumentException e) {
+            retriesFailed.increment();
+            logger.warn("Dead letter {} still cannot be decoded: {}", id, e.getMessage());
+            return false;
+        }
+        if (record != null && !transformer.apply(record)) {
+            record.release();
+        } else if (record != null) {
+            ChangeBatch batch = new ChangeBatch();
+            batch.add(record);
+            try {
+                // Parks the row, or sets the change aside again, like any other change
+                sinkWriter.write(batch);
+            } finally {
+                batch.recycle();
+            }
+        }
+        store.delete(id);
+        retriesApplied.increment();
+        return true;
+    }
+
+    private ChangeRecord toRecord(Map<String, Object> letter) throws IOException {
+        ChangeRecord.Op op = ChangeRecord.Op.fromCode(((String) letter.get("op")).charAt(0));
+        return ChangeRecord.of(op, objectMapper.readValue((String) letter.get("change"), Employee.class));
+    }
+
+    private ObjectNode toJson(Map<String, Object> letter) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("id", ((Number) letter.get("id")).longValue());
+        Number rowId = (Number) letter.get("row_id");
+        if (rowId != null) {
+            node.put("rowId", rowId.longValue());
+            node.put("op", (String) letter.get("op"));
+            try {
+                node.set("change", objectMapper.readTree((String) letter.get("change")));
+            } catch (IOException e) {
+                node.put("change", (String) letter.get("change"));
+            }
+        } else {
+            node.put("payload", Base64.getEncoder().encodeToString((byte[]) letter.get("payload")));
+        }
+        node.put("error", (String) letter.get("error"));
+        node.put("attempts", ((Number) letter.get("attempts")).intValue());
+        node.put("failedAt", String.valueOf(letter.get("failed_at")));
+        Object nextAttempt = letter.get("next_attempt_at");
+        node.put("nextAttemptAt", nextAttempt == null ? null : nextAttempt.toString());
+        return node;
+    }
+
+    private <T> T onRetryThread(Callable<T> task) throws Exception {
+        try {
+            return scheduler.submit(task).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ClusterProperties;
+import com.app.cdcservice.config.DeadLetterProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps changes that could not be applied to the target in the target table {@code cdc_dead_letter}.
+ * <p>
+ * A row whose change failed is parked: until its dead letters are resolved, later changes to the same row
+ * are added behind them instead of being written, so a retry can never overwrite a newer version of the row.
+ * Changes to other rows are not affected. Parked rows are tracked in memory, loaded from the table on first
+ * use, and each park bumps a version so a retry only unparks a row nothing was added to in the meantime.
+ * <p>
+ * With {@code cdc.cluster.enabled} in kafka mode, rows are parked by whichever instance owned their partition
+ * and unparked by the leader's retries, so the map of one instance is neither complete nor current. Parked
+ * rows are then looked up in the table for every batch instead.
+ * <p>
+ * Events that could not be decoded are kept with their raw payload and no row; since it is unknown which
+ * row they belong to, they are not retried automatically.
+ */
+@Component
+public class DeadLetterStore {
+
+    static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS cdc_dead_letter (id BIGSERIAL PRIMARY KEY, "
+            + "row_id BIGINT, op CHAR(1), change TEXT, payload BYTEA, error TEXT NOT NULL, "
+            + "attempts INT NOT NULL DEFAULT 0, failed_at TIMESTAMPTZ NOT NULL DEFAULT now(), next_attempt_at TIMESTAMPTZ)";
+    static final String CREATE_INDEX = "CREATE INDEX IF NOT EXISTS cdc_dead_letter_row_id ON cdc_dead_letter (row_id)";
+    static final String INSERT_SQL = "INSERT INTO cdc_dead_letter (row_id, op, change, error, next_attempt_at) "
+            + "VALUES (?, ?, ?, ?, now() + ? * interval '1 millisecond')";
+    static final String INSERT_UNDECODABLE_SQL = "INSERT INTO cdc_dead_letter (payload, error) VALUES (?, ?)";
+    static final String PARKED_AMONG_SQL = "SELECT DISTINCT row_id FROM cdc_dead_letter WHERE row_id = ANY(?)";
+    static final String COLUMNS = "id, row_id, op, change, payload, error, attempts, failed_at, next_attempt_at";
+
+    /**
+     * A change that failed, and why.
+     */
+    public static final class Failure {
+
+        final ChangeRecord record;
+        final String error;
+
+        public Failure(ChangeRecord record, String error) {
+            this.record = record;
+            this.error = error;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeadLetterProperties properties;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean clustered;
+    private final Counter deadLetters;
+    // Parked row id -> version, bumped whenever something is added for the row
+    private final Map<Long, Long> parked = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile boolean tableReady;
+
+    public DeadLetterStore(@Qualifier("targetDataSource") DataSource targetDataSource, DeadLetterProperties properties,
+                           ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                           StreamingProperties streamingProperties, ClusterProperties clusterProperties) {
+        this.jdbcTemplate = new JdbcTemplate(targetDataSource);
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        // In connect mode the sink connector applies the changes, so nothing is set aside here
+        this.enabled = properties.isEnabled() && streamingProperties.getMode() != StreamingMode.CONNECT;
+        // The embedded engine runs unclustered
+        this.clustered = enabled && clusterProperties.isEnabled() && streamingProperties.getMode() == StreamingMode.KAFKA;
+        this.deadLetters = Counter.builder("cdc.deadletter.events")
+                .description("Change events set aside because they could not be applied")
+                .register(meterRegistry);
+        Gauge.builder("cdc.deadletter.parked.rows", parked, Map::size)
+                .description("Rows whose changes wait behind a dead letter")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return whether any row may be parked; loads the parked rows on first use, and is always true when
+     * clustered, since other instances park rows too
+     */
+    public boolean hasParkedRows() {
+        if (!enabled) {
+            return false;
+        }
+        if (clustered) {
+            return true;
+        }
+        if (!loaded) {
+            load();
+        }
+        return !parked.isEmpty();
+    }
+
+    /**
+     * @return the given rows that are parked, read from the table when clustered
+     */
+    public Set<Long> parkedAmong(Collection<Long> rowIds) {
+        Set<Long> result = new HashSet<>();
+        if (clustered) {
+            ensureTable();
+            result.addAll(jdbcTemplate.query(PARKED_AMONG_SQL, ps -> {
+                Array ids = ps.getConnection().createArrayOf("bigint", rowIds.toArray());
+                ps.setArray(1, ids);
+            }, (rs, rowNum) -> rs.getLong(1)));
+            return result;
+        }
+        for (Long rowId : rowIds) {
+            if (parked.containsKey(rowId)) {
+                result.add(rowId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return current version of a parked row, or null if it is not parked
+     */
+    public Long version(long rowId) {
+        return parked.get(rowId);
+    }
+
+    /**
+     * Stores failed changes. Must run in the transaction that writes the rest of their batch; once it has
+     * committed, {@link #park} their rows.
+     */
+    public void add(List<Failure> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        ensureTable();
+        List<Object[]> args = new ArrayList<>(failures.size());
+        for (Failure failure : failures) {
+            ChangeRecord record = failure.record;
+            args.add(new Object[]{record.getId(), String.valueOf(record.getOp().code()), toJson(record),
+                    failure.error, properties.getRetryInitialDelayMs()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+        deadLetters.increment(failures.size());
+    }
+
+    /**
+     * Stores an event that could not be decoded.
+     */
+    public void addUndecodable(byte[] payload, String error) {
+        ensureTable();
+        jdbcTemplate.update(INSERT_UNDECODABLE_SQL, payload, error == null ? "Undecodable event" : error);
+        deadLetters.increment();
+    }
+
+    /**
+     * Holds back later changes to the rows until their dead letters are resolved.
+     */
+    public void park(Collection<Long> rowIds) {
+        for (Long rowId : rowIds) {
+            parked.merge(rowId, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Deletes the dead letters of a row up to the given id, once a later state of the row has been written,
+     * and unparks the row if nothing is left for it and nothing was parked for it since {@code version}.
+     */
+    public void resolve(long rowId, long upToId, Long version) {
+        jdbcTemplate.update("DELETE FROM cdc_dead_letter WHERE row_id = ? AND id <= ?", rowId, upToId);
+        Integer left = jdbcTemplate.queryForObject("SELECT count(*) FROM cdc_dead_letter WHERE row_id = ?",
+                Integer.class, rowId);
+        if (left != null && left == 0 && version != null) {
+            parked.remove(rowId, version);
+        }
+    }
+
+    /**
+     * Records a failed retry of a row: its dead letters are due again after the backoff, or only on request
+     * once {@code cdc.dead-letter.max-attempts} is reached.
+     */
+    public void retryFailed(long rowId, long upToId, int attempts, String error) {
+        boolean exhausted = attempts >= properties.getMaxAttempts();
+        jdbcTemplate.update("UPDATE cdc_dead_letter SET attempts = ?, error = ?, next_attempt_at = "
+                        + (exhausted ? "NULL" : "now() + ? * interval '1 millisecond'") + " WHERE row_id = ? AND id <= ?",
+                exhausted ? new Object[]{attempts, error, rowId, upToId}
+                        : new Object[]{attempts, error, backoffMs(attempts), rowId, upToId});
+    }
+
+    /**
+     * @return delay before the next retry after the given number of failed attempts
+     */
+    long backoffMs(int attempts) {
+        long delay = properties.getRetryInitialDelayMs();
+        for (int i = 0; i < attempts && delay < properties.getRetryMaxDelayMs(); i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, properties.getRetryMaxDelayMs());
+    }
+
+    /**
+     * @return ids of parked rows with dead letters due for a retry
+     */
+    public List<Long> dueRows(int limit) {
+        ensureTable();
+        return jdbcTemplate.queryForList("SELECT row_id FROM cdc_dead_letter WHERE row_id IS NOT NULL GROUP BY row_id "
+                + "HAVING min(next_attempt_at) <= now() ORDER BY min(next_attempt_at) LIMIT ?", Long.class, limit);
+    }
+
+    /**
+     * @return ids of every row with dead letters
+     */
+    public List<Long> rows() {
+        ensureTable();
+        return jdbcTemplate.queryForList("SELECT DISTINCT row_id FROM cdc_dead_letter WHERE row_id IS NOT NULL",
+                Long.class);
+    }
+
+    /**
+     * @return the newest dead letter of a row, which holds its latest state, or null if it has none
+     */
+    public Map<String, Object> latest(long rowId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT " + COLUMNS
+                + " FROM cdc_dead_letter WHERE row_id = ? ORDER BY id DESC LIMIT 1", rowId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * @return a dead letter, or null if it does not exist
+     */
+    public Map<String, Object> get(long id) {
+        ensureTable();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT " + COLUMNS
+                + " FROM cdc_dead_letter WHERE id = ?", id);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * @return the oldest dead letters, up to the limit
+     */
+    public List<Map<String, Object>> list(int limit) {
+        ensureTable();
+        return jdbcTemplate.queryForList("SELECT " + COLUMNS + " FROM cdc_dead_letter ORDER BY id LIMIT ?", limit);
+    }
+
+    public long count() {
+        ensureTable();
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM cdc_dead_letter", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Deletes one dead letter without applying it, unparking its row if nothing else is left for it.
+     *
+     * @return whether the dead letter existed
+     */
+    public boolean delete(long id) {
+        Map<String, Object> letter = get(id);
+        if (letter == null) {
+            return false;
+        }
+        jdbcTemplate.update("DELETE FROM cdc_dead_letter WHERE id = ?", id);
+        Number rowId = (Number) letter.get("row_id");
+        if (rowId != null) {
+            Integer left = jdbcTemplate.queryForObject("SELECT count(*) FROM cdc_dead_letter WHERE row_id = ?",
+                    Integer.class, rowId.longValue());
+            if (left != null && left == 0) {
+                parked.remove(rowId.longValue());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes every dead letter without applying it and unparks all rows.
+     *
+     * @return number of dead letters deleted
+     */
+    public int deleteAll() {
+        ensureTable();
+        int deleted = jdbcTemplate.update("DELETE FROM cdc_dead_letter");
+        parked.clear();
+        return deleted;
+    }
+
+    /**
+     * Makes every dead letter due now, with its attempts reset.
+     */
+    public void resetAttempts() {
+        ensureTable();
+        jdbcTemplate.update("UPDATE cdc_dead_letter SET attempts = 0, next_attempt_at = now() WHERE row_id IS NOT NULL");
+    }
+
+    public int parkedRows() {
+        return parked.size();
+    }
+
+    String toJson(ChangeRecord record) {
+        try {
+            return objectMapper.writeValueAsString(record.toEmployee());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize change of row " + record.getId(), e);
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        for (Long rowId : rows()) {
+            parked.putIfAbsent(rowId, 0L);
+        }
+        loaded = true;
+    }
+
+    private void ensureTable() {
+        if (!tableReady) {
+            jdbcTemplate.execute(CREATE_TABLE);
+            jdbcTemplate.execute(CREATE_INDEX);
+            tableReady = true;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.FlowControlProperties;
+import com.app.cdcservice.config.EmbeddedEngineProperties;
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import io.debezium.connector.postgresql.PostgresConnector;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import io.debezium.engine.format.Json;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.connect.storage.FileOffsetBackingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs Debezium's {@link DebeziumEngine} inside the service and applies captured changes
+ * straight to the target database, bypassing Kafka Connect and the broker. Changes are written by a
+ * {@link ParallelApplyEngine}; an event's offset is only committed once it and every earlier event
+ * have been written.
+ */
+@Service
+public class EmbeddedEngineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedEngineService.class);
+
+    private final EmbeddedEngineProperties properties;
+    private final ChangeEventDecoder decoder;
+    private final EmployeeSinkWriter sinkWriter;
+    private final SinkProperties sinkProperties;
+    private final ApplyProperties applyProperties;
+    private final MeterRegistry meterRegistry;
+    private final ReplicationMetrics replicationMetrics;
+    private final WorkerThreads workerThreads;
+    private final FlowControlProperties flowControlProperties;
+    private final TargetPoolMonitor targetPoolMonitor;
+    private final ChangeTransformer transformer;
+    private final DeadLetterStore deadLetters;
+
+    private DebeziumEngine<ChangeEvent<String, String>> engine;
+    private ExecutorService executor;
+    private ParallelApplyEngine applyEngine;
+    private volatile String failure;
+
+    // Events handed to the apply engine whose offsets have not been committed yet, oldest first
+    private final Deque<PendingEvent> pending = new ArrayDeque<>();
+
+    public EmbeddedEngineService(EmbeddedEngineProperties properties, ChangeEventDecoder decoder,
+                                 EmployeeSinkWriter sinkWriter, SinkProperties sinkProperties,
+                                 ApplyProperties applyProperties, MeterRegistry meterRegistry,
+                                 ReplicationMetrics replicationMetrics, WorkerThreads workerThreads,
+                                 FlowControlProperties flowControlProperties, TargetPoolMonitor targetPoolMonitor,
+                                 ChangeTransformer transformer, DeadLetterStore deadLetters) {
+        this.properties = properties;
+        this.decoder = decoder;
+        this.sinkWriter = sinkWriter;
+        this.sinkProperties = sinkProperties;
+        this.applyProperties = applyProperties;
+        this.meterRegistry = meterRegistry;
+        this.replicationMetrics = replicationMetrics;
+        this.workerThreads = workerThreads;
+        this.flowControlProperties = flowControlProperties;
+        this.targetPoolMonitor = targetPoolMonitor;
+        this.transformer = transformer;
+        this.deadLetters = deadLetters;
+    }
+
+    /**
+     * Starts the embedded engine on a dedicated thread.
+     *
+     * @param skipSnapshot stream from the replication slot without an initial snapshot, after a backfill
+     * @throws IllegalStateException if the engine is already running
+     */
+    public synchronized void start(boolean skipSnapshot) {
+        if (isRunning()) {
+            throw new IllegalStateException("Embedded engine is already running");
+        }
+        failure = null;
+        if (applyProperties.isExactlyOnce()) {
+            logger.warn("cdc.apply.exactly-once only applies to kafka mode; the embedded engine keeps its offsets in {}.",
+                    properties.getOffsetFile());
+        }
+        createOffsetDirectory();
+        pending.clear();
+        applyEngine = new ParallelApplyEngine("embedded", sinkWriter, applyProperties, sinkProperties, meterRegistry,
+                workerThreads.factory("embedded-lane-"), new FlowController("embedded", flowControlProperties,
+                sinkProperties.getBatchSize(), applyProperties.getLanes(), targetPoolMonitor::utilization, meterRegistry),
+                transformer);
+        applyEngine.start();
+        engine = DebeziumEngine.create(Json.class)
+                .using(engineProperties(skipSnapshot))
+                .notifying(this::handleBatch)
+                .using((success, message, error) -> {
+                    if (!success) {
+                        logger.error("Embedded engine stopped with error: {}", message, error);
+                        failure = message;
+                    }
+                })
+                .build();
+        executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "embedded-debezium"));
+        executor.execute(engine);
+        logger.info("Embedded Debezium engine started.");
+    }
+
+    /**
+     * Stops the embedded engine and waits for it to flush its offsets.
+     *
+     * @throws IOException if the engine fails to close
+     */
+    @PreDestroy
+    public synchronized void stop() throws IOException, InterruptedException {
+        if (engine == null) {
+            return;
+        }
+        engine.close();
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("Embedded engine did not stop within 30 seconds.");
+        }
+        // Offsets of these changes are not committed; they are replayed idempotently on restart
+        applyEngine.drain(applyProperties.getDrainTimeoutMs());
+        applyEngine.close();
+        engine = null;
+        executor = null;
+        applyEngine = null;
+        logger.info("Embedded Debezium engine stopped.");
+    }
+
+    public synchronized boolean isRunning() {
+        return executor != null && !executor.isTerminated();
+    }
+
+    /**
+     * Returns the engine state as a small JSON document, mirroring the Kafka Connect status shape.
+     *
+     * @return status JSON
+     */
+    public String status() {
+        String state = isRunning() ? "RUNNING" : failure != null ? "FAILED" : "STOPPED";
+        return "{\"name\":\"" + properties.getName() + "\",\"mode\":\"embedded\",\"state\":\"" + state + "\"}";
+    }
+
+    void handleBatch(List<ChangeEvent<String, String>> events,
+                     DebeziumEngine.RecordCommitter<ChangeEvent<String, String>> committer)
+            throws InterruptedException {
+        for (ChangeEvent<String, String> event : events) {
+            try {
+                // Text length stands in for the serialized size; the embedded engine never encodes to bytes
+                replicationMetrics.recordReceived(event.destination(), event.value() == null ? 0 : event.value().length());
+                ChangeRecord record = decode(event);
+                if (record != null) {
+                    applyEngine.submit(record);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to decode change event " + event.key(), e);
+            }
+            // Events without a row change become committable together with the change before them
+            pending.addLast(new PendingEvent(applyEngine.submittedSequence(), event));
+        }
+        // Hold the engine back rather than queue more than the target keeps up with
+        while (applyEngine.backlogged()) {
+            Thread.sleep(10);
+        }
+
+        long applied = applyEngine.committedSequence();
+        boolean committed = false;
+        while (!pending.isEmpty() && pending.peekFirst().sequence <= applied) {
+            committer.markProcessed(pending.pollFirst().event);
+            committed = true;
+        }
+        if (committed) {
+            committer.markBatchFinished();
+        }
+    }
+
+    private ChangeRecord decode(ChangeEvent<String, String> event) throws IOException {
+        try {
+            return decoder.decode(event.value());
+        } catch (IOException | IllegalArgumentException e) {
+            if (!deadLetters.isEnabled()) {
+                throw e;
+            }
+            logger.warn("Setting aside a change event that cannot be decoded: {}", e.getMessage());
+            deadLetters.addUndecodable(event.value().getBytes(StandardCharsets.UTF_8), e.getMessage());
+            return null;
+        }
+    }
+
+    private void createOffsetDirectory() {
+        File parent = new File(properties.getOffsetFile()).getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IllegalStateException("Cannot create offset directory " + parent);
+        }
+    }
+
+    /**
+     * @return replication slot the engine streams from
+     */
+    public String slotName() {
+        return properties.getDebezium().getOrDefault("slot.name", "debezium");
+    }
+
+    Properties engineProperties(boolean skipSnapshot) {
+        Properties props = new Properties();
+        props.setProperty("name", properties.getName());
+        props.setProperty("connector.class", PostgresConnector.class.getName());
+        props.setProperty("offset.storage.file.filename", properties.getOffsetFile());
+        if (properties.getOffsetStore() == EmbeddedEngineProperties.OffsetStore.MMAP) {
+            props.setProperty("offset.storage", MappedOffsetBackingStore.class.getName());
+            props.setProperty(MappedOffsetBackingStore.FILENAME_CONFIG, properties.getOffsetLog());
+            props.setProperty(MappedOffsetBackingStore.FSYNC_CONFIG, properties.getOffsetFsync());
+            props.setProperty(MappedOffsetBackingStore.FSYNC_INTERVAL_MS_CONFIG,
+                    String.valueOf(properties.getOffsetFsyncIntervalMs()));
+            props.setProperty(MappedOffsetBackingStore.COMPACTION_THRESHOLD_BYTES_CONFIG,
+                    String.valueOf(properties.getOffsetCompactionThresholdBytes()));
+        } else {
+            props.setProperty("offset.storage", FileOffsetBackingStore.class.getName());
+        }
+        props.setProperty("offset.flush.interval.ms", String.valueOf(properties.getOffsetFlushIntervalMs()));
+        // Events never leave the process, so skip the per-event schema block
+        props.setProperty("converter.schemas.enable", "false");
+        props.putAll(properties.getDebezium());
+        if (skipSnapshot) {
+            props.setProperty("snapshot.mode", "never");
+        }
+        return props;
+    }
+
+    private static final class PendingEvent {
+        final long sequence;
+        final ChangeEvent<String, String> event;
+
+        PendingEvent(long sequence, ChangeEvent<String, String> event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Writes micro-batches of employee changes to the target database. Each batch is applied in one
+ * transaction as a single {@code INSERT ... SELECT FROM UNNEST(...)} upsert plus a single
+ * {@code DELETE ... WHERE id = ANY(?)}, together with the batch's change topic offsets when exactly-once
+ * apply is on. Once the transaction commits, the batch is passed on to the {@link TargetEmployeeCache} and
+ * the {@link ChangeStreamHub}.
+ * <p>
+ * When a batch fails with a data error, such as a constraint violation or a value the column cannot hold,
+ * it is split in halves until the failing rows are isolated. The other rows are written and the failing ones
+ * go to the {@link DeadLetterStore}, so one bad change does not stop its lane. Changes to rows parked behind a
+ * dead letter go there too. The batch's offsets are stored with the dead letters, after the isolated writes,
+ * so a bisected batch is applied at least once.
+ */
+@Component
+public class EmployeeSinkWriter implements ChangeBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeSinkWriter.class);
+
+    static final int COLUMN_COUNT = 5;
+    // A batch is one target transaction that locks every row it writes until it commits, and a data error
+    // rewrites its rows once per halving; this bounds both the lock footprint and the retried work
+    static final int MAX_BATCH_SIZE = 10_000;
+    static final String DELETE_SQL = "DELETE FROM employee WHERE id = ANY(?)";
+    static final String TABLE = "public.employee";
+    static final String UPSERT_CONFLICT_CLAUSE = " ON CONFLICT (id) DO UPDATE SET "
+            + "name = EXCLUDED.name, position = EXCLUDED.position, "
+            + "salary = EXCLUDED.salary, department = EXCLUDED.department";
+    // Every column is bound as one array, so a batch of any size uses the same statement and the driver
+    // prepares it on the server once per connection
+    public static final String UPSERT_SQL = "INSERT INTO employee (id, name, position, salary, department) "
+            + "SELECT * FROM UNNEST(?::bigint[], ?::text[], ?::text[], ?::float8[], ?::text[])"
+            + UPSERT_CONFLICT_CLAUSE;
+    static final String[] COLUMN_TYPES = {"bigint", "text", "text", "float8", "text"};
+    static final String PARKED = "Waiting behind an earlier dead letter of the row";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReplicationMetrics replicationMetrics;
+    private final TargetEmployeeCache employeeCache;
+    private final ChangeStreamHub changeStream;
+    private final TargetOffsetStore offsetStore;
+    private final DeadLetterStore deadLetters;
+
+    private final DistributionSummary batchSizes;
+    private final Counter collapsedEvents;
+    private final Timer writeTimer;
+
+    public EmployeeSinkWriter(@Qualifier("targetDataSource") DataSource targetDataSource,
+                              @Qualifier("targetTransactionManager") PlatformTransactionManager transactionManager,
+                              SinkProperties sinkProperties,
+                              MeterRegistry meterRegistry,
+                              ReplicationMetrics replicationMetrics,
+                              TargetEmployeeCache employeeCache,
+                              ChangeStreamHub changeStream,
+                              TargetOffsetStore offsetStore,
+                              DeadLetterStore deadLetters) {
+        if (sinkProperties.getBatchSize() < 1 || sinkProperties.getBatchSize() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("cdc.sink.batch-size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        this.jdbcTemplate = new JdbcTemplate(targetDataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.replicationMetrics = replicationMetrics;
+        this.employeeCache = employeeCache;
+        this.changeStream = changeStream;
+        this.offsetStore = offsetStore;
+        this.deadLetters = deadLetters;
+
+        this.batchSizes = DistributionSummary.builder("cdc.sink.batch.size")
+                .description("Distinct keys written per batch")
+                .register(meterRegistry);
+        this.collapsedEvents = Counter.builder("cdc.sink.events.collapsed")
+                .description("Change events superseded by a later change to the same key within a batch")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("cdc.sink.batch.write")
+                .description("Time to write one batch to the target database")
+                .register(meterRegistry);
+        Gauge.builder("cdc.sink.batch.max.size", sinkProperties, SinkProperties::getBatchSize)
+                .description("Configured maximum batch size")
+                .register(meterRegistry);
+        Gauge.builder("cdc.sink.batch.linger", sinkProperties, SinkProperties::getLingerMs)
+                .description("Configured batch linger time")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes the batch in a single target transaction, setting aside the changes that cannot be applied.
+     *
+     * @param batch collapsed changes to write
+     */
+    @Override
+    public void write(ChangeBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<DeadLetterStore.Failure> failures = new ArrayList<>();
+        ChangeBatch healthy = deadLetters.hasParkedRows() ? withoutParked(batch, failures) : batch;
+        try {
+            commit(healthy, failures, batch);
+        } catch (DataIntegrityViolationException e) {
+            if (!deadLetters.isEnabled()) {
+                throw e;
+            }
+            logger.warn("Batch of {} rows failed, isolating the failing rows: {}", healthy.size(),
+                    e.getMostSpecificCause().getMessage());
+            bisect(new ArrayList<>(healthy.records()), e, failures);
+            commit(null, failures, batch);
+        } finally {
+            if (healthy != batch) {
+                healthy.clear();
+            }
+        }
+        if (!failures.isEmpty()) {
+            List<Long> rowIds = new ArrayList<>(failures.size());
+            for (DeadLetterStore.Failure failure : failures) {
+                rowIds.add(failure.record.getId());
+            }
+            deadLetters.park(rowIds);
+        }
+    }
+
+    /**
+     * Writes the batch as it is, without isolating failures or holding back parked rows. Used to retry
+     * dead letters.
+     */
+    public void writeThrough(ChangeBatch batch) {
+        commit(batch, Collections.emptyList(), batch);
+    }
+
+    /**
+     * Writes the changes {@code check} keeps. The check runs first in the same target transaction, so it can
+     * lock the rows and compare them with what it expects before they are overwritten.
+     *
+     * @param check returns the changes of the batch to write
+     * @return number of changes written
+     */
+    public int writeChecked(ChangeBatch batch, UnaryOperator<ChangeBatch> check) {
+        return commit(batch, Collections.emptyList(), batch, check);
+    }
+
+    /**
+     * Writes the rows and dead letters in one transaction with the offsets of {@code offsets}, then passes
+     * the rows on.
+     *
+     * @param rows changes to write, may be null
+     */
+    private void commit(ChangeBatch rows, List<DeadLetterStore.Failure> failures, ChangeBatch offsets) {
+        commit(rows, failures, offsets, null);
+    }
+
+    private int commit(ChangeBatch batch, List<DeadLetterStore.Failure> failures, ChangeBatch offsets,
+                       UnaryOperator<ChangeBatch> check) {
+        ChangeBatch rows = writeTimer.record(() -> transactionTemplate.execute(status -> {
+            ChangeBatch checked = check == null || batch == null ? batch : check.apply(batch);
+            List<ChangeRecord> upserts = checked == null ? Collections.emptyList() : checked.upserts();
+            List<Long> deletes = checked == null ? Collections.emptyList() : checked.deletes();
+            if (!upserts.isEmpty()) {
+                jdbcTemplate.update(UPSERT_SQL, ps -> bindUpserts(ps, upserts));
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.update(DELETE_SQL, ps -> {
+                    Array ids = ps.getConnection().createArrayOf("bigint", deletes.toArray());
+                    ps.setArray(1, ids);
+                });
+            }
+            deadLetters.add(failures);
+            if (!offsets.sourceOffsets().isEmpty()) {
+                offsetStore.saveApplied(offsets);
+            }
+            return checked;
+        }));
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        batchSizes.record(rows.size());
+        collapsedEvents.increment(rows.eventCount() - rows.size());
+        replicationMetrics.recordApplied(TABLE, rows);
+        employeeCache.applied(rows);
+        changeStream.published(TABLE, rows);
+        return rows.size();
+    }
+
+    /**
+     * Writes the halves of a failing set of changes separately, recursing into the halves that fail, until
+     * the failing changes are single rows.
+     */
+    private void bisect(List<ChangeRecord> failing, DataIntegrityViolationException error,
+                        List<DeadLetterStore.Failure> failures) {
+        if (failing.size() == 1) {
+            failures.add(new DeadLetterStore.Failure(failing.get(0), error.getMostSpecificCause().getMessage()));
+            return;
+        }
+        int middle = failing.size() / 2;
+        for (List<ChangeRecord> half : List.of(failing.subList(0, middle), failing.subList(middle, failing.size()))) {
+            ChangeBatch part = subBatch(half);
+            try {
+                commit(part, Collections.emptyList(), part);
+            } catch (DataIntegrityViolationException e) {
+                bisect(half, e, failures);
+            } finally {
+                part.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the batch without the changes to parked rows, which are added to the failures
+     */
+    private ChangeBatch withoutParked(ChangeBatch batch, List<DeadLetterStore.Failure> failures) {
+        List<Long> rowIds = new ArrayList<>(batch.size());
+        for (ChangeRecord record : batch.records()) {
+            rowIds.add(record.getId());
+        }
+        Set<Long> parked = deadLetters.parkedAmong(rowIds);
+        if (parked.isEmpty()) {
+            return batch;
+        }
+        List<ChangeRecord> rest = new ArrayList<>(batch.size());
+        for (ChangeRecord record : batch.records()) {
+            if (parked.contains(record.getId())) {
+                failures.add(new DeadLetterStore.Failure(record, PARKED));
+            } else {
+                rest.add(record);
+            }
+        }
+        return failures.isEmpty() ? batch : subBatch(rest);
+    }
+
+    /**
+     * @return a batch of the records without their offsets; cleared rather than recycled, since the
+     * records still belong to the batch they came from
+     */
+    private static ChangeBatch subBatch(List<ChangeRecord> records) {
+        ChangeBatch batch = new ChangeBatch();
+        for (ChangeRecord record : records) {
+            batch.add(record);
+        }
+        batch.sourceOffsets().clear();
+        return batch;
+    }
+
+    static void bindUpserts(PreparedStatement ps, List<ChangeRecord> upserts) throws SQLException {
+        Object[][] columns = upsertColumns(upserts);
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            ps.setArray(i + 1, ps.getConnection().createArrayOf(COLUMN_TYPES[i], columns[i]));
+        }
+    }
+
+    /**
+     * @return the values of each {@link #UPSERT_SQL} column, one array per column in row order
+     */
+    public static Object[][] upsertColumns(List<ChangeRecord> upserts) {
+        int rows = upserts.size();
+        Long[] ids = new Long[rows];
+        String[] names = new String[rows];
+        String[] positions = new String[rows];
+        Double[] salaries = new Double[rows];
+        String[] departments = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            ChangeRecord record = upserts.get(i);
+            ids[i] = record.getId();
+            names[i] = record.getName();
+            positions[i] = record.getPosition();
+            salaries[i] = record.getSalaryOrNull();
+            departments[i] = record.getDepartment();
+        }
+        return new Object[][]{ids, names, positions, salaries, departments};
+    }
+}
@@ -0,0 +1,107 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeEventSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Schema registry kept in a JSON file, standing in for a registry service. The Connect worker registers
+ * the row schemas it encodes and the service looks them up by the id each binary event carries, so both
+ * have to see the same file.
+ * <p>
+ * Registering an identical schema again returns its existing id. Registrations from several processes
+ * are serialized with a lock on {@code <file>.lock}, and an id this process has not seen yet is looked up
+ * by reading the file again.
+ */
+public class FileSchemaRegistry {
+
+    private static final TypeReference<List<ChangeEventSchema>> SCHEMAS = new TypeReference<List<ChangeEventSchema>>() {};
+
+    private final Path file;
+    private final Path lockFile;
+    private final ObjectMapper objectMapper;
+    private final Map<Integer, ChangeEventSchema> schemas = new ConcurrentHashMap<>();
+
+    public FileSchemaRegistry(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return the id of the schema, registering it if it is new
+     */
+    public synchronized int register(ChangeEventSchema schema) throws IOException {
+        Integer known = find(schema);
+        if (known != null) {
+            return known;
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            reload();
+            known = find(schema);
+            if (known != null) {
+                return known;
+            }
+            int id = schemas.keySet().stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+            ChangeEventSchema registered = new ChangeEventSchema(schema.getName(), schema.getFields());
+            registered.setId(id);
+            schemas.put(id, registered);
+            save();
+            return id;
+        }
+    }
+
+    /**
+     * @throws IOException if no schema has the id
+     */
+    public ChangeEventSchema get(int id) throws IOException {
+        ChangeEventSchema schema = schemas.get(id);
+        if (schema == null) {
+            synchronized (this) {
+                reload();
+            }
+            schema = schemas.get(id);
+            if (schema == null) {
+                throw new IOException("Unknown schema id " + id + " in " + file);
+            }
+        }
+        return schema;
+    }
+
+    private Integer find(ChangeEventSchema schema) {
+        for (ChangeEventSchema candidate : schemas.values()) {
+            if (candidate.equals(schema)) {
+                return candidate.getId();
+            }
+        }
+        return null;
+    }
+
+    private void reload() throws IOException {
+        if (Files.exists(file)) {
+            for (ChangeEventSchema schema : objectMapper.readValue(file.toFile(), SCHEMAS)) {
+                schemas.putIfAbsent(schema.getId(), schema);
+            }
+        }
+    }
+
+    private void save() throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), new TreeMap<>(schemas).values());
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
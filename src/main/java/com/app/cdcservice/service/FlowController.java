@@ -0,0 +1,217 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.FlowControlProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Adapts the load an apply pipeline puts on the target to how the target copes with it, so a slow target
+ * (vacuum, checkpoints) is not buried under ever larger backlogs and then flooded when it recovers.
+ * <p>
+ * Two limits are adjusted additive-increase/multiplicative-decrease once per adjustment interval: the
+ * batch size and the number of lanes writing a batch at the same time. When the average batch write time
+ * exceeds {@code cdc.flow.target-write-latency-ms} or the target pool is saturated, both are multiplied by
+ * {@code cdc.flow.decrease-factor}; otherwise the batch size grows by {@code cdc.flow.batch-size-step} and
+ * one more lane may write, up to the configured batch size and lane count.
+ * <p>
+ * Changes the lanes cannot write fast enough pile up in their queues. {@link #updatePaused} tells the
+ * producer to stop consuming once they are {@code cdc.flow.pause-threshold} full and to resume below
+ * {@code cdc.flow.resume-threshold}, instead of buffering up to the lane capacity and then blocking.
+ */
+public class FlowController {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlowController.class);
+
+    private final String name;
+    private final FlowControlProperties properties;
+    private final int maxBatchSize;
+    private final int maxInFlight;
+    private final DoubleSupplier poolUtilization;
+    private final long adjustIntervalNanos;
+    private final MeterRegistry meterRegistry;
+    private final List<Meter> meters = new ArrayList<>();
+    private final Counter latencyThrottles;
+    private final Counter poolThrottles;
+    private final Counter pauses;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    private volatile int batchSize;
+    private volatile int inFlightLimit;
+    private volatile int inFlight;
+    private volatile boolean paused;
+    // Batch writes since the last adjustment, guarded by lock
+    private long windowStartNanos = System.nanoTime();
+    private long windowWrites;
+    private long windowWriteNanos;
+
+    /**
+     * @param maxBatchSize    largest batch size, {@code cdc.sink.batch-size}
+     * @param maxInFlight     largest number of concurrent batch writes, the number of lanes
+     * @param poolUtilization target pool usage as reported by {@link TargetPoolMonitor#utilization()}
+     */
+    public FlowController(String name, FlowControlProperties properties, int maxBatchSize, int maxInFlight,
+                          DoubleSupplier poolUtilization, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.properties = properties;
+        this.maxBatchSize = maxBatchSize;
+        this.maxInFlight = maxInFlight;
+        this.poolUtilization = poolUtilization;
+        this.adjustIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getAdjustIntervalMs());
+        this.meterRegistry = meterRegistry;
+        this.batchSize = maxBatchSize;
+        this.inFlightLimit = maxInFlight;
+
+        meters.add(Gauge.builder("cdc.flow.batch.size", this, FlowController::batchSize)
+                .description("Current batch size limit")
+                .tag("pipeline", name)
+                .register(meterRegistry));
+        meters.add(Gauge.builder("cdc.flow.inflight.limit", this, FlowController::inFlightLimit)
+                .description("Current limit on batches written concurrently")
+                .tag("pipeline", name)
+                .register(meterRegistry));
+        meters.add(Gauge.builder("cdc.flow.inflight", this, controller -> controller.inFlight)
+                .description("Batches being written")
+                .tag("pipeline", name)
+                .register(meterRegistry));
+        meters.add(Gauge.builder("cdc.flow.paused", this, controller -> controller.paused ? 1 : 0)
+                .description("Whether consumption is paused")
+                .tag("pipeline", name)
+                .register(meterRegistry));
+        this.latencyThrottles = throttleCounter("latency");
+        this.poolThrottles = throttleCounter("pool");
+        this.pauses = Counter.builder("cdc.flow.pauses")
+                .description("Times consumption was paused because the apply lanes were backed up")
+                .tag("pipeline", name)
+                .register(meterRegistry);
+        meters.add(pauses);
+    }
+
+    /**
+     * @return a controller that keeps both limits at their maximum and never pauses
+     */
+    public static FlowController fixed(String name, int batchSize, int lanes, MeterRegistry meterRegistry) {
+        FlowControlProperties properties = new FlowControlProperties();
+        properties.setEnabled(false);
+        return new FlowController(name, properties, batchSize, lanes, () -> 0, meterRegistry);
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public int inFlightLimit() {
+        return inFlightLimit;
+    }
+
+    /**
+     * Waits until another batch may be written.
+     */
+    public void acquire() {
+        lock.lock();
+        try {
+            while (inFlight >= inFlightLimit) {
+                permitReleased.awaitUninterruptibly();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends a batch write started with {@link #acquire()} and adjusts the limits if an interval has passed.
+     *
+     * @param writeNanos time the write took
+     */
+    public void release(long writeNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            windowWrites++;
+            windowWriteNanos += writeNanos;
+            long now = System.nanoTime();
+            if (properties.isEnabled() && now - windowStartNanos >= adjustIntervalNanos) {
+                adjust();
+                windowStartNanos = now;
+                windowWrites = 0;
+                windowWriteNanos = 0;
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates the paused state from the changes waiting in the lanes.
+     *
+     * @param buffered changes submitted but not yet written
+     * @param capacity changes the lanes can hold
+     * @return whether the producer should stop consuming
+     */
+    public boolean updatePaused(long buffered, long capacity) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        double fill = buffered / (double) Math.max(1, capacity);
+        if (!paused && fill >= properties.getPauseThreshold()) {
+            paused = true;
+            pauses.increment();
+            logger.info("Pausing {} consumption with {} changes waiting to be written.", name, buffered);
+        } else if (paused && fill <= properties.getResumeThreshold()) {
+            paused = false;
+            logger.info("Resuming {} consumption.", name);
+        }
+        return paused;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Removes the controller's meters.
+     */
+    public void close() {
+        meters.forEach(meterRegistry::remove);
+    }
+
+    private void adjust() {
+        double latencyMs = windowWrites == 0 ? 0 : windowWriteNanos / (double) windowWrites / 1_000_000;
+        boolean slow = latencyMs > properties.getTargetWriteLatencyMs();
+        boolean saturated = poolUtilization.getAsDouble() >= properties.getPoolSaturation();
+        if (slow || saturated) {
+            (slow ? latencyThrottles : poolThrottles).increment();
+            batchSize = Math.max(Math.min(properties.getMinBatchSize(), maxBatchSize),
+                    (int) (batchSize * properties.getDecreaseFactor()));
+            inFlightLimit = Math.max(1, (int) (inFlightLimit * properties.getDecreaseFactor()));
+            logger.debug("Throttled {} to batches of {} on {} lanes ({} ms per batch, pool {}).", name, batchSize,
+                    inFlightLimit, Math.round(latencyMs), saturated ? "saturated" : "ok");
+        } else if (windowWrites > 0) {
+            batchSize = Math.min(maxBatchSize, batchSize + properties.getBatchSizeStep());
+            inFlightLimit = Math.min(maxInFlight, inFlightLimit + 1);
+        }
+    }
+
+    private Counter throttleCounter(String reason) {
+        Counter counter = Counter.builder("cdc.flow.throttles")
+                .description("Times the batch size and in-flight limits were cut")
+                .tag("pipeline", name)
+                .tag("reason", reason)
+                .register(meterRegistry);
+        meters.add(counter);
+        return counter;
+    }
+}
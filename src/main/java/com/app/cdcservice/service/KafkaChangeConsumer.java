@@ -0,0 +1,465 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.FlowControlProperties;
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.kafka.KafkaClientMetrics;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumes the Debezium change topic and applies it to the target database through a
+ * {@link ParallelApplyEngine}. Used when {@code cdc.streaming.mode=kafka}: Kafka Connect runs only the
+ * source connector and the service replaces the JDBC sink connector.
+ * <p>
+ * Offsets are committed per poll, and only once every change of that poll and of all earlier polls
+ * has been written to the target. Values are read as raw bytes and decoded without an intermediate string.
+ * <p>
+ * Several instances consume the topic as one consumer group, each applying the partitions assigned to it.
+ * Before partitions move to another instance the lanes are drained and their offsets committed, so the new
+ * owner continues where this one stopped. With the cooperative assignor only the moving partitions stop
+ * while the group rebalances.
+ * <p>
+ * When the apply lanes fall behind, the assigned partitions are paused until they have caught up, so the
+ * consumer keeps polling and stays in the group while nothing more is fetched.
+ * <p>
+ * {@code cdc.kafka.consumer.lag} reports, per partition, the records between the end of the partition and
+ * the last committed offset, i.e. changes not yet written to the target. The Kafka client's own metrics
+ * are bound as well.
+ * <p>
+ * With {@code cdc.apply.exactly-once} the offsets are also kept in the target by {@link TargetOffsetStore}:
+ * each batch stores the offsets it applied in its own transaction, assigned partitions are resumed from the
+ * offsets stored there, and changes replayed after a failure that the target already has are skipped
+ * ({@code cdc.kafka.events.skipped}) instead of being written twice.
+ * <p>
+ * Events that cannot be decoded are set aside in the {@link DeadLetterStore} rather than failing the consumer.
+ */
+@Service
+public class KafkaChangeConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaChangeConsumer.class);
+
+    private final KafkaProperties kafkaProperties;
+    private final ApplyProperties applyProperties;
+    private final SinkProperties sinkProperties;
+    private final ChangeEventDecoder decoder;
+    private final EmployeeSinkWriter sinkWriter;
+    private final MeterRegistry meterRegistry;
+    private final ReplicationMetrics replicationMetrics;
+    private final WorkerThreads workerThreads;
+    private final FlowControlProperties flowControlProperties;
+    private final TargetPoolMonitor targetPoolMonitor;
+    private final TargetOffsetStore offsetStore;
+    private final ChangeTransformer transformer;
+    private final DeadLetterStore deadLetters;
+    private final Counter skippedEvents;
+
+    private Thread pollThread;
+    private volatile KafkaConsumer<String, byte[]> consumer;
+    private volatile boolean running;
+    private volatile String failure;
+
+    // Owned by the poll thread
+    private ParallelApplyEngine applyEngine;
+    private final Deque<PendingOffsets> pending = new ArrayDeque<>();
+    private final Map<TopicPartition, PartitionLag> partitionLags = new ConcurrentHashMap<>();
+    private final Set<TopicPartition> assignment = ConcurrentHashMap.newKeySet();
+    private KafkaClientMetrics clientMetrics;
+    private boolean paused;
+    private TargetOffsetStore.Watermarks watermarks;
+
+    public KafkaChangeConsumer(KafkaProperties kafkaProperties, ApplyProperties applyProperties,
+                               SinkProperties sinkProperties, ChangeEventDecoder decoder,
+                               EmployeeSinkWriter sinkWriter, MeterRegistry meterRegistry,
+                               ReplicationMetrics replicationMetrics, WorkerThreads workerThreads,
+                               FlowControlProperties flowControlProperties, TargetPoolMonitor targetPoolMonitor,
+                               TargetOffsetStore offsetStore, ChangeTransformer transformer,
+                               DeadLetterStore deadLetters) {
+        this.kafkaProperties = kafkaProperties;
+        this.applyProperties = applyProperties;
+        this.sinkProperties = sinkProperties;
+        this.decoder = decoder;
+        this.sinkWriter = sinkWriter;
+        this.meterRegistry = meterRegistry;
+        this.replicationMetrics = replicationMetrics;
+        this.workerThreads = workerThreads;
+        this.flowControlProperties = flowControlProperties;
+        this.targetPoolMonitor = targetPoolMonitor;
+        this.offsetStore = offsetStore;
+        this.transformer = transformer;
+        this.deadLetters = deadLetters;
+        this.skippedEvents = Counter.builder("cdc.kafka.events.skipped")
+                .description("Replayed change events skipped because the target already had them")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the change topic and starts the poll loop.
+     *
+     * @throws IllegalStateException if the consumer is already running
+     */
+    public synchronized void start() {
+        if (isRunning()) {
+            throw new IllegalStateException("Change consumer is already running");
+        }
+        failure = null;
+        pending.clear();
+        paused = false;
+        if (applyProperties.isExactlyOnce()) {
+            offsetStore.ensureTable();
+        }
+        watermarks = new TargetOffsetStore.Watermarks(applyProperties.getLanes());
+        consumer = new KafkaConsumer<>(consumerProperties(), new StringDeserializer(), new ByteArrayDeserializer());
+        clientMetrics = new KafkaClientMetrics(consumer);
+        clientMetrics.bindTo(meterRegistry);
+        applyEngine = new ParallelApplyEngine("kafka", sinkWriter, applyProperties, sinkProperties, meterRegistry,
+                workerThreads.factory("kafka-lane-"), new FlowController("kafka", flowControlProperties,
+                sinkProperties.getBatchSize(), applyProperties.getLanes(), targetPoolMonitor::utilization, meterRegistry),
+                transformer);
+        applyEngine.start();
+        running = true;
+        pollThread = new Thread(this::pollLoop, "kafka-change-consumer");
+        pollThread.start();
+        logger.info("Change consumer started on topic {}.", applyProperties.getTopic());
+    }
+
+    /**
+     * Stops polling, drains the apply lanes and commits the final offsets.
+     */
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (pollThread == null) {
+            return;
+        }
+        running = false;
+        KafkaConsumer<String, byte[]> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+        pollThread.join(applyProperties.getDrainTimeoutMs() + 10_000);
+        pollThread = null;
+        logger.info("Change consumer stopped.");
+    }
+
+    public synchronized boolean isRunning() {
+        return pollThread != null && pollThread.isAlive();
+    }
+
+    /**
+     * @return consumer state as a small JSON document
+     */
+    public String status() {
+        String state = isRunning() ? "RUNNING" : failure != null ? "FAILED" : "STOPPED";
+        String partitions = assignment.stream()
+                .map(partition -> String.valueOf(partition.partition()))
+                .sorted()
+                .collect(Collectors.joining(","));
+        return "{\"name\":\"kafka-change-consumer\",\"mode\":\"kafka\",\"state\":\"" + state
+                + "\",\"partitions\":[" + partitions + "]}";
+    }
+
+    /**
+     * @return change topic partitions currently assigned to this instance
+     */
+    public Set<TopicPartition> assignment() {
+        return Collections.unmodifiableSet(new HashSet<>(assignment));
+    }
+
+    private void pollLoop() {
+        try {
+            consumer.subscribe(Collections.singletonList(applyProperties.getTopic()), new DrainOnRevoke());
+            while (running) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(applyProperties.getPollTimeoutMs()));
+                if (!records.isEmpty()) {
+                    submit(records);
+                }
+                commitApplied(false);
+                updateLag();
+                updatePaused();
+            }
+        } catch (WakeupException e) {
+            // Raised by stop()
+        } catch (Exception e) {
+            logger.error("Change consumer failed", e);
+            failure = e.getMessage();
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void submit(ConsumerRecords<String, byte[]> records) throws IOException, InterruptedException {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            replicationMetrics.recordReceived(record.topic(), Math.max(0, record.serializedValueSize()));
+            ChangeRecord change = decode(record.value());
+            if (change != null && applyProperties.isExactlyOnce()) {
+                if (watermarks.isApplied(record.partition(), applyEngine.laneFor(change.getId()), record.offset())) {
+                    change.release();
+                    change = null;
+                    skippedEvents.increment();
+                } else {
+                    change.setSourcePartition(record.partition());
+                    change.setSourceOffset(record.offset());
+                }
+            }
+            if (change != null) {
+                applyEngine.submit(change);
+            }
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            offsets.put(partition, new OffsetAndMetadata(record.offset() + 1));
+        }
+        offsets.forEach((partition, offset) -> partitionLag(partition).consumed = offset.offset());
+        pending.addLast(new PendingOffsets(applyEngine.submittedSequence(), offsets));
+    }
+
+    private ChangeRecord decode(byte[] value) throws IOException {
+        try {
+            return decoder.decode(value);
+        } catch (IOException | IllegalArgumentException e) {
+            if (!deadLetters.isEnabled()) {
+                throw e;
+            }
+            logger.warn("Setting aside a change event that cannot be decoded: {}", e.getMessage());
+            deadLetters.addUndecodable(value, e.getMessage());
+            return null;
+        }
+    }
+
+    private void commitApplied(boolean sync) {
+        long committed = applyEngine.committedSequence();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        while (!pending.isEmpty() && pending.peekFirst().sequence <= committed) {
+            offsets.putAll(pending.pollFirst().offsets);
+        }
+        // Partitions lost to another instance can no longer be committed by this one
+        offsets.keySet().retainAll(consumer.assignment());
+        if (offsets.isEmpty()) {
+            return;
+        }
+        offsets.forEach((partition, offset) -> partitionLag(partition).committed = offset.offset());
+        if (applyProperties.isExactlyOnce()) {
+            saveCommitted(offsets);
+        }
+        if (sync) {
+            consumer.commitSync(offsets);
+        } else {
+            consumer.commitAsync(offsets, (committedOffsets, e) -> {
+                if (e != null) {
+                    logger.warn("Offset commit failed; it will be retried with the next commit", e);
+                }
+            });
+        }
+    }
+
+    private void saveCommitted(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        try {
+            offsetStore.saveCommitted(offsets.entrySet().stream()
+                    .collect(Collectors.toMap(e -> e.getKey().partition(), e -> e.getValue().offset())));
+        } catch (DataAccessException e) {
+            // Only moves the resume position; the lane offsets written with each batch still prevent duplicates
+            logger.warn("Failed to store committed offsets in the target", e);
+        }
+    }
+
+    private void updateLag() {
+        for (Map.Entry<TopicPartition, PartitionLag> entry : partitionLags.entrySet()) {
+            PartitionLag lag = entry.getValue();
+            // Lag behind the fetch position is known locally; no broker round trip
+            OptionalLong fetchLag = consumer.currentLag(entry.getKey());
+            if (fetchLag.isPresent()) {
+                long uncommitted = lag.committed < 0 ? 0 : Math.max(0, lag.consumed - lag.committed);
+                lag.value.set(fetchLag.getAsLong() + uncommitted);
+            }
+        }
+    }
+
+    private void updatePaused() {
+        boolean backlogged = applyEngine.backlogged();
+        if (backlogged && !paused) {
+            consumer.pause(consumer.assignment());
+        } else if (!backlogged && paused) {
+            consumer.resume(consumer.paused());
+        }
+        paused = backlogged;
+    }
+
+    private PartitionLag partitionLag(TopicPartition partition) {
+        return partitionLags.computeIfAbsent(partition, p -> {
+            PartitionLag lag = new PartitionLag();
+            lag.gauge = Gauge.builder("cdc.kafka.consumer.lag", lag.value, AtomicLong::get)
+                    .description("Records in the partition not yet written to the target")
+                    .tag("topic", p.topic())
+                    .tag("partition", String.valueOf(p.partition()))
+                    .register(meterRegistry);
+            return lag;
+        });
+    }
+
+    private void removeLag(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            PartitionLag lag = partitionLags.remove(partition);
+            if (lag != null) {
+                meterRegistry.remove(lag.gauge);
+            }
+        }
+    }
+
+    private void drainAndCommit() throws InterruptedException {
+        if (!applyEngine.drain(applyProperties.getDrainTimeoutMs())) {
+            logger.warn("Apply lanes did not drain within {} ms.", applyProperties.getDrainTimeoutMs());
+        }
+        commitApplied(true);
+    }
+
+    private void shutdown() {
+        try {
+            drainAndCommit();
+        } catch (Exception e) {
+            logger.warn("Failed to commit final offsets", e);
+        }
+        try {
+            applyEngine.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        removeLag(new ArrayList<>(partitionLags.keySet()));
+        assignment.clear();
+        clientMetrics.close();
+        consumer.close();
+        consumer = null;
+    }
+
+    private Map<String, Object> consumerProperties() {
+        Map<String, Object> props = kafkaProperties.buildConsumerProperties();
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return props;
+    }
+
+    /**
+     * Writes out everything already consumed before partitions move to another consumer, so the
+     * new owner starts from committed offsets instead of replaying.
+     */
+    private class DrainOnRevoke implements ConsumerRebalanceListener {
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            if (partitions.isEmpty()) {
+                return;
+            }
+            try {
+                drainAndCommit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            forget(partitions);
+        }
+
+        /**
+         * The partitions already belong to another instance, so the lanes are drained but their offsets
+         * can no longer be committed.
+         */
+        @Override
+        public void onPartitionsLost(Collection<TopicPartition> partitions) {
+            logger.warn("Lost change topic partitions {}", partitions);
+            try {
+                if (!applyEngine.drain(applyProperties.getDrainTimeoutMs())) {
+                    logger.warn("Apply lanes did not drain within {} ms.", applyProperties.getDrainTimeoutMs());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            forget(partitions);
+        }
+
+        private void forget(Collection<TopicPartition> partitions) {
+            removeLag(partitions);
+            assignment.removeAll(partitions);
+            for (TopicPartition partition : partitions) {
+                watermarks.remove(partition.partition());
+            }
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            if (partitions.isEmpty()) {
+                // Cooperative rebalances report unchanged assignments as empty
+                return;
+            }
+            logger.info("Assigned change topic partitions {}", partitions);
+            assignment.addAll(partitions);
+            if (applyProperties.isExactlyOnce()) {
+                resumeFromTarget(partitions);
+            }
+            if (paused) {
+                consumer.pause(partitions);
+            }
+        }
+    }
+
+    private void resumeFromTarget(Collection<TopicPartition> partitions) {
+        TargetOffsetStore.Watermarks loaded = offsetStore.load(partitions.stream()
+                .map(TopicPartition::partition)
+                .collect(Collectors.toList()));
+        watermarks.putAll(loaded);
+        for (TopicPartition partition : partitions) {
+            Long offset = loaded.resumeOffset(partition.partition());
+            if (offset != null) {
+                consumer.seek(partition, offset);
+            }
+        }
+        logger.info("Resuming change topic partitions {} from offsets stored in the target.", partitions);
+    }
+
+    private static final class PartitionLag {
+        final AtomicLong value = new AtomicLong();
+        // Next offsets consumed and committed
+        long consumed = -1;
+        long committed = -1;
+        Meter gauge;
+    }
+
+    private static final class PendingOffsets {
+        final long sequence;
+        final Map<TopicPartition, OffsetAndMetadata> offsets;
+
+        PendingOffsets(long sequence, Map<TopicPartition, OffsetAndMetadata> offsets) {
+            this.sequence = sequence;
+            this.offsets = offsets;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.app.cdcservice.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only key/value checkpoint log in a memory-mapped file. Each {@link #append} writes one record
+ * holding all of its updates, so a checkpoint is either fully recovered or not at all:
+ * <pre>
+ *   file   := magic:int version:int record* 0:int
+ *   record := length:int crc32c:int payload[length]
+ *   payload := count:int (keyLength:int key valueLength:int value)*    valueLength -1 deletes the key
+ * </pre>
+ * On open the log is replayed into memory and a torn or corrupt tail is cut off at the last record with a
+ * valid checksum. When the log outgrows the compaction threshold and is mostly superseded entries, it is
+ * rewritten as a single record into a new file that atomically replaces the old one.
+ * <p>
+ * Durability follows the {@link FsyncPolicy}: with {@code NEVER} or {@code INTERVAL} a checkpoint
+ * survives a process crash as soon as {@link #append} returns but may be lost on power failure.
+ */
+public class MappedCheckpointLog implements Closeable {
+
+    /**
+     * When appended records are forced to disk.
+     */
+    public enum FsyncPolicy {
+        // After every append
+        ALWAYS,
+        // At most once per fsync interval, and on close
+        INTERVAL,
+        // Left to the operating system, except on close
+        NEVER
+    }
+
+    static final int MAGIC = 0x4344434F;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private final Path path;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long compactionThresholdBytes;
+    private final int initialSizeBytes;
+
+    private final Map<ByteBuffer, ByteBuffer> entries = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private long lastForceNanos = System.nanoTime();
+    private boolean dirty;
+
+    private MappedCheckpointLog(Path path, FsyncPolicy fsyncPolicy, long fsyncIntervalMs,
+                                long compactionThresholdBytes, int initialSizeBytes) {
+        this.path = path;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.initialSizeBytes = Math.max(initialSizeBytes, 4096);
+    }
+
+    /**
+     * Opens the log, creating it if missing, and replays it into memory.
+     */
+    public static MappedCheckpointLog open(Path path, FsyncPolicy fsyncPolicy, long fsyncIntervalMs,
+                                           long compactionThresholdBytes, int initialSizeBytes) throws IOException {
+        MappedCheckpointLog log = new MappedCheckpointLog(path, fsyncPolicy, fsyncIntervalMs,
+                compactionThresholdBytes, initialSizeBytes);
+        log.load();
+        return log;
+    }
+
+    /**
+     * @return a copy of the current entries
+     */
+    public synchronized Map<ByteBuffer, ByteBuffer> entries() {
+        return Collections.unmodifiableMap(new HashMap<>(entries));
+    }
+
+    /**
+     * Appends the updates as one record. A null value removes the key.
+     */
+    public synchronized void append(Map<ByteBuffer, ByteBuffer> updates) throws IOException {
+        if (updates.isEmpty()) {
+            return;
+        }
+        int payloadSize = payloadSize(updates);
+        ensureCapacity(position + RECORD_HEADER_SIZE + payloadSize + 4);
+        writeRecord(buffer, position, updates, payloadSize);
+        position += RECORD_HEADER_SIZE + payloadSize;
+        for (Map.Entry<ByteBuffer, ByteBuffer> update : updates.entrySet()) {
+            apply(update.getKey(), update.getValue());
+        }
+        dirty = true;
+
+        if (fsyncPolicy == FsyncPolicy.ALWAYS
+                || (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastForceNanos >= fsyncIntervalNanos)) {
+            force();
+        }
+        if (position > compactionThresholdBytes && position > 2L * (HEADER_SIZE + RECORD_HEADER_SIZE + payloadSize(entries))) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the log as a single record holding the live entries.
+     */
+    public synchronized void compact() throws IOException {
+        int payloadSize = payloadSize(entries);
+        int size = HEADER_SIZE + RECORD_HEADER_SIZE + payloadSize + 4;
+        ByteBuffer compacted = ByteBuffer.allocate(size);
+        compacted.putInt(0, MAGIC).putInt(4, VERSION);
+        writeRecord(compacted, HEADER_SIZE, entries, payloadSize);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (compacted.hasRemaining()) {
+                out.write(compacted);
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        map(Math.max(initialSizeBytes, size * 2));
+        position = size - 4;
+        dirty = false;
+        lastForceNanos = System.nanoTime();
+    }
+
+    /**
+     * Forces appended records to disk.
+     */
+    public synchronized void force() {
+        if (dirty) {
+            buffer.force();
+            dirty = false;
+        }
+        lastForceNanos = System.nanoTime();
+    }
+
+    /**
+     * @return bytes used by the log, including superseded records
+     */
+    public synchronized int sizeBytes() {
+        return position;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            force();
+            channel.close();
+        }
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        boolean created = !Files.exists(path) || Files.size(path) < HEADER_SIZE;
+        map(created ? initialSizeBytes : (int) Math.max(initialSizeBytes, Files.size(path)));
+        if (created) {
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+            position = HEADER_SIZE;
+            dirty = true;
+            force();
+            return;
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a checkpoint log: " + path);
+        }
+        position = HEADER_SIZE;
+        while (readRecord()) {
+            // Replays into entries and advances position
+        }
+        // Clear a torn or corrupt tail so later appends are not followed by stale bytes
+        for (int i = position; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                dirty = true;
+            }
+        }
+        force();
+    }
+
+    private boolean readRecord() {
+        if (position + RECORD_HEADER_SIZE > buffer.capacity()) {
+            return false;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER_SIZE + (long) length > buffer.capacity()) {
+            return false;
+        }
+        ByteBuffer payload = slice(position + RECORD_HEADER_SIZE, length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+            return false;
+        }
+        int count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            ByteBuffer key = copy(payload, payload.getInt());
+            int valueLength = payload.getInt();
+            apply(key, valueLength < 0 ? null : copy(payload, valueLength));
+        }
+        position += RECORD_HEADER_SIZE + length;
+        return true;
+    }
+
+    private void apply(ByteBuffer key, ByteBuffer value) {
+        if (value == null) {
+            entries.remove(key);
+        } else {
+            entries.put(key, value);
+        }
+    }
+
+    private void ensureCapacity(long required) throws IOException {
+        if (required > Integer.MAX_VALUE) {
+            throw new IOException("Checkpoint log " + path + " exceeds 2 GiB");
+        }
+        if (required > buffer.capacity()) {
+            force();
+            map((int) Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity())));
+        }
+    }
+
+    private void map(int size) throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        // Mapping past the end of the file extends it with zeros
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset).limit(offset + length);
+        return view.slice();
+    }
+
+    private static void writeRecord(ByteBuffer target, int offset, Map<ByteBuffer, ByteBuffer> updates, int payloadSize) {
+        ByteBuffer record = target.duplicate();
+        record.position(offset + RECORD_HEADER_SIZE);
+        ByteBuffer payload = record.slice();
+        payload.limit(payloadSize);
+        payload.putInt(updates.size());
+        for (Map.Entry<ByteBuffer, ByteBuffer> update : updates.entrySet()) {
+            ByteBuffer key = update.getKey().duplicate();
+            payload.putInt(key.remaining()).put(key);
+            ByteBuffer value = update.getValue();
+            if (value == null) {
+                payload.putInt(-1);
+            } else {
+                payload.putInt(value.remaining()).put(value.duplicate());
+            }
+        }
+        payload.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        // Length goes last, so a record is only visible once its payload and checksum are in place
+        target.putInt(offset + 4, (int) crc.getValue());
+        target.putInt(offset, payloadSize);
+    }
+
+    private static int payloadSize(Map<ByteBuffer, ByteBuffer> updates) {
+        long size = 4;
+        for (Map.Entry<ByteBuffer, ByteBuffer> update : updates.entrySet()) {
+            size += 8 + update.getKey().remaining();
+            if (update.getValue() != null) {
+                size += update.getValue().remaining();
+            }
+        }
+        if (size > Integer.MAX_VALUE - HEADER_SIZE - RECORD_HEADER_SIZE - 4) {
+            throw new IllegalArgumentException("Checkpoint of " + size + " bytes is too large");
+        }
+        return (int) size;
+    }
+
+    private static ByteBuffer copy(ByteBuffer source, int length) {
+        byte[] bytes = new byte[length];
+        source.get(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,153 @@
+package com.app.cdcservice.service;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.runtime.WorkerConfig;
+import org.apache.kafka.connect.storage.FileOffsetBackingStore;
+import org.apache.kafka.connect.storage.MemoryOffsetBackingStore;
+import org.apache.kafka.connect.util.Callback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Kafka Connect {@code OffsetBackingStore} on top of a {@link MappedCheckpointLog}. Each offset flush
+ * appends only the changed offsets instead of rewriting the whole file, so the embedded engine can flush
+ * after every batch. Offsets are read back from the log at startup.
+ * <p>
+ * If the log does not exist yet but a {@link FileOffsetBackingStore} file is configured through
+ * {@code offset.storage.file.filename}, its offsets are imported so switching stores does not trigger a
+ * new snapshot.
+ */
+public class MappedOffsetBackingStore extends MemoryOffsetBackingStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedOffsetBackingStore.class);
+
+    public static final String FILENAME_CONFIG = "offset.storage.mmap.filename";
+    public static final String FSYNC_CONFIG = "offset.storage.mmap.fsync";
+    public static final String FSYNC_INTERVAL_MS_CONFIG = "offset.storage.mmap.fsync.interval.ms";
+    public static final String COMPACTION_THRESHOLD_BYTES_CONFIG = "offset.storage.mmap.compaction.threshold.bytes";
+    public static final String INITIAL_SIZE_BYTES_CONFIG = "offset.storage.mmap.initial.size.bytes";
+    static final String LEGACY_FILENAME_CONFIG = "offset.storage.file.filename";
+
+    private Path path;
+    private Path legacyPath;
+    private MappedCheckpointLog.FsyncPolicy fsyncPolicy;
+    private long fsyncIntervalMs;
+    private long compactionThresholdBytes;
+    private int initialSizeBytes;
+    private MappedCheckpointLog log;
+
+    @Override
+    public void configure(WorkerConfig config) {
+        super.configure(config);
+        Map<String, String> props = config.originalsStrings();
+        String filename = props.get(FILENAME_CONFIG);
+        if (filename == null) {
+            throw new ConnectException(FILENAME_CONFIG + " is required");
+        }
+        path = Paths.get(filename);
+        String legacy = props.get(LEGACY_FILENAME_CONFIG);
+        legacyPath = legacy == null ? null : Paths.get(legacy);
+        fsyncPolicy = MappedCheckpointLog.FsyncPolicy.valueOf(
+                props.getOrDefault(FSYNC_CONFIG, "interval").toUpperCase(Locale.ROOT));
+        fsyncIntervalMs = Long.parseLong(props.getOrDefault(FSYNC_INTERVAL_MS_CONFIG, "1000"));
+        compactionThresholdBytes = Long.parseLong(props.getOrDefault(COMPACTION_THRESHOLD_BYTES_CONFIG, "4194304"));
+        initialSizeBytes = Integer.parseInt(props.getOrDefault(INITIAL_SIZE_BYTES_CONFIG, "1048576"));
+    }
+
+    @Override
+    public synchronized void start() {
+        super.start();
+        try {
+            boolean exists = Files.exists(path);
+            log = MappedCheckpointLog.open(path, fsyncPolicy, fsyncIntervalMs, compactionThresholdBytes, initialSizeBytes);
+            data.putAll(log.entries());
+            if (!exists && legacyPath != null && Files.exists(legacyPath)) {
+                importLegacyOffsets();
+            }
+        } catch (IOException e) {
+            throw new ConnectException("Failed to open offset log " + path, e);
+        }
+        logger.info("Loaded {} source offsets from {}.", data.size(), path);
+    }
+
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        try {
+            if (log != null) {
+                log.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to close offset log {}", path, e);
+        }
+    }
+
+    @Override
+    public Future<Void> set(Map<ByteBuffer, ByteBuffer> values, Callback<Void> callback) {
+        return executor.submit(() -> {
+            Map<ByteBuffer, ByteBuffer> updates = new HashMap<>();
+            for (Map.Entry<ByteBuffer, ByteBuffer> entry : values.entrySet()) {
+                if (entry.getKey() != null) {
+                    updates.put(entry.getKey(), entry.getValue());
+                }
+            }
+            try {
+                log.append(updates);
+            } catch (IOException | RuntimeException e) {
+                if (callback != null) {
+                    callback.onCompletion(e, null);
+                }
+                throw e;
+            }
+            data.putAll(updates);
+            if (callback != null) {
+                callback.onCompletion(null, null);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    protected void save() {
+        // Every set() appends its own updates
+    }
+
+    private void importLegacyOffsets() throws IOException {
+        Map<ByteBuffer, ByteBuffer> legacy = readLegacyOffsets(legacyPath);
+        log.append(legacy);
+        data.putAll(legacy);
+        logger.info("Imported {} source offsets from {}.", legacy.size(), legacyPath);
+    }
+
+    /**
+     * Reads a {@link FileOffsetBackingStore} file, a serialized {@code HashMap<byte[], byte[]>}.
+     */
+    static Map<ByteBuffer, ByteBuffer> readLegacyOffsets(Path file) throws IOException {
+        Map<ByteBuffer, ByteBuffer> offsets = new HashMap<>();
+        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file))) {
+            Object raw = in.readObject();
+            if (!(raw instanceof Map)) {
+                throw new IOException("Unexpected offset file contents in " + file);
+            }
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) raw).entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    offsets.put(ByteBuffer.wrap((byte[]) entry.getKey()), ByteBuffer.wrap((byte[]) entry.getValue()));
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unreadable offset file " + file, e);
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,124 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeRecord;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Groups change records into batches bounded by size and linger time and hands them to the
+ * {@link ChangeBatchWriter}. Once a batch has been written, {@link #appliedSequence()} advances to the
+ * pipeline sequence of the last record it contained so callers know which positions are safe to commit.
+ * <p>
+ * A batcher is owned by a single apply lane and is not thread-safe, except for {@link #appliedSequence()}.
+ */
+public class MicroBatcher {
+
+    private final ChangeBatchWriter writer;
+    private final IntSupplier batchSize;
+    private final long lingerNanos;
+
+    private final ChangeBatch batch = new ChangeBatch();
+    private long batchStartNanos;
+    private long lastSequence;
+    private volatile long appliedSequence;
+    private volatile long appliedEvents;
+
+    public MicroBatcher(ChangeBatchWriter writer, int batchSize, long lingerMs) {
+        this(writer, () -> batchSize, lingerMs);
+    }
+
+    /**
+     * @param batchSize current maximum batch size, read for every added record
+     */
+    public MicroBatcher(ChangeBatchWriter writer, IntSupplier batchSize, long lingerMs) {
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.lingerNanos = lingerMs * 1_000_000L;
+    }
+
+    /**
+     * Adds a record, writing the current batch once it is full or its linger time has elapsed.
+     *
+     * @param record change to add
+     */
+    public void add(ChangeRecord record) {
+        if (batch.isEmpty()) {
+            batchStartNanos = System.nanoTime();
+        }
+        batch.add(record);
+        lastSequence = record.getSequence();
+        if (batch.size() >= batchSize.getAsInt() || lingerExpired()) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered batch if it has waited for at least the linger time.
+     *
+     * @return true if a batch was written
+     */
+    public boolean flushIfExpired() {
+        if (batch.isEmpty() || !lingerExpired()) {
+            return false;
+        }
+        flush();
+        return true;
+    }
+
+    /**
+     * Writes whatever is currently buffered.
+     */
+    public void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        writer.write(batch);
+        appliedEvents += batch.eventCount();
+        batch.recycle();
+        appliedSequence = lastSequence;
+    }
+
+    /**
+     * Counts changes that were merged away before reaching the batcher as applied. Must only be called
+     * while nothing is buffered.
+     *
+     * @param sequence highest sequence of the merged changes
+     * @param events   number of merged changes
+     */
+    public void skip(long sequence, long events) {
+        appliedEvents += events;
+        appliedSequence = Math.max(appliedSequence, sequence);
+    }
+
+    public boolean isEmpty() {
+        return batch.isEmpty();
+    }
+
+    /**
+     * @return nanoseconds until the buffered batch expires, or -1 if nothing is buffered
+     */
+    public long nanosUntilExpiry() {
+        if (batch.isEmpty()) {
+            return -1;
+        }
+        return Math.max(0, lingerNanos - (System.nanoTime() - batchStartNanos));
+    }
+
+    /**
+     * @return sequence of the last record whose batch has been written to the target
+     */
+    public long appliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * @return number of change events written so far, including collapsed ones
+     */
+    public long appliedEvents() {
+        return appliedEvents;
+    }
+
+    private boolean lingerExpired() {
+        return System.nanoTime() - batchStartNanos >= lingerNanos;
+    }
+}
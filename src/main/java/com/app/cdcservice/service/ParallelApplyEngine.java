@@ -0,0 +1,369 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Applies change records on N worker lanes. Each record is routed by its primary key, so all changes to
+ * one key are applied in order by the same lane while different keys are applied concurrently.
+ * <p>
+ * Every submitted record gets a pipeline sequence number. {@link #committedSequence()} returns the highest
+ * sequence below which every record has been written, which is the position that is safe to commit
+ * back to the source. {@link #submit} and {@link #committedSequence()} must be called from a single
+ * producer thread.
+ * <p>
+ * Batch sizes and the number of lanes writing at once are limited by a {@link FlowController}, and
+ * {@link #backlogged()} tells the producer when to stop consuming. With {@code cdc.apply.compaction.enabled}
+ * each lane merges its changes in a {@link CompactionWindow} before batching them. A {@link ChangeTransformer}
+ * filters and reshapes records as they are submitted, so filtered changes never reach a lane.
+ */
+public class ParallelApplyEngine implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelApplyEngine.class);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String name;
+    private final ApplyProperties applyProperties;
+    private final MeterRegistry meterRegistry;
+    private final ThreadFactory threadFactory;
+    private final Lane[] lanes;
+    private final FlowController flowController;
+    private final List<Meter> meters = new ArrayList<>();
+    private final Counter backpressureWaits;
+    private final Counter compactionEliminated;
+    // Null when changes are applied as they are
+    private final ChangeTransformer transformer;
+
+    private long submittedSequence;
+
+    public ParallelApplyEngine(String name, ChangeBatchWriter writer, ApplyProperties applyProperties,
+                               SinkProperties sinkProperties, MeterRegistry meterRegistry) {
+        this(name, writer, applyProperties, sinkProperties, meterRegistry, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        }, FlowController.fixed(name, sinkProperties.getBatchSize(), applyProperties.getLanes(), meterRegistry), null);
+    }
+
+    /**
+     * @param threadFactory  creates the lane workers, which are renamed after their lane
+     * @param flowController limits batch sizes and concurrent writes; closed with the engine
+     * @param transformer    applied to every submitted record, may be null
+     */
+    public ParallelApplyEngine(String name, ChangeBatchWriter writer, ApplyProperties applyProperties,
+                               SinkProperties sinkProperties, MeterRegistry meterRegistry, ThreadFactory threadFactory,
+                               FlowController flowController, ChangeTransformer transformer) {
+        if (applyProperties.getLanes() < 1) {
+            throw new IllegalArgumentException("cdc.apply.lanes must be at least 1");
+        }
+        this.name = name;
+        this.applyProperties = applyProperties;
+        this.meterRegistry = meterRegistry;
+        this.threadFactory = threadFactory;
+        this.flowController = flowController;
+        this.transformer = transformer == null || !transformer.isEnabled() ? null : transformer;
+        this.lanes = new Lane[applyProperties.getLanes()];
+        ChangeBatchWriter limitedWriter = batch -> {
+            flowController.acquire();
+            long start = System.nanoTime();
+            try {
+                writer.write(batch);
+            } finally {
+                flowController.release(System.nanoTime() - start);
+            }
+        };
+        this.compactionEliminated = Counter.builder("cdc.apply.compaction.eliminated")
+                .description("Change events dropped or superseded in a compaction window")
+                .tag("pipeline", name)
+                .register(meterRegistry);
+        meters.add(compactionEliminated);
+        ApplyProperties.Compaction compaction = applyProperties.getCompaction();
+        for (int i = 0; i < lanes.length; i++) {
+            int lane = i;
+            ChangeBatchWriter laneWriter = batch -> {
+                batch.setLane(lane);
+                limitedWriter.write(batch);
+            };
+            MicroBatcher batcher = new MicroBatcher(laneWriter, flowController::batchSize, sinkProperties.getLingerMs());
+            CompactionWindow window = compaction.isEnabled()
+                    ? new CompactionWindow(batcher, compaction, compactionEliminated)
+                    : null;
+            lanes[i] = new Lane(name + "-lane-" + i, new SpscRingBuffer<>(applyProperties.getQueueDepth()), batcher,
+                    window);
+        }
+
+        this.backpressureWaits = Counter.builder("cdc.apply.backpressure.waits")
+                .description("Times a producer had to wait for space in a full lane")
+                .tag("pipeline", name)
+                .register(meterRegistry);
+        meters.add(backpressureWaits);
+        for (int i = 0; i < lanes.length; i++) {
+            Lane lane = lanes[i];
+            Tags tags = Tags.of("pipeline", name, "lane", String.valueOf(i));
+            meters.add(Gauge.builder("cdc.apply.lane.queue.depth", lane.queue, SpscRingBuffer::size)
+                    .description("Changes waiting in the lane queue")
+                    .tags(tags)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("cdc.apply.lane.lag", lane, Lane::lag)
+                    .description("Changes submitted to the lane but not yet written to the target")
+                    .tags(tags)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Starts one worker thread per lane.
+     */
+    public void start() {
+        for (Lane lane : lanes) {
+            lane.thread = threadFactory.newThread(lane);
+            lane.thread.setName(lane.name);
+            lane.thread.start();
+        }
+        logger.info("Started apply pipeline {} with {} lanes.", name, lanes.length);
+    }
+
+    /**
+     * Transforms the record, assigns it its pipeline sequence and enqueues it on the lane owning its key. A
+     * record the transformer filters out is released without taking a sequence.
+     *
+     * @param record change to apply
+     * @return the sequence assigned to the record, or the last assigned sequence if it was filtered out
+     * @throws IllegalStateException if a lane has failed, or the lane is full and backpressure is FAIL
+     *                               or the block timeout expires
+     */
+    public long submit(ChangeRecord record) throws InterruptedException {
+        if (transformer != null && !transformer.apply(record)) {
+            record.release();
+            return submittedSequence;
+        }
+        Lane lane = lanes[laneFor(record.getId())];
+        lane.throwIfFailed();
+        long sequence = submittedSequence + 1;
+        record.setSequence(sequence);
+
+        if (!lane.queue.offer(record)) {
+            if (applyProperties.getBackpressure() == ApplyProperties.Backpressure.FAIL) {
+                throw new IllegalStateException("Apply lane " + lane.name + " is full");
+            }
+            backpressureWaits.increment();
+            awaitSpace(lane, record);
+        }
+        submittedSequence = sequence;
+        lane.enqueuedSequence = sequence;
+        lane.enqueuedEvents++;
+        lane.wakeUp();
+        return sequence;
+    }
+
+    /**
+     * @return sequence of the last submitted record
+     */
+    public long submittedSequence() {
+        return submittedSequence;
+    }
+
+    /**
+     * Returns the highest sequence such that it and every lower sequence have been written to the target.
+     * A lane with no outstanding work does not hold the watermark back; a busy lane holds it at the last
+     * sequence it has written, because everything it has not written yet is above that.
+     *
+     * @return commit watermark
+     */
+    public long committedSequence() {
+        long watermark = submittedSequence;
+        for (Lane lane : lanes) {
+            long applied = lane.batcher.appliedSequence();
+            if (applied < lane.enqueuedSequence) {
+                watermark = Math.min(watermark, applied);
+            }
+        }
+        return watermark;
+    }
+
+    /**
+     * Reports whether the lanes hold so many unwritten changes that the producer should stop consuming
+     * until they have caught up. Must be called from the producer thread.
+     *
+     * @throws IllegalStateException if a lane has failed
+     */
+    public boolean backlogged() {
+        long buffered = 0;
+        for (Lane lane : lanes) {
+            lane.throwIfFailed();
+            buffered += lane.lag();
+        }
+        return flowController.updatePaused(buffered, (long) lanes.length * applyProperties.getQueueDepth());
+    }
+
+    /**
+     * Flushes partially filled batches on every lane and waits until all submitted records are written.
+     *
+     * @param timeoutMs maximum time to wait
+     * @return true if the pipeline drained within the timeout
+     */
+    public boolean drain(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (Lane lane : lanes) {
+            lane.flushRequested = true;
+            lane.wakeUp();
+        }
+        try {
+            while (committedSequence() < submittedSequence) {
+                for (Lane lane : lanes) {
+                    lane.throwIfFailed();
+                }
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                Thread.sleep(1);
+            }
+            return true;
+        } finally {
+            for (Lane lane : lanes) {
+                lane.flushRequested = false;
+            }
+        }
+    }
+
+    /**
+     * Stops the lane workers without draining them and removes the pipeline's meters.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        for (Lane lane : lanes) {
+            lane.running = false;
+            lane.wakeUp();
+        }
+        for (Lane lane : lanes) {
+            if (lane.thread != null) {
+                lane.thread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        }
+        meters.forEach(meterRegistry::remove);
+        flowController.close();
+        logger.info("Stopped apply pipeline {}.", name);
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    int laneFor(Long id) {
+        long h = id == null ? 0 : id;
+        // Spread sequential ids before reducing to a lane index
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(h ^ (h >>> 32), (long) lanes.length);
+    }
+
+    private void awaitSpace(Lane lane, ChangeRecord record) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(applyProperties.getBlockTimeoutMs());
+        long parkNanos = 1_000;
+        while (!lane.queue.offer(record)) {
+            lane.throwIfFailed();
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Timed out waiting for space in apply lane " + lane.name);
+            }
+            lane.wakeUp();
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+        }
+    }
+
+    private static final class Lane implements Runnable {
+
+        final String name;
+        final SpscRingBuffer<ChangeRecord> queue;
+        final MicroBatcher batcher;
+        // Null unless compaction is enabled
+        final CompactionWindow window;
+
+        Thread thread;
+        volatile boolean running = true;
+        volatile boolean parked;
+        volatile boolean flushRequested;
+        volatile long enqueuedSequence;
+        volatile long enqueuedEvents;
+        volatile RuntimeException failure;
+
+        Lane(String name, SpscRingBuffer<ChangeRecord> queue, MicroBatcher batcher, CompactionWindow window) {
+            this.name = name;
+            this.queue = queue;
+            this.batcher = batcher;
+            this.window = window;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    ChangeRecord record = queue.poll();
+                    if (record != null) {
+                        if (window != null) {
+                            window.add(record);
+                        } else {
+                            batcher.add(record);
+                        }
+                        continue;
+                    }
+                    if (flushRequested) {
+                        if (window != null) {
+                            window.flush();
+                        } else {
+                            batcher.flush();
+                        }
+                    } else if (window != null ? window.flushIfExpired() : batcher.flushIfExpired()) {
+                        continue;
+                    }
+                    park();
+                }
+            } catch (RuntimeException e) {
+                logger.error("Apply lane {} failed", name, e);
+                failure = e;
+            }
+        }
+
+        private void park() {
+            long untilExpiry = window != null ? window.nanosUntilExpiry() : batcher.nanosUntilExpiry();
+            long parkNanos = untilExpiry < 0 ? MAX_PARK_NANOS : Math.min(untilExpiry, MAX_PARK_NANOS);
+            parked = true;
+            if (queue.isEmpty() && running) {
+                LockSupport.parkNanos(this, parkNanos);
+            }
+            parked = false;
+        }
+
+        void wakeUp() {
+            if (parked && thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        long lag() {
+            return Math.max(0, enqueuedEvents - batcher.appliedEvents());
+        }
+
+        void throwIfFailed() {
+            if (failure != null) {
+                throw new IllegalStateException("Apply lane " + name + " failed: " + failure.getMessage(), failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ConnectProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.model.Pipeline;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reconciles the pipelines in the {@link PipelineRegistry} against Kafka Connect. Every pipeline gets a
+ * Debezium source connector and, in connect mode, a JDBC sink connector; both are written with
+ * {@code PUT /connectors/<name>/config}, which creates a missing connector and updates an existing one,
+ * so reconciling is idempotent. Pipelines are reconciled concurrently, up to
+ * {@code cdc.kafka.connect.reconcile-parallelism} at a time, and a failing pipeline does not hold back the
+ * others.
+ * <p>
+ * While streaming, pipelines created or changed through the REST API are applied immediately; deleting a
+ * pipeline always deletes its connectors.
+ */
+@Service
+public class PipelineManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineManager.class);
+
+    @Value("${cdc.kafka.schemas-enable:true}")
+    boolean kafkaSchemasEnabled = true;
+
+    private final StreamingProperties streamingProperties;
+    private final RestTemplate restTemplate;
+    private final PipelineRegistry registry;
+    private final ConnectAdminClient connectAdminClient;
+    private final ConnectProperties connectProperties;
+    private final EventFormatProperties eventFormatProperties;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor;
+
+    private volatile boolean running;
+    private volatile String backfillSlot;
+
+    public PipelineManager(RestTemplate restTemplate, PipelineRegistry registry, ConnectAdminClient connectAdminClient,
+                           ConnectProperties connectProperties, EventFormatProperties eventFormatProperties,
+                           ObjectMapper objectMapper, WorkerThreads workerThreads,
+                           StreamingProperties streamingProperties) {
+        this.streamingProperties = streamingProperties;
+        this.restTemplate = restTemplate;
+        this.registry = registry;
+        this.connectAdminClient = connectAdminClient;
+        this.connectProperties = connectProperties;
+        this.eventFormatProperties = eventFormatProperties;
+        this.objectMapper = objectMapper;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, connectProperties.getReconcileParallelism()),
+                workerThreads.factory("pipeline-reconcile-"));
+    }
+
+    /**
+     * Creates or updates the connectors of every pipeline.
+     *
+     * @param backfillSlot slot of a completed backfill; the pipeline streaming from it skips the snapshot
+     * @throws IllegalStateException naming each pipeline that could not be reconciled
+     */
+    public void start(String backfillSlot) throws InterruptedException {
+        List<Pipeline> pipelines = registry.list();
+        if (pipelines.isEmpty()) {
+            throw new IllegalStateException("No pipelines are defined");
+        }
+        this.backfillSlot = backfillSlot;
+        try {
+            forEach(pipelines, this::apply);
+            running = true;
+        } finally {
+            connectAdminClient.invalidate();
+        }
+        logger.info("Reconciled {} pipelines.", pipelines.size());
+    }
+
+    /**
+     * Deletes the connectors of every pipeline.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        try {
+            forEach(registry.list(), this::deleteConnectors);
+        } finally {
+            connectAdminClient.invalidate();
+        }
+    }
+
+    public List<Pipeline> list() {
+        return registry.list();
+    }
+
+    public Optional<Pipeline> get(String name) {
+        return registry.get(name);
+    }
+
+    /**
+     * Creates or replaces a pipeline and, while streaming, applies it to Connect. Connectors the previous
+     * definition used under other names are deleted.
+     *
+     * @return the stored pipeline
+     */
+    public Pipeline put(Pipeline pipeline) throws IOException {
+        Optional<Pipeline> previous = registry.get(pipeline.getName());
+        Pipeline saved = registry.put(pipeline);
+        if (running) {
+            try {
+                apply(saved);
+                previous.ifPresent(old -> {
+                    if (!old.getSourceConnector().equals(saved.getSourceConnector())) {
+                        deleteConnector(old.getSourceConnector());
+                    }
+                    if (!old.getSinkConnector().equals(saved.getSinkConnector())) {
+                        deleteConnector(old.getSinkConnector());
+                    }
+                });
+            } finally {
+                connectAdminClient.invalidate();
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Deletes a pipeline and its connectors.
+     *
+     * @return whether the pipeline existed
+     */
+    public boolean remove(String name) throws IOException {
+        Optional<Pipeline> removed = registry.remove(name);
+        if (removed.isPresent()) {
+            try {
+                deleteConnectors(removed.get());
+            } finally {
+                connectAdminClient.invalidate();
+            }
+        }
+        return removed.isPresent();
+    }
+
+    /**
+     * Returns per-pipeline status: the tables, the source and sink connector status and an overall state,
+     * which is {@code RUNNING} only when every connector and task of the pipeline is running.
+     *
+     * @return status JSON keyed by pipeline name
+     */
+    public String status() throws InterruptedException, IOException {
+        List<Pipeline> pipelines = registry.list();
+        List<String> connectors = new ArrayList<>();
+        for (Pipeline pipeline : pipelines) {
+            connectors.add(pipeline.getSourceConnector());
+            if (isConnectMode()) {
+                connectors.add(pipeline.getSinkConnector());
+            }
+        }
+        JsonNode statuses = objectMapper.readTree(connectAdminClient.status(connectors));
+
+        ObjectNode result = objectMapper.createObjectNode();
+        ObjectNode byPipeline = result.putObject("pipelines");
+        for (Pipeline pipeline : pipelines) {
+            ObjectNode node = byPipeline.putObject(pipeline.getName());
+            node.set("tables", objectMapper.valueToTree(pipeline.getTables()));
+            List<JsonNode> parts = new ArrayList<>();
+            parts.add(statuses.path("connectors").path(pipeline.getSourceConnector()));
+            if (isConnectMode()) {
+                parts.add(statuses.path("connectors").path(pipeline.getSinkConnector()));
+            }
+            node.put("state", overallState(parts));
+            node.set("source", parts.get(0));
+            if (isConnectMode()) {
+                node.set("sink", parts.get(1));
+            }
+        }
+        result.put("ageMs", statuses.path("ageMs").asLong());
+        return objectMapper.writeValueAsString(result);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the Debezium source connector configuration of a pipeline.
+     */
+    Map<String, String> sourceConfig(Pipeline pipeline) {
+        Map<String, String> config = new LinkedHashMap<>();
+        config.put("connector.class", "io.debezium.connector.postgresql.PostgresConnector");
+        config.put("database.hostname", "postgres-source");
+        config.put("database.port", "5432");
+        config.put("database.user", "user");
+        config.put("database.password", "password");
+        config.put("database.dbname", "source_db");
+        config.put("database.server.name", pipeline.getServerName());
+        config.put("table.include.list", String.join(",", pipeline.getTables()));
+        config.put("plugin.name", "pgoutput");
+        config.put("slot.name", pipeline.getSlotName());
+        // One publication per pipeline holding only its tables, so each slot decodes only its own changes
+        config.put("publication.name", pipeline.getPublicationName());
+        config.put("publication.autocreate.mode", "filtered");
+        // PostgreSQL connectors run a single task; throughput comes from the partitions and sink tasks
+        config.put("tasks.max", "1");
+        config.put("topic.creation.default.partitions", String.valueOf(pipeline.getTopicPartitions()));
+        config.put("topic.creation.default.replication.factor", String.valueOf(pipeline.getTopicReplicationFactor()));
+        if (isKafkaMode()) {
+            // The JDBC sink connector, which needs schemas, does not read the topic in kafka mode
+            config.put("key.converter", "org.apache.kafka.connect.json.JsonConverter");
+            config.put("key.converter.schemas.enable", String.valueOf(kafkaSchemasEnabled));
+            if (eventFormatProperties.getValueFormat() == EventFormatProperties.ValueFormat.BINARY) {
+                config.put("value.converter", BinaryChangeEventConverter.class.getName());
+                config.put("value.converter." + BinaryChangeEventConverter.SCHEMA_REGISTRY_FILE_CONFIG,
+                        eventFormatProperties.getConnectSchemaRegistryFile());
+            } else {
+                config.put("value.converter", "org.apache.kafka.connect.json.JsonConverter");
+                config.put("value.converter.schemas.enable", String.valueOf(kafkaSchemasEnabled));
+            }
+            if (!"none".equalsIgnoreCase(eventFormatProperties.getCompression())) {
+                // Needs connector.client.config.override.policy=All on the Connect worker
+                config.put("producer.override.compression.type", eventFormatProperties.getCompression());
+            }
+        }
+        if (pipeline.getSlotName().equals(backfillSlot)) {
+            config.put("snapshot.mode", "never");
+        }
+        config.put("database.history.kafka.bootstrap.servers", "kafka:9092");
+        config.put("database.history.kafka.topic", "schema-changes.inventory");
+        return config;
+    }
+
+    /**
+     * Returns the JDBC sink connector configuration of a pipeline.
+     */
+    Map<String, String> sinkConfig(Pipeline pipeline) {
+        Map<String, String> config = new LinkedHashMap<>();
+        config.put("connector.class", "io.confluent.connect.jdbc.JdbcSinkConnector");
+        config.put("connection.url", "jdbc:postgresql://postgres-target:5432/target_db");
+        config.put("connection.user", "user");
+        config.put("connection.password", "password");
+        config.put("auto.create", "true");
+        config.put("auto.evolve", "true");
+        // Upserts keyed on the record key, with deletes applied from it, so changes replayed after a backfill
+        // or a restart overwrite rows instead of failing on duplicate keys
+        config.put("insert.mode", "upsert");
+        config.put("pk.mode", "record_key");
+        config.put("delete.enabled", "true");
+        // Writes the row state of each Debezium envelope and turns deletes into tombstones
+        config.put("transforms", "unwrap");
+        config.put("transforms.unwrap.type", "io.debezium.transforms.ExtractNewRecordState");
+        config.put("transforms.unwrap.drop.tombstones", "false");
+        config.put("transforms.unwrap.delete.handling.mode", "none");
+        config.put("topics", pipeline.getTables().stream()
+                .map(table -> pipeline.getServerName() + "." + table)
+                .collect(Collectors.joining(",")));
+        // Sink tasks beyond the number of topic partitions stay idle
+        config.put("tasks.max", String.valueOf(pipeline.getSinkTasksMax()));
+        config.put("batch.size", String.valueOf(pipeline.getSinkBatchSize()));
+        return config;
+    }
+
+    private void apply(Pipeline pipeline) {
+        putConfig(pipeline.getSourceConnector(), sourceConfig(pipeline));
+        if (isConnectMode()) {
+            putConfig(pipeline.getSinkConnector(), sinkConfig(pipeline));
+        }
+    }
+
+    private void putConfig(String connector, Map<String, String> config) {
+        restTemplate.put(connectProperties.getUrl() + "/connectors/" + connector + "/config", config);
+    }
+
+    private void deleteConnectors(Pipeline pipeline) {
+        deleteConnector(pipeline.getSourceConnector());
+        if (isConnectMode()) {
+            deleteConnector(pipeline.getSinkConnector());
+        }
+    }
+
+    private void deleteConnector(String connector) {
+        try {
+            restTemplate.delete(connectProperties.getUrl() + "/connectors/" + connector);
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.debug("Connector {} does not exist.", connector);
+        }
+    }
+
+    private void forEach(List<Pipeline> pipelines, Consumer<Pipeline> action) throws InterruptedException {
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        for (Pipeline pipeline : pipelines) {
+            futures.put(pipeline.getName(), executor.submit(() -> action.accept(pipeline)));
+        }
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, Future<?>> future : futures.entrySet()) {
+            try {
+                future.getValue().get();
+            } catch (ExecutionException e) {
+                logger.error("Failed to reconcile pipeline {}", future.getKey(), e.getCause());
+                failures.add(future.getKey() + ": " + e.getCause().getMessage());
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException(String.join("; ", failures));
+        }
+    }
+
+    private static String overallState(List<JsonNode> connectors) {
+        String state = "RUNNING";
+        for (JsonNode connector : connectors) {
+            List<String> states = new ArrayList<>();
+            states.add(connector.path("connector").path("state").asText("UNKNOWN"));
+            connector.path("tasks").forEach(task -> states.add(task.path("state").asText("UNKNOWN")));
+            for (String current : states) {
+                if ("FAILED".equals(current)) {
+                    return "FAILED";
+                }
+                if ("RUNNING".equals(state) && !"RUNNING".equals(current)) {
+                    state = current;
+                }
+            }
+        }
+        return state;
+    }
+
+    private boolean isConnectMode() {
+        return streamingProperties.getMode() == StreamingMode.CONNECT;
+    }
+
+    private boolean isKafkaMode() {
+        return streamingProperties.getMode() == StreamingMode.KAFKA;
+    }
+}
@@ -0,0 +1,177 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.PipelineProperties;
+import com.app.cdcservice.model.Pipeline;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Holds the pipeline definitions. Pipelines come from {@code cdc.pipelines.*} until one is created,
+ * changed or deleted through the REST API; from then on the full set is kept in
+ * {@code cdc.pipeline-file}, which takes precedence over configuration on the next start.
+ * <p>
+ * A table, replication slot, topic prefix or connector belongs to at most one pipeline.
+ */
+@Component
+public class PipelineRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineRegistry.class);
+
+    private static final Pattern NAME = Pattern.compile("[a-z0-9][a-z0-9_-]*");
+    private static final Pattern TABLE = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*\\.[A-Za-z_][A-Za-z0-9_$]*");
+    // PostgreSQL replication slot names
+    private static final Pattern SLOT = Pattern.compile("[a-z0-9_]{1,63}");
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final Map<String, Pipeline> pipelines = new LinkedHashMap<>();
+
+    public PipelineRegistry(PipelineProperties properties, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.file = Paths.get(properties.getPipelineFile());
+        try {
+            if (Files.exists(file)) {
+                for (Pipeline pipeline : objectMapper.readValue(file.toFile(), new TypeReference<List<Pipeline>>() {})) {
+                    add(pipeline);
+                }
+                logger.info("Loaded {} pipelines from {}.", pipelines.size(), file);
+            } else {
+                for (Map.Entry<String, Pipeline> entry : properties.getPipelines().entrySet()) {
+                    entry.getValue().setName(entry.getKey());
+                    add(entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read pipelines from " + file, e);
+        }
+    }
+
+    public synchronized List<Pipeline> list() {
+        return new ArrayList<>(pipelines.values());
+    }
+
+    public synchronized Optional<Pipeline> get(String name) {
+        return Optional.ofNullable(pipelines.get(name));
+    }
+
+    /**
+     * Creates or replaces a pipeline, filling in defaults for the names it leaves out.
+     *
+     * @return the stored pipeline
+     * @throws IllegalArgumentException if the pipeline is invalid or overlaps another pipeline
+     */
+    public synchronized Pipeline put(Pipeline pipeline) throws IOException {
+        Pipeline previous = pipelines.remove(pipeline.getName());
+        try {
+            add(pipeline);
+        } catch (IllegalArgumentException e) {
+            if (previous != null) {
+                pipelines.put(previous.getName(), previous);
+            }
+            throw e;
+        }
+        save();
+        return pipeline;
+    }
+
+    public synchronized Optional<Pipeline> remove(String name) throws IOException {
+        Pipeline removed = pipelines.remove(name);
+        if (removed != null) {
+            save();
+        }
+        return Optional.ofNullable(removed);
+    }
+
+    private void add(Pipeline pipeline) {
+        applyDefaults(pipeline);
+        validate(pipeline);
+        pipelines.put(pipeline.getName(), pipeline);
+    }
+
+    static void applyDefaults(Pipeline pipeline) {
+        String name = pipeline.getName();
+        if (pipeline.getServerName() == null) {
+            pipeline.setServerName(name);
+        }
+        if (pipeline.getSlotName() == null && name != null) {
+            pipeline.setSlotName(name.replace('-', '_'));
+        }
+        if (pipeline.getPublicationName() == null) {
+            pipeline.setPublicationName("dbz_" + pipeline.getSlotName());
+        }
+        if (pipeline.getSourceConnector() == null) {
+            pipeline.setSourceConnector(name + "-source");
+        }
+        if (pipeline.getSinkConnector() == null) {
+            pipeline.setSinkConnector(name + "-sink");
+        }
+    }
+
+    private void validate(Pipeline pipeline) {
+        String name = pipeline.getName();
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid pipeline name: " + name);
+        }
+        if (pipeline.getTables() == null || pipeline.getTables().isEmpty()) {
+            throw new IllegalArgumentException("Pipeline " + name + " has no tables");
+        }
+        for (String table : pipeline.getTables()) {
+            if (!TABLE.matcher(table).matches()) {
+                throw new IllegalArgumentException("Invalid table in pipeline " + name + ": " + table);
+            }
+        }
+        if (!SLOT.matcher(pipeline.getSlotName()).matches()) {
+            throw new IllegalArgumentException("Invalid slot name in pipeline " + name + ": " + pipeline.getSlotName());
+        }
+        if (pipeline.getTopicPartitions() < 1 || pipeline.getTopicReplicationFactor() < 1
+                || pipeline.getSinkTasksMax() < 1 || pipeline.getSinkBatchSize() < 1) {
+            throw new IllegalArgumentException("Partitions, replication factor, sink tasks and sink batch size "
+                    + "of pipeline " + name + " must be at least 1");
+        }
+
+        for (Pipeline other : pipelines.values()) {
+            for (String table : pipeline.getTables()) {
+                if (other.getTables().contains(table)) {
+                    throw new IllegalArgumentException("Table " + table + " already belongs to pipeline " + other.getName());
+                }
+            }
+            if (pipeline.getSlotName().equals(other.getSlotName())
+                    || Objects.equals(pipeline.getServerName(), other.getServerName())
+                    || overlaps(Arrays.asList(pipeline.getSourceConnector(), pipeline.getSinkConnector()),
+                    Arrays.asList(other.getSourceConnector(), other.getSinkConnector()))) {
+                throw new IllegalArgumentException("Pipeline " + name + " reuses the slot, topic prefix or a connector "
+                        + "of pipeline " + other.getName());
+            }
+        }
+    }
+
+    private static boolean overlaps(List<String> names, List<String> otherNames) {
+        return names.stream().anyMatch(n -> otherNames.stream().anyMatch(o -> Objects.equals(n, o)));
+    }
+
+    private void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), pipelines.values());
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,71 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.Employee;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Hands out employee ids from a database sequence using the pooled strategy: the sequence is incremented
+ * by the allocation size and each {@code nextval} reserves the block of ids ending at the returned value,
+ * so only one round trip is needed per block. This is the same scheme Hibernate's pooled optimizer uses,
+ * so ids issued here never collide with ids issued by JPA. The sequence and block size are those of the
+ * {@link Employee} id generator.
+ */
+@Component
+public class PooledSequenceIdGenerator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate ddlTransaction;
+
+    private volatile boolean sequenceReady;
+    private long next;
+    private long blockEnd = -1;
+
+    public PooledSequenceIdGenerator(@Qualifier("sourceDataSource") DataSource sourceDataSource,
+                                     @Qualifier("sourceTransactionManager") PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(sourceDataSource);
+        // The sequence must survive a rollback of the ingest transaction that first needed it
+        this.ddlTransaction = new TransactionTemplate(transactionManager);
+        this.ddlTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @return the next unused employee id
+     */
+    public synchronized long nextId() {
+        if (next > blockEnd) {
+            long hi = nextSequenceValue();
+            next = Math.max(1, hi - Employee.ID_ALLOCATION_SIZE + 1);
+            blockEnd = hi;
+        }
+        return next++;
+    }
+
+    private long nextSequenceValue() {
+        if (!sequenceReady) {
+            createSequenceIfMissing();
+        }
+        return jdbcTemplate.queryForObject("SELECT nextval('" + Employee.ID_SEQUENCE + "')", Long.class);
+    }
+
+    private void createSequenceIfMissing() {
+        ddlTransaction.executeWithoutResult(status -> {
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                    Employee.ID_SEQUENCE);
+            if (!Boolean.TRUE.equals(exists)) {
+                // The first block must lie entirely above the ids already in the table
+                Long start = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + ? FROM employee",
+                        Long.class, Employee.ID_ALLOCATION_SIZE);
+                jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + Employee.ID_SEQUENCE
+                        + " START WITH " + start + " INCREMENT BY " + Employee.ID_ALLOCATION_SIZE);
+            }
+        });
+        sequenceReady = true;
+    }
+}
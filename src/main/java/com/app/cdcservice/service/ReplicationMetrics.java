@@ -0,0 +1,122 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end replication metrics, tagged by source table:
+ * <ul>
+ *     <li>{@code cdc.source.events} and {@code cdc.source.bytes}: change events and payload bytes received
+ *     from Kafka or the embedded engine</li>
+ *     <li>{@code cdc.target.events}: changes written to the target</li>
+ *     <li>{@code cdc.replication.latency}: time from the source commit ({@code source.ts_ms}) to the
+ *     target commit, as a percentile histogram</li>
+ *     <li>{@code cdc.replication.lsn}: highest source LSN written to the target</li>
+ * </ul>
+ * Rates are derived from the counters by the monitoring system.
+ */
+@Component
+public class ReplicationMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TableMeters> tables = new ConcurrentHashMap<>();
+
+    public ReplicationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records a change event received from the source.
+     *
+     * @param topic change topic, {@code <server>.<schema>.<table>}
+     * @param bytes serialized size of the event value
+     */
+    public void recordReceived(String topic, int bytes) {
+        TableMeters meters = meters(tableOf(topic));
+        meters.sourceEvents.increment();
+        if (bytes > 0) {
+            meters.sourceBytes.increment(bytes);
+        }
+    }
+
+    /**
+     * Records a batch that has just been committed to the target. Changes collapsed within the batch are
+     * counted but only the surviving change per key contributes a latency sample.
+     *
+     * @param table source table, {@code <schema>.<table>}
+     * @param batch the written batch
+     */
+    public void recordApplied(String table, ChangeBatch batch) {
+        TableMeters meters = meters(table);
+        long now = System.currentTimeMillis();
+        long maxLsn = 0;
+        for (ChangeRecord record : batch.records()) {
+            if (record.getSourceTsMs() > 0) {
+                meters.latency.record(Math.max(0, now - record.getSourceTsMs()), TimeUnit.MILLISECONDS);
+            }
+            maxLsn = Math.max(maxLsn, record.getLsn());
+        }
+        meters.targetEvents.increment(batch.eventCount());
+        meters.appliedLsn.accumulateAndGet(maxLsn, Math::max);
+    }
+
+    static String tableOf(String topic) {
+        if (topic == null) {
+            return "unknown";
+        }
+        // Drop the logical server name prefix
+        int dot = topic.indexOf('.');
+        return dot >= 0 && topic.indexOf('.', dot + 1) >= 0 ? topic.substring(dot + 1) : topic;
+    }
+
+    private TableMeters meters(String table) {
+        TableMeters meters = tables.get(table);
+        return meters != null ? meters : tables.computeIfAbsent(table, t -> new TableMeters(t, meterRegistry));
+    }
+
+    private static final class TableMeters {
+        final Counter sourceEvents;
+        final Counter sourceBytes;
+        final Counter targetEvents;
+        final Timer latency;
+        final AtomicLong appliedLsn = new AtomicLong();
+
+        TableMeters(String table, MeterRegistry registry) {
+            sourceEvents = Counter.builder("cdc.source.events")
+                    .description("Change events received from the source")
+                    .tag("table", table)
+                    .register(registry);
+            sourceBytes = Counter.builder("cdc.source.bytes")
+                    .description("Serialized change event bytes received from the source")
+                    .baseUnit("bytes")
+                    .tag("table", table)
+                    .register(registry);
+            targetEvents = Counter.builder("cdc.target.events")
+                    .description("Change events written to the target, including collapsed ones")
+                    .tag("table", table)
+                    .register(registry);
+            latency = Timer.builder("cdc.replication.latency")
+                    .description("Time from commit on the source to commit on the target")
+                    .tag("table", table)
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofMinutes(10))
+                    .register(registry);
+            Gauge.builder("cdc.replication.lsn", appliedLsn, AtomicLong::get)
+                    .description("Highest source LSN written to the target")
+                    .tag("table", table)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.app.cdcservice.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, lock-free single-producer/single-consumer queue backed by a power-of-two ring.
+ * Each side caches the other side's index and only re-reads it when the ring looks full or empty.
+ *
+ * @param <E> element type
+ */
+public class SpscRingBuffer<E> {
+
+    private final Object[] buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Producer-local view of head and consumer-local view of tail
+    private long cachedHead;
+    private long cachedTail;
+
+    public SpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + requestedCapacity);
+        }
+        int capacity = 1;
+        while (capacity < requestedCapacity) {
+            capacity <<= 1;
+        }
+        this.buffer = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Appends an element; must only be called from the producer thread.
+     *
+     * @param element element to append
+     * @return false if the ring is full
+     */
+    public boolean offer(E element) {
+        long t = tail.get();
+        if (t - cachedHead >= buffer.length) {
+            cachedHead = head.get();
+            if (t - cachedHead >= buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) t & mask] = element;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest element; must only be called from the consumer thread.
+     *
+     * @return the element, or null if the ring is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail) {
+                return null;
+            }
+        }
+        int index = (int) h & mask;
+        E element = (E) buffer[index];
+        buffer[index] = null;
+        head.lazySet(h + 1);
+        return element;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+}
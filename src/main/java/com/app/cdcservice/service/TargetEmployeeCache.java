@@ -0,0 +1,231 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.CacheProperties;
+import com.app.cdcservice.config.ClusterProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import com.app.cdcservice.repository.TargetEmployeeRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache of target employee rows keyed by id, with an optional index of the ids in each
+ * department.
+ * <p>
+ * The cache stays coherent with replication without expiry because the apply stage reports every batch
+ * through {@link #applied(ChangeBatch)} after the target transaction commits: upserts replace cached rows
+ * and deletes evict them. A row loaded concurrently with a change is either replaced by that change or
+ * read after its commit, since Caffeine runs a single-key load inside the entry's compute, which updates of
+ * the key wait for. Bulk loads store their results outside that lock and could overwrite a newer row, so
+ * department reads load missing rows one at a time. In connect mode the
+ * JDBC sink connector writes the target directly, so the cache is bypassed and every read goes to the
+ * database. The same holds in a kafka-mode cluster ({@code cdc.cluster.enabled}): each instance applies only
+ * the partitions assigned to it and would never see the other instances' changes to rows it had cached.
+ * <p>
+ * A department entry holds every id that has been in the department since it was loaded; rows that have
+ * moved elsewhere are filtered out on read. Cached {@link Employee} instances are shared and must not be
+ * modified.
+ */
+@Component
+public class TargetEmployeeCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TargetEmployeeCache.class);
+
+    private static final Comparator<Employee> BY_ID = Comparator.comparing(Employee::getId);
+
+    private final TargetEmployeeRepository repository;
+    private final CacheProperties properties;
+    private final boolean enabled;
+    private final LoadingCache<Long, Employee> employees;
+    private final LoadingCache<String, Set<Long>> departments;
+
+    public TargetEmployeeCache(TargetEmployeeRepository repository, CacheProperties properties,
+                               MeterRegistry meterRegistry, StreamingProperties streamingProperties,
+                               ClusterProperties clusterProperties) {
+        this.repository = repository;
+        this.properties = properties;
+        boolean clustered = clusterProperties.isEnabled() && streamingProperties.getMode() == StreamingMode.KAFKA;
+        this.enabled = properties.isEnabled() && streamingProperties.getMode() != StreamingMode.CONNECT && !clustered;
+        if (clustered && properties.isEnabled()) {
+            logger.info("Target read cache is disabled: clustered instances each apply only part of the changes.");
+        } else if (!enabled) {
+            logger.info("Target read cache is disabled (streaming mode {}).", streamingProperties.getMode());
+            this.employees = null;
+            this.departments = null;
+            return;
+        }
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (properties.getMaxWeightBytes() > 0) {
+            builder.maximumWeight(properties.getMaxWeightBytes())
+                    .weigher((Long id, Employee employee) -> estimateSize(employee));
+        } else {
+            builder.maximumSize(properties.getMaxEntries());
+        }
+        this.employees = builder.build(new EmployeeLoader(repository));
+        monitor(meterRegistry, employees, "employee");
+
+        if (properties.isDepartmentIndex()) {
+            this.departments = Caffeine.newBuilder()
+                    .recordStats()
+                    .maximumSize(properties.getMaxDepartments())
+                    .build(department -> {
+                        Set<Long> ids = ConcurrentHashMap.newKeySet();
+                        ids.addAll(repository.findIdsByDepartment(department));
+                        return ids;
+                    });
+            monitor(meterRegistry, departments, "employee-department");
+        } else {
+            this.departments = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the row with the given id, loaded from the target on a miss
+     */
+    public Optional<Employee> get(long id) {
+        if (!enabled) {
+            return repository.findById(id);
+        }
+        return Optional.ofNullable(employees.get(id));
+    }
+
+    /**
+     * @return the rows of the department in id order
+     */
+    public List<Employee> getByDepartment(String department) {
+        if (departments == null) {
+            return repository.findByDepartment(department);
+        }
+        Set<Long> ids = departments.get(department);
+        List<Employee> rows = new ArrayList<>(ids.size());
+        for (Employee employee : employees.getAll(ids).values()) {
+            if (department.equals(employee.getDepartment())) {
+                rows.add(employee);
+            }
+        }
+        rows.sort(BY_ID);
+        return rows;
+    }
+
+    /**
+     * Applies a batch that has just been committed to the target. Must be called before the batch is
+     * recycled.
+     */
+    public void applied(ChangeBatch batch) {
+        if (!enabled || batch.isEmpty()) {
+            return;
+        }
+        Map<Long, Employee> cached = employees.asMap();
+        for (ChangeRecord record : batch.upserts()) {
+            Employee employee = record.toEmployee();
+            String[] previousDepartment = new String[1];
+            if (properties.isPopulateOnApply()) {
+                Employee previous = cached.put(employee.getId(), employee);
+                previousDepartment[0] = previous == null ? null : previous.getDepartment();
+            } else {
+                cached.computeIfPresent(employee.getId(), (id, previous) -> {
+                    previousDepartment[0] = previous.getDepartment();
+                    return employee;
+                });
+            }
+            if (departments != null) {
+                moveDepartment(employee.getId(), previousDepartment[0], employee.getDepartment());
+            }
+        }
+
+        List<Long> deletes = batch.deletes();
+        if (!deletes.isEmpty()) {
+            employees.invalidateAll(deletes);
+            if (departments != null) {
+                for (String department : departments.asMap().keySet()) {
+                    departments.asMap().computeIfPresent(department, (key, ids) -> {
+                        deletes.forEach(ids::remove);
+                        return ids;
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every cached row, for writes to the target that bypass the apply stage such as a backfill.
+     */
+    public void invalidateAll() {
+        if (enabled) {
+            employees.invalidateAll();
+            if (departments != null) {
+                departments.invalidateAll();
+            }
+        }
+    }
+
+    private void moveDepartment(long id, String from, String to) {
+        if (from != null && !from.equals(to)) {
+            departments.asMap().computeIfPresent(from, (key, ids) -> {
+                ids.remove(id);
+                return ids;
+            });
+        }
+        if (to != null) {
+            departments.asMap().computeIfPresent(to, (key, ids) -> {
+                ids.add(id);
+                return ids;
+            });
+        }
+    }
+
+    private static void monitor(MeterRegistry meterRegistry, LoadingCache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        Gauge.builder("cdc.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of lookups served from the cache")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    // Rough heap footprint: object headers and fields plus two bytes per string character
+    static int estimateSize(Employee employee) {
+        return 96 + 2 * (length(employee.getName()) + length(employee.getPosition())
+                + length(employee.getDepartment()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    // No loadAll, so getAll loads each missing key through the serialized single-key path
+    private static class EmployeeLoader implements CacheLoader<Long, Employee> {
+
+        private final TargetEmployeeRepository repository;
+
+        EmployeeLoader(TargetEmployeeRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Employee load(Long id) {
+            return repository.findById(id).orElse(null);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the change topic offsets applied to the target in the target itself, for exactly-once apply in
+ * kafka mode ({@code cdc.apply.exactly-once}).
+ * <p>
+ * Every batch records, per partition, the highest offset written by its apply lane, in the same target
+ * transaction as the batch ({@link #saveApplied}). Since a key always hashes to the same lane, a change is
+ * already in the target exactly when its offset is at or below the watermark of its lane, so replayed
+ * changes are recognised in memory without looking at the rows. The poll thread also stores the offset up
+ * to which every change has been applied ({@link #saveCommitted}), which is where consumption resumes.
+ * Lane watermarks are only valid for the lane count they were written with; after the count changes they
+ * are ignored and changes after the resume offset are applied again.
+ */
+@Component
+public class TargetOffsetStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TargetOffsetStore.class);
+
+    static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS cdc_applied_offset (consumer_group TEXT NOT NULL, "
+            + "topic TEXT NOT NULL, kafka_partition INT NOT NULL, lane INT NOT NULL, lanes INT NOT NULL, "
+            + "applied_offset BIGINT NOT NULL, updated_at TIMESTAMPTZ NOT NULL DEFAULT now(), "
+            + "PRIMARY KEY (consumer_group, topic, kafka_partition, lane))";
+    static final String UPSERT_SQL = "INSERT INTO cdc_applied_offset "
+            + "(consumer_group, topic, kafka_partition, lane, lanes, applied_offset) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (consumer_group, topic, kafka_partition, lane) DO UPDATE SET lanes = EXCLUDED.lanes, "
+            + "applied_offset = EXCLUDED.applied_offset, updated_at = now()";
+    // Lane of the rows holding the next offset to consume
+    static final int RESUME_LANE = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String consumerGroup;
+    private final String topic;
+    private final int lanes;
+
+    public TargetOffsetStore(@Qualifier("targetDataSource") DataSource targetDataSource,
+                             KafkaProperties kafkaProperties, ApplyProperties applyProperties) {
+        this.jdbcTemplate = new JdbcTemplate(targetDataSource);
+        String groupId = kafkaProperties.getConsumer().getGroupId();
+        this.consumerGroup = groupId == null ? "" : groupId;
+        this.topic = applyProperties.getTopic();
+        this.lanes = applyProperties.getLanes();
+    }
+
+    public void ensureTable() {
+        jdbcTemplate.execute(CREATE_TABLE);
+    }
+
+    /**
+     * Records the offsets of a batch for its lane. Must run in the transaction that writes the batch.
+     */
+    public void saveApplied(ChangeBatch batch) {
+        save(batch.getLane(), batch.sourceOffsets());
+    }
+
+    /**
+     * Records the next offset to consume per partition, once every change before it has been applied.
+     */
+    public void saveCommitted(Map<Integer, Long> nextOffsets) {
+        save(RESUME_LANE, nextOffsets);
+    }
+
+    /**
+     * @return resume offsets and lane watermarks stored for the partitions
+     */
+    public Watermarks load(Collection<Integer> partitions) {
+        if (partitions.isEmpty()) {
+            return new Watermarks(lanes);
+        }
+        String placeholders = partitions.stream().map(p -> "?").collect(Collectors.joining(", "));
+        List<Object> args = new ArrayList<>();
+        args.add(consumerGroup);
+        args.add(topic);
+        args.addAll(partitions);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT kafka_partition, lane, lanes, applied_offset "
+                + "FROM cdc_applied_offset WHERE consumer_group = ? AND topic = ? AND kafka_partition IN ("
+                + placeholders + ")", args.toArray());
+        return Watermarks.fromRows(rows, lanes);
+    }
+
+    private void save(int lane, Map<Integer, Long> offsets) {
+        if (offsets.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(offsets.size());
+        offsets.forEach((partition, offset) -> args.add(new Object[]{consumerGroup, topic, partition, lane, lanes, offset}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+    }
+
+    /**
+     * Offsets loaded from the target for the partitions assigned to the consumer. Owned by the poll thread.
+     */
+    public static final class Watermarks {
+
+        private final int lanes;
+        private final Map<Integer, Long> resumeOffsets = new HashMap<>();
+        private final Map<Integer, long[]> laneOffsets = new HashMap<>();
+
+        Watermarks(int lanes) {
+            this.lanes = lanes;
+        }
+
+        static Watermarks fromRows(List<Map<String, Object>> rows, int lanes) {
+            Watermarks watermarks = new Watermarks(lanes);
+            boolean stale = false;
+            for (Map<String, Object> row : rows) {
+                int partition = ((Number) row.get("kafka_partition")).intValue();
+                int lane = ((Number) row.get("lane")).intValue();
+                long offset = ((Number) row.get("applied_offset")).longValue();
+                if (lane == RESUME_LANE) {
+                    watermarks.resumeOffsets.put(partition, offset);
+                } else if (((Number) row.get("lanes")).intValue() != lanes || lane >= lanes) {
+                    stale = true;
+                } else {
+                    watermarks.laneOffsets(partition)[lane] = offset;
+                }
+            }
+            if (stale) {
+                logger.warn("Ignoring applied offsets stored for a different number of apply lanes; changes after "
+                        + "the resume offsets are applied again.");
+            }
+            return watermarks;
+        }
+
+        /**
+         * @return whether the change at the offset has already been written by the lane its key hashes to
+         */
+        public boolean isApplied(int partition, int lane, long offset) {
+            long[] applied = laneOffsets.get(partition);
+            return applied != null && offset <= applied[lane];
+        }
+
+        /**
+         * @return stored offset to resume the partition from, or null to use the consumer group's offset
+         */
+        public Long resumeOffset(int partition) {
+            return resumeOffsets.get(partition);
+        }
+
+        public void putAll(Watermarks other) {
+            resumeOffsets.putAll(other.resumeOffsets);
+            laneOffsets.putAll(other.laneOffsets);
+        }
+
+        public void remove(int partition) {
+            resumeOffsets.remove(partition);
+            laneOffsets.remove(partition);
+        }
+
+        private long[] laneOffsets(int partition) {
+            return laneOffsets.computeIfAbsent(partition, p -> {
+                long[] offsets = new long[lanes];
+                Arrays.fill(offsets, -1);
+                return offsets;
+            });
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.app.cdcservice.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Reports how busy the target database connection pool is, as a signal for the {@link FlowController}.
+ */
+@Component
+public class TargetPoolMonitor {
+
+    private final DataSource dataSource;
+
+    public TargetPoolMonitor(@Qualifier("targetDataSource") DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return share of the pool's connections in use, above 1 when threads are waiting for one, or 0 if
+     * the pool has not started or is not a Hikari pool
+     */
+    public double utilization() {
+        if (!(dataSource instanceof HikariDataSource)) {
+            return 0;
+        }
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null || hikari.getMaximumPoolSize() <= 0) {
+            return 0;
+        }
+        int max = hikari.getMaximumPoolSize();
+        return (pool.getActiveConnections() + pool.getThreadsAwaitingConnection()) / (double) max;
+    }
+}
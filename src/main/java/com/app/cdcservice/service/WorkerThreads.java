@@ -0,0 +1,120 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ThreadProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the service's worker threads as either platform or virtual threads, depending on
+ * {@code cdc.threads.virtual}. The service is built for Java 11, so the Java 21 virtual thread API is
+ * looked up reflectively; on older runtimes the setting is ignored with a warning and platform threads are
+ * used.
+ * <p>
+ * Platform threads are daemon threads named {@code <prefix><n>}; virtual threads are always daemon
+ * threads and get the same names.
+ */
+@Component
+public class WorkerThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerThreads.class);
+
+    // Thread.ofVirtual(), OfVirtual.name(String, long), Builder.factory(), Executors.newThreadPerTaskExecutor
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle NAME;
+    private static final MethodHandle FACTORY;
+    private static final MethodHandle THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle threadPerTask = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> virtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilder));
+            name = lookup.findVirtual(virtualBuilder, "name", MethodType.methodType(virtualBuilder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+            threadPerTask = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ReflectiveOperationException e) {
+            // Runtime older than Java 21
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        THREAD_PER_TASK_EXECUTOR = threadPerTask;
+    }
+
+    private final boolean virtual;
+
+    @Autowired
+    public WorkerThreads(ThreadProperties properties) {
+        this(properties.isVirtual());
+    }
+
+    WorkerThreads(boolean virtual) {
+        if (virtual && !isVirtualSupported()) {
+            logger.warn("cdc.threads.virtual is set but Java {} has no virtual threads; using platform threads.",
+                    Runtime.version().feature());
+        }
+        this.virtual = virtual && isVirtualSupported();
+        if (this.virtual) {
+            logger.info("Using virtual threads for request handling, Kafka Connect calls and apply lanes.");
+        }
+    }
+
+    public static boolean isVirtualSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @param prefix thread name prefix; a counter starting at 0 is appended
+     * @return factory for daemon threads of the configured kind
+     */
+    public ThreadFactory factory(String prefix) {
+        if (virtual) {
+            try {
+                return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(), prefix, 0L));
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to create a virtual thread factory", e);
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Returns an executor for blocking tasks: a new virtual thread per task, or a pool of at most
+     * {@code platformThreads} platform threads.
+     */
+    public ExecutorService executor(String prefix, int platformThreads) {
+        if (virtual) {
+            try {
+                return (ExecutorService) THREAD_PER_TASK_EXECUTOR.invoke(factory(prefix));
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to create a virtual thread executor", e);
+            }
+        }
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), factory(prefix));
+    }
+}
@@ -0,0 +1,87 @@
+package com.app.cdcservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DataSourceConfigTest {
+
+    private final DataSourceConfig config = new DataSourceConfig();
+    private final TargetDatabaseProperties properties = new TargetDatabaseProperties();
+    private final DataSourceProperties connection = new DataSourceProperties();
+
+    @BeforeEach
+    public void setUp() {
+        connection.setUrl("jdbc:postgresql://localhost:5433/target_db");
+        connection.setUsername("user");
+        connection.setPassword("password");
+    }
+
+    @Test
+    public void testTargetPoolIsTunedForWrites() {
+        properties.setMaximumPoolSize(12);
+        properties.setMinimumIdle(12);
+
+        try (HikariDataSource dataSource = config.targetDataSource(connection, properties, new ApplyProperties())) {
+            assertEquals("jdbc:postgresql://localhost:5433/target_db", dataSource.getJdbcUrl());
+            assertEquals("user", dataSource.getUsername());
+            assertEquals("password", dataSource.getPassword());
+            assertEquals(12, dataSource.getMaximumPoolSize());
+            assertEquals(12, dataSource.getMinimumIdle());
+            assertEquals(true, dataSource.getDataSourceProperties().get("reWriteBatchedInserts"));
+            assertEquals(1, dataSource.getDataSourceProperties().get("prepareThreshold"));
+            assertEquals(256, dataSource.getDataSourceProperties().get("preparedStatementCacheQueries"));
+        }
+    }
+
+    @Test
+    public void testRejectsInvalidPoolSettings() {
+        properties.setMaximumPoolSize(4);
+        properties.setMinimumIdle(8);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> config.targetDataSource(connection, properties, new ApplyProperties()));
+        assertEquals("cdc.target.minimum-idle must be between 0 and maximum-pool-size", e.getMessage());
+    }
+
+    @Test
+    public void testRequiresTargetUrl() {
+        connection.setUrl(null);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> config.targetDataSource(connection, properties, new ApplyProperties()));
+        assertEquals("spring.datasource.target.url is required", e.getMessage());
+    }
+
+    @Test
+    public void testRejectsLifetimeHikariWouldReplace() {
+        properties.setMaxLifetimeMs(1000);
+
+        assertThrows(IllegalArgumentException.class, () -> properties.validate("jdbc:postgresql://localhost/target_db"));
+    }
+
+    @Test
+    public void testTargetJpaPropertiesBatchAndDoNotLogStatements() {
+        JpaProperties jpaProperties = new JpaProperties();
+        jpaProperties.getProperties().put("hibernate.format_sql", "true");
+        jpaProperties.getProperties().put("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+
+        Map<String, Object> map = DataSourceConfig.targetJpaProperties(jpaProperties, properties);
+
+        assertEquals("false", map.get("hibernate.format_sql"));
+        assertEquals("false", map.get("hibernate.show_sql"));
+        assertEquals("50", map.get("hibernate.jdbc.batch_size"));
+        assertEquals("true", map.get("hibernate.order_inserts"));
+        assertEquals("true", map.get("hibernate.order_updates"));
+        assertEquals("org.hibernate.dialect.PostgreSQLDialect", map.get("hibernate.dialect"));
+        // The source persistence unit keeps its settings
+        assertEquals("true", jpaProperties.getProperties().get("hibernate.format_sql"));
+    }
+}
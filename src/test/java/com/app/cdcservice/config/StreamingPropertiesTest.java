@@ -0,0 +1,31 @@
+package com.app.cdcservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingPropertiesTest {
+
+    @Test
+    public void testBindsModeIgnoringCase() {
+        assertEquals(StreamingMode.EMBEDDED, bind("EMBEDDED").getMode());
+        assertEquals(StreamingMode.KAFKA, bind("kafka").getMode());
+    }
+
+    @Test
+    public void testRejectsUnknownMode() {
+        assertThrows(BindException.class, () -> bind("kafak"));
+    }
+
+    private static StreamingProperties bind(String mode) {
+        Binder binder = new Binder(new MapConfigurationPropertySource(
+                Collections.singletonMap("cdc.streaming.mode", mode)));
+        return binder.bind("cdc.streaming", StreamingProperties.class).get();
+    }
+}
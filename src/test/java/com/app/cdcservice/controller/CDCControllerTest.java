@@ -1,5 +1,6 @@
 package com.app.cdcservice.controller;
 
+import com.app.cdcservice.model.Pipeline;
 import com.app.cdcservice.service.CDCService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,12 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.when;
@@ -60,11 +67,11 @@ public class CDCControllerTest {
 
     @Test
     public void testInsertData() {
-        String requestData = "{\"name\": \"John Doe\", \"email\": \"john@example.com\"}";
-        String expectedResponse = "Data inserted successfully.";
-        when(cdcService.insertData(requestData)).thenReturn(new ResponseEntity<>(expectedResponse, HttpStatus.OK));
+        InputStream requestData = new ByteArrayInputStream("{\"name\": \"John Doe\", \"email\": \"john@example.com\"}".getBytes());
+        String expectedResponse = "{\"rowsWritten\":1,\"elapsedMs\":3,\"method\":\"batch\"}";
+        when(cdcService.insertData(requestData, null)).thenReturn(new ResponseEntity<>(expectedResponse, HttpStatus.OK));
 
-        ResponseEntity<String> response = cdcController.insertData(requestData);
+        ResponseEntity<String> response = cdcController.insertData(requestData, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(expectedResponse, response.getBody());
@@ -72,10 +79,56 @@ public class CDCControllerTest {
 
     @Test
     public void testRetrieveData() {
-        String expectedResponse = "[{\"name\": \"John Doe\", \"email\": \"john@example.com\"}]";
-        when(cdcService.retrieveData()).thenReturn(new ResponseEntity<>(expectedResponse, HttpStatus.OK));
+        StreamingResponseBody expectedBody = out -> out.write("{\"id\":1,\"name\":\"John Doe\"}\n".getBytes());
+        List<String> fields = Collections.singletonList("name");
+        when(cdcService.retrieveData(10L, 100, fields, "ndjson")).thenReturn(new ResponseEntity<>(expectedBody, HttpStatus.OK));
+
+        ResponseEntity<StreamingResponseBody> response = cdcController.retrieveData(10L, 100, fields, "ndjson");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedBody, response.getBody());
+    }
+
+    @Test
+    public void testRetrieveById() {
+        String expectedResponse = "{\"id\":7,\"name\":\"Jane\"}";
+        when(cdcService.retrieveById(7L)).thenReturn(new ResponseEntity<>(expectedResponse, HttpStatus.OK));
+
+        ResponseEntity<String> response = cdcController.retrieveById(7L);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedResponse, response.getBody());
+    }
+
+    @Test
+    public void testSavePipeline() {
+        Pipeline pipeline = new Pipeline();
+        String expectedResponse = "{\"name\":\"hot\"}";
+        when(cdcService.savePipeline("hot", pipeline)).thenReturn(new ResponseEntity<>(expectedResponse, HttpStatus.OK));
+
+        ResponseEntity<String> response = cdcController.savePipeline("hot", pipeline);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedResponse, response.getBody());
+    }
+
+    @Test
+    public void testStartBackfill() {
+        String expectedResponse = "Backfill started.";
+        when(cdcService.startBackfill(true)).thenReturn(new ResponseEntity<>(expectedResponse, HttpStatus.OK));
+
+        ResponseEntity<String> response = cdcController.startBackfill(true);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedResponse, response.getBody());
+    }
+
+    @Test
+    public void testGetBackfillStatus() {
+        String expectedResponse = "{\"state\":\"IDLE\"}";
+        when(cdcService.getBackfillStatus()).thenReturn(new ResponseEntity<>(expectedResponse, HttpStatus.OK));
 
-        ResponseEntity<String> response = cdcController.retrieveData();
+        ResponseEntity<String> response = cdcController.getBackfillStatus();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(expectedResponse, response.getBody());
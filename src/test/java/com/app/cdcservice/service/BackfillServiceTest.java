@@ -0,0 +1,81 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.BackfillProperties;
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.config.TransformProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class BackfillServiceTest {
+
+    @Test
+    public void testPlanChunksCoversRangeWithoutOverlap() {
+        List<long[]> chunks = BackfillService.planChunks(1, 25, 10);
+
+        assertEquals(3, chunks.size());
+        assertArrayEquals(new long[]{1, 11}, chunks.get(0));
+        assertArrayEquals(new long[]{11, 21}, chunks.get(1));
+        assertArrayEquals(new long[]{21, 26}, chunks.get(2));
+    }
+
+    @Test
+    public void testPlanChunksForEmptyTable() {
+        assertTrue(BackfillService.planChunks(1, 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testPlanChunksNearLongMaxValue() {
+        List<long[]> chunks = BackfillService.planChunks(Long.MAX_VALUE - 5, Long.MAX_VALUE - 1, 10);
+
+        assertEquals(1, chunks.size());
+        assertArrayEquals(new long[]{Long.MAX_VALUE - 5, Long.MAX_VALUE}, chunks.get(0));
+    }
+
+    @Test
+    public void testStatusBeforeFirstRun() {
+        assertEquals("{\"state\":\"IDLE\"}", newService(new BackfillProperties()).status());
+    }
+
+    @Test
+    public void testRejectsInvalidParallelism() {
+        BackfillProperties properties = new BackfillProperties();
+        properties.setParallelism(0);
+
+        assertThrows(IllegalArgumentException.class, () -> newService(properties).start("debezium", false));
+    }
+
+    @Test
+    public void testUpsertsInsteadOfCopyingWhileTransforming() {
+        BackfillProperties properties = new BackfillProperties();
+        properties.setMethod(BackfillProperties.Method.COPY);
+        assertEquals(BackfillProperties.Method.COPY, newService(properties).method());
+
+        TransformProperties transform = new TransformProperties();
+        transform.setDrop(List.of("salary"));
+        BackfillService service = newService(properties,
+                new ChangeTransformer(transform, new SimpleMeterRegistry()));
+
+        assertEquals(BackfillProperties.Method.UPSERT, service.method());
+    }
+
+    private static BackfillService newService(BackfillProperties properties) {
+        return newService(properties, mock(ChangeTransformer.class));
+    }
+
+    private static BackfillService newService(BackfillProperties properties, ChangeTransformer transformer) {
+        return new BackfillService(mock(DataSource.class), mock(DataSource.class),
+                mock(PlatformTransactionManager.class), properties, new SinkProperties(), new ObjectMapper(),
+                mock(TargetEmployeeCache.class), transformer);
+    }
+}
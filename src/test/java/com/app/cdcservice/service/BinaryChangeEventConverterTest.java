@@ -0,0 +1,135 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.model.ChangeEventSchema;
+import com.app.cdcservice.model.ChangeRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryChangeEventConverterTest {
+
+    private static final Schema ROW = SchemaBuilder.struct().name("dbserver1.public.employee.Value").optional()
+            .field("id", Schema.INT64_SCHEMA)
+            .field("name", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("badge", Schema.OPTIONAL_BYTES_SCHEMA)
+            .field("salary", Schema.OPTIONAL_FLOAT64_SCHEMA)
+            .field("department", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    private static final Schema SOURCE = SchemaBuilder.struct()
+            .field("lsn", Schema.OPTIONAL_INT64_SCHEMA)
+            .field("ts_ms", Schema.INT64_SCHEMA)
+            .field("txId", Schema.OPTIONAL_INT64_SCHEMA)
+            .build();
+
+    private static final Schema ENVELOPE = SchemaBuilder.struct()
+            .field("before", ROW)
+            .field("after", ROW)
+            .field("source", SOURCE)
+            .field("op", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("ts_ms", Schema.OPTIONAL_INT64_SCHEMA)
+            .build();
+
+    @TempDir
+    Path dir;
+
+    private BinaryChangeEventConverter converter;
+    private ChangeEventDecoder decoder;
+
+    @BeforeEach
+    public void setUp() {
+        Path registryFile = dir.resolve("schema-registry.json");
+        converter = new BinaryChangeEventConverter();
+        converter.configure(Collections.singletonMap(BinaryChangeEventConverter.SCHEMA_REGISTRY_FILE_CONFIG,
+                registryFile.toString()), false);
+        EventFormatProperties properties = new EventFormatProperties();
+        properties.setSchemaRegistryFile(registryFile.toString());
+        decoder = new ChangeEventDecoder(new ObjectMapper(), new ApplyProperties(), properties);
+    }
+
+    @Test
+    public void testRoundTripsUpdateAndSkipsUnknownColumns() throws Exception {
+        Struct after = new Struct(ROW)
+                .put("id", 7L)
+                .put("name", "Jöhn")
+                .put("badge", new byte[]{1, 2, 3})
+                .put("salary", 1200.5);
+
+        byte[] value = converter.fromConnectData("topic", ENVELOPE, envelope("u", null, after));
+        ChangeRecord record = decoder.decode(value);
+
+        assertEquals(BinaryChangeEventFormat.MAGIC, value[0]);
+        assertEquals(ChangeRecord.Op.UPDATE, record.getOp());
+        assertEquals(7L, record.getId());
+        assertEquals("Jöhn", record.getName());
+        assertEquals(1200.5, record.getSalary());
+        assertNull(record.getDepartment());
+        assertNull(record.getPosition());
+        assertEquals(24023128L, record.getLsn());
+        assertEquals(1650000000000L, record.getSourceTsMs());
+        assertEquals(555L, record.getTxId());
+    }
+
+    @Test
+    public void testDeleteCarriesBeforeImageAndSchemaIsRegisteredOnce() throws Exception {
+        Struct before = new Struct(ROW).put("id", -3L);
+
+        byte[] first = converter.fromConnectData("topic", ENVELOPE, envelope("d", before, null));
+        byte[] second = converter.fromConnectData("topic", ENVELOPE, envelope("c", null, before));
+        ChangeRecord record = decoder.decode(first);
+
+        assertEquals(ChangeRecord.Op.DELETE, record.getOp());
+        assertEquals(-3L, record.getId());
+        assertTrue(record.isSalaryNull());
+        // Same schema id in both events
+        assertEquals(first[4], second[4]);
+        // A second process registering the same schema gets its id from the file
+        ChangeEventSchema schema = new ChangeEventSchema("dbserver1.public.employee.Value", Arrays.asList(
+                new ChangeEventSchema.Field("id", ChangeEventSchema.Type.INT64),
+                new ChangeEventSchema.Field("name", ChangeEventSchema.Type.STRING),
+                new ChangeEventSchema.Field("badge", ChangeEventSchema.Type.BYTES),
+                new ChangeEventSchema.Field("salary", ChangeEventSchema.Type.FLOAT64),
+                new ChangeEventSchema.Field("department", ChangeEventSchema.Type.STRING)));
+        assertEquals(1, new FileSchemaRegistry(dir.resolve("schema-registry.json"), new ObjectMapper()).register(schema));
+    }
+
+    @Test
+    public void testEnvelopeWithoutOperationIsDropped() {
+        Struct envelope = new Struct(ENVELOPE).put("source", new Struct(SOURCE).put("ts_ms", 1L));
+
+        assertNull(converter.fromConnectData("topic", ENVELOPE, envelope));
+    }
+
+    @Test
+    public void testUnknownSchemaIdFails() {
+        byte[] value = {BinaryChangeEventFormat.MAGIC, 0, 0, 0, 42, 'c', 0, 0, 0};
+
+        assertThrows(IOException.class, () -> decoder.decode(value));
+    }
+
+    private static Struct envelope(String op, Struct before, Struct after) {
+        return new Struct(ENVELOPE)
+                .put("before", before)
+                .put("after", after)
+                .put("source", new Struct(SOURCE).put("lsn", 24023128L).put("ts_ms", 1650000000000L)
+                        .put("txId", 555L))
+                .put("op", op)
+                .put("ts_ms", 1650000000100L);
+    }
+}
@@ -0,0 +1,102 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.IngestProperties;
+import com.app.cdcservice.model.Employee;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BulkIngestServiceTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private DatabaseMetaData metaData;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private PooledSequenceIdGenerator idGenerator;
+
+    private final IngestProperties ingestProperties = new IngestProperties();
+    private BulkIngestService service;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.supportsBatchUpdates()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.getConnection()).thenReturn(connection);
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1});
+        when(idGenerator.nextId()).thenReturn(100L, 101L, 102L);
+        ingestProperties.setBatchSize(2);
+        service = new BulkIngestService(dataSource, idGenerator, ingestProperties, new ObjectMapper());
+    }
+
+    @Test
+    public void testIngestsJsonArrayInBatches() throws Exception {
+        String body = "[{\"id\":1,\"name\":\"John\",\"salary\":1000.5,\"email\":\"ignored\"},"
+                + "{\"name\":\"Jane\",\"department\":\"R&D\"},"
+                + "{\"name\":\"Joe\",\"position\":null}]";
+
+        BulkIngestService.Result result = service.ingest(new ByteArrayInputStream(body.getBytes()), null);
+
+        assertEquals(3, result.getRows());
+        assertEquals(IngestProperties.Method.BATCH, result.getMethod());
+        verify(statement, times(2)).executeBatch();
+        verify(statement).setLong(1, 1L);
+        verify(statement).setDouble(4, 1000.5);
+        verify(statement).setLong(1, 100L);
+        verify(statement).setString(5, "R&D");
+        verify(statement).setLong(1, 101L);
+    }
+
+    @Test
+    public void testIngestsNdjson() throws Exception {
+        String body = "{\"name\":\"John\"}\n{\"name\":\"Jane\"}\n";
+
+        BulkIngestService.Result result = service.ingest(new ByteArrayInputStream(body.getBytes()), IngestProperties.Method.BATCH);
+
+        assertEquals(2, result.getRows());
+        verify(statement).setString(2, "John");
+        verify(statement).setString(2, "Jane");
+    }
+
+    @Test
+    public void testRejectsNonObjectRows() {
+        assertThrows(JsonParseException.class,
+                () -> service.ingest(new ByteArrayInputStream("[1, 2]".getBytes()), null));
+    }
+
+    @Test
+    public void testCsvQuotesTextAndLeavesNullsEmpty() {
+        StringBuilder csv = new StringBuilder();
+
+        BulkIngestService.appendCsv(csv, new Employee(7L, "Jo \"JJ\", Smith", "", null, null));
+
+        assertEquals("7,\"Jo \"\"JJ\"\", Smith\",\"\",,\n", csv.toString());
+    }
+}
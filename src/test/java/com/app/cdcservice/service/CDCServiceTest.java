@@ -1,24 +1,89 @@
 package com.app.cdcservice.service;
 
+import com.app.cdcservice.config.BackfillProperties;
+import com.app.cdcservice.config.IngestProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.model.Employee;
+import com.app.cdcservice.model.Pipeline;
+import com.app.cdcservice.repository.TargetEmployeeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CDCServiceTest {
 
     @Mock
-    private RestTemplate restTemplate;
+    private EmbeddedEngineService embeddedEngineService;
+
+    @Mock
+    private KafkaChangeConsumer kafkaChangeConsumer;
+
+    @Mock
+    private TargetEmployeeRepository targetEmployeeRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private BulkIngestService bulkIngestService;
+
+    @Mock
+    private PipelineManager pipelineManager;
+
+    @Mock
+    private BackfillService backfillService;
+
+    @Spy
+    private BackfillProperties backfillProperties = new BackfillProperties();
+
+    @Mock
+    private TargetEmployeeCache targetEmployeeCache;
+
+    @Mock
+    private ChangeStreamHub changeStreamHub;
+
+    @Mock
+    private ConsistencyChecker consistencyChecker;
+
+    @Mock
+    private ClusterCoordinator clusterCoordinator;
+
+    @Mock
+    private DeadLetterService deadLetterService;
+
+    @Spy
+    private StreamingProperties streamingProperties = new StreamingProperties();
 
     @InjectMocks
     private CDCService cdcService;
@@ -26,37 +91,31 @@ public class CDCServiceTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        // Initialize the value of kafkaConnectUrl
-        cdcService.kafkaConnectUrl = "http://localhost:8083";
     }
 
     @Test
-    public void testStartStreamingSuccess() {
-        ResponseEntity<String> successResponse = new ResponseEntity<>("Connector created", HttpStatus.OK);
-
-        // Mock the RestTemplate to simulate a successful response for both connectors
-        when(restTemplate.postForEntity(anyString(), any(String.class), any(Class.class)))
-                .thenReturn(successResponse);
-
+    public void testStartStreamingSuccess() throws Exception {
         // Act
         ResponseEntity<String> response = cdcService.startStreaming();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("CDC streaming started successfully.", response.getBody());
+        verify(pipelineManager).start(null);
+        verify(kafkaChangeConsumer, never()).start();
     }
 
     @Test
-    public void testStartStreamingFailure() {
+    public void testStartStreamingFailure() throws Exception {
         // Arrange
-        doThrow(new RuntimeException("Kafka Connect is down")).when(restTemplate).postForEntity(anyString(), anyString(), any());
+        doThrow(new IllegalStateException("default: Kafka Connect is down")).when(pipelineManager).start(null);
 
         // Act
         ResponseEntity<String> response = cdcService.startStreaming();
 
         // Assert
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
-        assertEquals("Failed to start CDC streaming: Kafka Connect is down", response.getBody());
+        assertEquals("Failed to start CDC streaming: default: Kafka Connect is down", response.getBody());
     }
 
     @Test
@@ -70,9 +129,9 @@ public class CDCServiceTest {
     }
 
     @Test
-    public void testStopStreamingFailure() {
+    public void testStopStreamingFailure() throws Exception {
         // Arrange
-        doThrow(new RuntimeException("Failed to stop connectors")).when(restTemplate).delete(anyString());
+        doThrow(new IllegalStateException("Failed to stop connectors")).when(pipelineManager).stop();
 
         // Act
         ResponseEntity<String> response = cdcService.stopStreaming();
@@ -83,10 +142,10 @@ public class CDCServiceTest {
     }
 
     @Test
-    public void testGetStreamingStatusSuccess() {
+    public void testGetStreamingStatusSuccess() throws Exception {
         // Arrange
-        String mockStatusResponse = "{ \"status\": \"RUNNING\" }";
-        when(restTemplate.getForObject(anyString(), any())).thenReturn(mockStatusResponse);
+        String mockStatusResponse = "{\"pipelines\":{\"default\":{\"state\":\"RUNNING\"}},\"ageMs\":5}";
+        when(pipelineManager.status()).thenReturn(mockStatusResponse);
 
         // Act
         ResponseEntity<String> response = cdcService.getStreamingStatus();
@@ -97,9 +156,40 @@ public class CDCServiceTest {
     }
 
     @Test
-    public void testGetStreamingStatusFailure() {
+    public void testGetStreamingStatusKafkaMode() throws Exception {
         // Arrange
-        doThrow(new RuntimeException("Failed to get status")).when(restTemplate).getForObject(anyString(), any());
+        streamingProperties.setMode(StreamingMode.KAFKA);
+        when(pipelineManager.status()).thenReturn("{\"pipelines\":{\"default\":{}},\"ageMs\":5}");
+        when(kafkaChangeConsumer.status()).thenReturn("{\"state\":\"RUNNING\"}");
+
+        // Act
+        ResponseEntity<String> response = cdcService.getStreamingStatus();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("{\"pipelines\":{\"default\":{}},\"ageMs\":5,\"consumer\":{\"state\":\"RUNNING\"}}",
+                response.getBody());
+    }
+
+    @Test
+    public void testGetStreamingStatusAddsClusterToAnyStatus() throws Exception {
+        // Arrange
+        when(pipelineManager.status()).thenReturn("{\"pipelines\":{},\"ageMs\":5}\n");
+        when(clusterCoordinator.isEnabled()).thenReturn(true);
+        when(clusterCoordinator.status()).thenReturn("{\"leader\":true}");
+
+        // Act
+        ResponseEntity<String> response = cdcService.getStreamingStatus();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("{\"pipelines\":{},\"ageMs\":5,\"cluster\":{\"leader\":true}}", response.getBody());
+    }
+
+    @Test
+    public void testGetStreamingStatusFailure() throws Exception {
+        // Arrange
+        when(pipelineManager.status()).thenThrow(new IllegalStateException("Failed to get status"));
 
         // Act
         ResponseEntity<String> response = cdcService.getStreamingStatus();
@@ -110,12 +200,379 @@ public class CDCServiceTest {
     }
 
     @Test
-    public void testInsertDataSuccess() {
+    public void testInsertDataSuccess() throws Exception {
+        // Arrange
+        InputStream body = new ByteArrayInputStream("{ \"name\": \"John\" }".getBytes());
+        when(bulkIngestService.ingest(body, null))
+                .thenReturn(new BulkIngestService.Result(1, 12, IngestProperties.Method.BATCH));
+
+        // Act
+        ResponseEntity<String> response = cdcService.insertData(body, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("{\"rowsWritten\":1,\"elapsedMs\":12,\"method\":\"batch\"}", response.getBody());
+    }
+
+    @Test
+    public void testInsertDataWithCopyMethod() throws Exception {
+        // Arrange
+        InputStream body = new ByteArrayInputStream("[]".getBytes());
+        when(bulkIngestService.ingest(body, IngestProperties.Method.COPY))
+                .thenReturn(new BulkIngestService.Result(0, 1, IngestProperties.Method.COPY));
+
+        // Act
+        ResponseEntity<String> response = cdcService.insertData(body, "copy");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("{\"rowsWritten\":0,\"elapsedMs\":1,\"method\":\"copy\"}", response.getBody());
+    }
+
+    @Test
+    public void testInsertDataRejectsUnknownMethod() {
+        // Act
+        ResponseEntity<String> response = cdcService.insertData(new ByteArrayInputStream(new byte[0]), "merge");
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testStartStreamingEmbeddedMode() throws Exception {
+        // Arrange
+        streamingProperties.setMode(StreamingMode.EMBEDDED);
+
+        // Act
+        ResponseEntity<String> response = cdcService.startStreaming();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(embeddedEngineService).start(false);
+        verify(pipelineManager, never()).start(any());
+    }
+
+    @Test
+    public void testStartStreamingEmbeddedModeFailure() {
+        // Arrange
+        streamingProperties.setMode(StreamingMode.EMBEDDED);
+        doThrow(new IllegalStateException("Embedded engine is already running")).when(embeddedEngineService).start(false);
+
+        // Act
+        ResponseEntity<String> response = cdcService.startStreaming();
+
+        // Assert
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertEquals("Failed to start CDC streaming: Embedded engine is already running", response.getBody());
+    }
+
+    @Test
+    public void testStartStreamingAfterBackfillSkipsSnapshot() throws Exception {
+        // Arrange
+        when(backfillService.completedSlot()).thenReturn(Optional.of("debezium"));
+
+        // Act
+        ResponseEntity<String> response = cdcService.startStreaming();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(pipelineManager).start("debezium");
+    }
+
+    @Test
+    public void testStartStreamingWhileBackfillRuns() throws Exception {
+        // Arrange
+        when(backfillService.isRunning()).thenReturn(true);
+
+        // Act
+        ResponseEntity<String> response = cdcService.startStreaming();
+
+        // Assert
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertEquals("Failed to start CDC streaming: Backfill is still running", response.getBody());
+        verify(pipelineManager, never()).start(any());
+    }
+
+    @Test
+    public void testStartBackfillEmbeddedModeUsesEngineSlot() {
+        // Arrange
+        streamingProperties.setMode(StreamingMode.EMBEDDED);
+        when(embeddedEngineService.slotName()).thenReturn("embedded_cdc");
+
+        // Act
+        ResponseEntity<String> response = cdcService.startBackfill(true);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(backfillService).start("embedded_cdc", true);
+    }
+
+    @Test
+    public void testStopStreamingEmbeddedMode() throws Exception {
+        // Arrange
+        streamingProperties.setMode(StreamingMode.EMBEDDED);
+
+        // Act
+        ResponseEntity<String> response = cdcService.stopStreaming();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(embeddedEngineService).stop();
+        verify(pipelineManager, never()).stop();
+    }
+
+    @Test
+    public void testStartStreamingInClusterOnFollowerOnlyStartsConsumer() throws Exception {
+        // Arrange
+        streamingProperties.setMode(StreamingMode.KAFKA);
+        when(clusterCoordinator.isEnabled()).thenReturn(true);
+        when(clusterCoordinator.streamingRequested()).thenReturn(true);
+
+        // Act
+        ResponseEntity<String> response = cdcService.startStreaming();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(clusterCoordinator).requestStreaming(true);
+        verify(kafkaChangeConsumer).start();
+        verify(pipelineManager, never()).start(any());
+    }
+
+    @Test
+    public void testClusterLeaderReconcilesConnectorsOncePerState() throws Exception {
+        // Arrange
+        streamingProperties.setMode(StreamingMode.KAFKA);
+        when(clusterCoordinator.isEnabled()).thenReturn(true);
+        when(clusterCoordinator.isLeader()).thenReturn(true);
+        when(clusterCoordinator.streamingRequested()).thenReturn(true);
+        when(kafkaChangeConsumer.isRunning()).thenReturn(true);
+
+        // Act
+        cdcService.reconcileCluster();
+        cdcService.reconcileCluster();
+        when(clusterCoordinator.streamingRequested()).thenReturn(false);
+        cdcService.reconcileCluster();
+
+        // Assert
+        verify(pipelineManager, times(1)).start(null);
+        verify(pipelineManager, times(1)).stop();
+        verify(kafkaChangeConsumer).stop();
+        verify(kafkaChangeConsumer, never()).start();
+    }
+
+    @Test
+    public void testSavePipelineOnClusterFollowerIsRejected() throws Exception {
+        // Arrange
+        when(clusterCoordinator.isEnabled()).thenReturn(true);
+        when(clusterCoordinator.leaderId()).thenReturn("12@cdc-0");
+
+        // Act
+        ResponseEntity<String> response = cdcService.savePipeline("orders", new Pipeline());
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("Pipelines are managed by the cluster leader 12@cdc-0.", response.getBody());
+        verify(pipelineManager, never()).put(any());
+    }
+
+    @Test
+    public void testGetStreamingStatusEmbeddedMode() {
+        // Arrange
+        streamingProperties.setMode(StreamingMode.EMBEDDED);
+        String status = "{\"name\":\"embedded-debezium-source\",\"mode\":\"embedded\",\"state\":\"RUNNING\"}";
+        when(embeddedEngineService.status()).thenReturn(status);
+
+        // Act
+        ResponseEntity<String> response = cdcService.getStreamingStatus();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(status, response.getBody());
+    }
+
+    @Test
+    public void testStartStreamingKafkaMode() throws Exception {
+        // Arrange
+        streamingProperties.setMode(StreamingMode.KAFKA);
+
+        // Act
+        ResponseEntity<String> response = cdcService.startStreaming();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(pipelineManager).start(null);
+        verify(kafkaChangeConsumer).start();
+    }
+
+    @Test
+    public void testStopStreamingKafkaMode() throws Exception {
+        // Arrange
+        streamingProperties.setMode(StreamingMode.KAFKA);
+
+        // Act
+        ResponseEntity<String> response = cdcService.stopStreaming();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(pipelineManager).stop();
+        verify(kafkaChangeConsumer).stop();
+    }
+
+    @Test
+    public void testRetrieveDataStreamsPagesAsNdjson() throws Exception {
+        // Arrange: two full pages of two rows followed by an empty page
+        cdcService.retrievePageSize = 2;
+        doAnswer(invocation -> {
+            long cursor = invocation.getArgument(0);
+            RowCallbackHandler handler = invocation.getArgument(3);
+            int rows = cursor < 4 ? 2 : 0;
+            for (long id = cursor + 1; id <= cursor + rows; id++) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn(id);
+                when(rs.getString("name")).thenReturn("name-" + id);
+                handler.processRow(rs);
+            }
+            return rows;
+        }).when(targetEmployeeRepository).forEachAfter(anyLong(), anyInt(), any(), any());
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response =
+                cdcService.retrieveData(0L, null, Collections.singletonList("name"), "ndjson");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("{\"id\":1,\"name\":\"name-1\"}\n{\"id\":2,\"name\":\"name-2\"}\n"
+                + "{\"id\":3,\"name\":\"name-3\"}\n{\"id\":4,\"name\":\"name-4\"}\n", out.toString());
+        verify(targetEmployeeRepository).forEachAfter(eq(0L), eq(2), eq(Arrays.asList("id", "name")), any());
+        verify(targetEmployeeRepository).forEachAfter(eq(2L), eq(2), any(), any());
+        verify(targetEmployeeRepository).forEachAfter(eq(4L), eq(2), any(), any());
+    }
+
+    @Test
+    public void testRetrieveDataRespectsLimitAsJsonArray() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(3);
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn(5L);
+            handler.processRow(rs);
+            return 1;
+        }).when(targetEmployeeRepository).forEachAfter(anyLong(), anyInt(), any(), any());
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = cdcService.retrieveData(null, 1, null, "json");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Assert
+        assertEquals("[{\"id\":5,\"name\":null,\"position\":null,\"salary\":0.0,\"department\":null}]", out.toString());
+        verify(targetEmployeeRepository, times(1)).forEachAfter(eq(Long.MIN_VALUE), eq(1), any(), any());
+    }
+
+    @Test
+    public void testRetrieveDataRejectsUnknownField() {
+        // Act
+        ResponseEntity<StreamingResponseBody> response =
+                cdcService.retrieveData(null, null, Collections.singletonList("email"), "ndjson");
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testRetrieveByIdServesCachedEmployee() {
+        // Arrange
+        when(targetEmployeeCache.get(7L)).thenReturn(Optional.of(new Employee(7L, "Jane", "Engineer", 100.0, "R&D")));
+
+        // Act
+        ResponseEntity<String> response = cdcService.retrieveById(7L);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("{\"id\":7,\"name\":\"Jane\",\"position\":\"Engineer\",\"salary\":100.0,\"department\":\"R&D\"}",
+                response.getBody());
+    }
+
+    @Test
+    public void testRetrieveByIdReturnsNotFound() {
+        // Arrange
+        when(targetEmployeeCache.get(7L)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<String> response = cdcService.retrieveById(7L);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals("Employee not found: 7", response.getBody());
+    }
+
+    @Test
+    public void testSavePipelineUsesPathName() throws Exception {
+        // Arrange
+        Pipeline pipeline = new Pipeline();
+        pipeline.setTables(Collections.singletonList("public.employee"));
+        when(pipelineManager.put(pipeline)).thenReturn(pipeline);
+
+        // Act
+        ResponseEntity<String> response = cdcService.savePipeline("hot", pipeline);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("hot", pipeline.getName());
+        assertTrue(response.getBody().contains("\"tables\":[\"public.employee\"]"));
+    }
+
+    @Test
+    public void testSavePipelineRejectsInvalidPipeline() throws Exception {
+        // Arrange
+        Pipeline pipeline = new Pipeline();
+        when(pipelineManager.put(pipeline)).thenThrow(new IllegalArgumentException("Pipeline hot has no tables"));
+
+        // Act
+        ResponseEntity<String> response = cdcService.savePipeline("hot", pipeline);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Failed to save pipeline: Pipeline hot has no tables", response.getBody());
+    }
+
+    @Test
+    public void testDeleteUnknownPipeline() throws Exception {
+        // Arrange
+        when(pipelineManager.remove("hot")).thenReturn(false);
+
+        // Act
+        ResponseEntity<String> response = cdcService.deletePipeline("hot");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    public void testReplayUnknownDeadLetter() throws Exception {
+        // Arrange
+        when(deadLetterService.replay(42L)).thenReturn(null);
+
+        // Act
+        ResponseEntity<String> response = cdcService.replayDeadLetters(42L);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals("Dead letter not found: 42", response.getBody());
+    }
+
+    @Test
+    public void testPurgeAllDeadLetters() throws Exception {
+        // Arrange
+        when(deadLetterService.purge(null)).thenReturn(3);
+
         // Act
-        ResponseEntity<String> response = cdcService.insertData("{ \"name\": \"John\" }");
+        ResponseEntity<String> response = cdcService.purgeDeadLetters(null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals("Data inserted successfully.", response.getBody());
+        assertEquals("3 dead letters purged.", response.getBody());
     }
 }
@@ -0,0 +1,94 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangeEventDecoderTest {
+
+    private static final String CREATE = "{\"schema\":{\"type\":\"struct\",\"fields\":[]},\"payload\":{\"before\":null,"
+            + "\"after\":{\"id\":7,\"name\":\"John\",\"position\":\"Engineer\",\"salary\":1200.5,\"department\":\"R&D\"},"
+            + "\"source\":{\"version\":\"1.9.0.Final\",\"lsn\":24023128,\"ts_ms\":1650000000000,\"txId\":555},"
+            + "\"op\":\"c\",\"ts_ms\":1650000000100}}";
+
+    private final ChangeEventDecoder decoder = new ChangeEventDecoder(new ObjectMapper(), new ApplyProperties(),
+            new EventFormatProperties());
+
+    @Test
+    public void testDecodeSchemaWrappedCreate() throws Exception {
+        ChangeRecord record = decoder.decode(CREATE.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(ChangeRecord.Op.CREATE, record.getOp());
+        assertEquals(7L, record.getId());
+        assertEquals("John", record.getName());
+        assertEquals(1200.5, record.getSalary());
+        assertEquals("R&D", record.getDepartment());
+        assertEquals(24023128L, record.getLsn());
+        assertEquals(1650000000000L, record.getSourceTsMs());
+        assertEquals(555L, record.getTxId());
+    }
+
+    @Test
+    public void testDecodeSchemalessDelete() throws Exception {
+        String value = "{\"before\":{\"id\":7,\"name\":null,\"position\":null,\"salary\":null,\"department\":null},"
+                + "\"after\":null,\"source\":{\"lsn\":24023200},\"op\":\"d\",\"ts_ms\":1650000000200}";
+
+        ChangeRecord record = decoder.decode(value);
+
+        assertEquals(ChangeRecord.Op.DELETE, record.getOp());
+        assertEquals(7L, record.getId());
+        assertTrue(record.isSalaryNull());
+        assertEquals(1650000000200L, record.getSourceTsMs());
+    }
+
+    @Test
+    public void testUpdateWithFullReplicaIdentityUsesAfterImage() throws Exception {
+        String value = "{\"before\":{\"id\":7,\"name\":\"Old\",\"salary\":1.0},"
+                + "\"after\":{\"id\":7,\"name\":\"New\",\"salary\":null},\"source\":{\"lsn\":1},\"op\":\"u\"}";
+
+        ChangeRecord record = decoder.decode(value);
+
+        assertEquals("New", record.getName());
+        assertTrue(record.isSalaryNull());
+    }
+
+    @Test
+    public void testDecodeDirectByteBuffer() throws Exception {
+        byte[] bytes = CREATE.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+
+        ChangeRecord record = decoder.decode(buffer);
+
+        assertEquals(7L, record.getId());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testReleasedRecordsAreReused() throws Exception {
+        ChangeRecord first = decoder.decode(CREATE);
+        first.release();
+
+        ChangeRecord second = decoder.decode(CREATE);
+
+        assertSame(first, second);
+        assertEquals("John", second.getName());
+    }
+
+    @Test
+    public void testDecodeEventsWithoutRowChange() throws Exception {
+        assertNull(decoder.decode((byte[]) null));
+        assertNull(decoder.decode("{\"payload\":{\"source\":{\"lsn\":1},\"op\":\"t\"}}"));
+        assertNull(decoder.decode("{\"ts_ms\":1650000000000}"));
+    }
+}
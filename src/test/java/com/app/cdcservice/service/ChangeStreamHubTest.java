@@ -0,0 +1,178 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.BackfillProperties;
+import com.app.cdcservice.config.ChangeStreamProperties;
+import com.app.cdcservice.config.ClusterProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.controller.CDCController;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import com.app.cdcservice.repository.TargetEmployeeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ChangeStreamHubTest {
+
+    private final ChangeStreamProperties properties = new ChangeStreamProperties();
+    private SimpleMeterRegistry meterRegistry;
+    private ChangeStreamHub hub;
+    private MockMvc mockMvc;
+
+    @AfterEach
+    public void tearDown() {
+        if (hub != null) {
+            hub.close();
+        }
+    }
+
+    @Test
+    public void testStreamsMatchingChangesOnly() throws Exception {
+        start(StreamingMode.KAFKA);
+        MvcResult result = mockMvc.perform(get("/api/streaming/changes?department=Sales&op=c,u"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        hub.published(EmployeeSinkWriter.TABLE, batch(
+                change(ChangeRecord.Op.CREATE, 1L, "Sales"),
+                change(ChangeRecord.Op.UPDATE, 2L, "R&D"),
+                change(ChangeRecord.Op.DELETE, 3L, null),
+                change(ChangeRecord.Op.UPDATE, 4L, "Sales")));
+
+        String body = await(result, content -> content.contains("id:4"));
+        assertTrue(body.contains("id:1\nevent:change\ndata:{\"offset\":1,\"table\":\"public.employee\",\"op\":\"CREATE\""));
+        assertFalse(body.contains("id:2"));
+        assertFalse(body.contains("id:3"));
+    }
+
+    @Test
+    public void testResumesAfterLastEventId() throws Exception {
+        start(StreamingMode.KAFKA);
+        hub.published(EmployeeSinkWriter.TABLE, batch(
+                change(ChangeRecord.Op.UPDATE, 1L, "Sales"),
+                change(ChangeRecord.Op.UPDATE, 2L, "Sales"),
+                change(ChangeRecord.Op.UPDATE, 3L, "Sales")));
+
+        MvcResult result = mockMvc.perform(get("/api/streaming/changes").header("Last-Event-ID", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = await(result, content -> content.contains("id:3"));
+        assertFalse(body.contains("id:1\n"));
+        assertTrue(body.contains("id:2"));
+    }
+
+    @Test
+    public void testSubscriberBehindBufferIsToldAboutGap() throws Exception {
+        properties.setBufferSize(4);
+        start(StreamingMode.KAFKA);
+        for (long id = 1; id <= 6; id++) {
+            hub.published(EmployeeSinkWriter.TABLE, batch(change(ChangeRecord.Op.UPDATE, id, "Sales")));
+        }
+
+        MvcResult result = mockMvc.perform(get("/api/streaming/changes?from=0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = await(result, content -> content.contains("id:6"));
+        assertTrue(body.startsWith("event:gap\ndata:{\"missed\":2,\"resumeAfter\":2}"));
+        assertTrue(body.contains("id:3"));
+        assertEquals(2.0, meterRegistry.get("cdc.stream.events.missed").counter().count());
+    }
+
+    @Test
+    public void testSlotOverwrittenAheadOfHeadCountsOnlyLostChanges() {
+        // Buffer of 4 with head 4: a publisher has written offset 5 over offset 1 but not moved the head yet
+        assertEquals(1, ChangeStreamHub.missed(1, 5, 4, 4));
+        // The same publisher further on: offset 2 is lost, 1 was already sent
+        assertEquals(1, ChangeStreamHub.missed(2, 6, 4, 4));
+        // The head has moved on well past the slot
+        assertEquals(3, ChangeStreamHub.missed(1, 5, 7, 4));
+        // A slot not written yet is waited for, never reported as a gap
+        assertEquals(0, ChangeStreamHub.missed(3, 0, 3, 4));
+    }
+
+    @Test
+    public void testRejectsUnknownFilter() throws Exception {
+        start(StreamingMode.KAFKA);
+
+        mockMvc.perform(get("/api/streaming/changes?salary_band=3")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testUnavailableInConnectMode() throws Exception {
+        start(StreamingMode.CONNECT);
+
+        mockMvc.perform(get("/api/streaming/changes")).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void testUnavailableWhenClustered() throws Exception {
+        start(StreamingMode.KAFKA, true);
+
+        mockMvc.perform(get("/api/streaming/changes")).andExpect(status().isServiceUnavailable());
+    }
+
+    private void start(StreamingMode mode) {
+        start(mode, false);
+    }
+
+    private void start(StreamingMode mode, boolean clustered) {
+        meterRegistry = new SimpleMeterRegistry();
+        StreamingProperties streamingProperties = new StreamingProperties();
+        streamingProperties.setMode(mode);
+        ClusterProperties clusterProperties = new ClusterProperties();
+        clusterProperties.setEnabled(clustered);
+        hub = new ChangeStreamHub(properties, new ObjectMapper(), new WorkerThreads(false), meterRegistry,
+                streamingProperties, clusterProperties);
+        CDCService cdcService = new CDCService(mock(EmbeddedEngineService.class), mock(KafkaChangeConsumer.class),
+                mock(TargetEmployeeRepository.class), new ObjectMapper(), mock(BulkIngestService.class),
+                mock(PipelineManager.class), mock(BackfillService.class), new BackfillProperties(),
+                mock(TargetEmployeeCache.class), hub, mock(ConsistencyChecker.class),
+                mock(ClusterCoordinator.class), mock(DeadLetterService.class), streamingProperties);
+        mockMvc = MockMvcBuilders.standaloneSetup(new CDCController(cdcService)).build();
+    }
+
+    private static String await(MvcResult result, Predicate<String> done) throws Exception {
+        MockHttpServletResponse response = result.getResponse();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            String content = response.getContentAsString();
+            if (done.test(content)) {
+                return content;
+            }
+            Thread.sleep(10);
+        }
+        fail("Stream did not receive the expected events: " + response.getContentAsString());
+        return null;
+    }
+
+    private static ChangeBatch batch(ChangeRecord... records) {
+        ChangeBatch batch = new ChangeBatch();
+        for (ChangeRecord record : records) {
+            batch.add(record);
+        }
+        return batch;
+    }
+
+    private static ChangeRecord change(ChangeRecord.Op op, Long id, String department) {
+        return ChangeRecord.of(op, new Employee(id, "name-" + id, "position", 100.0, department));
+    }
+}
@@ -0,0 +1,122 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.TransformProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangeTransformerTest {
+
+    private final TransformProperties properties = new TransformProperties();
+
+    @Test
+    public void testPassesEverythingWithoutSettings() {
+        ChangeTransformer transformer = newTransformer();
+        ChangeRecord record = employee(ChangeRecord.Op.CREATE, "Sales");
+
+        assertFalse(transformer.isEnabled());
+        assertTrue(transformer.apply(record));
+        assertEquals("Alice Smith", record.getName());
+    }
+
+    @Test
+    public void testFilterDropsInsertsAndDeletesUpdatesOfOtherRows() {
+        properties.setFilter("department == 'Engineering'");
+        ChangeTransformer transformer = newTransformer();
+
+        assertTrue(transformer.apply(employee(ChangeRecord.Op.CREATE, "Engineering")));
+        assertFalse(transformer.apply(employee(ChangeRecord.Op.CREATE, "Sales")));
+        assertFalse(transformer.apply(employee(ChangeRecord.Op.READ, null)));
+
+        ChangeRecord moved = employee(ChangeRecord.Op.UPDATE, "Sales");
+        assertTrue(transformer.apply(moved));
+        assertEquals(ChangeRecord.Op.DELETE, moved.getOp());
+        assertEquals(7L, moved.getId());
+        assertNull(moved.getName());
+
+        ChangeRecord delete = new ChangeRecord();
+        delete.setOp(ChangeRecord.Op.DELETE);
+        delete.setId(7L);
+        assertTrue(transformer.apply(delete));
+    }
+
+    @Test
+    public void testSetsAndDropsColumns() {
+        properties.setSet(Map.of(
+                "salary", "#bucket(salary, 10000.0)",
+                "name", "#mask(name)",
+                "Department", "department.toUpperCase() + '/' + position"));
+        properties.setDrop(List.of("position"));
+        ChangeTransformer transformer = newTransformer();
+        ChangeRecord record = employee(ChangeRecord.Op.UPDATE, "Engineering");
+
+        assertTrue(transformer.apply(record));
+
+        assertEquals(50000.0, record.getSalary());
+        assertEquals("*******mith", record.getName());
+        // Computed from the source values, not from the dropped column
+        assertEquals("ENGINEERING/Engineer", record.getDepartment());
+        assertNull(record.getPosition());
+    }
+
+    @Test
+    public void testNullSalaryStaysNull() {
+        properties.setSet(Map.of("salary", "#bucket(salary, 1000.0)"));
+        ChangeTransformer transformer = newTransformer();
+        ChangeRecord record = employee(ChangeRecord.Op.CREATE, "Sales");
+        record.clearSalary();
+
+        transformer.apply(record);
+
+        assertTrue(record.isSalaryNull());
+    }
+
+    @Test
+    public void testExpressionsKeepWorkingOnceCompiled() {
+        properties.setFilter("salary > 50000.0 and department != null");
+        properties.setSet(Map.of("name", "name.substring(0, 1)"));
+        ChangeTransformer transformer = newTransformer();
+
+        // Well past the number of interpreted runs after which expressions are compiled
+        for (int i = 0; i < 500; i++) {
+            ChangeRecord record = employee(ChangeRecord.Op.CREATE, i % 2 == 0 ? "Sales" : null);
+            record.setSalary(49_000 + i * 10);
+            boolean expected = record.getSalary() > 50000 && i % 2 == 0;
+            assertEquals(expected, transformer.apply(record), "event " + i);
+            if (expected) {
+                assertEquals("A", record.getName());
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsTheKeyAndUnknownColumns() {
+        properties.setDrop(List.of("id"));
+        assertThrows(IllegalArgumentException.class, this::newTransformer);
+
+        properties.setDrop(List.of("email"));
+        assertThrows(IllegalArgumentException.class, this::newTransformer);
+
+        properties.setDrop(List.of("salary"));
+        properties.setSet(Map.of("salary", "0"));
+        assertThrows(IllegalArgumentException.class, this::newTransformer);
+    }
+
+    private ChangeTransformer newTransformer() {
+        return new ChangeTransformer(properties, new SimpleMeterRegistry());
+    }
+
+    private static ChangeRecord employee(ChangeRecord.Op op, String department) {
+        return ChangeRecord.of(op, new Employee(7L, "Alice Smith", "Engineer", 54321.0, department));
+    }
+}
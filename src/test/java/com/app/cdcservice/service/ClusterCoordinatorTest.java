@@ -0,0 +1,110 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ClusterProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ClusterCoordinatorTest {
+
+    private final ClusterProperties properties = new ClusterProperties();
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement lock = mock(PreparedStatement.class);
+    private final ResultSet lockResult = mock(ResultSet.class);
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        properties.setInstanceId("cdc-0");
+        when(dataSource.getConnection()).thenReturn(connection);
+        // State table statements find no rows
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        PreparedStatement state = mock(PreparedStatement.class);
+        when(state.executeQuery()).thenReturn(mock(ResultSet.class));
+        when(connection.prepareStatement(anyString())).thenReturn(state);
+        when(connection.prepareStatement("SELECT pg_try_advisory_lock(?)")).thenReturn(lock);
+        when(lock.executeQuery()).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+    }
+
+    @Test
+    public void testInstanceHoldingTheLockLeads() throws Exception {
+        when(lockResult.getBoolean(1)).thenReturn(true);
+        when(connection.isValid(5)).thenReturn(true);
+        ClusterCoordinator coordinator = newCoordinator();
+        AtomicInteger reconciled = new AtomicInteger();
+        coordinator.addListener(reconciled::incrementAndGet);
+
+        coordinator.check();
+        coordinator.check();
+
+        assertTrue(coordinator.isLeader());
+        assertEquals("cdc-0", coordinator.leaderId());
+        assertEquals(2, reconciled.get());
+        // The leader keeps the session that holds the lock instead of taking it again
+        verify(lock, times(1)).executeQuery();
+    }
+
+    @Test
+    public void testInstanceWithoutTheLockFollows() throws Exception {
+        when(lockResult.getBoolean(1)).thenReturn(false);
+        ClusterCoordinator coordinator = newCoordinator();
+
+        coordinator.check();
+
+        assertFalse(coordinator.isLeader());
+        assertTrue(coordinator.status().contains("\"leader\":false"));
+    }
+
+    @Test
+    public void testLeaderGivesUpLeadershipWhenItsSessionDies() throws Exception {
+        when(lockResult.getBoolean(1)).thenReturn(true, false);
+        when(connection.isValid(5)).thenReturn(false);
+        ClusterCoordinator coordinator = newCoordinator();
+
+        coordinator.check();
+        assertTrue(coordinator.isLeader());
+        coordinator.check();
+
+        assertFalse(coordinator.isLeader());
+    }
+
+    @Test
+    public void testDisabledInEmbeddedMode() {
+        properties.setEnabled(true);
+
+        ClusterCoordinator coordinator = new ClusterCoordinator(dataSource, properties, new ObjectMapper(),
+                streaming(StreamingMode.EMBEDDED));
+
+        assertFalse(coordinator.isEnabled());
+    }
+
+    private ClusterCoordinator newCoordinator() {
+        // Not enabled, so no background checks run; the test drives check() itself
+        return new ClusterCoordinator(dataSource, properties, new ObjectMapper(), streaming(StreamingMode.KAFKA));
+    }
+
+    private static StreamingProperties streaming(StreamingMode mode) {
+        StreamingProperties streamingProperties = new StreamingProperties();
+        streamingProperties.setMode(mode);
+        return streamingProperties;
+    }
+}
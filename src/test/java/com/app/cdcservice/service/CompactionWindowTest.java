@@ -0,0 +1,154 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.app.cdcservice.service.MicroBatcherTest.change;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactionWindowTest {
+
+    private final List<List<ChangeRecord>> written = new ArrayList<>();
+    private final ApplyProperties.Compaction properties = new ApplyProperties.Compaction();
+    private final Counter eliminated = new SimpleMeterRegistry().counter("eliminated");
+    private MicroBatcher batcher;
+
+    @BeforeEach
+    public void setUp() {
+        properties.setEnabled(true);
+        properties.setWindowMs(60_000);
+        properties.setMaxKeys(100);
+        // The batch is cleared after writing, so capture its contents at call time
+        batcher = new MicroBatcher(batch -> written.add(new ArrayList<>(batch.records())), 100, 60_000);
+    }
+
+    @Test
+    public void testInsertAndUpdatesBecomeOneInsertOfFinalRow() {
+        CompactionWindow window = new CompactionWindow(batcher, properties, eliminated);
+
+        window.add(change(ChangeRecord.Op.CREATE, 1L, 100.0, 1));
+        window.add(change(ChangeRecord.Op.UPDATE, 1L, 150.0, 2));
+        window.add(change(ChangeRecord.Op.UPDATE, 1L, 175.0, 3));
+        window.flush();
+
+        assertEquals(1, written.size());
+        ChangeRecord record = written.get(0).get(0);
+        assertEquals(ChangeRecord.Op.CREATE, record.getOp());
+        assertEquals(175.0, record.getSalary());
+        assertEquals(2.0, eliminated.count());
+        assertEquals(3, batcher.appliedSequence());
+        assertEquals(3, batcher.appliedEvents());
+    }
+
+    @Test
+    public void testInsertThenDeleteBecomesDelete() {
+        CompactionWindow window = new CompactionWindow(batcher, properties, eliminated);
+
+        window.add(change(ChangeRecord.Op.CREATE, 1L, 100.0, 1));
+        window.add(change(ChangeRecord.Op.UPDATE, 2L, 200.0, 2));
+        window.add(change(ChangeRecord.Op.UPDATE, 1L, 150.0, 3));
+        window.add(change(ChangeRecord.Op.DELETE, 1L, null, 4));
+        window.flush();
+
+        // The insert may be a replay that already reached the target, so the delete is still written
+        assertEquals(1, written.size());
+        assertEquals(2, written.get(0).size());
+        assertEquals(2L, written.get(0).get(0).getId());
+        assertEquals(1L, written.get(0).get(1).getId());
+        assertEquals(ChangeRecord.Op.DELETE, written.get(0).get(1).getOp());
+        assertEquals(2.0, eliminated.count());
+        // The merged changes count as applied, so the commit position moves past them
+        assertEquals(4, batcher.appliedSequence());
+        assertEquals(4, batcher.appliedEvents());
+    }
+
+    @Test
+    public void testDeleteThenInsertIsWrittenAsUpdate() {
+        CompactionWindow window = new CompactionWindow(batcher, properties, eliminated);
+
+        window.add(change(ChangeRecord.Op.DELETE, 1L, null, 1));
+        window.add(change(ChangeRecord.Op.CREATE, 1L, 100.0, 2));
+        window.add(change(ChangeRecord.Op.DELETE, 1L, null, 3));
+        window.flush();
+
+        assertEquals(1, written.get(0).size());
+        assertEquals(ChangeRecord.Op.DELETE, written.get(0).get(0).getOp());
+        assertEquals(2.0, eliminated.count());
+    }
+
+    @Test
+    public void testKeysArePassedOnInOrderOfTheirLastChange() {
+        batcher = new MicroBatcher(batch -> written.add(new ArrayList<>(batch.records())), 1, 60_000);
+        CompactionWindow window = new CompactionWindow(batcher, properties, eliminated);
+
+        window.add(change(ChangeRecord.Op.UPDATE, 1L, 100.0, 1));
+        window.add(change(ChangeRecord.Op.UPDATE, 2L, 200.0, 2));
+        window.add(change(ChangeRecord.Op.UPDATE, 1L, 150.0, 3));
+        window.flush();
+
+        assertEquals(2L, written.get(0).get(0).getId());
+        assertEquals(1L, written.get(1).get(0).getId());
+    }
+
+    @Test
+    public void testClosesWhenMaxKeysReached() {
+        properties.setMaxKeys(2);
+        CompactionWindow window = new CompactionWindow(batcher, properties, eliminated);
+
+        window.add(change(ChangeRecord.Op.UPDATE, 1L, 100.0, 1));
+        assertTrue(written.isEmpty());
+        window.add(change(ChangeRecord.Op.UPDATE, 2L, 200.0, 2));
+
+        assertEquals(1, written.size());
+        assertEquals(2, written.get(0).size());
+        assertEquals(0, window.size());
+    }
+
+    @Test
+    public void testPreservedTransactionIsNotSplit() {
+        properties.setMaxKeys(2);
+        properties.setPreserveTransactions(true);
+        CompactionWindow window = new CompactionWindow(batcher, properties, eliminated);
+
+        window.add(transactional(1L, 1, 10));
+        window.add(transactional(2L, 2, 10));
+        window.add(transactional(3L, 3, 10));
+        assertTrue(written.isEmpty());
+
+        window.add(transactional(4L, 4, 11));
+
+        assertEquals(1, written.size());
+        assertEquals(3, written.get(0).size());
+        assertEquals(3, batcher.appliedSequence());
+        assertEquals(1, window.size());
+    }
+
+    @Test
+    public void testFlushesAfterWindowTime() throws InterruptedException {
+        properties.setWindowMs(20);
+        CompactionWindow window = new CompactionWindow(batcher, properties, eliminated);
+
+        window.add(change(ChangeRecord.Op.UPDATE, 1L, 100.0, 1));
+        assertFalse(window.flushIfExpired());
+        Thread.sleep(30);
+
+        assertTrue(window.flushIfExpired());
+        assertEquals(1, written.size());
+        assertEquals(1, batcher.appliedSequence());
+    }
+
+    private static ChangeRecord transactional(Long id, long sequence, long txId) {
+        ChangeRecord record = change(ChangeRecord.Op.UPDATE, id, 100.0, sequence);
+        record.setTxId(txId);
+        return record;
+    }
+}
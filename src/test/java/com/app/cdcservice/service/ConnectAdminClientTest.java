@@ -0,0 +1,97 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ConnectProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConnectAdminClientTest {
+
+    private static final String STATUS_URL = "http://connect:8083/connectors?expand=status";
+    private static final String STATUSES = "{\"debezium-source\":{\"status\":{\"name\":\"debezium-source\","
+            + "\"connector\":{\"state\":\"RUNNING\",\"worker_id\":\"w1\"},"
+            + "\"tasks\":[{\"id\":0,\"state\":\"FAILED\",\"worker_id\":\"w1\"}],\"type\":\"source\"}}}";
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConnectAdminClient client = new ConnectAdminClient(restTemplate, properties(), objectMapper,
+            new WorkerThreads(false));
+
+    @AfterEach
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    public void testReportsTaskStatusAndMissingConnectors() throws Exception {
+        when(restTemplate.getForObject(STATUS_URL, String.class)).thenReturn(STATUSES);
+
+        JsonNode status = objectMapper.readTree(client.status(Arrays.asList("debezium-source", "jdbc-sink")));
+
+        assertEquals("RUNNING", status.at("/connectors/debezium-source/connector/state").asText());
+        assertEquals("FAILED", status.at("/connectors/debezium-source/tasks/0/state").asText());
+        assertEquals("NOT_FOUND", status.at("/connectors/jdbc-sink/connector/state").asText());
+    }
+
+    @Test
+    public void testServesCachedStatusWithinTtl() throws Exception {
+        when(restTemplate.getForObject(STATUS_URL, String.class)).thenReturn(STATUSES);
+
+        client.status(Collections.singletonList("debezium-source"));
+        client.status(Collections.singletonList("debezium-source"));
+        client.status(Collections.singletonList("debezium-source"));
+
+        verify(restTemplate, times(1)).getForObject(eq(STATUS_URL), eq(String.class));
+    }
+
+    @Test
+    public void testConcurrentRefreshesShareOneRequest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(restTemplate.getForObject(STATUS_URL, String.class)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return STATUSES;
+        });
+
+        CompletableFuture<ConnectAdminClient.StatusSnapshot> first = client.refresh();
+        CompletableFuture<ConnectAdminClient.StatusSnapshot> second = client.refresh();
+        release.countDown();
+
+        assertSame(first, second);
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        verify(restTemplate, times(1)).getForObject(eq(STATUS_URL), eq(String.class));
+    }
+
+    @Test
+    public void testFailsWhenConnectIsUnreachableAndNothingIsCached() {
+        when(restTemplate.getForObject(STATUS_URL, String.class)).thenThrow(new IllegalStateException("Connection refused"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> client.status(Collections.singletonList("debezium-source")));
+        assertEquals("Failed to fetch connector status: Connection refused", e.getMessage());
+    }
+
+    private static ConnectProperties properties() {
+        ConnectProperties properties = new ConnectProperties();
+        properties.setUrl("http://connect:8083");
+        properties.setStatusRefreshMs(60_000);
+        properties.setStatusTtlMs(60_000);
+        return properties;
+    }
+}
@@ -0,0 +1,115 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.config.VerifyProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+public class ConsistencyCheckerTest {
+
+    @Test
+    public void testDiffFindsChangedMissingAndExtraRows() {
+        Map<Long, String> source = Map.of(1L, "a", 2L, "b", 3L, "c");
+        Map<Long, String> target = Map.of(1L, "a", 2L, "x", 4L, "d");
+
+        assertEquals(List.of(2L, 3L, 4L), List.copyOf(ConsistencyChecker.diff(source, target)));
+    }
+
+    @Test
+    public void testDiffOfEqualRowsIsEmpty() {
+        Map<Long, String> rows = Map.of(1L, "a", 2L, "b");
+
+        assertEquals(0, ConsistencyChecker.diff(rows, Map.copyOf(rows)).size());
+    }
+
+    @Test
+    public void testRepairSkipsRowsChangedSinceRecheck() {
+        ChangeBatch batch = new ChangeBatch();
+        for (long id = 1; id <= 4; id++) {
+            ChangeRecord record = new ChangeRecord();
+            record.setOp(id == 4 ? ChangeRecord.Op.DELETE : ChangeRecord.Op.UPDATE);
+            record.setId(id);
+            batch.add(record);
+        }
+        // Row 2 was streamed after the recheck and row 3 has been inserted since
+        Map<Long, String> expected = Map.of(1L, "a", 2L, "b", 3L, ConsistencyChecker.ABSENT, 4L, "d");
+        Map<Long, String> current = Map.of(1L, "a", 2L, "b2", 3L, "c", 4L, "d");
+
+        ChangeBatch kept = ConsistencyChecker.unchanged(batch, expected, current);
+
+        assertEquals(List.of(1L, 4L), kept.records().stream().map(ChangeRecord::getId).sorted()
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testRateLimiterSpacesOutReads() {
+        ConsistencyChecker.RowRateLimiter limiter = new ConsistencyChecker.RowRateLimiter(1000);
+        long now = 0;
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.reserve(500, now));
+        // The second reader waits for the first one's share as well
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), limiter.reserve(500, now));
+        // Time that passed without reads is not saved up
+        long later = TimeUnit.SECONDS.toNanos(5);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve(100, later));
+    }
+
+    @Test
+    public void testUnlimitedRateLimiterNeverWaits() {
+        assertEquals(0, new ConsistencyChecker.RowRateLimiter(0).reserve(1_000_000, 0));
+    }
+
+    @Test
+    public void testPendingRangesWaitsForMoreRangesThanAPhaserHolds() throws Exception {
+        ConsistencyChecker.PendingRanges pending = new ConsistencyChecker.PendingRanges();
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        AtomicInteger checked = new AtomicInteger();
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                pending.add();
+                workers.execute(() -> {
+                    checked.incrementAndGet();
+                    pending.done();
+                });
+            }
+            pending.awaitAll();
+        } finally {
+            workers.shutdownNow();
+        }
+
+        assertEquals(100_000, checked.get());
+    }
+
+    @Test
+    public void testStatusBeforeFirstRun() {
+        assertEquals("{\"state\":\"IDLE\"}", newChecker(new VerifyProperties()).status());
+    }
+
+    @Test
+    public void testRejectsInvalidLeafSize() {
+        VerifyProperties properties = new VerifyProperties();
+        properties.setLeafSize(0);
+
+        assertThrows(IllegalArgumentException.class, () -> newChecker(properties).start(false));
+    }
+
+    private static ConsistencyChecker newChecker(VerifyProperties properties) {
+        return new ConsistencyChecker(mock(DataSource.class), mock(DataSource.class), properties,
+                new SinkProperties(), mock(EmployeeSinkWriter.class), new WorkerThreads(false), new ObjectMapper(),
+                mock(ChangeTransformer.class));
+    }
+}
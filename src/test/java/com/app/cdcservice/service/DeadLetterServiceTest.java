@@ -0,0 +1,176 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ClusterProperties;
+import com.app.cdcservice.config.DeadLetterProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeadLetterServiceTest {
+
+    private final DeadLetterProperties properties = new DeadLetterProperties();
+    private final DeadLetterStore store = mock(DeadLetterStore.class);
+    private final EmployeeSinkWriter sinkWriter = mock(EmployeeSinkWriter.class);
+    private final ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+    private final ChangeEventDecoder decoder = mock(ChangeEventDecoder.class);
+    private final ChangeTransformer transformer = mock(ChangeTransformer.class);
+    private DeadLetterService service;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test
+    public void testRetryWritesLatestStateAndResolvesRow() {
+        service = newService();
+        when(store.version(7L)).thenReturn(3L);
+        when(store.latest(7L)).thenReturn(letter(12L, "u", 0));
+
+        assertTrue(service.retry(7L));
+
+        verify(sinkWriter).writeThrough(any(ChangeBatch.class));
+        verify(store).resolve(7L, 12L, 3L);
+        verify(store, never()).retryFailed(anyLong(), anyLong(), any(Integer.class), any());
+    }
+
+    @Test
+    public void testFailedRetryIsDueAgainAfterBackoff() {
+        service = newService();
+        when(store.version(7L)).thenReturn(1L);
+        when(store.latest(7L)).thenReturn(letter(12L, "u", 2));
+        doThrow(new DataIntegrityViolationException("value too long")).when(sinkWriter).writeThrough(any());
+
+        assertFalse(service.retry(7L));
+
+        verify(store).retryFailed(eq(7L), eq(12L), eq(3), any());
+        verify(store, never()).resolve(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void testRetryRunKeepsGoingAfterUnexpectedErrors() {
+        service = newService();
+        when(store.dueRows(any(Integer.class))).thenReturn(List.of(7L, 8L));
+        when(store.latest(7L)).thenThrow(new CannotCreateTransactionException("target is down"));
+        when(store.latest(8L)).thenReturn(letter(13L, "u", 0));
+
+        service.retryDue();
+
+        verify(store).resolve(eq(8L), eq(13L), any());
+
+        when(store.dueRows(any(Integer.class))).thenThrow(new IllegalArgumentException("jdbcUrl is required"));
+        service.retryDue();
+    }
+
+    @Test
+    public void testReplayedUndecodableEventIsTransformedBeforeWriting() throws Exception {
+        service = newService();
+        Map<String, Object> letter = new HashMap<>();
+        letter.put("id", 15L);
+        letter.put("payload", new byte[]{1});
+        when(store.get(15L)).thenReturn(letter);
+        ChangeRecord record = mock(ChangeRecord.class);
+        when(decoder.decode(any(byte[].class))).thenReturn(record);
+
+        // Filtered out: dropped like any other change the transformer rejects
+        assertEquals("{\"applied\":1,\"failed\":0}", service.replay(15L));
+
+        verify(transformer).apply(record);
+        verify(record).release();
+        verify(sinkWriter, never()).write(any());
+        verify(store).delete(15L);
+
+        when(transformer.apply(record)).thenReturn(true);
+        service.replay(15L);
+
+        verify(sinkWriter).write(any(ChangeBatch.class));
+    }
+
+    @Test
+    public void testOnlyLeaderRetriesWhenClustered() {
+        service = newService();
+        when(clusterCoordinator.isEnabled()).thenReturn(true);
+
+        service.retryDue();
+        verify(store, never()).dueRows(any(Integer.class));
+
+        when(clusterCoordinator.isLeader()).thenReturn(true);
+        service.retryDue();
+        verify(store).dueRows(any(Integer.class));
+    }
+
+    @Test
+    public void testParkedRowsComeFromMemoryUnlessClustered() {
+        DeadLetterStore deadLetterStore = newStore(false);
+        deadLetterStore.park(List.of(7L));
+
+        assertEquals(Set.of(7L), deadLetterStore.parkedAmong(List.of(7L, 8L)));
+
+        // Other instances park and unpark rows, so only the table knows which rows are parked
+        assertTrue(newStore(true).hasParkedRows());
+    }
+
+    @Test
+    public void testBackoffDoublesUpToMaximum() {
+        properties.setRetryInitialDelayMs(1000);
+        properties.setRetryMaxDelayMs(5000);
+        DeadLetterStore deadLetterStore = newStore(false);
+
+        assertEquals(1000, deadLetterStore.backoffMs(0));
+        assertEquals(2000, deadLetterStore.backoffMs(1));
+        assertEquals(4000, deadLetterStore.backoffMs(2));
+        assertEquals(5000, deadLetterStore.backoffMs(3));
+        assertEquals(5000, deadLetterStore.backoffMs(40));
+    }
+
+    private DeadLetterService newService() {
+        // The store is a mock and reports itself disabled, so retries only run when the test calls them
+        return new DeadLetterService(store, sinkWriter, clusterCoordinator, decoder, transformer, properties,
+                new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    private DeadLetterStore newStore(boolean clustered) {
+        StreamingProperties streamingProperties = new StreamingProperties();
+        streamingProperties.setMode(StreamingMode.KAFKA);
+        ClusterProperties clusterProperties = new ClusterProperties();
+        clusterProperties.setEnabled(clustered);
+        return new DeadLetterStore(mock(DataSource.class), properties, new ObjectMapper(), new SimpleMeterRegistry(),
+                streamingProperties, clusterProperties);
+    }
+
+    private static Map<String, Object> letter(long id, String op, int attempts) {
+        Map<String, Object> letter = new HashMap<>();
+        letter.put("id", id);
+        letter.put("row_id", 7L);
+        letter.put("op", op);
+        letter.put("change", "{\"id\":7,\"name\":\"Alice\",\"position\":\"Engineer\",\"salary\":1.0,\"department\":\"Sales\"}");
+        letter.put("attempts", attempts);
+        return letter;
+    }
+}
@@ -0,0 +1,50 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class EmployeeSinkWriterTest {
+
+    @Test
+    public void testUpsertBindsOneArrayPerColumn() {
+        assertTrue(EmployeeSinkWriter.UPSERT_SQL.startsWith("INSERT INTO employee (id, name, position, salary, "
+                + "department) SELECT * FROM UNNEST(?::bigint[], ?::text[], ?::text[], ?::float8[], ?::text[]) "
+                + "ON CONFLICT (id) DO UPDATE SET "));
+        assertEquals(EmployeeSinkWriter.COLUMN_COUNT, EmployeeSinkWriter.UPSERT_SQL.chars().filter(c -> c == '?').count());
+
+        ChangeRecord withoutSalary = ChangeRecord.of(ChangeRecord.Op.UPDATE, new Employee(8L, "Bob", null, null, "Sales"));
+        Object[][] columns = EmployeeSinkWriter.upsertColumns(List.of(
+                ChangeRecord.of(ChangeRecord.Op.CREATE, new Employee(7L, "Alice", "Engineer", 1000.0, "R&D")),
+                withoutSalary));
+
+        assertArrayEquals(new Long[]{7L, 8L}, columns[0]);
+        assertArrayEquals(new String[]{"Alice", "Bob"}, columns[1]);
+        assertArrayEquals(new String[]{"Engineer", null}, columns[2]);
+        assertArrayEquals(new Double[]{1000.0, null}, columns[3]);
+        assertArrayEquals(new String[]{"R&D", "Sales"}, columns[4]);
+    }
+
+    @Test
+    public void testRejectsBatchSizeAboveTransactionLimit() {
+        SinkProperties properties = new SinkProperties();
+        properties.setBatchSize(EmployeeSinkWriter.MAX_BATCH_SIZE + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> new EmployeeSinkWriter(mock(DataSource.class),
+                mock(PlatformTransactionManager.class), properties, new SimpleMeterRegistry(),
+                mock(ReplicationMetrics.class), mock(TargetEmployeeCache.class), mock(ChangeStreamHub.class),
+                mock(TargetOffsetStore.class), mock(DeadLetterStore.class)));
+    }
+}
@@ -0,0 +1,126 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.FlowControlProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlowControllerTest {
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FlowControlProperties properties = properties();
+
+    @Test
+    public void testSlowWritesCutLimitsAndFastWritesGrowThemBack() {
+        FlowController controller = new FlowController("test", properties, 400, 4, () -> 0, meterRegistry);
+
+        write(controller, SLOW);
+        write(controller, SLOW);
+
+        assertEquals(100, controller.batchSize());
+        assertEquals(1, controller.inFlightLimit());
+        assertEquals(2.0, meterRegistry.get("cdc.flow.throttles").tag("reason", "latency").counter().count());
+
+        for (int i = 0; i < 10; i++) {
+            write(controller, FAST);
+        }
+
+        assertEquals(400, controller.batchSize());
+        assertEquals(4, controller.inFlightLimit());
+        assertEquals(400.0, meterRegistry.get("cdc.flow.batch.size").gauge().value());
+    }
+
+    @Test
+    public void testSaturatedPoolThrottlesFastWrites() {
+        FlowController controller = new FlowController("test", properties, 400, 4, () -> 1.2, meterRegistry);
+
+        write(controller, FAST);
+
+        assertEquals(200, controller.batchSize());
+        assertEquals(2, controller.inFlightLimit());
+        assertEquals(1.0, meterRegistry.get("cdc.flow.throttles").tag("reason", "pool").counter().count());
+    }
+
+    @Test
+    public void testBatchSizeStaysAtLeastMinimum() {
+        FlowController controller = new FlowController("test", properties, 400, 4, () -> 0, meterRegistry);
+
+        for (int i = 0; i < 20; i++) {
+            write(controller, SLOW);
+        }
+
+        assertEquals(10, controller.batchSize());
+        assertEquals(1, controller.inFlightLimit());
+    }
+
+    @Test
+    public void testPausesAboveThresholdAndResumesBelowLowerThreshold() {
+        FlowController controller = new FlowController("test", properties, 400, 4, () -> 0, meterRegistry);
+
+        assertFalse(controller.updatePaused(70, 100));
+        assertTrue(controller.updatePaused(80, 100));
+        assertTrue(controller.updatePaused(50, 100));
+        assertFalse(controller.updatePaused(40, 100));
+        assertEquals(1.0, meterRegistry.get("cdc.flow.pauses").counter().count());
+    }
+
+    @Test
+    public void testDisabledControllerKeepsLimitsAndNeverPauses() {
+        FlowController controller = FlowController.fixed("test", 400, 4, meterRegistry);
+
+        write(controller, SLOW);
+
+        assertEquals(400, controller.batchSize());
+        assertEquals(4, controller.inFlightLimit());
+        assertFalse(controller.updatePaused(100, 100));
+    }
+
+    @Test
+    public void testAcquireWaitsForInFlightPermit() throws Exception {
+        FlowController controller = new FlowController("test", properties, 400, 1, () -> 0, meterRegistry);
+        controller.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread second = new Thread(() -> {
+            try {
+                controller.acquire();
+                acquired.countDown();
+                controller.release(FAST);
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        second.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        controller.release(FAST);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        second.join();
+        assertNull(failure.get());
+    }
+
+    private static void write(FlowController controller, long nanos) {
+        controller.acquire();
+        controller.release(nanos);
+    }
+
+    private static FlowControlProperties properties() {
+        FlowControlProperties properties = new FlowControlProperties();
+        properties.setAdjustIntervalMs(0);
+        properties.setTargetWriteLatencyMs(250);
+        properties.setBatchSizeStep(50);
+        properties.setMinBatchSize(10);
+        return properties;
+    }
+}
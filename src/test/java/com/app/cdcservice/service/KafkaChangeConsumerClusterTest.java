@@ -0,0 +1,131 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.config.FlowControlProperties;
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@EmbeddedKafka(partitions = KafkaChangeConsumerClusterTest.PARTITIONS, topics = KafkaChangeConsumerClusterTest.TOPIC)
+public class KafkaChangeConsumerClusterTest {
+
+    static final String TOPIC = "cluster.public.employee";
+    static final int PARTITIONS = 4;
+
+    private final List<KafkaChangeConsumer> consumers = new ArrayList<>();
+    // Instance that wrote each id
+    private final Map<Long, String> written = new ConcurrentHashMap<>();
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        for (KafkaChangeConsumer consumer : consumers) {
+            consumer.stop();
+        }
+    }
+
+    @Test
+    public void testInstancesSplitPartitionsAndTakeOverOnLeave(EmbeddedKafkaBroker broker) throws Exception {
+        KafkaChangeConsumer first = newConsumer(broker, "first");
+        KafkaChangeConsumer second = newConsumer(broker, "second");
+        first.start();
+        second.start();
+        await(() -> first.assignment().size() + second.assignment().size() == PARTITIONS
+                && !first.assignment().isEmpty() && !second.assignment().isEmpty());
+
+        produce(broker, 1, 200);
+        await(() -> written.size() == 200);
+        Set<String> writers = Set.copyOf(written.values());
+        assertEquals(Set.of("first", "second"), writers);
+
+        second.stop();
+        await(() -> first.assignment().size() == PARTITIONS);
+        produce(broker, 201, 300);
+        await(() -> written.size() == 300);
+        for (long id = 201; id <= 300; id++) {
+            assertEquals("first", written.get(id));
+        }
+        assertTrue(first.status().contains("\"partitions\":[0,1,2,3]"));
+    }
+
+    private KafkaChangeConsumer newConsumer(EmbeddedKafkaBroker broker, String instance) throws Exception {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.setBootstrapServers(List.of(broker.getBrokersAsString()));
+        kafkaProperties.getConsumer().setGroupId("cluster-test");
+        kafkaProperties.getConsumer().setAutoOffsetReset("earliest");
+        kafkaProperties.getConsumer().getProperties().put("partition.assignment.strategy",
+                CooperativeStickyAssignor.class.getName());
+        ApplyProperties applyProperties = new ApplyProperties();
+        applyProperties.setTopic(TOPIC);
+        applyProperties.setLanes(2);
+        applyProperties.setPollTimeoutMs(100);
+        applyProperties.setDrainTimeoutMs(5000);
+        SinkProperties sinkProperties = new SinkProperties();
+        sinkProperties.setLingerMs(10);
+
+        EmployeeSinkWriter writer = mock(EmployeeSinkWriter.class);
+        doAnswer(invocation -> {
+            ChangeBatch batch = invocation.getArgument(0);
+            for (ChangeRecord record : batch.records()) {
+                written.put(record.getId(), instance);
+            }
+            return null;
+        }).when(writer).write(any());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KafkaChangeConsumer consumer = new KafkaChangeConsumer(kafkaProperties, applyProperties, sinkProperties,
+                new ChangeEventDecoder(new ObjectMapper(), applyProperties, new EventFormatProperties()), writer,
+                meterRegistry, new ReplicationMetrics(meterRegistry), new WorkerThreads(false),
+                new FlowControlProperties(), mock(TargetPoolMonitor.class), mock(TargetOffsetStore.class),
+                mock(ChangeTransformer.class), mock(DeadLetterStore.class));
+        consumers.add(consumer);
+        return consumer;
+    }
+
+    private static void produce(EmbeddedKafkaBroker broker, long fromId, long toId) {
+        Map<String, Object> props = Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(props, new StringSerializer(),
+                new StringSerializer())) {
+            for (long id = fromId; id <= toId; id++) {
+                producer.send(new ProducerRecord<>(TOPIC, String.valueOf(id), "{\"before\":null,\"after\":{\"id\":" + id
+                        + ",\"name\":\"name-" + id + "\",\"position\":\"Engineer\",\"salary\":100.0,"
+                        + "\"department\":\"R&D\"},\"source\":{\"lsn\":" + id + "},\"op\":\"c\"}"));
+            }
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Condition not met within 60 seconds");
+    }
+}
@@ -0,0 +1,110 @@
+package com.app.cdcservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedCheckpointLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testReplaysAppendsAfterReopen() throws Exception {
+        Path file = dir.resolve("offsets.log");
+        try (MappedCheckpointLog log = open(file)) {
+            log.append(Collections.singletonMap(bytes("a"), bytes("1")));
+            log.append(Collections.singletonMap(bytes("a"), bytes("2")));
+            log.append(Collections.singletonMap(bytes("b"), bytes("3")));
+        }
+
+        try (MappedCheckpointLog log = open(file)) {
+            assertEquals(2, log.entries().size());
+            assertEquals(bytes("2"), log.entries().get(bytes("a")));
+            assertEquals(bytes("3"), log.entries().get(bytes("b")));
+        }
+    }
+
+    @Test
+    public void testDropsCorruptTail() throws Exception {
+        Path file = dir.resolve("offsets.log");
+        int end;
+        try (MappedCheckpointLog log = open(file)) {
+            log.append(Collections.singletonMap(bytes("a"), bytes("1")));
+            end = log.sizeBytes();
+            log.append(Collections.singletonMap(bytes("a"), bytes("2")));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            // Flip a payload byte of the second record so its checksum no longer matches
+            raw.seek(end + MappedCheckpointLog.RECORD_HEADER_SIZE + 6);
+            raw.write(0x7F);
+        }
+
+        try (MappedCheckpointLog log = open(file)) {
+            assertEquals(bytes("1"), log.entries().get(bytes("a")));
+            assertEquals(end, log.sizeBytes());
+            log.append(Collections.singletonMap(bytes("b"), bytes("3")));
+        }
+        try (MappedCheckpointLog log = open(file)) {
+            assertEquals(bytes("1"), log.entries().get(bytes("a")));
+            assertEquals(bytes("3"), log.entries().get(bytes("b")));
+        }
+    }
+
+    @Test
+    public void testCompactionKeepsLatestValuesAndDropsDeletes() throws Exception {
+        Path file = dir.resolve("offsets.log");
+        try (MappedCheckpointLog log = MappedCheckpointLog.open(file, MappedCheckpointLog.FsyncPolicy.NEVER, 0, 1024, 4096)) {
+            for (int i = 0; i < 200; i++) {
+                log.append(Collections.singletonMap(bytes("a"), bytes(String.valueOf(i))));
+            }
+            Map<ByteBuffer, ByteBuffer> delete = new HashMap<>();
+            delete.put(bytes("b"), bytes("x"));
+            log.append(delete);
+            delete.put(bytes("b"), null);
+            log.append(delete);
+
+            assertTrue(log.sizeBytes() < 1024);
+            assertFalse(Files.exists(dir.resolve("offsets.log.compact")));
+        }
+
+        try (MappedCheckpointLog log = open(file)) {
+            assertEquals(Collections.singletonMap(bytes("a"), bytes("199")), log.entries());
+        }
+    }
+
+    @Test
+    public void testReadsLegacyOffsetFile() throws Exception {
+        Path legacy = dir.resolve("offsets.dat");
+        HashMap<byte[], byte[]> raw = new HashMap<>();
+        raw.put("key".getBytes(StandardCharsets.UTF_8), "value".getBytes(StandardCharsets.UTF_8));
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(legacy))) {
+            out.writeObject(raw);
+        }
+
+        Map<ByteBuffer, ByteBuffer> offsets = MappedOffsetBackingStore.readLegacyOffsets(legacy);
+
+        assertEquals(Collections.singletonMap(bytes("key"), bytes("value")), offsets);
+    }
+
+    private static MappedCheckpointLog open(Path file) throws Exception {
+        return MappedCheckpointLog.open(file, MappedCheckpointLog.FsyncPolicy.ALWAYS, 0, 1 << 20, 4096);
+    }
+
+    private static ByteBuffer bytes(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
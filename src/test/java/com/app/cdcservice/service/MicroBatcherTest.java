@@ -0,0 +1,90 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class MicroBatcherTest {
+
+    @Mock
+    private EmployeeSinkWriter writer;
+
+    private final List<List<ChangeRecord>> written = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // The batch is cleared after writing, so capture its contents at call time
+        doAnswer(invocation -> {
+            ChangeBatch batch = invocation.getArgument(0);
+            written.add(new ArrayList<>(batch.records()));
+            return null;
+        }).when(writer).write(any(ChangeBatch.class));
+    }
+
+    @Test
+    public void testFlushesWhenBatchIsFull() {
+        MicroBatcher batcher = new MicroBatcher(writer, 2, 60_000);
+
+        batcher.add(change(ChangeRecord.Op.CREATE, 1L, 100.0, 1));
+        verify(writer, never()).write(any());
+        batcher.add(change(ChangeRecord.Op.CREATE, 2L, 200.0, 2));
+
+        assertEquals(1, written.size());
+        assertEquals(2, written.get(0).size());
+        assertEquals(2, batcher.appliedSequence());
+    }
+
+    @Test
+    public void testCollapsesChangesToSameKey() {
+        MicroBatcher batcher = new MicroBatcher(writer, 10, 60_000);
+
+        batcher.add(change(ChangeRecord.Op.CREATE, 1L, 100.0, 1));
+        batcher.add(change(ChangeRecord.Op.UPDATE, 1L, 150.0, 2));
+        batcher.add(change(ChangeRecord.Op.UPDATE, 2L, 200.0, 3));
+        batcher.add(change(ChangeRecord.Op.DELETE, 2L, null, 4));
+        batcher.flush();
+
+        assertEquals(1, written.size());
+        List<ChangeRecord> batch = written.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(150.0, batch.get(0).getSalary());
+        assertEquals(ChangeRecord.Op.DELETE, batch.get(1).getOp());
+        assertEquals(4, batcher.appliedSequence());
+        assertEquals(4, batcher.appliedEvents());
+    }
+
+    @Test
+    public void testFlushesAfterLinger() throws InterruptedException {
+        MicroBatcher batcher = new MicroBatcher(writer, 100, 20);
+
+        batcher.add(change(ChangeRecord.Op.CREATE, 1L, 100.0, 1));
+        assertFalse(batcher.flushIfExpired());
+        Thread.sleep(30);
+
+        assertTrue(batcher.flushIfExpired());
+        assertEquals(1, written.size());
+        assertEquals(1, batcher.appliedSequence());
+    }
+
+    static ChangeRecord change(ChangeRecord.Op op, Long id, Double salary, long sequence) {
+        ChangeRecord record = ChangeRecord.of(op, new Employee(id, "name-" + id, "position", salary, "department"));
+        record.setLsn(id);
+        record.setSequence(sequence);
+        return record;
+    }
+}
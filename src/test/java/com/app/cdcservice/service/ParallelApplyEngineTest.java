@@ -0,0 +1,193 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ApplyProperties;
+import com.app.cdcservice.config.SinkProperties;
+import com.app.cdcservice.config.TransformProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.app.cdcservice.service.MicroBatcherTest.change;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+public class ParallelApplyEngineTest {
+
+    @Mock
+    private EmployeeSinkWriter writer;
+
+    private final ApplyProperties applyProperties = new ApplyProperties();
+    private final SinkProperties sinkProperties = new SinkProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ParallelApplyEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        applyProperties.setLanes(4);
+        applyProperties.setQueueDepth(16);
+        sinkProperties.setBatchSize(8);
+        sinkProperties.setLingerMs(5);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (engine != null) {
+            engine.close();
+        }
+    }
+
+    @Test
+    public void testPreservesPerKeyOrder() throws Exception {
+        Map<Long, List<Double>> appliedSalaries = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            ChangeBatch batch = invocation.getArgument(0);
+            for (ChangeRecord record : batch.records()) {
+                appliedSalaries.computeIfAbsent(record.getId(), id -> new CopyOnWriteArrayList<>())
+                        .add(record.getSalary());
+            }
+            return null;
+        }).when(writer).write(any(ChangeBatch.class));
+        engine = newEngine();
+
+        for (int version = 0; version < 200; version++) {
+            for (long id = 0; id < 10; id++) {
+                engine.submit(change(ChangeRecord.Op.UPDATE, id, (double) version, 0));
+            }
+        }
+
+        assertTrue(engine.drain(5000));
+        assertEquals(engine.submittedSequence(), engine.committedSequence());
+        for (long id = 0; id < 10; id++) {
+            List<Double> salaries = appliedSalaries.get(id);
+            for (int i = 1; i < salaries.size(); i++) {
+                assertTrue(salaries.get(i - 1) < salaries.get(i), "changes to key " + id + " were reordered");
+            }
+            assertEquals(199.0, salaries.get(salaries.size() - 1));
+        }
+    }
+
+    @Test
+    public void testWatermarkStopsAtSlowestLane() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        engine = newEngine();
+        long blockedId = 1L;
+        int blockedLane = engine.laneFor(blockedId);
+        doAnswer(invocation -> {
+            ChangeBatch batch = invocation.getArgument(0);
+            if (engine.laneFor(batch.records().iterator().next().getId()) == blockedLane) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(writer).write(any(ChangeBatch.class));
+
+        long blockedSequence = engine.submit(change(ChangeRecord.Op.CREATE, blockedId, 1.0, 0));
+        long otherId = 2L;
+        while (engine.laneFor(otherId) == blockedLane) {
+            otherId++;
+        }
+        engine.submit(change(ChangeRecord.Op.CREATE, otherId, 1.0, 0));
+        Thread.sleep(50);
+
+        assertTrue(engine.committedSequence() < blockedSequence);
+        release.countDown();
+        assertTrue(engine.drain(5000));
+        assertEquals(2, engine.committedSequence());
+    }
+
+    @Test
+    public void testFailBackpressureRejectsWhenLaneIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(writer).write(any(ChangeBatch.class));
+        applyProperties.setLanes(1);
+        applyProperties.setBackpressure(ApplyProperties.Backpressure.FAIL);
+        sinkProperties.setBatchSize(1);
+        engine = newEngine();
+
+        assertThrows(IllegalStateException.class, () -> {
+            for (long id = 0; id < 100; id++) {
+                engine.submit(change(ChangeRecord.Op.CREATE, id, 1.0, 0));
+            }
+        });
+        release.countDown();
+    }
+
+    @Test
+    public void testCompactionWritesFinalStateAndCommitsEverything() throws Exception {
+        Map<Long, Double> applied = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            ChangeBatch batch = invocation.getArgument(0);
+            for (ChangeRecord record : batch.records()) {
+                applied.put(record.getId(), record.getSalary());
+            }
+            return null;
+        }).when(writer).write(any(ChangeBatch.class));
+        applyProperties.getCompaction().setEnabled(true);
+        engine = newEngine();
+
+        for (int version = 0; version < 50; version++) {
+            for (long id = 0; id < 10; id++) {
+                engine.submit(change(ChangeRecord.Op.UPDATE, id, (double) version, 0));
+            }
+        }
+
+        assertTrue(engine.drain(5000));
+        assertEquals(engine.submittedSequence(), engine.committedSequence());
+        for (long id = 0; id < 10; id++) {
+            assertEquals(49.0, applied.get(id));
+        }
+        assertEquals(490.0, meterRegistry.get("cdc.apply.compaction.eliminated").counter().count());
+    }
+
+    @Test
+    public void testFilteredChangesTakeNoSequenceAndAreNotWritten() throws Exception {
+        Map<Long, ChangeRecord.Op> applied = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            ChangeBatch batch = invocation.getArgument(0);
+            for (ChangeRecord record : batch.records()) {
+                applied.put(record.getId(), record.getOp());
+            }
+            return null;
+        }).when(writer).write(any());
+        TransformProperties transformProperties = new TransformProperties();
+        transformProperties.setFilter("salary >= 10.0");
+        engine = new ParallelApplyEngine("test", writer, applyProperties, sinkProperties, meterRegistry, Thread::new,
+                FlowController.fixed("test", sinkProperties.getBatchSize(), applyProperties.getLanes(), meterRegistry),
+                new ChangeTransformer(transformProperties, meterRegistry));
+        engine.start();
+
+        for (long id = 0; id < 20; id++) {
+            engine.submit(change(ChangeRecord.Op.CREATE, id, (double) id, 0));
+        }
+        engine.submit(change(ChangeRecord.Op.UPDATE, 15L, 1.0, 0));
+
+        assertEquals(11, engine.submittedSequence());
+        assertTrue(engine.drain(5000));
+        assertEquals(10, applied.size());
+        assertEquals(ChangeRecord.Op.DELETE, applied.get(15L));
+        assertEquals(11.0, meterRegistry.get("cdc.transform.events.filtered").counter().count());
+    }
+
+    private ParallelApplyEngine newEngine() {
+        ParallelApplyEngine applyEngine = new ParallelApplyEngine("test", writer, applyProperties, sinkProperties, meterRegistry);
+        applyEngine.start();
+        return applyEngine;
+    }
+}
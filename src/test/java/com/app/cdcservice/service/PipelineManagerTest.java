@@ -0,0 +1,177 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.ConnectProperties;
+import com.app.cdcservice.config.EventFormatProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.model.Pipeline;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PipelineManagerTest {
+
+    private static final String CONNECT = "http://connect:8083/connectors/";
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final PipelineRegistry registry = mock(PipelineRegistry.class);
+    private final ConnectAdminClient connectAdminClient = mock(ConnectAdminClient.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EventFormatProperties eventFormatProperties = new EventFormatProperties();
+    private final StreamingProperties streamingProperties = new StreamingProperties();
+    private final PipelineManager manager = newManager();
+
+    @AfterEach
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    public void testStartPutsSourceAndSinkOfEveryPipeline() throws Exception {
+        Pipeline hot = pipeline("hot", "public.orders");
+        hot.setTopicPartitions(12);
+        hot.setSinkTasksMax(12);
+        when(registry.list()).thenReturn(Arrays.asList(pipeline("default", "public.employee"), hot));
+
+        manager.start("default");
+
+        verify(restTemplate).put(eq(CONNECT + "default-source/config"), anyMap());
+        verify(restTemplate).put(eq(CONNECT + "default-sink/config"), anyMap());
+        verify(restTemplate).put(eq(CONNECT + "hot-source/config"), anyMap());
+        verify(restTemplate).put(eq(CONNECT + "hot-sink/config"), anyMap());
+        verify(connectAdminClient).invalidate();
+        assertEquals("never", manager.sourceConfig(pipeline("default", "public.employee")).get("snapshot.mode"));
+        assertFalse(manager.sourceConfig(hot).containsKey("snapshot.mode"));
+    }
+
+    @Test
+    public void testBinaryValueFormatInKafkaMode() {
+        streamingProperties.setMode(StreamingMode.KAFKA);
+        eventFormatProperties.setValueFormat(EventFormatProperties.ValueFormat.BINARY);
+        eventFormatProperties.setCompression("zstd");
+
+        Map<String, String> source = manager.sourceConfig(pipeline("default", "public.employee"));
+
+        assertEquals(BinaryChangeEventConverter.class.getName(), source.get("value.converter"));
+        assertEquals("/data/schema-registry.json", source.get("value.converter.schema.registry.file"));
+        assertEquals("org.apache.kafka.connect.json.JsonConverter", source.get("key.converter"));
+        assertEquals("zstd", source.get("producer.override.compression.type"));
+    }
+
+    @Test
+    public void testConnectorConfigCarriesPipelineSettings() {
+        Pipeline hot = pipeline("hot", "public.orders", "public.order_lines");
+        hot.setTopicPartitions(12);
+        hot.setSinkTasksMax(6);
+        hot.setSinkBatchSize(500);
+
+        Map<String, String> source = manager.sourceConfig(hot);
+        Map<String, String> sink = manager.sinkConfig(hot);
+
+        assertEquals("public.orders,public.order_lines", source.get("table.include.list"));
+        assertEquals("hot", source.get("slot.name"));
+        assertEquals("dbz_hot", source.get("publication.name"));
+        assertEquals("12", source.get("topic.creation.default.partitions"));
+        assertEquals("hot.public.orders,hot.public.order_lines", sink.get("topics"));
+        assertEquals("6", sink.get("tasks.max"));
+        assertEquals("500", sink.get("batch.size"));
+        // Changes replayed after a backfill overwrite the copied rows
+        assertEquals("upsert", sink.get("insert.mode"));
+        assertEquals("record_key", sink.get("pk.mode"));
+        assertEquals("true", sink.get("delete.enabled"));
+    }
+
+    @Test
+    public void testKafkaModeOnlyManagesSourceConnectors() throws Exception {
+        streamingProperties.setMode(StreamingMode.KAFKA);
+        manager.kafkaSchemasEnabled = false;
+        Pipeline pipeline = pipeline("default", "public.employee");
+        when(registry.list()).thenReturn(Arrays.asList(pipeline));
+
+        manager.start(null);
+        manager.stop();
+
+        verify(restTemplate).put(eq(CONNECT + "default-source/config"), anyMap());
+        verify(restTemplate, never()).put(eq(CONNECT + "default-sink/config"), any());
+        verify(restTemplate).delete(CONNECT + "default-source");
+        verify(restTemplate, never()).delete(CONNECT + "default-sink");
+        assertEquals("false", manager.sourceConfig(pipeline).get("value.converter.schemas.enable"));
+    }
+
+    @Test
+    public void testReportsEveryFailedPipelineAfterApplyingTheRest() throws Exception {
+        when(registry.list()).thenReturn(Arrays.asList(pipeline("a", "public.a"), pipeline("b", "public.b"),
+                pipeline("c", "public.c")));
+        doThrow(new ResourceAccessException("Connection refused")).when(restTemplate).put(eq(CONNECT + "a-source/config"), any());
+        doThrow(new ResourceAccessException("Connection refused")).when(restTemplate).put(eq(CONNECT + "c-sink/config"), any());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> manager.start(null));
+
+        assertEquals("a: Connection refused; c: Connection refused", e.getMessage());
+        verify(restTemplate).put(eq(CONNECT + "b-sink/config"), anyMap());
+    }
+
+    @Test
+    public void testRemoveToleratesMissingConnectors() throws Exception {
+        when(registry.remove("hot")).thenReturn(Optional.of(pipeline("hot", "public.orders")));
+        doThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null))
+                .when(restTemplate).delete(CONNECT + "hot-source");
+
+        assertTrue(manager.remove("hot"));
+
+        verify(restTemplate).delete(CONNECT + "hot-sink");
+    }
+
+    @Test
+    public void testStatusIsGroupedByPipeline() throws Exception {
+        when(registry.list()).thenReturn(Arrays.asList(pipeline("default", "public.employee")));
+        when(connectAdminClient.status(Arrays.asList("default-source", "default-sink"))).thenReturn("{\"connectors\":{"
+                + "\"default-source\":{\"connector\":{\"state\":\"RUNNING\"},\"tasks\":[{\"id\":0,\"state\":\"RUNNING\"}]},"
+                + "\"default-sink\":{\"connector\":{\"state\":\"RUNNING\"},\"tasks\":[{\"id\":0,\"state\":\"FAILED\"}]}},"
+                + "\"ageMs\":7}");
+
+        JsonNode status = objectMapper.readTree(manager.status());
+
+        assertEquals("FAILED", status.at("/pipelines/default/state").asText());
+        assertEquals("public.employee", status.at("/pipelines/default/tables/0").asText());
+        assertEquals("FAILED", status.at("/pipelines/default/sink/tasks/0/state").asText());
+        assertEquals(7, status.get("ageMs").asLong());
+    }
+
+    private PipelineManager newManager() {
+        ConnectProperties properties = new ConnectProperties();
+        properties.setUrl("http://connect:8083");
+        PipelineManager pipelineManager = new PipelineManager(restTemplate, registry, connectAdminClient, properties,
+                eventFormatProperties, objectMapper, new WorkerThreads(false), streamingProperties);
+        return pipelineManager;
+    }
+
+    private static Pipeline pipeline(String name, String... tables) {
+        Pipeline pipeline = PipelineRegistryTest.pipeline(tables);
+        pipeline.setName(name);
+        PipelineRegistry.applyDefaults(pipeline);
+        return pipeline;
+    }
+}
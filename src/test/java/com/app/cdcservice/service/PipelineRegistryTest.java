@@ -0,0 +1,85 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.PipelineProperties;
+import com.app.cdcservice.model.Pipeline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PipelineRegistryTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testDerivesNamesFromPipelineName() {
+        PipelineProperties properties = properties();
+        properties.getPipelines().put("hot-orders", pipeline("public.orders"));
+
+        Pipeline pipeline = new PipelineRegistry(properties, objectMapper).get("hot-orders").get();
+
+        assertEquals("hot-orders", pipeline.getServerName());
+        assertEquals("hot_orders", pipeline.getSlotName());
+        assertEquals("dbz_hot_orders", pipeline.getPublicationName());
+        assertEquals("hot-orders-source", pipeline.getSourceConnector());
+        assertEquals("hot-orders-sink", pipeline.getSinkConnector());
+    }
+
+    @Test
+    public void testRejectsTableOwnedByAnotherPipeline() {
+        PipelineProperties properties = properties();
+        properties.getPipelines().put("default", pipeline("public.employee", "public.orders"));
+        PipelineRegistry registry = new PipelineRegistry(properties, objectMapper);
+
+        Pipeline hot = pipeline("public.orders");
+        hot.setName("hot");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> registry.put(hot));
+
+        assertEquals("Table public.orders already belongs to pipeline default", e.getMessage());
+        assertFalse(registry.get("hot").isPresent());
+    }
+
+    @Test
+    public void testSavedPipelinesReplaceConfiguredOnes() throws Exception {
+        PipelineProperties properties = properties();
+        properties.getPipelines().put("default", pipeline("public.employee"));
+        PipelineRegistry registry = new PipelineRegistry(properties, objectMapper);
+
+        Pipeline hot = pipeline("public.orders");
+        hot.setName("hot");
+        hot.setTopicPartitions(12);
+        hot.setSinkTasksMax(12);
+        registry.put(hot);
+        registry.remove("default");
+
+        PipelineProperties reloaded = properties();
+        reloaded.getPipelines().put("default", pipeline("public.employee"));
+        PipelineRegistry restarted = new PipelineRegistry(reloaded, objectMapper);
+
+        assertEquals(1, restarted.list().size());
+        assertEquals(12, restarted.get("hot").get().getSinkTasksMax());
+        assertEquals(Collections.singletonList("public.orders"), restarted.get("hot").get().getTables());
+    }
+
+    private PipelineProperties properties() {
+        PipelineProperties properties = new PipelineProperties();
+        properties.setPipelineFile(dir.resolve("pipelines.json").toString());
+        return properties;
+    }
+
+    static Pipeline pipeline(String... tables) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setTables(Arrays.asList(tables));
+        return pipeline;
+    }
+}
@@ -0,0 +1,47 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.app.cdcservice.service.MicroBatcherTest.change;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplicationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ReplicationMetrics metrics = new ReplicationMetrics(registry);
+
+    @Test
+    public void testRecordsReceivedEventsPerTable() {
+        metrics.recordReceived("dbserver1.public.employee", 120);
+        metrics.recordReceived("dbserver1.public.employee", 80);
+
+        assertEquals(2.0, registry.get("cdc.source.events").tag("table", "public.employee").counter().count());
+        assertEquals(200.0, registry.get("cdc.source.bytes").tag("table", "public.employee").counter().count());
+    }
+
+    @Test
+    public void testRecordsApplyLatencyFromSourceTimestamp() {
+        ChangeRecord record = change(ChangeRecord.Op.UPDATE, 1L, 100.0, 1);
+        record.setSourceTsMs(System.currentTimeMillis() - 2_000);
+        record.setLsn(42);
+        ChangeBatch batch = new ChangeBatch();
+        batch.add(record);
+
+        metrics.recordApplied("public.employee", batch);
+
+        assertEquals(1, registry.get("cdc.replication.latency").timer().count());
+        assertTrue(registry.get("cdc.replication.latency").timer().max(TimeUnit.MILLISECONDS) >= 2_000);
+        assertEquals(42.0, registry.get("cdc.replication.lsn").gauge().value());
+    }
+
+    @Test
+    public void testTableOfStripsServerName() {
+        assertEquals("public.employee", ReplicationMetrics.tableOf("dbserver1.public.employee"));
+        assertEquals("employee", ReplicationMetrics.tableOf("employee"));
+    }
+}
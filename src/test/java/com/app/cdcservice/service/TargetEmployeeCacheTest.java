@@ -0,0 +1,129 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.config.CacheProperties;
+import com.app.cdcservice.config.ClusterProperties;
+import com.app.cdcservice.config.StreamingMode;
+import com.app.cdcservice.config.StreamingProperties;
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import com.app.cdcservice.repository.TargetEmployeeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TargetEmployeeCacheTest {
+
+    private final TargetEmployeeRepository repository = mock(TargetEmployeeRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testServesRepeatedReadsFromCache() {
+        when(repository.findById(1L)).thenReturn(Optional.of(employee(1L, "Ann", "R&D")));
+        TargetEmployeeCache cache = newCache(StreamingMode.KAFKA);
+
+        cache.get(1L);
+        cache.get(1L);
+
+        verify(repository, times(1)).findById(1L);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "employee").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(0.5, meterRegistry.get("cdc.cache.hit.ratio").tag("cache", "employee").gauge().value());
+    }
+
+    @Test
+    public void testAppliedBatchUpdatesAndEvictsCachedRows() {
+        when(repository.findById(1L)).thenReturn(Optional.of(employee(1L, "Ann", "R&D")));
+        when(repository.findById(2L)).thenReturn(Optional.of(employee(2L, "Bob", "R&D")));
+        TargetEmployeeCache cache = newCache(StreamingMode.KAFKA);
+        cache.get(1L);
+        cache.get(2L);
+
+        ChangeBatch batch = new ChangeBatch();
+        batch.add(ChangeRecord.of(ChangeRecord.Op.UPDATE, employee(1L, "Ann Lee", "R&D")));
+        batch.add(ChangeRecord.of(ChangeRecord.Op.DELETE, employee(2L, null, null)));
+        cache.applied(batch);
+        when(repository.findById(2L)).thenReturn(Optional.empty());
+
+        assertEquals("Ann Lee", cache.get(1L).get().getName());
+        assertFalse(cache.get(2L).isPresent());
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testDepartmentIndexFollowsAppliedChanges() {
+        when(repository.findIdsByDepartment("R&D")).thenReturn(Arrays.asList(1L, 2L));
+        when(repository.findById(1L)).thenReturn(Optional.of(employee(1L, "Ann", "R&D")));
+        when(repository.findById(2L)).thenReturn(Optional.of(employee(2L, "Bob", "R&D")));
+        TargetEmployeeCache cache = newCache(StreamingMode.KAFKA);
+        assertEquals(Arrays.asList(1L, 2L), ids(cache.getByDepartment("R&D")));
+
+        ChangeBatch batch = new ChangeBatch();
+        batch.add(ChangeRecord.of(ChangeRecord.Op.CREATE, employee(3L, "Cid", "R&D")));
+        batch.add(ChangeRecord.of(ChangeRecord.Op.UPDATE, employee(2L, "Bob", "Sales")));
+        cache.applied(batch);
+        when(repository.findById(3L)).thenReturn(Optional.of(employee(3L, "Cid", "R&D")));
+
+        assertEquals(Arrays.asList(1L, 3L), ids(cache.getByDepartment("R&D")));
+        verify(repository, times(1)).findIdsByDepartment("R&D");
+        // Rows are loaded one key at a time, never in bulk
+        verify(repository, times(1)).findById(1L);
+        verify(repository, times(1)).findById(3L);
+    }
+
+    @Test
+    public void testBypassedInConnectMode() {
+        when(repository.findById(1L)).thenReturn(Optional.of(employee(1L, "Ann", "R&D")));
+        TargetEmployeeCache cache = newCache(StreamingMode.CONNECT);
+
+        cache.get(1L);
+        cache.get(1L);
+        cache.applied(new ChangeBatch());
+
+        verify(repository, times(2)).findById(anyLong());
+    }
+
+    @Test
+    public void testBypassedWhenClustered() {
+        when(repository.findById(1L)).thenReturn(Optional.of(employee(1L, "Ann", "R&D")));
+        TargetEmployeeCache cache = newCache(StreamingMode.KAFKA, true);
+
+        cache.get(1L);
+        cache.get(1L);
+
+        assertFalse(cache.isEnabled());
+        verify(repository, times(2)).findById(anyLong());
+    }
+
+    private TargetEmployeeCache newCache(StreamingMode mode) {
+        return newCache(mode, false);
+    }
+
+    private TargetEmployeeCache newCache(StreamingMode mode, boolean clustered) {
+        StreamingProperties streamingProperties = new StreamingProperties();
+        streamingProperties.setMode(mode);
+        ClusterProperties clusterProperties = new ClusterProperties();
+        clusterProperties.setEnabled(clustered);
+        return new TargetEmployeeCache(repository, new CacheProperties(), meterRegistry, streamingProperties,
+                clusterProperties);
+    }
+
+    private static Employee employee(Long id, String name, String department) {
+        return new Employee(id, name, "Engineer", 100.0, department);
+    }
+
+    private static List<Long> ids(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,84 @@
+package com.app.cdcservice.service;
+
+import com.app.cdcservice.model.ChangeRecord;
+import com.app.cdcservice.model.Employee;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TargetOffsetStoreTest {
+
+    @Test
+    public void testChangesAtOrBelowLaneOffsetAreApplied() {
+        TargetOffsetStore.Watermarks watermarks = TargetOffsetStore.Watermarks.fromRows(Arrays.asList(
+                row(0, 0, 2, 100),
+                row(0, 1, 2, 90),
+                row(0, TargetOffsetStore.RESUME_LANE, 2, 91)), 2);
+
+        assertTrue(watermarks.isApplied(0, 0, 95));
+        assertTrue(watermarks.isApplied(0, 1, 90));
+        assertFalse(watermarks.isApplied(0, 1, 95));
+        assertFalse(watermarks.isApplied(1, 0, 5));
+        assertEquals(91L, watermarks.resumeOffset(0));
+        assertNull(watermarks.resumeOffset(1));
+    }
+
+    @Test
+    public void testLaneOffsetsOfAnotherLaneCountAreIgnored() {
+        TargetOffsetStore.Watermarks watermarks = TargetOffsetStore.Watermarks.fromRows(Arrays.asList(
+                row(0, 0, 4, 100),
+                row(0, 3, 4, 100),
+                row(0, TargetOffsetStore.RESUME_LANE, 4, 80)), 2);
+
+        assertFalse(watermarks.isApplied(0, 0, 50));
+        assertEquals(80L, watermarks.resumeOffset(0));
+    }
+
+    @Test
+    public void testRevokedPartitionIsForgotten() {
+        TargetOffsetStore.Watermarks watermarks = new TargetOffsetStore.Watermarks(2);
+        watermarks.putAll(TargetOffsetStore.Watermarks.fromRows(List.of(row(3, 0, 2, 10)), 2));
+        assertTrue(watermarks.isApplied(3, 0, 10));
+
+        watermarks.remove(3);
+
+        assertFalse(watermarks.isApplied(3, 0, 10));
+    }
+
+    @Test
+    public void testBatchKeepsHighestOffsetPerPartition() {
+        ChangeBatch batch = new ChangeBatch();
+        batch.add(change(1L, 0, 7));
+        batch.add(change(1L, 0, 9));
+        batch.add(change(2L, 1, 4));
+        batch.add(ChangeRecord.of(ChangeRecord.Op.UPDATE, new Employee(3L, "name", "position", 1.0, "Sales")));
+
+        assertEquals(Map.of(0, 9L, 1, 4L), batch.sourceOffsets());
+        batch.clear();
+        assertTrue(batch.sourceOffsets().isEmpty());
+    }
+
+    private static ChangeRecord change(Long id, int partition, long offset) {
+        ChangeRecord record = ChangeRecord.of(ChangeRecord.Op.UPDATE, new Employee(id, "name", "position", 1.0, "Sales"));
+        record.setSourcePartition(partition);
+        record.setSourceOffset(offset);
+        return record;
+    }
+
+    private static Map<String, Object> row(int partition, int lane, int lanes, long offset) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("kafka_partition", partition);
+        row.put("lane", lane);
+        row.put("lanes", lanes);
+        row.put("applied_offset", offset);
+        return row;
+    }
+}
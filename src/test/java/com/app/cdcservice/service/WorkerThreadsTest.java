@@ -0,0 +1,55 @@
+package com.app.cdcservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class WorkerThreadsTest {
+
+    @Test
+    public void testPlatformThreadsAreNamedDaemons() {
+        ThreadFactory factory = new WorkerThreads(false).factory("lane-");
+
+        Thread first = factory.newThread(() -> { });
+        Thread second = factory.newThread(() -> { });
+
+        assertEquals("lane-0", first.getName());
+        assertEquals("lane-1", second.getName());
+        assertTrue(first.isDaemon());
+    }
+
+    @Test
+    public void testFallsBackToPlatformThreadsBeforeJava21() {
+        assumeFalse(WorkerThreads.isVirtualSupported());
+
+        WorkerThreads workerThreads = new WorkerThreads(true);
+
+        assertFalse(workerThreads.isVirtual());
+        assertEquals("lane-0", workerThreads.factory("lane-").newThread(() -> { }).getName());
+    }
+
+    @Test
+    public void testRunsTasksOnVirtualThreads() throws Exception {
+        assumeTrue(WorkerThreads.isVirtualSupported());
+        WorkerThreads workerThreads = new WorkerThreads(true);
+        ExecutorService executor = workerThreads.executor("http-", 0);
+
+        try {
+            String thread = executor.submit(() -> Thread.currentThread().toString()).get(10, TimeUnit.SECONDS);
+
+            assertTrue(workerThreads.isVirtual());
+            assertTrue(thread.startsWith("VirtualThread"), thread);
+            assertTrue(thread.contains("http-0"), thread);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}